@@ -17,7 +17,7 @@ import net.aerith.misao.gui.PlotProperty;
  * The <code>CatalogManager</code> represents a set of all catalogs.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 May 5
+ * @version 2026 October 18
  */
 
 public class CatalogManager {
@@ -505,6 +505,8 @@ public class CatalogManager {
 
 		list.addElement(new AstrometricaReader());
 
+		list.addElement(new TileCatalogReader());
+
 		return list;
 	}
 
@@ -516,6 +518,7 @@ public class CatalogManager {
 		Vector list = new Vector();
 
 		list.addElement(new AstrometricaWriter());
+		list.addElement(new TileCatalogWriter());
 
 		return list;
 	}
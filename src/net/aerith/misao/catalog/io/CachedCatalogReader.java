@@ -0,0 +1,274 @@
+/*
+ * @(#)CachedCatalogReader.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.catalog.io;
+import java.io.*;
+import java.net.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.catalog.*;
+import net.aerith.misao.pixy.Resource;
+import net.aerith.misao.io.CdromNotFoundException;
+
+/**
+ * The <code>CachedCatalogReader</code> is a catalog reader to read
+ * stars from another catalog reader through the process-wide
+ * <code>CatalogQueryCache</code>. The catalog is read directly when
+ * the cache is disabled, when all the stars are read, or when the
+ * catalog depends on the date or has limit on the field of view.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class CachedCatalogReader extends CatalogReader {
+	/**
+	 * The catalog reader to read stars actually.
+	 */
+	protected CatalogReader reader;
+
+	/**
+	 * The list of stars read through the cache. In the case of null,
+	 * the catalog is read directly.
+	 */
+	protected CatalogStarList list = null;
+
+	/**
+	 * The index of the next star in the list.
+	 */
+	protected int current_index = 0;
+
+	/**
+	 * Constructs a <code>CachedCatalogReader</code>.
+	 * @param reader the catalog reader to read stars actually.
+	 */
+	public CachedCatalogReader ( CatalogReader reader ) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Gets the catalog reader to read stars actually.
+	 * @return the catalog reader.
+	 */
+	public CatalogReader getReader ( ) {
+		return reader;
+	}
+
+	/**
+	 * Adds URL where to read data.
+	 * @param new_url the new URL to read data.
+	 */
+	public void addURL ( URL new_url ) {
+		reader.addURL(new_url);
+	}
+
+	/**
+	 * Gets the catalog name. It must be unique among all subclasses.
+	 * @return the catalog name.
+	 */
+	public String getName ( ) {
+		return reader.getName();
+	}
+
+	/**
+	 * Checks if the catalog data is in a directory.
+	 * @return true if the catalog data is in a directory.
+	 */
+	public boolean isInDirectory ( ) {
+		return reader.isInDirectory();
+	}
+
+	/**
+	 * Checks if the catalog data is a file.
+	 * @return true if the catalog data is a file.
+	 */
+	public boolean isFile ( ) {
+		return reader.isFile();
+	}
+
+	/**
+	 * Checks if the catalog supports the use in PIXY examination.
+	 * @return true if the catalog can be used in PIXY examination.
+	 */
+	public boolean supportsExamination ( ) {
+		return reader.supportsExamination();
+	}
+
+	/**
+	 * Checks if the catalog depends on the date.
+	 * @return true if the catalog depends on the date.
+	 */
+	public boolean isDateDependent ( ) {
+		return reader.isDateDependent();
+	}
+
+	/**
+	 * Sets the date.
+	 * @param date the date.
+	 */
+	public void setDate ( JulianDay date ) {
+		reader.setDate(date);
+	}
+
+	/**
+	 * Returns true if the reader has limit on the field of view.
+	 * @return true if the reader has limit on the field of view.
+	 */
+	public boolean hasFovLimit ( ) {
+		return reader.hasFovLimit();
+	}
+
+	/**
+	 * Gets the limit on the field of view.
+	 * @return the limit on the field of view in degree.
+	 */
+	public double getFovLimit ( ) {
+		return reader.getFovLimit();
+	}
+
+	/**
+	 * Gets the message for limit on the field of view.
+	 * @return the message for limit on the field of view.
+	 */
+	public String getFovLimitMessage ( ) {
+		return reader.getFovLimitMessage();
+	}
+
+	/**
+	 * Returns true if the reader has limit on the date.
+	 * @return true if the reader has limit on the date.
+	 */
+	public boolean hasDateLimit ( ) {
+		return reader.hasDateLimit();
+	}
+
+	/**
+	 * Gets the limit on the date.
+	 * @return the limit on the date in day.
+	 */
+	public double getDateLimit ( ) {
+		return reader.getDateLimit();
+	}
+
+	/**
+	 * Gets the message for limit on the date.
+	 * @return the message for limit on the date.
+	 */
+	public String getDateLimitMessage ( ) {
+		return reader.getDateLimitMessage();
+	}
+
+	/**
+	 * Gets the maximum error of position in arcsec. It is the search
+	 * area size to identify with other stars.
+	 * @return the maximum error of position in arcsec.
+	 */
+	public double getMaximumPositionErrorInArcsec ( ) {
+		return reader.getMaximumPositionErrorInArcsec();
+	}
+
+	/**
+	 * Gets the help message.
+	 * @return the help message.
+	 */
+	public String getHelpMessage ( ) {
+		return reader.getHelpMessage();
+	}
+
+	/**
+	 * Sets the limiting magnitude to read.
+	 * @param new_limiting_mag the new limiting magnitude.
+	 */
+	public void setLimitingMagnitude ( double new_limiting_mag ) {
+		limiting_mag = new_limiting_mag;
+		reader.setLimitingMagnitude(new_limiting_mag);
+	}
+
+	/**
+	 * Opens a catalog. This method must be invoked at first.
+	 * @param coor the R.A. and Decl. of the center.
+	 * @param fov  the field of view to read in degree.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 */
+	public void open ( Coor coor, double fov )
+		throws IOException, FileNotFoundException, CdromNotFoundException
+	{
+		list = null;
+		current_index = 0;
+
+		if (coor == null  ||  Resource.getCatalogCacheSizeLimit() <= 0  ||  reader.isDateDependent()  ||  reader.hasFovLimit()) {
+			reader.open(coor, fov);
+			return;
+		}
+
+		try {
+			list = CatalogQueryCache.read(reader, getCatalogKey(), coor, fov, limiting_mag);
+		} catch ( QueryFailException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} finally {
+			reader.setLimitingMagnitude(limiting_mag);
+		}
+	}
+
+	/**
+	 * Reads one star from the opened catalog. After this method is
+	 * invoked, the cursor is promoted to tne next star. When every
+	 * data is read, it returns null.
+	 * @return a star data.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 * @exception QueryFailException if the query to the server is
+	 * failed.
+	 */
+	public CatalogStar readNext ( )
+		throws IOException, FileNotFoundException, CdromNotFoundException, QueryFailException
+	{
+		if (list == null)
+			return reader.readNext();
+
+		if (current_index >= list.size())
+			return null;
+		return (CatalogStar)list.elementAt(current_index++);
+	}
+
+	/**
+	 * Closes a catalog. This method must be invoked finally.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	public void close ( )
+		throws IOException
+	{
+		if (list == null) {
+			reader.close();
+		} else {
+			list = null;
+		}
+	}
+
+	/**
+	 * Gets the key string of the catalog, which consists of the name
+	 * and the URLs.
+	 * @return the key string of the catalog.
+	 */
+	protected String getCatalogKey ( ) {
+		StringBuffer buffer = new StringBuffer(reader.getName());
+
+		URL[] urls = reader.url_set.getURLs();
+		for (int i = 0 ; i < urls.length ; i++)
+			buffer.append("\t" + urls[i].toExternalForm());
+
+		return buffer.toString();
+	}
+}
@@ -0,0 +1,530 @@
+/*
+ * @(#)CatalogQueryCache.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.catalog.io;
+import java.io.*;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.catalog.*;
+import net.aerith.misao.pixy.Resource;
+import net.aerith.misao.io.CdromNotFoundException;
+
+/**
+ * The <code>CatalogQueryCache</code> is a process-wide cache of stars
+ * read from catalogs. The stars are kept per catalog, per tile of the
+ * <code>SkyTileIndex</code> and per limiting magnitude, in arrays of
+ * primitive values, and restored to new star objects for each query.
+ * The tiles least recently used are removed when the total size
+ * exceeds <code>Resource.getCatalogCacheSizeLimit</code>.
+ * <p>
+ * When some tiles are not in the cache, the catalog is read at once
+ * in the circle which contains all of them, and the stars are
+ * distributed into the tiles.
+ * <p>
+ * If all the stars of a tile read from a catalog are not fainter than
+ * the limiting magnitude, the catalog is regarded to judge the
+ * limiting magnitude by the magnitude of the star object. Then the
+ * tile is also used for the query with a brighter limiting magnitude.
+ * Otherwise the tile is used only for the same limiting magnitude.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class CatalogQueryCache {
+	/**
+	 * The level of the tiles.
+	 */
+	public final static int TILE_LEVEL = 6;
+
+	/**
+	 * The index of the tiles.
+	 */
+	private final static SkyTileIndex index = new SkyTileIndex(TILE_LEVEL);
+
+	/**
+	 * The lock object.
+	 */
+	private final static Object lock = new Object();
+
+	/**
+	 * The hash table of the list of cached tiles of each catalog and
+	 * tile, in order of access.
+	 */
+	private static LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	/**
+	 * The total size of the cached tiles in bytes.
+	 */
+	private static long total_size = 0;
+
+	/**
+	 * The number of tiles found in the cache.
+	 */
+	private static long hit_count = 0;
+
+	/**
+	 * The number of tiles not found in the cache.
+	 */
+	private static long miss_count = 0;
+
+	/**
+	 * Reads the stars in the specified area from the specified catalog
+	 * reader through the cache.
+	 * @param reader       the catalog reader.
+	 * @param catalog_key  the key string of the catalog.
+	 * @param coor         the R.A. and Decl. of the center.
+	 * @param fov          the field of view to read in degree.
+	 * @param limiting_mag the limiting magnitude.
+	 * @return the list of stars in the specified area.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 * @exception QueryFailException if the query to the server is
+	 * failed.
+	 */
+	public static CatalogStarList read ( CatalogReader reader, String catalog_key, Coor coor, double fov, double limiting_mag )
+		throws IOException, FileNotFoundException, CdromNotFoundException, QueryFailException
+	{
+		CircumArea circum_area = new CircumArea(coor, fov / 2.0);
+		int[] tiles = index.getTiles(coor, circum_area.getMaximumRadius());
+
+		TileEntry[] tile_entries = new TileEntry[tiles.length];
+		Vector missing_tiles = new Vector();
+
+		synchronized (lock) {
+			for (int i = 0 ; i < tiles.length ; i++) {
+				tile_entries[i] = lookup(catalog_key + "\t" + tiles[i], limiting_mag);
+				if (tile_entries[i] == null) {
+					missing_tiles.addElement(new Integer(tiles[i]));
+					miss_count++;
+				} else {
+					hit_count++;
+				}
+			}
+		}
+
+		if (missing_tiles.size() > 0) {
+			Hashtable filled = fill(reader, coor, missing_tiles, limiting_mag);
+
+			synchronized (lock) {
+				for (int i = 0 ; i < tiles.length ; i++) {
+					if (tile_entries[i] == null) {
+						tile_entries[i] = (TileEntry)filled.get(new Integer(tiles[i]));
+						insert(catalog_key + "\t" + tiles[i], tile_entries[i]);
+					}
+				}
+				evict();
+			}
+		}
+
+		ChartMapFunction cmf = new ChartMapFunction(coor, 1.0, 0.0);
+
+		CatalogStarList list = new CatalogStarList();
+		for (int i = 0 ; i < tiles.length ; i++)
+			tile_entries[i].addStars(list, circum_area, limiting_mag, cmf);
+		return list;
+	}
+
+	/**
+	 * Looks up the cached tile which can be used for the specified
+	 * limiting magnitude. This method must be invoked in the lock.
+	 * @param key          the key string of the catalog and tile.
+	 * @param limiting_mag the limiting magnitude.
+	 * @return the cached tile, or null if not found.
+	 */
+	private static TileEntry lookup ( String key, double limiting_mag ) {
+		Vector list = (Vector)entries.get(key);
+		if (list == null)
+			return null;
+
+		TileEntry best = null;
+		for (int i = 0 ; i < list.size() ; i++) {
+			TileEntry entry = (TileEntry)list.elementAt(i);
+			if (entry.limiting_mag == limiting_mag)
+				return entry;
+			if (entry.mag_consistent  &&  entry.limiting_mag > limiting_mag) {
+				if (best == null  ||  best.limiting_mag > entry.limiting_mag)
+					best = entry;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Inserts the tile into the cache. This method must be invoked in
+	 * the lock.
+	 * @param key   the key string of the catalog and tile.
+	 * @param entry the tile.
+	 */
+	private static void insert ( String key, TileEntry entry ) {
+		Vector list = (Vector)entries.get(key);
+		if (list == null) {
+			list = new Vector();
+			entries.put(key, list);
+		}
+
+		for (int i = 0 ; i < list.size() ; i++) {
+			if (((TileEntry)list.elementAt(i)).limiting_mag == entry.limiting_mag)
+				return;
+		}
+
+		list.addElement(entry);
+		total_size += entry.size;
+	}
+
+	/**
+	 * Removes the tiles least recently used while the total size
+	 * exceeds the limit. This method must be invoked in the lock.
+	 */
+	private static void evict ( ) {
+		long limit = Resource.getCatalogCacheSizeLimit();
+
+		Iterator it = entries.values().iterator();
+		while (total_size > limit  &&  it.hasNext()) {
+			Vector list = (Vector)it.next();
+			for (int i = 0 ; i < list.size() ; i++)
+				total_size -= ((TileEntry)list.elementAt(i)).size;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Reads the catalog in the circle which contains all of the
+	 * specified tiles, and creates the tiles.
+	 * @param reader       the catalog reader.
+	 * @param coor         the R.A. and Decl. of the center of the query.
+	 * @param tiles        the list of tiles.
+	 * @param limiting_mag the limiting magnitude.
+	 * @return the hash table of the tiles.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 * @exception QueryFailException if the query to the server is
+	 * failed.
+	 */
+	private static Hashtable fill ( CatalogReader reader, Coor coor, Vector tiles, double limiting_mag )
+		throws IOException, FileNotFoundException, CdromNotFoundException, QueryFailException
+	{
+		Hashtable builders = new Hashtable();
+
+		double radius = 0.0;
+		for (int i = 0 ; i < tiles.size() ; i++) {
+			int tile = ((Integer)tiles.elementAt(i)).intValue();
+			double r = coor.getAngularDistanceTo(index.getTileCenter(tile)) + index.getTileRadius(tile);
+			if (radius < r)
+				radius = r;
+
+			builders.put(tiles.elementAt(i), new TileEntry(limiting_mag));
+		}
+
+		reader.setLimitingMagnitude(limiting_mag);
+		CatalogStarList list = reader.read(coor, radius * 2.0 + 1.0 / 3600.0);
+
+		boolean mag_consistent = true;
+		for (int i = 0 ; i < list.size() ; i++) {
+			CatalogStar star = (CatalogStar)list.elementAt(i);
+			if (star.getMag() > limiting_mag)
+				mag_consistent = false;
+
+			int tile = index.getTile(star.getCoor().getRA(), star.getCoor().getDecl());
+			TileEntry entry = (TileEntry)builders.get(new Integer(tile));
+			if (entry != null)
+				entry.add(star);
+		}
+
+		Enumeration keys = builders.keys();
+		while (keys.hasMoreElements()) {
+			TileEntry entry = (TileEntry)builders.get(keys.nextElement());
+			entry.complete(mag_consistent);
+		}
+
+		return builders;
+	}
+
+	/**
+	 * Gets the number of tiles found in the cache.
+	 * @return the number of tiles found in the cache.
+	 */
+	public static long getHitCount ( ) {
+		synchronized (lock) {
+			return hit_count;
+		}
+	}
+
+	/**
+	 * Gets the number of tiles not found in the cache.
+	 * @return the number of tiles not found in the cache.
+	 */
+	public static long getMissCount ( ) {
+		synchronized (lock) {
+			return miss_count;
+		}
+	}
+
+	/**
+	 * Gets the total size of the cached tiles in bytes.
+	 * @return the total size of the cached tiles in bytes.
+	 */
+	public static long getTotalSize ( ) {
+		synchronized (lock) {
+			return total_size;
+		}
+	}
+
+	/**
+	 * Gets the number of cached tiles.
+	 * @return the number of cached tiles.
+	 */
+	public static int getEntryCount ( ) {
+		synchronized (lock) {
+			int count = 0;
+			Iterator it = entries.values().iterator();
+			while (it.hasNext())
+				count += ((Vector)it.next()).size();
+			return count;
+		}
+	}
+
+	/**
+	 * Resets the numbers of tiles found and not found in the cache.
+	 */
+	public static void resetCounters ( ) {
+		synchronized (lock) {
+			hit_count = 0;
+			miss_count = 0;
+		}
+	}
+
+	/**
+	 * Removes all the cached tiles.
+	 */
+	public static void clear ( ) {
+		synchronized (lock) {
+			entries.clear();
+			total_size = 0;
+		}
+	}
+
+	/**
+	 * Shows the hit rate and the size of the cache to the specified
+	 * monitor.
+	 * @param monitor the monitor.
+	 */
+	public static void report ( Monitor monitor ) {
+		long hit = 0;
+		long miss = 0;
+		long size = 0;
+		synchronized (lock) {
+			hit = hit_count;
+			miss = miss_count;
+			size = total_size;
+		}
+
+		double rate = 0.0;
+		if (hit + miss > 0)
+			rate = (double)hit / (double)(hit + miss) * 100.0;
+
+		monitor.addMessage("Catalog cache: " + hit + " hits, " + miss + " misses (" + Format.formatDouble(rate, 5, 3).trim() + "%), " + size + " bytes in " + getEntryCount() + " tiles");
+	}
+
+	/**
+	 * The <code>TileEntry</code> represents the stars in a tile read
+	 * from a catalog with a limiting magnitude.
+	 */
+	protected static class TileEntry {
+		/**
+		 * The limiting magnitude.
+		 */
+		protected double limiting_mag;
+
+		/**
+		 * True if all the stars in the tile are not fainter than the
+		 * limiting magnitude.
+		 */
+		protected boolean mag_consistent = false;
+
+		/**
+		 * The number of stars.
+		 */
+		protected int count = 0;
+
+		/**
+		 * The R.A. of each star.
+		 */
+		protected double[] ra = new double[16];
+
+		/**
+		 * The Decl. of each star.
+		 */
+		protected double[] decl = new double[16];
+
+		/**
+		 * The magnitude of each star.
+		 */
+		protected double[] mag = new double[16];
+
+		/**
+		 * The accuracy of the R.A. and Decl. of each star.
+		 */
+		protected byte[] accuracy = new byte[16];
+
+		/**
+		 * The index of the class of each star.
+		 */
+		protected short[] class_index = new short[16];
+
+		/**
+		 * The offset of the encoded name and items of each star, and
+		 * the end.
+		 */
+		protected int[] payload_offset = new int[17];
+
+		/**
+		 * The encoded name and items of all stars.
+		 */
+		protected byte[] payload = new byte[256];
+
+		/**
+		 * The classes of stars.
+		 */
+		protected Vector classes = new Vector();
+
+		/**
+		 * The size in bytes.
+		 */
+		protected long size = 0;
+
+		/**
+		 * Constructs a <code>TileEntry</code>.
+		 * @param limiting_mag the limiting magnitude.
+		 */
+		protected TileEntry ( double limiting_mag ) {
+			this.limiting_mag = limiting_mag;
+		}
+
+		/**
+		 * Adds a star.
+		 * @param star the star.
+		 * @exception IOException if the star cannot be encoded.
+		 */
+		protected void add ( CatalogStar star )
+			throws IOException
+		{
+			if (count == ra.length) {
+				int n = count * 2;
+				ra = copy(ra, n);
+				decl = copy(decl, n);
+				mag = copy(mag, n);
+				byte[] a = new byte[n];
+				System.arraycopy(accuracy, 0, a, 0, count);
+				accuracy = a;
+				short[] c = new short[n];
+				System.arraycopy(class_index, 0, c, 0, count);
+				class_index = c;
+				int[] o = new int[n + 1];
+				System.arraycopy(payload_offset, 0, o, 0, count + 1);
+				payload_offset = o;
+			}
+
+			int index = classes.indexOf(star.getClass());
+			if (index < 0) {
+				index = classes.size();
+				classes.addElement(star.getClass());
+			}
+
+			byte[] b = TileCatalogWriter.encodePayload(star);
+			int offset = payload_offset[count];
+			if (offset + b.length > payload.length) {
+				byte[] p = new byte[Math.max(payload.length * 2, offset + b.length)];
+				System.arraycopy(payload, 0, p, 0, offset);
+				payload = p;
+			}
+			System.arraycopy(b, 0, payload, offset, b.length);
+
+			ra[count] = star.getCoor().getRA();
+			decl[count] = star.getCoor().getDecl();
+			mag[count] = star.getMag();
+			accuracy[count] = star.getCoorAccuracy();
+			class_index[count] = (short)index;
+			payload_offset[count + 1] = offset + b.length;
+			count++;
+		}
+
+		/**
+		 * Shrinks the arrays and calculates the size after all the
+		 * stars are added.
+		 * @param mag_consistent true if all the stars read from the
+		 * catalog are not fainter than the limiting magnitude.
+		 */
+		protected void complete ( boolean mag_consistent ) {
+			this.mag_consistent = mag_consistent;
+
+			ra = copy(ra, count);
+			decl = copy(decl, count);
+			mag = copy(mag, count);
+			byte[] a = new byte[count];
+			System.arraycopy(accuracy, 0, a, 0, count);
+			accuracy = a;
+			short[] c = new short[count];
+			System.arraycopy(class_index, 0, c, 0, count);
+			class_index = c;
+			int[] o = new int[count + 1];
+			System.arraycopy(payload_offset, 0, o, 0, count + 1);
+			payload_offset = o;
+			byte[] p = new byte[payload_offset[count]];
+			System.arraycopy(payload, 0, p, 0, p.length);
+			payload = p;
+
+			size = 128 + (long)count * (8 + 8 + 8 + 1 + 2 + 4) + (long)payload.length;
+		}
+
+		/**
+		 * Adds the stars in the specified area and brighter than the
+		 * limiting magnitude to the list.
+		 * @param list         the list of stars.
+		 * @param circum_area  the area.
+		 * @param limiting_mag the limiting magnitude.
+		 * @param cmf          the function to map the R.A. and Decl.
+		 * to the (x,y) position.
+		 * @exception IOException if a star cannot be created.
+		 */
+		protected void addStars ( CatalogStarList list, CircumArea circum_area, double limiting_mag, ChartMapFunction cmf )
+			throws IOException
+		{
+			boolean check_mag = (this.limiting_mag != limiting_mag);
+
+			for (int i = 0 ; i < count ; i++) {
+				if (check_mag  &&  mag[i] > limiting_mag)
+					continue;
+				if (circum_area.inArea(ra[i], decl[i]) == false)
+					continue;
+
+				int offset = payload_offset[i];
+				CatalogStar star = TileCatalogReader.createStar((Class)classes.elementAt(class_index[i]), payload, offset, payload_offset[i + 1] - offset, ra[i], decl[i], accuracy[i], mag[i], cmf);
+				list.addElement(star);
+			}
+		}
+
+		/**
+		 * Copies the array into a new array of the specified length.
+		 * @param array  the array.
+		 * @param length the length of the new array.
+		 * @return the new array.
+		 */
+		private double[] copy ( double[] array, int length ) {
+			double[] a = new double[length];
+			System.arraycopy(array, 0, a, 0, Math.min(count, length));
+			return a;
+		}
+	}
+}
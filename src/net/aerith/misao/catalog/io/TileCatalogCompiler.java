@@ -0,0 +1,149 @@
+/*
+ * @(#)TileCatalogCompiler.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.catalog.io;
+import java.io.*;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.catalog.*;
+
+/**
+ * The <code>TileCatalogCompiler</code> is a class to compile all the
+ * stars read by a catalog reader into a compiled tile catalog file,
+ * which is read by the <code>TileCatalogReader</code>.
+ * <p>
+ * It can be run from the command line as follows:
+ * <pre>
+ *   java net.aerith.misao.catalog.io.TileCatalogCompiler catalog-name catalog-path output-file [level]
+ * </pre>
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class TileCatalogCompiler extends Operation {
+	/**
+	 * The catalog reader to read the source stars.
+	 */
+	protected CatalogReader reader;
+
+	/**
+	 * The catalog writer.
+	 */
+	protected TileCatalogWriter writer;
+
+	/**
+	 * Constructs a <code>TileCatalogCompiler</code>.
+	 * @param reader the catalog reader to read the source stars.
+	 * @param file   the compiled tile catalog file.
+	 */
+	public TileCatalogCompiler ( CatalogReader reader, File file ) {
+		this.reader = reader;
+		this.writer = new TileCatalogWriter(file);
+	}
+
+	/**
+	 * Sets the level of the tiles.
+	 * @param level the level of the tiles.
+	 */
+	public void setLevel ( int level ) {
+		writer.setLevel(level);
+	}
+
+	/**
+	 * Returns true if the operation is ready to start.
+	 * @return true if the operation is ready to start.
+	 */
+	public boolean ready ( ) {
+		return true;
+	}
+
+	/**
+	 * Operates.
+	 * @exception Exception if an error occurs.
+	 */
+	protected void operate ( )
+		throws Exception
+	{
+		monitor_set.addMessage("Catalog: " + reader.getName());
+
+		writer.open();
+
+		UnsupportedStarClassException unsupported_exception = null;
+
+		reader.open();
+		try {
+			CatalogStar star = reader.readNext();
+			while (star != null) {
+				if (isStopped())
+					throw new InterruptedException();
+
+				try {
+					writer.write(star);
+				} catch ( UnsupportedStarClassException exception ) {
+					unsupported_exception = exception;
+				}
+
+				if (writer.getStarCount() % 1000000 == 0)
+					monitor_set.addMessage(writer.getStarCount() + " stars read.");
+
+				star = reader.readNext();
+			}
+		} finally {
+			reader.close();
+		}
+
+		monitor_set.addMessage(writer.getStarCount() + " stars read.");
+		monitor_set.addMessage("Sorting stars.");
+
+		writer.close();
+
+		monitor_set.addMessage("Succeeded to compile the catalog.");
+
+		if (unsupported_exception != null)
+			throw unsupported_exception;
+	}
+
+	/**
+	 * Compiles a catalog from the command line.
+	 * @param args the catalog name, the catalog path, the compiled
+	 * tile catalog file, and the level of the tiles optionally.
+	 * @exception Exception if an error occurs.
+	 */
+	public static void main ( String[] args )
+		throws Exception
+	{
+		if (args.length < 3) {
+			System.err.println("Usage: java net.aerith.misao.catalog.io.TileCatalogCompiler catalog-name catalog-path output-file [level]");
+			return;
+		}
+
+		CatalogReader reader = CatalogManager.getStarCatalogReader(args[0]);
+		if (reader == null) {
+			Vector list = CatalogManager.getIdentificationCatalogReaderList();
+			for (int i = 0 ; i < list.size() ; i++) {
+				if (((CatalogReader)list.elementAt(i)).getName().equals(args[0]))
+					reader = (CatalogReader)list.elementAt(i);
+			}
+		}
+		if (reader == null) {
+			System.err.println("No such catalog: " + args[0]);
+			return;
+		}
+
+		String[] paths = Format.separatePath(args[1]);
+		for (int i = 0 ; i < paths.length ; i++)
+			reader.addURL(new File(paths[i]).toURI().toURL());
+
+		TileCatalogCompiler compiler = new TileCatalogCompiler(reader, new File(args[2]));
+		if (args.length >= 4)
+			compiler.setLevel(Integer.parseInt(args[3]));
+		compiler.addMonitor(new PrintStreamMonitor(System.out));
+		compiler.perform();
+	}
+}
@@ -0,0 +1,525 @@
+/*
+ * @(#)TileCatalogReader.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.catalog.io;
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.catalog.*;
+import net.aerith.misao.xml.StarClass;
+import net.aerith.misao.io.CdromNotFoundException;
+
+/**
+ * The <code>TileCatalogReader</code> is a class to read a compiled
+ * tile catalog file, written by the <code>TileCatalogWriter</code>
+ * from any star catalog. The file is memory-mapped once when it is 
+ * loaded, and the mapping is reused while the file is not modified.
+ * Only the tiles overlapping the area and only the stars brighter 
+ * than the limiting magnitude in each tile are read.
+ * <p>
+ * The file consists of the header, the blocks of stars in each tile
+ * of the <code>SkyTileIndex</code>, and the directory. All values
+ * are in big endian.
+ * <pre>
+ *   int     magic number
+ *   int     version
+ *   int     level of the tiles
+ *   int     number of star classes
+ *   long    number of stars
+ *   long    offset of the directory
+ *   ...     blocks of stars
+ *   long[]  offsets of the blocks of all tiles, and the end
+ *   UTF[]   names of the star classes
+ * </pre>
+ * A block of n stars in a tile is sorted by the magnitude.
+ * <pre>
+ *   int     n
+ *   double[] magnitude
+ *   double[] R.A.
+ *   double[] Decl.
+ *   short[] index of the star class
+ *   byte[]  accuracy of the R.A. and Decl.
+ *   int[]   offsets of the encoded name and items, and the end
+ *   byte[]  encoded name and items, in UTF-8 separated by '\0'
+ * </pre>
+ * <p>
+ * Unlike the original catalog reader, the stars fainter than the
+ * limiting magnitude are not read, including the stars which have no
+ * significant magnitude.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class TileCatalogReader extends CatalogReader {
+	/**
+	 * The magic number of the file.
+	 */
+	protected final static int MAGIC = 0x50585443;
+
+	/**
+	 * The version of the file format.
+	 */
+	protected final static int VERSION = 2;
+
+	/**
+	 * The size of the header in bytes.
+	 */
+	protected final static int HEADER_SIZE = 32;
+
+	/**
+	 * The maximum size of one mapping in bytes.
+	 */
+	protected final static long MAPPING_LIMIT = Integer.MAX_VALUE;
+
+	/**
+	 * The file currently loaded.
+	 */
+	protected File loaded_file = null;
+
+	/**
+	 * The last modified time of the file currently loaded.
+	 */
+	protected long loaded_time = 0;
+
+	/**
+	 * The index of the tiles.
+	 */
+	protected SkyTileIndex index;
+
+	/**
+	 * The offsets of the blocks of all tiles.
+	 */
+	protected long[] offsets;
+
+	/**
+	 * The star classes.
+	 */
+	protected Class[] classes;
+
+	/**
+	 * The mappings of the blocks. A file larger than the limit of one
+	 * mapping is mapped in several parts, divided at the boundaries 
+	 * of the blocks.
+	 */
+	protected ByteBuffer[] mappings;
+
+	/**
+	 * The index of the mapping of each tile.
+	 */
+	protected int[] mapping_indexes;
+
+	/**
+	 * The offsets of the mappings in the file.
+	 */
+	protected long[] mapping_offsets;
+
+	/**
+	 * True when a catalog is opened.
+	 */
+	protected boolean opened = false;
+
+	/**
+	 * The circum area to read stars.
+	 */
+	protected CircumArea circum_area;
+
+	/**
+	 * The function to map the R.A. and Decl. to the (x,y) position.
+	 */
+	protected ChartMapFunction cmf;
+
+	/**
+	 * The tiles to read.
+	 */
+	protected int[] tiles;
+
+	/**
+	 * The index of the current tile.
+	 */
+	protected int current_tile;
+
+	/**
+	 * The current block.
+	 */
+	protected ByteBuffer block = null;
+
+	/**
+	 * The number of stars in the current block.
+	 */
+	protected int block_size;
+
+	/**
+	 * The number of stars brighter than the limiting magnitude in the
+	 * current block.
+	 */
+	protected int block_limit;
+
+	/**
+	 * The index of the current star in the current block.
+	 */
+	protected int current_star;
+
+	/**
+	 * Constructs a <code>TileCatalogReader</code>.
+	 */
+	public TileCatalogReader ( ) {
+		setDefaultURL();
+	}
+
+	/**
+	 * Constructs a <code>TileCatalogReader</code> with URL of the
+	 * data file.
+	 * @param url the URL of the data file.
+	 */
+	public TileCatalogReader ( URL url ) {
+		url_set.addURL(url);
+	}
+
+	/**
+	 * Gets the catalog name. It must be unique among all subclasses.
+	 * @return the catalog name.
+	 */
+	public String getName ( ) {
+		return "PIXY Compiled Tile Catalog";
+	}
+
+	/**
+	 * Checks if the catalog data is a file.
+	 * @return true if the catalog data is a file.
+	 */
+	public boolean isFile ( ) {
+		return true;
+	}
+
+	/**
+	 * Checks if the catalog supports the use in PIXY examination.
+	 * @return true if the catalog can be used in PIXY examination.
+	 */
+	public boolean supportsExamination ( ) {
+		return true;
+	}
+
+	/**
+	 * Opens a catalog. This method must be invoked at first.
+	 * @param coor the R.A. and Decl. of the center.
+	 * @param fov  the field of view to read in degree.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 */
+	public void open ( Coor coor, double fov )
+		throws IOException, FileNotFoundException, CdromNotFoundException
+	{
+		File file = getFile();
+
+		if (file.equals(loaded_file) == false  ||  file.lastModified() != loaded_time) {
+			loaded_file = null;
+			mappings = null;
+
+			// The mappings remain valid after the channel is closed.
+			FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+			try {
+				loadDirectory(channel);
+			} finally {
+				channel.close();
+			}
+			loaded_file = file;
+			loaded_time = file.lastModified();
+		}
+
+		opened = true;
+
+		center_coor = coor;
+		circum_area = null;
+		cmf = null;
+		if (coor != null) {
+			circum_area = new CircumArea(coor, fov / 2.0);
+			cmf = new ChartMapFunction(coor, 1.0, 0.0);
+
+			tiles = index.getTiles(coor, circum_area.getMaximumRadius());
+		} else {
+			tiles = new int[index.getTileCount()];
+			for (int i = 0 ; i < tiles.length ; i++)
+				tiles[i] = i;
+		}
+
+		current_tile = -1;
+		block = null;
+		block_limit = 0;
+		current_star = 0;
+	}
+
+	/**
+	 * Reads one star from the opened catalog. After this method is
+	 * invoked, the cursor is promoted to tne next star. When every
+	 * data is read, it returns null.
+	 * @return a star data.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 * @exception CdromNotFoundException if this reader is to read
+	 * data from CD-ROMs and a file does not exists in any URL.
+	 * @exception QueryFailException if the query to the server is
+	 * failed.
+	 */
+	public CatalogStar readNext ( )
+		throws IOException, FileNotFoundException, CdromNotFoundException, QueryFailException
+	{
+		if (opened == false)
+			throw new IOException();
+
+		while (true) {
+			if (current_star >= block_limit) {
+				if (readNextBlock() == false)
+					return null;
+				continue;
+			}
+
+			int i = current_star++;
+
+			double ra = block.getDouble(4 + 8 * block_size + 8 * i);
+			double decl = block.getDouble(4 + 16 * block_size + 8 * i);
+
+			if (circum_area == null  ||  circum_area.inArea(ra, decl))
+				return createStar(i, ra, decl);
+		}
+	}
+
+	/**
+	 * Closes a catalog. This method must be invoked finally.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	public void close ( )
+		throws IOException
+	{
+		opened = false;
+		block = null;
+	}
+
+	/**
+	 * Gets the catalog file.
+	 * @return the catalog file.
+	 * @exception IOException if the file is not a local file.
+	 * @exception FileNotFoundException if a file does not exists in
+	 * any URL.
+	 */
+	protected File getFile ( )
+		throws IOException, FileNotFoundException
+	{
+		URL url = url_set.exists();
+		if (url.getProtocol().equals("file") == false)
+			throw new IOException();
+
+		try {
+			return new File(url.toURI());
+		} catch ( URISyntaxException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Reads the header and the directory of the file, and maps the 
+	 * blocks of all tiles.
+	 * @param channel the file channel.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	protected void loadDirectory ( FileChannel channel )
+		throws IOException
+	{
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+		if (header.getInt(0) != MAGIC  ||  header.getInt(4) != VERSION)
+			throw new IOException();
+
+		index = new SkyTileIndex(header.getInt(8));
+		int class_count = header.getInt(12);
+		long directory_offset = header.getLong(24);
+
+		int tile_count = index.getTileCount();
+		ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, directory_offset, channel.size() - directory_offset);
+
+		offsets = new long[tile_count + 1];
+		for (int tile = 0 ; tile <= tile_count ; tile++)
+			offsets[tile] = directory.getLong();
+
+		byte[] b = new byte[directory.remaining()];
+		directory.get(b);
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(b));
+
+		classes = new Class[class_count];
+		for (int i = 0 ; i < class_count ; i++) {
+			String name = in.readUTF();
+
+			try {
+				classes[i] = StarClass.newInstance(name).getClass();
+			} catch ( Exception exception ) {
+				System.err.println(exception);
+				throw new IOException();
+			}
+		}
+
+		// Divides the blocks into mappings at the boundaries of the
+		// blocks, and maps each of them.
+		mapping_indexes = new int[tile_count];
+		long[] bounds = new long[tile_count + 1];
+		int count = 0;
+		bounds[0] = offsets[0];
+		for (int tile = 0 ; tile < tile_count ; tile++) {
+			if (offsets[tile + 1] - bounds[count] > MAPPING_LIMIT  &&  offsets[tile] > bounds[count]) {
+				count++;
+				bounds[count] = offsets[tile];
+			}
+			mapping_indexes[tile] = count;
+		}
+		count++;
+		bounds[count] = offsets[tile_count];
+
+		mappings = new ByteBuffer[count];
+		mapping_offsets = new long[count];
+		for (int i = 0 ; i < count ; i++) {
+			mapping_offsets[i] = bounds[i];
+			mappings[i] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+		}
+	}
+
+	/**
+	 * Proceeds to the next block which contains stars brighter than
+	 * the limiting magnitude.
+	 * @return false if all the blocks have been read.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	protected boolean readNextBlock ( )
+		throws IOException
+	{
+		block = null;
+		block_limit = 0;
+		current_star = 0;
+
+		while (current_tile + 1 < tiles.length) {
+			current_tile++;
+
+			int tile = tiles[current_tile];
+			long offset = offsets[tile];
+			long length = offsets[tile + 1] - offset;
+			if (length == 0)
+				continue;
+
+			ByteBuffer mapping = mappings[mapping_indexes[tile]];
+			int position = (int)(offset - mapping_offsets[mapping_indexes[tile]]);
+			ByteBuffer b = mapping.duplicate();
+			b.position(position);
+			b.limit(position + (int)length);
+			b = b.slice();
+			int n = b.getInt(0);
+
+			// The stars are sorted by the magnitude.
+			int low = 0;
+			int high = n;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (b.getDouble(4 + 8 * middle) <= limiting_mag)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			if (low > 0) {
+				block = b;
+				block_size = n;
+				block_limit = low;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Creates the star object of the specified index in the current
+	 * block.
+	 * @param i    the index of the star in the current block.
+	 * @param ra   the R.A.
+	 * @param decl the Decl.
+	 * @return the star object.
+	 * @exception IOException if the star cannot be created.
+	 */
+	protected CatalogStar createStar ( int i, double ra, double decl )
+		throws IOException
+	{
+		int n = block_size;
+		int class_index = block.getShort(4 + 24 * n + 2 * i);
+		byte accuracy = block.get(4 + 26 * n + i);
+		int payload_base = 4 + 27 * n + 4 * (n + 1);
+		int start = block.getInt(4 + 27 * n + 4 * i);
+		int end = block.getInt(4 + 27 * n + 4 * (i + 1));
+
+		byte[] b = new byte[end - start];
+		for (int k = 0 ; k < b.length ; k++)
+			b[k] = block.get(payload_base + start + k);
+
+		return createStar(classes[class_index], b, 0, b.length, ra, decl, accuracy, block.getDouble(4 + 8 * i), cmf);
+	}
+
+	/**
+	 * Creates the star object from the encoded name and items, 
+	 * written by <code>TileCatalogWriter.encodePayload</code>.
+	 * @param star_class the class of the star.
+	 * @param bytes      the array of the encoded name and items.
+	 * @param offset     the offset of the star in the array.
+	 * @param length     the length of the star in the array.
+	 * @param ra         the R.A.
+	 * @param decl       the Decl.
+	 * @param accuracy   the accuracy of the R.A. and Decl.
+	 * @param mag        the magnitude.
+	 * @param cmf        the function to map the R.A. and Decl. to the
+	 * (x,y) position, or null.
+	 * @return the star object.
+	 * @exception IOException if the star cannot be created.
+	 */
+	protected static CatalogStar createStar ( Class star_class, byte[] bytes, int offset, int length, double ra, double decl, byte accuracy, double mag, ChartMapFunction cmf )
+		throws IOException
+	{
+		String payload = new String(bytes, offset, length, "UTF-8");
+
+		CatalogStar star = null;
+		try {
+			star = (CatalogStar)star_class.newInstance();
+		} catch ( Exception exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+
+		int p = payload.indexOf('\u0000');
+		star.setName(p < 0 ? payload : payload.substring(0, p));
+
+		Coor coor = new Coor(ra, decl);
+		star.setCoor(coor);
+		star.setCoorAccuracy(accuracy);
+
+		if (cmf != null)
+			star.setPosition(cmf.mapCoordinatesToXY(coor));
+
+		while (p >= 0) {
+			int q = payload.indexOf('\u0000', p + 1);
+			int r = payload.indexOf('\u0000', q + 1);
+			String key = payload.substring(p + 1, q);
+			String value = (r < 0 ? payload.substring(q + 1) : payload.substring(q + 1, r));
+			star.setKeyAndValue(new KeyAndValue(key, value));
+			p = r;
+		}
+
+		star.setMag(mag);
+
+		return star;
+	}
+}
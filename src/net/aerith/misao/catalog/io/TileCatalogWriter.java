@@ -0,0 +1,498 @@
+/*
+ * @(#)TileCatalogWriter.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.catalog.io;
+import java.io.*;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.catalog.*;
+import net.aerith.misao.xml.StarClass;
+
+/**
+ * The <code>TileCatalogWriter</code> is a class to write the stars
+ * into a compiled tile catalog file, which is read by the
+ * <code>TileCatalogReader</code>. Any kind of catalog stars can be
+ * written. See <code>TileCatalogReader</code> for the file format.
+ * <p>
+ * Since the stars must be sorted by the tiles, they are written in
+ * temporary files of coarse tiles at first, and each temporary file
+ * is sorted in the memory and written into the catalog file when the
+ * catalog is closed.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class TileCatalogWriter extends CatalogWriter {
+	/**
+	 * The default level of the tiles.
+	 */
+	public final static int DEFAULT_LEVEL = 6;
+
+	/**
+	 * The maximum level of the coarse tiles of temporary files.
+	 */
+	protected final static int BUCKET_LEVEL = 2;
+
+	/**
+	 * The index of the tiles.
+	 */
+	protected SkyTileIndex index = new SkyTileIndex(DEFAULT_LEVEL);
+
+	/**
+	 * The level of the coarse tiles of temporary files.
+	 */
+	protected int bucket_level;
+
+	/**
+	 * The temporary files of coarse tiles.
+	 */
+	protected File[] bucket_files = null;
+
+	/**
+	 * The output streams of the temporary files.
+	 */
+	protected DataOutputStream[] bucket_streams = null;
+
+	/**
+	 * The list of names of the star classes.
+	 */
+	protected Vector class_list = new Vector();
+
+	/**
+	 * The hash table of the index of the star classes.
+	 */
+	protected Hashtable class_hash = new Hashtable();
+
+	/**
+	 * The number of stars written.
+	 */
+	protected long star_count = 0;
+
+	/**
+	 * Constructs an empty <code>TileCatalogWriter</code>.
+	 */
+	public TileCatalogWriter ( ) {
+		super();
+	}
+
+	/**
+	 * Constructs a <code>TileCatalogWriter</code> with the name of
+	 * the catalog file.
+	 * @param file the catalog file.
+	 */
+	public TileCatalogWriter ( File file ) {
+		super();
+
+		this.file = file;
+	}
+
+	/**
+	 * Gets the catalog name. It must be unique among all subclasses.
+	 * @return the catalog name.
+	 */
+	public String getName ( ) {
+		return "PIXY Compiled Tile Catalog";
+	}
+
+	/**
+	 * Sets the level of the tiles. This method must be invoked before
+	 * opening the catalog.
+	 * @param level the level of the tiles.
+	 */
+	public void setLevel ( int level ) {
+		index = new SkyTileIndex(level);
+	}
+
+	/**
+	 * Gets the number of stars written.
+	 * @return the number of stars written.
+	 */
+	public long getStarCount ( ) {
+		return star_count;
+	}
+
+	/**
+	 * Opens a catalog to write star data. This method must be invoked
+	 * at first.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	public void open()
+		throws IOException
+	{
+		if (file == null)
+			throw new IOException();
+
+		bucket_level = Math.min(index.getLevel(), BUCKET_LEVEL);
+		int bucket_count = new SkyTileIndex(bucket_level).getTileCount();
+		bucket_files = new File[bucket_count];
+		bucket_streams = new DataOutputStream[bucket_count];
+
+		class_list = new Vector();
+		class_hash = new Hashtable();
+		star_count = 0;
+	}
+
+	/**
+	 * Writes one star to the opened catalog.
+	 * @param star the star data.
+	 * @exception IOException if a file cannot be accessed.
+	 * @exception UnsupportedStarClassException if the specified star
+	 * is not supported.
+	 */
+	public void write ( Star star )
+		throws IOException, UnsupportedStarClassException
+	{
+		if (bucket_streams == null)
+			throw new IOException();
+
+		if ((star instanceof CatalogStar) == false)
+			throw new UnsupportedStarClassException(null);
+
+		CatalogStar catalog_star = (CatalogStar)star;
+
+		String class_name = StarClass.getClassName(star);
+		Integer class_index = (Integer)class_hash.get(class_name);
+		if (class_index == null) {
+			class_index = new Integer(class_list.size());
+			class_list.addElement(class_name);
+			class_hash.put(class_name, class_index);
+		}
+
+		double ra = star.getCoor().getRA();
+		double decl = star.getCoor().getDecl();
+		int tile = index.getTile(ra, decl);
+		int bucket = tile >> (2 * (index.getLevel() - bucket_level));
+
+		if (bucket_streams[bucket] == null) {
+			bucket_files[bucket] = File.createTempFile("pixy", ".tile");
+			bucket_files[bucket].deleteOnExit();
+			bucket_streams[bucket] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(bucket_files[bucket]), 65536));
+		}
+
+		byte[] payload = encodePayload(catalog_star);
+
+		DataOutputStream out = bucket_streams[bucket];
+		out.writeInt(tile);
+		out.writeDouble(star.getMag());
+		out.writeDouble(ra);
+		out.writeDouble(decl);
+		out.writeShort(class_index.intValue());
+		out.writeByte(catalog_star.getCoorAccuracy());
+		out.writeInt(payload.length);
+		out.write(payload);
+
+		star_count++;
+	}
+
+	/**
+	 * Closes a catalog. This method must be invoked finally.
+	 * @exception IOException if a file cannot be accessed.
+	 */
+	public void close()
+		throws IOException
+	{
+		if (bucket_streams == null)
+			throw new IOException();
+
+		for (int i = 0 ; i < bucket_streams.length ; i++) {
+			if (bucket_streams[i] != null)
+				bucket_streams[i].close();
+		}
+
+		int tile_count = index.getTileCount();
+		int tiles_per_bucket = tile_count / bucket_streams.length;
+		long[] offsets = new long[tile_count + 1];
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+
+		try {
+			// The header is written again finally.
+			out.write(new byte[TileCatalogReader.HEADER_SIZE]);
+			long position = TileCatalogReader.HEADER_SIZE;
+
+			for (int b = 0 ; b < bucket_streams.length ; b++) {
+				Bucket bucket = new Bucket();
+				if (bucket_files[b] != null) {
+					bucket.read(bucket_files[b]);
+					bucket_files[b].delete();
+					bucket_files[b] = null;
+				}
+
+				int[] order = bucket.sort();
+
+				int p = 0;
+				for (int tile = b * tiles_per_bucket ; tile < (b + 1) * tiles_per_bucket ; tile++) {
+					offsets[tile] = position;
+
+					int start = p;
+					while (p < order.length  &&  bucket.tile[order[p]] == tile)
+						p++;
+
+					if (p > start)
+						position += bucket.writeBlock(out, order, start, p);
+				}
+			}
+			offsets[tile_count] = position;
+
+			for (int tile = 0 ; tile <= tile_count ; tile++)
+				out.writeLong(offsets[tile]);
+			for (int i = 0 ; i < class_list.size() ; i++)
+				out.writeUTF((String)class_list.elementAt(i));
+		} finally {
+			out.close();
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.writeInt(TileCatalogReader.MAGIC);
+			raf.writeInt(TileCatalogReader.VERSION);
+			raf.writeInt(index.getLevel());
+			raf.writeInt(class_list.size());
+			raf.writeLong(star_count);
+			raf.writeLong(offsets[tile_count]);
+		} finally {
+			raf.close();
+		}
+
+		bucket_files = null;
+		bucket_streams = null;
+	}
+
+	/**
+	 * Encodes the name and the items of the specified star into the
+	 * UTF-8 bytes separated by the null character.
+	 * @param star the star.
+	 * @return the encoded bytes.
+	 * @exception IOException if the encoding is not supported.
+	 */
+	protected static byte[] encodePayload ( CatalogStar star )
+		throws IOException
+	{
+		StringBuffer buffer = new StringBuffer();
+		buffer.append(star.getName());
+
+		KeyAndValue[] key_and_values = star.getKeyAndValues();
+		if (key_and_values != null) {
+			for (int i = 0 ; i < key_and_values.length ; i++) {
+				buffer.append('\u0000');
+				buffer.append(key_and_values[i].getKey());
+				buffer.append('\u0000');
+				buffer.append(key_and_values[i].getValue());
+			}
+		}
+
+		return buffer.toString().getBytes("UTF-8");
+	}
+
+	/**
+	 * The <code>Bucket</code> represents the stars in a temporary file
+	 * of a coarse tile, read into the memory.
+	 */
+	protected static class Bucket {
+		/**
+		 * The number of stars.
+		 */
+		protected int count = 0;
+
+		/**
+		 * The tile of each star.
+		 */
+		protected int[] tile = new int[0];
+
+		/**
+		 * The magnitude of each star.
+		 */
+		protected double[] mag = new double[0];
+
+		/**
+		 * The R.A. of each star.
+		 */
+		protected double[] ra = new double[0];
+
+		/**
+		 * The Decl. of each star.
+		 */
+		protected double[] decl = new double[0];
+
+		/**
+		 * The index of the class of each star.
+		 */
+		protected short[] class_index = new short[0];
+
+		/**
+		 * The accuracy of the R.A. and Decl. of each star.
+		 */
+		protected byte[] accuracy = new byte[0];
+
+		/**
+		 * The encoded name and items of each star.
+		 */
+		protected byte[][] payload = new byte[0][];
+
+		/**
+		 * Reads the stars from the temporary file.
+		 * @param file the temporary file.
+		 * @exception IOException if a file cannot be accessed.
+		 */
+		protected void read ( File file )
+			throws IOException
+		{
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+
+			try {
+				while (true) {
+					int t = 0;
+					try {
+						t = in.readInt();
+					} catch ( EOFException exception ) {
+						break;
+					}
+
+					if (count == tile.length)
+						grow();
+
+					tile[count] = t;
+					mag[count] = in.readDouble();
+					ra[count] = in.readDouble();
+					decl[count] = in.readDouble();
+					class_index[count] = in.readShort();
+					accuracy[count] = in.readByte();
+					payload[count] = new byte[in.readInt()];
+					in.readFully(payload[count]);
+					count++;
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		/**
+		 * Enlarges the arrays.
+		 */
+		private void grow ( ) {
+			int size = Math.max(1024, count * 2);
+
+			int[] t = new int[size];
+			System.arraycopy(tile, 0, t, 0, count);
+			tile = t;
+			double[] m = new double[size];
+			System.arraycopy(mag, 0, m, 0, count);
+			mag = m;
+			double[] r = new double[size];
+			System.arraycopy(ra, 0, r, 0, count);
+			ra = r;
+			double[] d = new double[size];
+			System.arraycopy(decl, 0, d, 0, count);
+			decl = d;
+			short[] c = new short[size];
+			System.arraycopy(class_index, 0, c, 0, count);
+			class_index = c;
+			byte[] a = new byte[size];
+			System.arraycopy(accuracy, 0, a, 0, count);
+			accuracy = a;
+			byte[][] p = new byte[size][];
+			System.arraycopy(payload, 0, p, 0, count);
+			payload = p;
+		}
+
+		/**
+		 * Sorts the stars by the tile, and by the magnitude in each
+		 * tile. The order of stars of the same magnitude is kept.
+		 * @return the array of the indexes of stars in the order.
+		 */
+		protected int[] sort ( ) {
+			int[] order = new int[count];
+			for (int i = 0 ; i < count ; i++)
+				order[i] = i;
+
+			int[] work = new int[count];
+			mergeSort(order, work, 0, count);
+			return order;
+		}
+
+		/**
+		 * Sorts the part of the array of indexes by the merge sort.
+		 * @param order the array of indexes.
+		 * @param work  the work array.
+		 * @param start the start index of the part.
+		 * @param end   the end index of the part.
+		 */
+		private void mergeSort ( int[] order, int[] work, int start, int end ) {
+			if (end - start < 2)
+				return;
+
+			int middle = (start + end) >>> 1;
+			mergeSort(order, work, start, middle);
+			mergeSort(order, work, middle, end);
+
+			if (compare(order[middle - 1], order[middle]) <= 0)
+				return;
+
+			System.arraycopy(order, start, work, start, end - start);
+			int i = start;
+			int j = middle;
+			for (int k = start ; k < end ; k++) {
+				if (j >= end  ||  (i < middle  &&  compare(work[i], work[j]) <= 0))
+					order[k] = work[i++];
+				else
+					order[k] = work[j++];
+			}
+		}
+
+		/**
+		 * Compares the two stars by the tile and the magnitude.
+		 * @param i1 the index of the first star.
+		 * @param i2 the index of the second star.
+		 * @return negative if the first star is to be the former.
+		 */
+		private int compare ( int i1, int i2 ) {
+			if (tile[i1] != tile[i2])
+				return (tile[i1] < tile[i2] ? -1 : 1);
+			return Double.compare(mag[i1], mag[i2]);
+		}
+
+		/**
+		 * Writes the block of stars in a tile.
+		 * @param out   the output stream.
+		 * @param order the array of the indexes of stars in the order.
+		 * @param start the start index in the order.
+		 * @param end   the end index in the order.
+		 * @return the size of the written block in bytes.
+		 * @exception IOException if a file cannot be accessed.
+		 */
+		protected long writeBlock ( DataOutputStream out, int[] order, int start, int end )
+			throws IOException
+		{
+			int n = end - start;
+
+			out.writeInt(n);
+			for (int k = start ; k < end ; k++)
+				out.writeDouble(mag[order[k]]);
+			for (int k = start ; k < end ; k++)
+				out.writeDouble(ra[order[k]]);
+			for (int k = start ; k < end ; k++)
+				out.writeDouble(decl[order[k]]);
+			for (int k = start ; k < end ; k++)
+				out.writeShort(class_index[order[k]]);
+			for (int k = start ; k < end ; k++)
+				out.writeByte(accuracy[order[k]]);
+
+			int offset = 0;
+			out.writeInt(offset);
+			for (int k = start ; k < end ; k++) {
+				offset += payload[order[k]].length;
+				out.writeInt(offset);
+			}
+			for (int k = start ; k < end ; k++)
+				out.write(payload[order[k]]);
+
+			return 4L + (long)n * (8 + 8 + 8 + 2 + 1) + 4L * (long)(n + 1) + (long)offset;
+		}
+	}
+}
@@ -13,16 +13,24 @@ import net.aerith.misao.util.*;
  * The <code>CelestialDivisionMap</code> represents a flag map of the
  * celestial globe divided per 10 minutes in R.A. and per 1 degree in
  * Decl.
+ * <p>
+ * The flags are kept in a bit set, and the filled cells are found by
+ * the word, not by the cell.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 23
+ * @version 2026 October 18
  */
 
 public class CelestialDivisionMap {
 	/**
-	 * The flag map.
+	 * The number of cells.
 	 */
-	protected boolean[] flag_map;
+	private final static int CELL_COUNT = 24 * 6 * 2 * 90;
+
+	/**
+	 * The bit set of the flags.
+	 */
+	protected long[] flag_map;
 
 	/**
 	 * The R.A. and Decl. at first corner of each cell.
@@ -48,18 +56,24 @@ public class CelestialDivisionMap {
 	 * Constructs a <code>CelestialDivisionMap</code>.
 	 */
 	public CelestialDivisionMap ( ) {
-		flag_map = new boolean[24 * 6 * 2 * 90];
+		flag_map = new long[(CELL_COUNT + 63) >> 6];
+	}
 
-		int index = 0;
-		for (int ra_h = 0 ; ra_h < 24 ; ra_h++) {
-			for (int ra_m = 0 ; ra_m < 60 ; ra_m += 10) {
-				for (int decl_sign = 0 ; decl_sign < 2 ; decl_sign++) {
-					for (int decl = 0 ; decl < 90 ; decl++) {
-						flag_map[index++] = false;
-					}
-				}
-			}
-		}
+	/**
+	 * Returns true if the flag at the specified index is set.
+	 * @param index the index.
+	 * @return true if the flag is set.
+	 */
+	private boolean get ( int index ) {
+		return (flag_map[index >> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets the flag at the specified index.
+	 * @param index the index.
+	 */
+	private void set ( int index ) {
+		flag_map[index >> 6] |= (1L << index);
 	}
 
 	/**
@@ -110,9 +124,9 @@ public class CelestialDivisionMap {
 
 				int index = (ra % (24 * 6)) * 2 * 90 + decl_sign * 90 + decl;
 
-				if (flag_map[index] == false) {
+				if (get(index) == false) {
 					if (circum_area.overlapsArea(start_coor[index], end_coor[index]))
-						flag_map[index] = true;
+						set(index);
 				}
 			}
 		}
@@ -122,16 +136,39 @@ public class CelestialDivisionMap {
 	 * Fills all areas.
 	 */
 	public void fillAll ( ) {
-		int index = 0;
-		for (int ra_h = 0 ; ra_h < 24 ; ra_h++) {
-			for (int ra_m = 0 ; ra_m < 60 ; ra_m += 10) {
-				for (int decl_sign = 0 ; decl_sign < 2 ; decl_sign++) {
-					for (int decl = 0 ; decl < 90 ; decl++) {
-						flag_map[index++] = true;
-					}
-				}
-			}
+		for (int i = 0 ; i < flag_map.length ; i++)
+			flag_map[i] = -1L;
+		flag_map[flag_map.length - 1] = -1L >>> (flag_map.length * 64 - CELL_COUNT);
+	}
+
+	/**
+	 * Fills the areas filled in the specified map.
+	 * @param map the map.
+	 */
+	public void union ( CelestialDivisionMap map ) {
+		for (int i = 0 ; i < flag_map.length ; i++)
+			flag_map[i] |= map.flag_map[i];
+	}
+
+	/**
+	 * Clears the areas not filled in the specified map.
+	 * @param map the map.
+	 */
+	public void intersect ( CelestialDivisionMap map ) {
+		for (int i = 0 ; i < flag_map.length ; i++)
+			flag_map[i] &= map.flag_map[i];
+	}
+
+	/**
+	 * Returns true if no area is filled.
+	 * @return true if no area is filled.
+	 */
+	public boolean isEmpty ( ) {
+		for (int i = 0 ; i < flag_map.length ; i++) {
+			if (flag_map[i] != 0)
+				return false;
 		}
+		return true;
 	}
 
 	/**
@@ -147,19 +184,8 @@ public class CelestialDivisionMap {
 			return new_map;
 		}
 
-		int index = 0;
-		for (int ra_h = 0 ; ra_h < 24 ; ra_h++) {
-			for (int ra_m = 0 ; ra_m < 60 ; ra_m += 10) {
-				for (int decl_sign = 0 ; decl_sign < 2 ; decl_sign++) {
-					for (int decl = 0 ; decl < 90 ; decl++) {
-						if (flag_map[index])
-							new_map.fill(center_coor[index], radius + mesh_radius);
-
-						index++;
-					}
-				}
-			}
-		}
+		for (int index = getFirstIndex() ; index >= 0 ; index = getNextIndex(index))
+			new_map.fill(center_coor[index], radius + mesh_radius);
 
 		return new_map;
 	}
@@ -178,23 +204,21 @@ public class CelestialDivisionMap {
 	 * @return the next index where the flag is set as true.
 	 */
 	public int getNextIndex ( int last_index ) {
-		int index = 0;
-		for (int ra_h = 0 ; ra_h < 24 ; ra_h++) {
-			for (int ra_m = 0 ; ra_m < 60 ; ra_m += 10) {
-				for (int decl_sign = 0 ; decl_sign < 2 ; decl_sign++) {
-					for (int decl = 0 ; decl < 90 ; decl++) {
-						if (index > last_index) {
-							if (flag_map[index])
-								return index;
-						}
-
-						index++;
-					}
-				}
-			}
+		int index = last_index + 1;
+		if (index >= CELL_COUNT)
+			return -1;
+
+		int word_index = index >> 6;
+		long word = flag_map[word_index] & (-1L << index);
+		while (true) {
+			if (word != 0)
+				return word_index * 64 + Long.numberOfTrailingZeros(word);
+
+			word_index++;
+			if (word_index >= flag_map.length)
+				return -1;
+			word = flag_map[word_index];
 		}
-
-		return -1;
 	}
 
 	/**
@@ -203,21 +227,10 @@ public class CelestialDivisionMap {
 	 * @return the folder hierarchy.
 	 */
 	public Vector getFolderHierarchyAt ( int index ) {
-		int index2 = 0;
-		for (int ra_h = 0 ; ra_h < 24 ; ra_h++) {
-			for (int ra_m = 0 ; ra_m < 60 ; ra_m += 10) {
-				for (int decl_sign = 0 ; decl_sign < 2 ; decl_sign++) {
-					for (int decl = 0 ; decl < 90 ; decl++) {
-						if (index2 == index)
-							return getCoorFolderHierarchy(center_coor[index]);
-
-						index2++;
-					}
-				}
-			}
-		}
+		if (index < 0  ||  index >= CELL_COUNT)
+			return null;
 
-		return null;
+		return getCoorFolderHierarchy(center_coor[index]);
 	}
 
 	/**
@@ -6,8 +6,7 @@
  */
 
 package net.aerith.misao.database;
-import java.io.File;
-import java.io.IOException;
+import java.io.*;
 import java.util.*;
 import net.aerith.misao.util.*;
 import net.aerith.misao.util.star.*;
@@ -22,7 +21,7 @@ import net.aerith.misao.xml.*;
  * database.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 December 27
+ * @version 2026 October 18
  */
 
 public class GlobalDBManager extends OperationObservable {
@@ -242,6 +241,239 @@ public class GlobalDBManager extends OperationObservable {
 		updateMagnitude(report, catalog_list, false);
 	}
 
+	/**
+	 * Adds the magnitude data in the specified XML report documents
+	 * into the magnitude database at once. The magnitude records are
+	 * grouped by the folder of each star, and each folder is read and
+	 * written only once. The folders are updated concurrently.
+	 * <p>
+	 * In the case of the database on the disk, the paths of the XML
+	 * report documents are recorded in the journal file before
+	 * updating, and the journal file is deleted after all updates are
+	 * saved. If the process is killed halfway, the paths are returned
+	 * by <code>getUncommittedReports</code>, and the magnitude data
+	 * must be added again. Adding the same data again makes no problem.
+	 * @param reports      the array of XML documents.
+	 * @param catalog_list the list of catalog names to add the 
+	 * magnitude into the database.
+	 * @exception IOException if I/O error occurs.
+	 * @exception DocumentIncompleteException if some required data in
+	 * the specified image information is not recorded.
+	 */
+	public void addMagnitudes ( XmlReport[] reports, Vector catalog_list )
+		throws IOException, DocumentIncompleteException
+	{
+		updateMagnitudes(reports, catalog_list, true);
+	}
+
+	/**
+	 * Deletes the magnitude data in the specified XML report documents
+	 * from the magnitude database at once.
+	 * @param reports      the array of XML documents.
+	 * @param catalog_list the list of catalog names to delete the 
+	 * magnitude from the database.
+	 * @exception IOException if I/O error occurs.
+	 * @exception DocumentIncompleteException if some required data in
+	 * the specified image information is not recorded.
+	 */
+	public void deleteMagnitudes ( XmlReport[] reports, Vector catalog_list )
+		throws IOException, DocumentIncompleteException
+	{
+		updateMagnitudes(reports, catalog_list, false);
+	}
+
+	/**
+	 * Gets the paths of the XML report documents whose magnitude data
+	 * were being updated at once when the process was killed.
+	 * @return the array of paths of the XML report documents.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public String[] getUncommittedReports ( )
+		throws IOException
+	{
+		File file = getJournalFile();
+		if (file == null  ||  file.exists() == false)
+			return new String[0];
+
+		Vector list = new Vector();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+		try {
+			String line = in.readLine();
+			while (line != null) {
+				if (line.length() > 0)
+					list.addElement(line);
+				line = in.readLine();
+			}
+		} finally {
+			in.close();
+		}
+
+		String[] paths = new String[list.size()];
+		for (int i = 0 ; i < paths.length ; i++)
+			paths[i] = (String)list.elementAt(i);
+		return paths;
+	}
+
+	/**
+	 * Clears the record of the XML report documents whose magnitude
+	 * data were being updated at once when the process was killed.
+	 * This must be invoked after the magnitude data are added again.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void clearUncommittedReports ( )
+		throws IOException
+	{
+		File file = getJournalFile();
+		if (file != null  &&  file.exists()) {
+			if (file.delete() == false)
+				throw new IOException();
+		}
+	}
+
+	/**
+	 * Updates the magnitude data in the specified XML report documents
+	 * in the magnitude database at once.
+	 * @param reports      the array of XML documents.
+	 * @param catalog_list the list of catalog names to update the 
+	 * magnitude in the database.
+	 * @param add_flag     true when to add the magnitude data.
+	 * @exception IOException if I/O error occurs.
+	 * @exception DocumentIncompleteException if some required data in
+	 * the specified image information is not recorded.
+	 */
+	private void updateMagnitudes ( XmlReport[] reports, Vector catalog_list, final boolean add_flag )
+		throws IOException, DocumentIncompleteException
+	{
+		notifyStart();
+
+		Hashtable hash = new Hashtable();
+		for (int i = 0 ; i < catalog_list.size() ; i++)
+			hash.put((String)catalog_list.elementAt(i), this);
+
+		Vector star_list = new Vector();
+		Vector record_list = new Vector();
+		for (int i = 0 ; i < reports.length ; i++)
+			createMagnitudeRecords(reports[i], hash, star_list, record_list);
+
+		// Groups the records by the folder of each star. The folders
+		// are created here, not to create them concurrently.
+		Hashtable hash_group = new Hashtable();
+		final Vector folder_list = new Vector();
+		final Vector group_star_list = new Vector();
+		final Vector group_record_list = new Vector();
+		for (int i = 0 ; i < star_list.size() ; i++) {
+			CatalogStar catalog_star = (CatalogStar)star_list.elementAt(i);
+
+			Folder db_folder = null;
+			try {
+				db_folder = mag_manager.createDBFolder(catalog_star);
+			} catch ( IOException exception ) {
+				notifyFailed(catalog_star);
+				continue;
+			}
+
+			Integer index = (Integer)hash_group.get(db_folder.getID());
+			if (index == null) {
+				index = new Integer(folder_list.size());
+				hash_group.put(db_folder.getID(), index);
+				folder_list.addElement(db_folder);
+				group_star_list.addElement(new Vector());
+				group_record_list.addElement(new Vector());
+			}
+			((Vector)group_star_list.elementAt(index.intValue())).addElement(catalog_star);
+			((Vector)group_record_list.elementAt(index.intValue())).addElement(record_list.elementAt(i));
+		}
+
+		writeJournal(reports);
+
+		final int[][] statuses = new int[folder_list.size()][];
+
+		ParallelExecutor.execute(folder_list.size(), new ParallelOperation() {
+			public void operate ( int index ) {
+				Vector list = (Vector)group_record_list.elementAt(index);
+				XmlMagRecord[] records = new XmlMagRecord[list.size()];
+				for (int i = 0 ; i < records.length ; i++)
+					records[i] = (XmlMagRecord)list.elementAt(i);
+
+				try {
+					statuses[index] = mag_manager.updateElements((Folder)folder_list.elementAt(index), records, add_flag, update_reported_mag);
+				} catch ( IOException exception ) {
+					System.err.println(exception);
+				}
+			}
+		});
+
+		// Saves the XML documents in the disk cache before the journal
+		// file is deleted.
+		XmlDBHolderCache.flush();
+
+		boolean failed = false;
+		for (int i = 0 ; i < folder_list.size() ; i++) {
+			Vector list = (Vector)group_star_list.elementAt(i);
+			for (int j = 0 ; j < list.size() ; j++) {
+				CatalogStar catalog_star = (CatalogStar)list.elementAt(j);
+
+				if (statuses[i] == null) {
+					notifyFailed(catalog_star);
+					failed = true;
+				} else if (statuses[i][j] == MagnitudeDBManager.UPDATE_REPORTED_KEPT) {
+					notifyWarned(catalog_star);
+				} else if (statuses[i][j] == MagnitudeDBManager.UPDATE_REPORTED_REPLACED) {
+					notifyWarned(catalog_star);
+					notifySucceeded(catalog_star);
+				} else {
+					notifySucceeded(catalog_star);
+				}
+			}
+		}
+
+		// The journal file is kept when some folders failed to be
+		// updated, so that the magnitude data can be added again.
+		if (failed == false)
+			clearUncommittedReports();
+
+		notifyEnd(null);
+	}
+
+	/**
+	 * Records the paths of the specified XML report documents in the
+	 * journal file, in addition to those already recorded.
+	 * @param reports the array of XML documents.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void writeJournal ( XmlReport[] reports )
+		throws IOException
+	{
+		File file = getJournalFile();
+		if (file == null)
+			return;
+
+		FileOutputStream stream = new FileOutputStream(file, true);
+		try {
+			Writer out = new BufferedWriter(new OutputStreamWriter(stream, "UTF-8"));
+			for (int i = 0 ; i < reports.length ; i++) {
+				String path = reports[i].getInformation().getPath();
+				if (path != null)
+					out.write(path + "\n");
+			}
+			out.flush();
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Gets the journal file of updating the magnitude data at once.
+	 * @return the journal file, or null if the database is not on the
+	 * disk.
+	 */
+	private File getJournalFile ( ) {
+		if (file_system instanceof DiskFileSystem)
+			return ((FileFolder)file_system.getFolder("magnitude.journal")).getFile();
+		return null;
+	}
+
 	/**
 	 * Updates the magnitude data in the specified XML report document
 	 * in the magnitude database.
@@ -262,12 +494,60 @@ public class GlobalDBManager extends OperationObservable {
 		for (int i = 0 ; i < catalog_list.size() ; i++)
 			hash.put((String)catalog_list.elementAt(i), this);
 
+		Vector star_list = new Vector();
+		Vector record_list = new Vector();
+		createMagnitudeRecords(report, hash, star_list, record_list);
+
+		for (int i = 0 ; i < star_list.size() ; i++) {
+			CatalogStar catalog_star = (CatalogStar)star_list.elementAt(i);
+			XmlMagRecord record = (XmlMagRecord)record_list.elementAt(i);
+
+			try {
+				// Replaces the old record.
+				XmlMagRecord old_record = mag_manager.deleteElement(catalog_star, record);
+				if (old_record != null) {
+					// If the record is already reported, it cannot be replaced.
+					if (old_record.getReported().length > 0) {
+						notifyWarned(catalog_star);
+
+						// Does not replace or delete magnitude record if already reporeted.
+						if (update_reported_mag == false) {
+							mag_manager.addElement(catalog_star, old_record);
+							continue;
+						}
+					}
+				}
+
+				if (add_flag)
+					mag_manager.addElement(catalog_star, record);
+
+				notifySucceeded(catalog_star);
+			} catch ( IOException exception ) {
+				notifyFailed(catalog_star);
+			}
+		}
+
+		notifyEnd(null);
+	}
+
+	/**
+	 * Creates the magnitude records of the stars in the specified XML
+	 * report document.
+	 * @param report       the XML document.
+	 * @param hash_catalog the hash table whose keys are the catalog
+	 * names to create the magnitude records.
+	 * @param star_list    the list to add the catalog stars.
+	 * @param record_list  the list to add the magnitude records of
+	 * the catalog stars.
+	 * @exception DocumentIncompleteException if some required data in
+	 * the specified image information is not recorded.
+	 */
+	private void createMagnitudeRecords ( XmlReport report, Hashtable hash_catalog, Vector star_list, Vector record_list )
+		throws DocumentIncompleteException
+	{
 		XmlInformation info = (XmlInformation)report.getInformation();
 		XmlData data = (XmlData)report.getData();
 
-		int width = info.getSize().getWidth();
-		int height = info.getSize().getHeight();
-
 		// The astrometric error of the current XML document.
 		double pos_error = ((XmlInformation)report.getInformation()).getAstrometricErrorInArcsec();
 
@@ -299,60 +579,37 @@ public class GlobalDBManager extends OperationObservable {
 
 				CatalogStar catalog_star = (CatalogStar)star;
 
-				if (hash.get(catalog_star.getCatalogName()) != null) {
-					try {
-						XmlMagRecord record = new XmlMagRecord(info, xml_stars[i]);
-
-						// Sets the (x,y) position. When the star is
-						// detected, the measured position is recorded.
-						// Otherwise, the calculated position of the 
-						// catalog star is recorded.
-						Position position = null;
-						if (star_image == null)
-							position = catalog_star;
-						else
-							position = star_image;
-						record.setPosition(new XmlPosition(position));
-
-						// In the case the star is identified with several detected stars,
-						//  recorded as blending. 
-						// That is only in the case of creating temporary database.
-						for (int k = 0 ; k < blending_list.size() ; k++) {
-							CatalogStar s = (CatalogStar)blending_list.elementAt(k);
-							if (s != catalog_star)
-								record.addBlending(s);
-						}
-
-						// In the case of unofficial images.
-						if (info.getUnofficial() != null)
-							record.setUnofficial(new XmlUnofficial());
-
-						// Replaces the old record.
-						XmlMagRecord old_record = mag_manager.deleteElement(catalog_star, record);
-						if (old_record != null) {
-							// If the record is already reported, it cannot be replaced.
-							if (old_record.getReported().length > 0) {
-								notifyWarned(catalog_star);
-
-								// Does not replace or delete magnitude record if already reporeted.
-								if (update_reported_mag == false) {
-									mag_manager.addElement(catalog_star, old_record);
-									continue;
-								}
-							}
-						}
+				if (hash_catalog.get(catalog_star.getCatalogName()) != null) {
+					XmlMagRecord record = new XmlMagRecord(info, xml_stars[i]);
+
+					// Sets the (x,y) position. When the star is
+					// detected, the measured position is recorded.
+					// Otherwise, the calculated position of the 
+					// catalog star is recorded.
+					Position position = null;
+					if (star_image == null)
+						position = catalog_star;
+					else
+						position = star_image;
+					record.setPosition(new XmlPosition(position));
+
+					// In the case the star is identified with several detected stars,
+					//  recorded as blending. 
+					// That is only in the case of creating temporary database.
+					for (int k = 0 ; k < blending_list.size() ; k++) {
+						CatalogStar s = (CatalogStar)blending_list.elementAt(k);
+						if (s != catalog_star)
+							record.addBlending(s);
+					}
 
-						if (add_flag)
-							mag_manager.addElement(catalog_star, record);
+					// In the case of unofficial images.
+					if (info.getUnofficial() != null)
+						record.setUnofficial(new XmlUnofficial());
 
-						notifySucceeded(catalog_star);
-					} catch ( IOException exception ) {
-						notifyFailed(catalog_star);
-					}
+					star_list.addElement(catalog_star);
+					record_list.addElement(record);
 				}
 			}
 		}
-
-		notifyEnd(null);
 	}
 }
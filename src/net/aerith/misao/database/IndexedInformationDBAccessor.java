@@ -0,0 +1,84 @@
+/*
+ * @(#)IndexedInformationDBAccessor.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.util.*;
+import net.aerith.misao.xml.*;
+
+/**
+ * The <code>IndexedInformationDBAccessor</code> represents a
+ * sequential accessor to the XML image information elements of the
+ * XML file paths selected by the <code>InformationIndex</code>.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class IndexedInformationDBAccessor extends InformationDBAccessor {
+	/**
+	 * The database manager.
+	 */
+	protected InformationDBManager manager;
+
+	/**
+	 * The list of XML file paths.
+	 */
+	protected Vector path_list;
+
+	/**
+	 * Constructs an <code>IndexedInformationDBAccessor</code>.
+	 * @param manager   the database manager.
+	 * @param path_list the list of XML file paths.
+	 */
+	public IndexedInformationDBAccessor ( InformationDBManager manager, Vector path_list ) {
+		this.manager = manager;
+		this.path_list = path_list;
+	}
+
+	/**
+	 * Gets the number of the XML file paths.
+	 * @return the number of the XML file paths.
+	 */
+	public int size ( ) {
+		return path_list.size();
+	}
+
+	/**
+	 * Gets the first image information.
+	 * @return the first image information.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlInformation getFirstElement ( )
+		throws IOException
+	{
+		index = -1;
+		return getNextElement();
+	}
+
+	/**
+	 * Gets the next image information.
+	 * @return the next image information.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlInformation getNextElement ( )
+		throws IOException
+	{
+		while (true) {
+			index++;
+
+			if (index >= path_list.size())
+				return null;
+
+			// The image information deleted after the selection is
+			// skipped.
+			XmlInformation info = manager.getElement((String)path_list.elementAt(index));
+			if (info != null)
+				return info;
+		}
+	}
+}
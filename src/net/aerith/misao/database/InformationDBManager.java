@@ -21,9 +21,17 @@ import net.aerith.misao.xml.*;
  * policies. One is classified by XML file path. Another one is by 
  * image date. And the other one is by the limiting magnitude, the 
  * field of view, and the R.A. and Decl. of the image center.
+ * <p>
+ * In addition, the secondary indexes by the Julian Day, the R.A. and
+ * Decl. of the center, the limiting magnitude, the observer and the
+ * instruments are kept in the <code>InformationIndex</code>, and are
+ * used to select the image information which matches a query
+ * condition. The index file of the database on the disk is created
+ * only by <code>rebuildIndex</code>, and the secondary indexes are
+ * not used until then.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2002 February 25
+ * @version 2026 October 18
  */
 
 public class InformationDBManager {
@@ -37,6 +45,12 @@ public class InformationDBManager {
 	 */
 	protected FileManager file_manager;
 
+	/**
+	 * The secondary indexes. In the case of null, it must be read
+	 * or created.
+	 */
+	protected InformationIndex index = null;
+
 	/**
 	 * Constructs an <code>InformationDBManager</code> in the 
 	 * specified file system.
@@ -84,6 +98,57 @@ public class InformationDBManager {
 		return "info.field";
 	}
 
+	/**
+	 * Gets the index file. In the case of the file system on memory,
+	 * the indexes are not saved and null is returned.
+	 * @return the index file, or null.
+	 */
+	protected File getIndexFile ( ) {
+		if (file_system instanceof DiskFileSystem)
+			return ((FileFolder)file_system.getFolder("info.index")).getFile();
+		return null;
+	}
+
+	/**
+	 * Gets the secondary indexes. The indexes are read from the index
+	 * file created by <code>rebuildIndex</code>. In the case of the
+	 * file system on memory, the indexes are created from all the
+	 * image information in the database.
+	 * @return the secondary indexes, or null if the index file has
+	 * not been created.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized InformationIndex getIndex ( )
+		throws IOException
+	{
+		if (index == null) {
+			File file = getIndexFile();
+			if (file == null) {
+				InformationIndex new_index = new InformationIndex(null);
+				new_index.rebuild(getAccessor());
+				index = new_index;
+			} else if (InformationIndex.exists(file)) {
+				InformationIndex new_index = new InformationIndex(file);
+				new_index.load();
+				index = new_index;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Creates the secondary indexes again from all the image
+	 * information in the database.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void rebuildIndex ( )
+		throws IOException
+	{
+		InformationIndex new_index = new InformationIndex(getIndexFile());
+		new_index.rebuild(getAccessor());
+		index = new_index;
+	}
+
 	/**
 	 * Gets the relative path of the XML file.
 	 * @param file the XML file.
@@ -150,6 +215,9 @@ public class InformationDBManager {
 		db_folder = createFieldOrientedDBFolder(limit_mag, fov_radius, center_coor);
 		manager = file_system.getPrimitiveManager(db_folder, new XmlInformationHolder(), new XmlInformation());
 		manager.addElement(info);
+
+		if (getIndex() != null)
+			getIndex().addElement(info);
 	}
 
 	/**
@@ -183,6 +251,9 @@ public class InformationDBManager {
 		manager = file_system.getPrimitiveManager(db_folder, new XmlInformationHolder(), new XmlInformation());
 		manager.deleteElement(xml_path);
 
+		if (getIndex() != null)
+			getIndex().deleteElement(xml_path);
+
 		return info;
 	}
 
@@ -427,7 +498,11 @@ public class InformationDBManager {
 
 	/**
 	 * Gets the sequential accessor to the XML image information 
-	 * element which covers the specified R.A. and Decl.
+	 * element which covers the specified R.A. and Decl. When the
+	 * secondary indexes have been created, the image information is
+	 * selected by them in order of the Julian Day. Otherwise, the 
+	 * folders of the field which covers the R.A. and Decl. are 
+	 * scanned.
 	 * @param coor                   the R.A. and Decl.
 	 * @param brightest_limiting_mag the brighter limit of the 
 	 * limiting magnitude.
@@ -436,6 +511,18 @@ public class InformationDBManager {
 	 * @return the sequential accessor.
 	 */
 	public InformationDBAccessor getAccessor ( Coor coor, double brightest_limiting_mag, double faintest_limiting_mag ) {
+		try {
+			if (getIndex() != null) {
+				XmlReportQueryCondition condition = new XmlReportQueryCondition();
+				condition.setLimitingMagnitude(brightest_limiting_mag, faintest_limiting_mag);
+				condition.setCoverage(coor, 10.0 / 3600.0);
+
+				return getAccessor(condition);
+			}
+		} catch ( IOException exception ) {
+			System.err.println(exception);
+		}
+
 		// Creates the flag map.
 		CelestialDivisionMap map = new CelestialDivisionMap();
 		map.fill(coor, 10.0 / 3600.0);
@@ -443,6 +530,26 @@ public class InformationDBManager {
 		return getAccessor(map, brightest_limiting_mag, faintest_limiting_mag);
 	}
 
+	/**
+	 * Gets the sequential accessor to the XML image information 
+	 * element which matches the specified query condition, in order
+	 * of the Julian Day. The image information is selected by the
+	 * secondary indexes.
+	 * @param condition the query condition.
+	 * @return the sequential accessor.
+	 * @exception IOException if I/O error occurs, or the secondary
+	 * indexes have not been created.
+	 */
+	public InformationDBAccessor getAccessor ( XmlReportQueryCondition condition )
+		throws IOException
+	{
+		InformationIndex index = getIndex();
+		if (index == null)
+			throw new IOException();
+
+		return new IndexedInformationDBAccessor(this, index.select(condition));
+	}
+
 	/**
 	 * Gets the sequential accessor to the XML image information 
 	 * element which overlaps on any images in the specified list.
@@ -0,0 +1,913 @@
+/*
+ * @(#)InformationIndex.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.CRC32;
+import net.aerith.misao.util.*;
+import net.aerith.misao.xml.*;
+
+/**
+ * The <code>InformationIndex</code> represents the secondary indexes
+ * of the image information database, by the XML file path, the Julian
+ * Day, the R.A. and Decl. of the center, the limiting magnitude, the
+ * observer and the instruments. The XML report documents which match
+ * a query condition are selected by the index which is expected to
+ * give the fewest candidates, instead of reading all the documents.
+ * <p>
+ * The index file consists of the records of addition and deletion,
+ * each followed by the checksum. The records are appended when the
+ * image information is added or deleted, and the file is rewritten
+ * when too many records are deleted. The file is mapped into memory
+ * to be read. A broken record at the end of the file is removed when
+ * the file is read, so that the records appended later are not lost.
+ * <p>
+ * The R.A. and Decl. of the center are indexed by the cells of 5
+ * degree, separately for each range of the field radius, so that the
+ * cells which may contain the images covering a position are found
+ * from the largest field radius in each range.
+ * <p>
+ * All methods are thread-safe.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class InformationIndex {
+	/**
+	 * The magic number at the top of the index file.
+	 */
+	private final static int FILE_MAGIC = 0x494e4431;
+
+	/**
+	 * The operation to add an image information.
+	 */
+	private final static byte OPERATION_ADD = 0;
+
+	/**
+	 * The operation to delete an image information.
+	 */
+	private final static byte OPERATION_DELETE = 1;
+
+	/**
+	 * The size of a cell in degree.
+	 */
+	protected final static double CELL_SIZE = 5.0;
+
+	/**
+	 * The upper limits of the ranges of the field radius in degree.
+	 */
+	protected final static double[] radius_limits = { 0.1, 0.2, 0.5, 1.0, 2.0, 5.0, 10.0, 20.0, 180.0 };
+
+	/**
+	 * The index file, or null if the index is not saved.
+	 */
+	protected File file;
+
+	/**
+	 * The list of entries. The deleted entry is null.
+	 */
+	protected Vector entries = new Vector();
+
+	/**
+	 * The number of the live entries.
+	 */
+	protected int live_count = 0;
+
+	/**
+	 * The hash table of the entry indexes, whose keys are the XML
+	 * file paths.
+	 */
+	protected Hashtable path_index = new Hashtable();
+
+	/**
+	 * The hash table of the lists of entry indexes, whose keys are
+	 * the cells.
+	 */
+	protected Hashtable cell_index = new Hashtable();
+
+	/**
+	 * The hash table of the lists of entry indexes, whose keys are
+	 * the observers.
+	 */
+	protected Hashtable observer_index = new Hashtable();
+
+	/**
+	 * The hash table of the lists of entry indexes, whose keys are
+	 * the instruments.
+	 */
+	protected Hashtable instruments_index = new Hashtable();
+
+	/**
+	 * The entry indexes in order of the Julian Day. In the case of
+	 * null, it must be created again.
+	 */
+	protected int[] jd_order = null;
+
+	/**
+	 * The entry indexes in order of the limiting magnitude. In the
+	 * case of null, it must be created again.
+	 */
+	protected int[] mag_order = null;
+
+	/**
+	 * Constructs an empty <code>InformationIndex</code>. When the
+	 * file is specified, the records are saved in the file.
+	 * @param file the index file, or null.
+	 */
+	public InformationIndex ( File file ) {
+		this.file = file;
+	}
+
+	/**
+	 * Returns true if the index file of the specified path exists.
+	 * @param file the index file.
+	 * @return true if the index file exists.
+	 */
+	public static boolean exists ( File file ) {
+		if (file.exists())
+			return true;
+
+		// The file may be being rewritten.
+		return new File(file.getPath() + ".tmp").exists();
+	}
+
+	/**
+	 * Reads the index file. When a broken record is found, the file
+	 * is rewritten without it and the bytes after it.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void load ( )
+		throws IOException
+	{
+		clear();
+
+		// The file was being rewritten.
+		File tmp_file = new File(file.getPath() + ".tmp");
+		if (file.exists() == false  &&  tmp_file.exists()) {
+			if (tmp_file.renameTo(file) == false)
+				throw new IOException();
+		}
+
+		boolean broken = false;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < 4  ||  buffer.getInt() != FILE_MAGIC)
+				throw new IOException();
+
+			CRC32 crc = new CRC32();
+			while (buffer.remaining() >= 4) {
+				int length = buffer.getInt();
+				if (length <= 0  ||  buffer.remaining() < length + 8) {
+					broken = true;
+					break;
+				}
+
+				byte[] data = new byte[length];
+				buffer.get(data);
+				crc.reset();
+				crc.update(data);
+				if (buffer.getLong() != crc.getValue()) {
+					broken = true;
+					break;
+				}
+
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+				byte operation = in.readByte();
+				if (operation == OPERATION_ADD) {
+					apply(Entry.read(in));
+				} else {
+					remove(in.readUTF());
+				}
+			}
+			if (buffer.remaining() > 0)
+				broken = true;
+		} finally {
+			raf.close();
+		}
+
+		// The records appended after the broken one would never be
+		// read, so the file is rewritten with the valid records.
+		if (broken  ||  (entries.size() - live_count > 1000  &&  entries.size() - live_count > live_count))
+			save();
+	}
+
+	/**
+	 * Creates the index of all the image information in the specified
+	 * accessor, and saves into the file.
+	 * @param accessor the accessor to all the image information.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void rebuild ( InformationDBAccessor accessor )
+		throws IOException
+	{
+		clear();
+
+		XmlInformation info = accessor.getFirstElement();
+		while (info != null) {
+			if (info.getPath() != null)
+				apply(new Entry(info));
+			info = accessor.getNextElement();
+		}
+
+		if (file != null)
+			save();
+	}
+
+	/**
+	 * Adds the image information. The old one of the same XML file
+	 * path is replaced.
+	 * @param info the image information.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void addElement ( XmlInformation info )
+		throws IOException
+	{
+		Entry entry = new Entry(info);
+
+		apply(entry);
+
+		if (file != null) {
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(stream);
+			out.writeByte(OPERATION_ADD);
+			entry.write(out);
+			out.close();
+			append(stream.toByteArray());
+		}
+	}
+
+	/**
+	 * Deletes the image information of the specified XML file path.
+	 * @param path the XML file path.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void deleteElement ( String path )
+		throws IOException
+	{
+		if (remove(path) == false)
+			return;
+
+		if (file != null) {
+			if (entries.size() - live_count > 1000  &&  entries.size() - live_count > live_count) {
+				save();
+			} else {
+				ByteArrayOutputStream stream = new ByteArrayOutputStream();
+				DataOutputStream out = new DataOutputStream(stream);
+				out.writeByte(OPERATION_DELETE);
+				out.writeUTF(path);
+				out.close();
+				append(stream.toByteArray());
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of image information in the index.
+	 * @return the number of image information.
+	 */
+	public synchronized int size ( ) {
+		return live_count;
+	}
+
+	/**
+	 * Selects the XML report documents which match the specified
+	 * query condition.
+	 * @param condition the query condition.
+	 * @return the list of XML file paths, in order of the Julian Day.
+	 */
+	public synchronized Vector select ( XmlReportQueryCondition condition ) {
+		Vector candidates = plan(condition);
+
+		Vector list = new Vector();
+		for (int i = 0 ; i < candidates.size() ; i++) {
+			int index = ((Integer)candidates.elementAt(i)).intValue();
+			Entry entry = (Entry)entries.elementAt(index);
+			if (entry != null  &&  entry.matches(condition))
+				list.addElement(entry);
+		}
+
+		Collections.sort(list, new Comparator() {
+			public int compare ( Object o1, Object o2 ) {
+				Entry e1 = (Entry)o1;
+				Entry e2 = (Entry)o2;
+				if (e1.jd != e2.jd)
+					return (e1.jd < e2.jd ? -1 : 1);
+				return e1.path.compareTo(e2.path);
+			}
+		});
+
+		Vector path_list = new Vector();
+		for (int i = 0 ; i < list.size() ; i++)
+			path_list.addElement(((Entry)list.elementAt(i)).path);
+		return path_list;
+	}
+
+	/**
+	 * Returns the list of candidate entry indexes of the specified
+	 * query condition, by the index which gives the fewest candidates.
+	 * @param condition the query condition.
+	 * @return the list of candidate entry indexes.
+	 */
+	protected Vector plan ( XmlReportQueryCondition condition ) {
+		Vector best = null;
+		int best_count = entries.size();
+
+		if (condition.getObserver() != null) {
+			Vector list = (Vector)observer_index.get(condition.getObserver());
+			if (list == null)
+				return new Vector();
+			if (list.size() < best_count) {
+				best = list;
+				best_count = list.size();
+			}
+		}
+
+		if (condition.getInstruments() != null) {
+			Vector list = (Vector)instruments_index.get(condition.getInstruments());
+			if (list == null)
+				return new Vector();
+			if (list.size() < best_count) {
+				best = list;
+				best_count = list.size();
+			}
+		}
+
+		int[] jd_range = null;
+		if (condition.hasPeriod()) {
+			jd_range = getRange(getOrderOfJD(), condition.getStartJD(), condition.getEndJD(), true);
+			if (jd_range[1] - jd_range[0] < best_count) {
+				best = null;
+				best_count = jd_range[1] - jd_range[0];
+			} else {
+				jd_range = null;
+			}
+		}
+
+		int[] mag_range = getRange(getOrderOfMagnitude(), condition.getBrighterLimit(), condition.getFainterLimit(), false);
+		if (mag_range[1] - mag_range[0] < best_count) {
+			best = null;
+			best_count = mag_range[1] - mag_range[0];
+			jd_range = null;
+		} else {
+			mag_range = null;
+		}
+
+		Vector cell_list = null;
+		if (condition.getCoverageCoor() != null) {
+			Vector list = getCellCandidates(condition.getCoverageCoor(), condition.getCoverageRadius());
+			int count = 0;
+			for (int i = 0 ; i < list.size() ; i++)
+				count += ((Vector)list.elementAt(i)).size();
+			if (count < best_count) {
+				cell_list = list;
+				best = null;
+				best_count = count;
+				jd_range = null;
+				mag_range = null;
+			}
+		}
+
+		Vector candidates = new Vector();
+		if (cell_list != null) {
+			for (int i = 0 ; i < cell_list.size() ; i++)
+				candidates.addAll((Vector)cell_list.elementAt(i));
+		} else if (jd_range != null) {
+			for (int i = jd_range[0] ; i < jd_range[1] ; i++)
+				candidates.addElement(new Integer(jd_order[i]));
+		} else if (mag_range != null) {
+			for (int i = mag_range[0] ; i < mag_range[1] ; i++)
+				candidates.addElement(new Integer(mag_order[i]));
+		} else if (best != null) {
+			candidates.addAll(best);
+		} else {
+			for (int i = 0 ; i < entries.size() ; i++)
+				candidates.addElement(new Integer(i));
+		}
+		return candidates;
+	}
+
+	/**
+	 * Gets the lists of entry indexes in the cells which may contain
+	 * the images covering the specified R.A. and Decl.
+	 * @param coor   the R.A. and Decl.
+	 * @param radius the radius around the R.A. and Decl. in degree.
+	 * @return the list of lists of entry indexes.
+	 */
+	protected Vector getCellCandidates ( Coor coor, double radius ) {
+		Vector list = new Vector();
+
+		for (int r = 0 ; r < radius_limits.length ; r++) {
+			double cap = radius_limits[r] + radius;
+
+			int band_start = getBand(coor.getDecl() - cap);
+			int band_end = getBand(coor.getDecl() + cap);
+
+			// The half width of R.A. of the cap.
+			double ra_width = 180.0;
+			if (Math.abs(coor.getDecl()) + cap < 90.0) {
+				double s = Math.sin(cap * Math.PI / 180.0) / Math.cos((Math.abs(coor.getDecl()) + cap) * Math.PI / 180.0);
+				if (s < 1.0)
+					ra_width = Math.asin(s) * 180.0 / Math.PI;
+			}
+
+			for (int band = band_start ; band <= band_end ; band++) {
+				int count = getCellCount(band);
+
+				int ra_start = 0;
+				int ra_end = count - 1;
+				if (ra_width < 180.0) {
+					ra_start = (int)Math.floor((coor.getRA() - ra_width) / 360.0 * (double)count);
+					ra_end = (int)Math.floor((coor.getRA() + ra_width) / 360.0 * (double)count);
+					if (ra_end - ra_start >= count - 1) {
+						ra_start = 0;
+						ra_end = count - 1;
+					}
+				}
+
+				for (int c = ra_start ; c <= ra_end ; c++) {
+					int cell = ((c % count) + count) % count;
+					Vector l = (Vector)cell_index.get(new Integer(getCellKey(r, band, cell)));
+					if (l != null)
+						list.addElement(l);
+				}
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Gets the range in the specified order whose values are between
+	 * the specified limits.
+	 * @param order    the entry indexes in order of the value.
+	 * @param min      the minimum value.
+	 * @param max      the maximum value.
+	 * @param jd_flag  true in the case of the Julian Day, or false in
+	 * the case of the limiting magnitude.
+	 * @return the start and end of the range.
+	 */
+	private int[] getRange ( int[] order, double min, double max, boolean jd_flag ) {
+		int low = 0;
+		int high = order.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getValue(order[mid], jd_flag) < min)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		int start = low;
+
+		high = order.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (getValue(order[mid], jd_flag) <= max)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return new int[] { start, low };
+	}
+
+	/**
+	 * Gets the Julian Day or the limiting magnitude of the entry.
+	 * @param index   the entry index.
+	 * @param jd_flag true in the case of the Julian Day.
+	 * @return the value.
+	 */
+	private double getValue ( int index, boolean jd_flag ) {
+		Entry entry = (Entry)entries.elementAt(index);
+		return (jd_flag ? entry.jd : (double)entry.limiting_mag);
+	}
+
+	/**
+	 * Gets the entry indexes in order of the Julian Day.
+	 * @return the array of entry indexes.
+	 */
+	private int[] getOrderOfJD ( ) {
+		if (jd_order == null)
+			jd_order = createOrder(true);
+		return jd_order;
+	}
+
+	/**
+	 * Gets the entry indexes in order of the limiting magnitude.
+	 * @return the array of entry indexes.
+	 */
+	private int[] getOrderOfMagnitude ( ) {
+		if (mag_order == null)
+			mag_order = createOrder(false);
+		return mag_order;
+	}
+
+	/**
+	 * Creates the array of live entry indexes in order of the Julian
+	 * Day or the limiting magnitude.
+	 * @param jd_flag true in the case of the Julian Day.
+	 * @return the array of entry indexes.
+	 */
+	private int[] createOrder ( final boolean jd_flag ) {
+		Integer[] indexes = new Integer[live_count];
+		int count = 0;
+		for (int i = 0 ; i < entries.size() ; i++) {
+			if (entries.elementAt(i) != null)
+				indexes[count++] = new Integer(i);
+		}
+
+		Arrays.sort(indexes, new Comparator() {
+			public int compare ( Object o1, Object o2 ) {
+				return Double.compare(getValue(((Integer)o1).intValue(), jd_flag), getValue(((Integer)o2).intValue(), jd_flag));
+			}
+		});
+
+		int[] order = new int[live_count];
+		for (int i = 0 ; i < live_count ; i++)
+			order[i] = indexes[i].intValue();
+		return order;
+	}
+
+	/**
+	 * Removes all entries.
+	 */
+	private void clear ( ) {
+		entries = new Vector();
+		live_count = 0;
+		path_index = new Hashtable();
+		cell_index = new Hashtable();
+		observer_index = new Hashtable();
+		instruments_index = new Hashtable();
+		jd_order = null;
+		mag_order = null;
+	}
+
+	/**
+	 * Adds the entry into the indexes. The old entry of the same XML
+	 * file path is removed.
+	 * @param entry the entry.
+	 */
+	private void apply ( Entry entry ) {
+		remove(entry.path);
+
+		Integer index = new Integer(entries.size());
+		entries.addElement(entry);
+		live_count++;
+
+		path_index.put(entry.path, index);
+		addToList(cell_index, new Integer(entry.getCellKey()), index);
+		if (entry.observer != null)
+			addToList(observer_index, entry.observer, index);
+		if (entry.instruments != null)
+			addToList(instruments_index, entry.instruments, index);
+
+		jd_order = null;
+		mag_order = null;
+	}
+
+	/**
+	 * Removes the entry of the specified XML file path from the
+	 * indexes.
+	 * @param path the XML file path.
+	 * @return true if removed.
+	 */
+	private boolean remove ( String path ) {
+		Integer index = (Integer)path_index.remove(path);
+		if (index == null)
+			return false;
+
+		Entry entry = (Entry)entries.elementAt(index.intValue());
+		entries.setElementAt(null, index.intValue());
+		live_count--;
+
+		removeFromList(cell_index, new Integer(entry.getCellKey()), index);
+		if (entry.observer != null)
+			removeFromList(observer_index, entry.observer, index);
+		if (entry.instruments != null)
+			removeFromList(instruments_index, entry.instruments, index);
+
+		jd_order = null;
+		mag_order = null;
+		return true;
+	}
+
+	/**
+	 * Adds the entry index into the list of the specified key.
+	 * @param hash  the hash table of the lists.
+	 * @param key   the key.
+	 * @param index the entry index.
+	 */
+	private static void addToList ( Hashtable hash, Object key, Integer index ) {
+		Vector list = (Vector)hash.get(key);
+		if (list == null) {
+			list = new Vector();
+			hash.put(key, list);
+		}
+		list.addElement(index);
+	}
+
+	/**
+	 * Removes the entry index from the list of the specified key.
+	 * @param hash  the hash table of the lists.
+	 * @param key   the key.
+	 * @param index the entry index.
+	 */
+	private static void removeFromList ( Hashtable hash, Object key, Integer index ) {
+		Vector list = (Vector)hash.get(key);
+		if (list != null) {
+			list.removeElement(index);
+			if (list.size() == 0)
+				hash.remove(key);
+		}
+	}
+
+	/**
+	 * Appends the record into the index file.
+	 * @param data the record.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void append ( byte[] data )
+		throws IOException
+	{
+		if (file.exists() == false) {
+			save();
+			return;
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(data.length);
+		out.write(data);
+		out.writeLong(crc.getValue());
+		out.close();
+
+		FileOutputStream file_stream = new FileOutputStream(file, true);
+		try {
+			file_stream.write(stream.toByteArray());
+			file_stream.getFD().sync();
+		} finally {
+			file_stream.close();
+		}
+	}
+
+	/**
+	 * Saves all the live entries into the index file. The deleted
+	 * entries are removed.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void save ( )
+		throws IOException
+	{
+		// Removes the deleted entries.
+		Vector list = new Vector();
+		for (int i = 0 ; i < entries.size() ; i++) {
+			if (entries.elementAt(i) != null)
+				list.addElement(entries.elementAt(i));
+		}
+		clear();
+		for (int i = 0 ; i < list.size() ; i++)
+			apply((Entry)list.elementAt(i));
+
+		File tmp_file = new File(file.getPath() + ".tmp");
+
+		FileOutputStream file_stream = new FileOutputStream(tmp_file);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file_stream));
+		try {
+			out.writeInt(FILE_MAGIC);
+
+			CRC32 crc = new CRC32();
+			for (int i = 0 ; i < list.size() ; i++) {
+				ByteArrayOutputStream stream = new ByteArrayOutputStream();
+				DataOutputStream record_out = new DataOutputStream(stream);
+				record_out.writeByte(OPERATION_ADD);
+				((Entry)list.elementAt(i)).write(record_out);
+				record_out.close();
+				byte[] data = stream.toByteArray();
+
+				crc.reset();
+				crc.update(data);
+				out.writeInt(data.length);
+				out.write(data);
+				out.writeLong(crc.getValue());
+			}
+			out.flush();
+			file_stream.getFD().sync();
+		} finally {
+			out.close();
+		}
+
+		if (file.exists()  &&  file.delete() == false)
+			throw new IOException();
+		if (tmp_file.renameTo(file) == false)
+			throw new IOException();
+	}
+
+	/**
+	 * Gets the number of the band of the specified Decl.
+	 * @param decl the Decl.
+	 * @return the number of the band.
+	 */
+	protected static int getBand ( double decl ) {
+		int band = (int)Math.floor((decl + 90.0) / CELL_SIZE);
+		int max = (int)(180.0 / CELL_SIZE) - 1;
+		if (band < 0)
+			return 0;
+		if (band > max)
+			return max;
+		return band;
+	}
+
+	/**
+	 * Gets the number of cells in the specified band.
+	 * @param band the number of the band.
+	 * @return the number of cells.
+	 */
+	protected static int getCellCount ( int band ) {
+		double decl = ((double)band + 0.5) * CELL_SIZE - 90.0;
+		int count = (int)Math.ceil(360.0 / CELL_SIZE * Math.cos(decl * Math.PI / 180.0));
+		return (count < 1 ? 1 : count);
+	}
+
+	/**
+	 * Gets the key of the cell.
+	 * @param radius_class the range of the field radius.
+	 * @param band         the number of the band.
+	 * @param cell         the number of the cell in the band.
+	 * @return the key of the cell.
+	 */
+	protected static int getCellKey ( int radius_class, int band, int cell ) {
+		return (radius_class * 100 + band) * 100 + cell;
+	}
+
+	/**
+	 * The <code>Entry</code> represents the indexed values of an
+	 * image information.
+	 */
+	protected static class Entry {
+		/**
+		 * The XML file path.
+		 */
+		protected String path;
+
+		/**
+		 * The Julian Day.
+		 */
+		protected double jd;
+
+		/**
+		 * The R.A. and Decl. of the center.
+		 */
+		protected Coor center;
+
+		/**
+		 * The field radius in degree.
+		 */
+		protected double field_radius;
+
+		/**
+		 * The limiting magnitude.
+		 */
+		protected float limiting_mag;
+
+		/**
+		 * The observer, or null.
+		 */
+		protected String observer;
+
+		/**
+		 * The instruments, or null.
+		 */
+		protected String instruments;
+
+		/**
+		 * Constructs an <code>Entry</code>.
+		 */
+		protected Entry ( ) {
+		}
+
+		/**
+		 * Constructs an <code>Entry</code> of the specified image
+		 * information.
+		 * @param info the image information.
+		 */
+		protected Entry ( XmlInformation info ) {
+			path = info.getPath();
+			jd = info.getMidDate().getJD();
+			center = ((XmlCenter)info.getCenter()).getCoor();
+			field_radius = info.getFieldRadiusInDegree();
+			limiting_mag = info.getLimitingMag();
+			observer = info.getObserver();
+			instruments = info.getInstruments();
+		}
+
+		/**
+		 * Returns true if this entry matches the specified query
+		 * condition. This is the same as the <code>accept</code>
+		 * method of the query condition.
+		 * @param condition the query condition.
+		 * @return true if this entry matches.
+		 */
+		protected boolean matches ( XmlReportQueryCondition condition ) {
+			if (condition.getBrighterLimit() <= limiting_mag  &&  limiting_mag <= condition.getFainterLimit()) {
+				if (condition.getCoverageCoor() != null) {
+					if (center.getAngularDistanceTo(condition.getCoverageCoor()) > field_radius + condition.getCoverageRadius())
+						return false;
+				}
+
+				if (jd < condition.getStartJD()  ||  condition.getEndJD() < jd)
+					return false;
+
+				if (condition.getObserver() != null  &&  condition.getObserver().equals(observer) == false)
+					return false;
+
+				if (condition.getInstruments() != null  &&  condition.getInstruments().equals(instruments) == false)
+					return false;
+
+				return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Gets the key of the cell of the center.
+		 * @return the key of the cell.
+		 */
+		protected int getCellKey ( ) {
+			int radius_class = radius_limits.length - 1;
+			for (int r = 0 ; r < radius_limits.length ; r++) {
+				if (field_radius <= radius_limits[r]) {
+					radius_class = r;
+					break;
+				}
+			}
+
+			int band = getBand(center.getDecl());
+			int count = getCellCount(band);
+			int cell = (int)Math.floor(center.getRA() / 360.0 * (double)count);
+			cell = ((cell % count) + count) % count;
+
+			return InformationIndex.getCellKey(radius_class, band, cell);
+		}
+
+		/**
+		 * Writes this entry.
+		 * @param out the output stream.
+		 * @exception IOException if I/O error occurs.
+		 */
+		protected void write ( DataOutputStream out )
+			throws IOException
+		{
+			out.writeUTF(path);
+			out.writeDouble(jd);
+			out.writeDouble(center.getRA());
+			out.writeDouble(center.getDecl());
+			out.writeDouble(field_radius);
+			out.writeFloat(limiting_mag);
+			out.writeBoolean(observer != null);
+			if (observer != null)
+				out.writeUTF(observer);
+			out.writeBoolean(instruments != null);
+			if (instruments != null)
+				out.writeUTF(instruments);
+		}
+
+		/**
+		 * Reads an entry.
+		 * @param in the input stream.
+		 * @return the entry.
+		 * @exception IOException if I/O error occurs.
+		 */
+		protected static Entry read ( DataInputStream in )
+			throws IOException
+		{
+			Entry entry = new Entry();
+			entry.path = in.readUTF();
+			entry.jd = in.readDouble();
+			double ra = in.readDouble();
+			double decl = in.readDouble();
+			entry.center = new Coor(ra, decl);
+			entry.field_radius = in.readDouble();
+			entry.limiting_mag = in.readFloat();
+			if (in.readBoolean())
+				entry.observer = in.readUTF();
+			if (in.readBoolean())
+				entry.instruments = in.readUTF();
+			return entry;
+		}
+	}
+}
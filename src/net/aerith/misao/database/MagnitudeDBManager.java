@@ -21,12 +21,49 @@ import net.aerith.misao.io.XmlDBHolderCache;
  * of the magnitude data. 
  * <p>
  * The database is classified by the star name.
+ * <p>
+ * The magnitude records are stored in the XML files in the folder of
+ * each star by default. After <code>migrateToSegments</code>, they
+ * are stored in the binary segment files of the
+ * <code>MagnitudeSegmentStore</code> in the "magseg" folder, where
+ * the records of all stars in one folder are stored together. The
+ * folders of the stars in the "mag" folder are still kept to browse
+ * the database. The backend is decided when the manager is
+ * constructed, and changed only by the conversion methods.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 6
+ * @version 2026 October 18
  */
 
 public class MagnitudeDBManager extends CatalogTreeManager {
+	/**
+	 * The top folder of the segment files.
+	 */
+	protected final static String SEGMENT_FOLDER = "magseg";
+
+	/**
+	 * The maximum number of database managers of the segment files
+	 * kept to be reused.
+	 */
+	protected final static int SEGMENT_MANAGER_LIMIT = 1024;
+
+	/**
+	 * The status number which represents the record is added.
+	 */
+	public final static int UPDATE_SUCCEEDED = 0;
+
+	/**
+	 * The status number which represents the record replaces an
+	 * already reported record.
+	 */
+	public final static int UPDATE_REPORTED_REPLACED = 1;
+
+	/**
+	 * The status number which represents the record is not added
+	 * because an already reported record exists.
+	 */
+	public final static int UPDATE_REPORTED_KEPT = 2;
+
 	/**
 	 * The file system of the database.
 	 */
@@ -37,6 +74,18 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 	 */
 	protected FileManager file_manager;
 
+	/**
+	 * True when the magnitude records are stored in the binary
+	 * segment files.
+	 */
+	protected boolean segment_enabled = false;
+
+	/**
+	 * The table of database managers of the segment files, whose key
+	 * is the folder of a star.
+	 */
+	protected Hashtable segment_managers = new Hashtable();
+
 	/**
 	 * Constructs a <code>MagnitudeDBManager</code> in the 
 	 * specified file system.
@@ -46,6 +95,9 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 	public MagnitudeDBManager ( FileSystem file_system, FileManager file_manager ) {
 		this.file_system = file_system;
 		this.file_manager = file_manager;
+
+		if (file_system instanceof DiskFileSystem)
+			segment_enabled = file_system.getFolder(SEGMENT_FOLDER).exists();
 	}
 
 	/**
@@ -75,7 +127,7 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 	{
 		// Adds to the database.
 		Folder db_folder = createDBFolder(star);
-		PrimitiveManager manager = file_system.getPrimitiveManager(db_folder, new XmlMagRecordHolder(), new XmlMagRecord());
+		PrimitiveManager manager = getPrimitiveManager(db_folder);
 		manager.addElement(record);
 	}
 
@@ -92,10 +144,86 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 	{
 		// Deletes from the database.
 		Folder db_folder = createDBFolder(star);
-		PrimitiveManager manager = file_system.getPrimitiveManager(db_folder, new XmlMagRecordHolder(), new XmlMagRecord());
+		PrimitiveManager manager = getPrimitiveManager(db_folder);
 		return (XmlMagRecord)manager.deleteElement(record.getImageXmlPath());
 	}
 
+	/**
+	 * Replaces the magnitude records in the specified folder of a
+	 * star by the specified records at once. The folder is read only
+	 * once, and the old records of the same IDs are deleted in one
+	 * pass, then the new records are added together. When some of
+	 * the specified records have the same ID, the last one is added.
+	 * @param db_folder       the database folder.
+	 * @param records         the array of new magnitude records.
+	 * @param add_flag        true when to add the new records, or
+	 * false when only to delete the old records.
+	 * @param update_reported true when to replace the records already
+	 * reported.
+	 * @return the array of status numbers of the records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public int[] updateElements ( Folder db_folder, XmlMagRecord[] records, boolean add_flag, boolean update_reported )
+		throws IOException
+	{
+		PrimitiveManager manager = getPrimitiveManager(db_folder);
+
+		// Reads the old records.
+		Hashtable hash_old = new Hashtable();
+		XmlDBAccessor accessor = manager.getAccessor();
+		XmlDBRecord record = accessor.getFirstElement();
+		while (record != null) {
+			if (hash_old.get(record.getID()) == null)
+				hash_old.put(record.getID(), record);
+			record = accessor.getNextElement();
+		}
+
+		int[] statuses = new int[records.length];
+		Hashtable hash_delete = new Hashtable();
+		Hashtable hash_index = new Hashtable();
+		Vector add_list = new Vector();
+
+		for (int i = 0 ; i < records.length ; i++) {
+			String id = records[i].getID();
+
+			statuses[i] = UPDATE_SUCCEEDED;
+
+			XmlMagRecord old_record = (XmlMagRecord)hash_old.get(id);
+			if (old_record != null) {
+				// If the record is already reported, it cannot be replaced.
+				if (old_record.getReported().length > 0) {
+					if (update_reported == false) {
+						statuses[i] = UPDATE_REPORTED_KEPT;
+						continue;
+					}
+					statuses[i] = UPDATE_REPORTED_REPLACED;
+				}
+				hash_delete.put(id, id);
+			}
+
+			if (add_flag) {
+				Integer index = (Integer)hash_index.get(id);
+				if (index == null) {
+					hash_index.put(id, new Integer(add_list.size()));
+					add_list.addElement(records[i]);
+				} else {
+					add_list.setElementAt(records[i], index.intValue());
+				}
+			}
+		}
+
+		if (manager instanceof MagnitudeSegmentManager) {
+			((MagnitudeSegmentManager)manager).replaceElements(hash_delete, add_list);
+		} else {
+			if (hash_delete.size() > 0)
+				manager.deleteElements(hash_delete);
+			if (add_list.size() > 0)
+				manager.addElements(add_list);
+		}
+
+		return statuses;
+	}
+
 	/**
 	 * Gets the magnitude records of the specified star.
 	 * @param star the catalog star.
@@ -116,7 +244,7 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 	protected XmlMagRecord[] getElements ( Folder db_folder )
 		throws IOException
 	{
-		PrimitiveManager manager = file_system.getPrimitiveManager(db_folder, new XmlMagRecordHolder(), new XmlMagRecord());
+		PrimitiveManager manager = getPrimitiveManager(db_folder);
 		XmlDBAccessor accessor = manager.getAccessor();
 
 		// Reads the magnitude records.
@@ -134,6 +262,311 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 		return records;
 	}
 
+	/**
+	 * Gets the magnitude records of the specified star observed in
+	 * the specified period, in order of the Julian Day.
+	 * @param star     the catalog star.
+	 * @param jd_start the Julian Day of the start of the period.
+	 * @param jd_end   the Julian Day of the end of the period.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlMagRecord[] getElements ( CatalogStar star, double jd_start, double jd_end )
+		throws IOException
+	{
+		Folder db_folder = createDBFolder(star);
+		PrimitiveManager manager = getPrimitiveManager(db_folder);
+		if (manager instanceof MagnitudeSegmentManager)
+			return ((MagnitudeSegmentManager)manager).getElements(jd_start, jd_end);
+
+		XmlMagRecord[] records = getElements(db_folder);
+
+		Vector list = new Vector();
+		double[] jds = new double[records.length];
+		for (int i = 0 ; i < records.length ; i++) {
+			jds[i] = JulianDay.create(records[i].getDate()).getJD();
+			if (jd_start <= jds[i]  &&  jds[i] <= jd_end)
+				list.addElement(new Integer(i));
+		}
+
+		XmlMagRecord[] selected_records = new XmlMagRecord[list.size()];
+		double[] selected_jds = new double[list.size()];
+		for (int i = 0 ; i < list.size() ; i++) {
+			int index = ((Integer)list.elementAt(i)).intValue();
+			selected_records[i] = records[index];
+			selected_jds[i] = jds[index];
+		}
+
+		// Sorts in order of the Julian Day, keeping the order of
+		// the records of the same date.
+		for (int i = 1 ; i < selected_records.length ; i++) {
+			for (int j = i ; j > 0  &&  selected_jds[j - 1] > selected_jds[j] ; j--) {
+				double jd = selected_jds[j];
+				selected_jds[j] = selected_jds[j - 1];
+				selected_jds[j - 1] = jd;
+				XmlMagRecord record = selected_records[j];
+				selected_records[j] = selected_records[j - 1];
+				selected_records[j - 1] = record;
+			}
+		}
+
+		return selected_records;
+	}
+
+	/**
+	 * Returns true if the magnitude records are stored in the binary
+	 * segment files.
+	 * @return true if the magnitude records are stored in the binary
+	 * segment files.
+	 */
+	public boolean isSegmentEnabled ( ) {
+		return segment_enabled;
+	}
+
+	/**
+	 * Gets the database manager of the specified folder of a star.
+	 * @param db_folder the database folder.
+	 * @return the database manager.
+	 * @exception IOException if I/O error occurs.
+	 */
+	protected PrimitiveManager getPrimitiveManager ( Folder db_folder )
+		throws IOException
+	{
+		if (segment_enabled) {
+			File key = ((FileFolder)db_folder).getFile();
+			synchronized (segment_managers) {
+				PrimitiveManager manager = (PrimitiveManager)segment_managers.get(key);
+				if (manager == null) {
+					manager = new MagnitudeSegmentManager(getSegmentPath(db_folder, SEGMENT_FOLDER), db_folder.getName());
+					if (segment_managers.size() >= SEGMENT_MANAGER_LIMIT)
+						segment_managers.clear();
+					segment_managers.put(key, manager);
+				}
+				return manager;
+			}
+		}
+
+		return file_system.getPrimitiveManager(db_folder, new XmlMagRecordHolder(), new XmlMagRecord());
+	}
+
+	/**
+	 * Gets the folder of the segment files of the specified folder of
+	 * a star. The segment folder of a star is the same as the parent
+	 * folder of the star, in the specified top folder.
+	 * @param db_folder  the database folder.
+	 * @param top_folder the top folder of the segment files.
+	 * @return the folder of the segment files.
+	 */
+	protected File getSegmentPath ( Folder db_folder, String top_folder ) {
+		Vector folder_list = db_folder.getHierarchy();
+
+		Vector segment_list = new Vector();
+		segment_list.addElement(top_folder);
+		for (int i = 1 ; i < folder_list.size() - 1 ; i++)
+			segment_list.addElement(folder_list.elementAt(i));
+
+		return ((FileFolder)file_system.getHierarchicalFolder(segment_list)).getFile();
+	}
+
+	/**
+	 * Converts the database to store the magnitude records in the
+	 * binary segment files. The records are written into a temporary
+	 * folder, which is renamed at last, then the XML files are
+	 * deleted. So the database is not broken even if the process is
+	 * killed halfway.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void migrateToSegments ( )
+		throws IOException
+	{
+		if ((file_system instanceof DiskFileSystem) == false)
+			throw new IOException();
+
+		// The XML documents in the disk cache are saved and released,
+		// since the XML files are deleted.
+		XmlDBHolderCache.enable(false);
+
+		Folder folder = file_system.getFolder(getDBFolder());
+
+		// The segment folder may be created by another manager.
+		if (file_system.getFolder(SEGMENT_FOLDER).exists() == false) {
+			File tmp_path = ((FileFolder)file_system.getFolder(SEGMENT_FOLDER + ".tmp")).getFile();
+			MagnitudeSegmentStore.release(tmp_path);
+			deleteTree(tmp_path);
+
+			copyToSegments(folder, SEGMENT_FOLDER + ".tmp");
+
+			if (tmp_path.exists() == false  &&  tmp_path.mkdirs() == false)
+				throw new IOException();
+
+			MagnitudeSegmentStore.release(tmp_path);
+			File path = ((FileFolder)file_system.getFolder(SEGMENT_FOLDER)).getFile();
+			if (tmp_path.renameTo(path) == false)
+				throw new IOException();
+		}
+
+		segment_enabled = true;
+		segment_managers.clear();
+
+		// The XML files remained are deleted.
+		deleteFiles(((FileFolder)folder).getFile());
+	}
+
+	/**
+	 * Converts the database to store the magnitude records in the XML
+	 * files. When the process is killed halfway, the database is
+	 * still stored in the binary segment files, and the conversion
+	 * can be operated again.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void migrateToXml ( )
+		throws IOException
+	{
+		// The segment folder may be deleted by another manager.
+		if ((file_system instanceof DiskFileSystem) == false  ||  file_system.getFolder(SEGMENT_FOLDER).exists() == false) {
+			segment_enabled = false;
+			segment_managers.clear();
+			return;
+		}
+		segment_enabled = true;
+
+		// The XML documents in the disk cache are saved and released,
+		// since the XML files are deleted.
+		XmlDBHolderCache.enable(false);
+
+		Folder folder = file_system.getFolder(getDBFolder());
+
+		// The XML files written halfway before are deleted.
+		deleteFiles(((FileFolder)folder).getFile());
+
+		copyToXml(folder);
+
+		File path = ((FileFolder)file_system.getFolder(SEGMENT_FOLDER)).getFile();
+		File old_path = ((FileFolder)file_system.getFolder(SEGMENT_FOLDER + ".old")).getFile();
+		MagnitudeSegmentStore.compactQueued();
+		MagnitudeSegmentStore.release(path);
+		deleteTree(old_path);
+		if (path.renameTo(old_path) == false)
+			throw new IOException();
+
+		segment_enabled = false;
+		segment_managers.clear();
+
+		deleteTree(old_path);
+	}
+
+	/**
+	 * Copies the magnitude records in the XML files in the specified
+	 * folder into the segment files recurrsively. The records of all
+	 * stars in one folder are written at once.
+	 * @param folder     the folder.
+	 * @param top_folder the top folder of the segment files.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void copyToSegments ( Folder folder, String top_folder )
+		throws IOException
+	{
+		Hashtable hash = new Hashtable();
+
+		Folder[] sub_folders = folder.list();
+		for (int i = 0 ; i < sub_folders.length ; i++) {
+			if (sub_folders[i].isFolder()) {
+				PrimitiveManager manager = file_system.getPrimitiveManager(sub_folders[i], new XmlMagRecordHolder(), new XmlMagRecord());
+				XmlDBAccessor accessor = manager.getAccessor();
+
+				Vector record_list = new Vector();
+				XmlDBRecord record = accessor.getFirstElement();
+				while (record != null) {
+					record_list.addElement(record);
+					record = accessor.getNextElement();
+				}
+
+				if (record_list.size() > 0)
+					hash.put(sub_folders[i].getName(), record_list);
+
+				copyToSegments(sub_folders[i], top_folder);
+			}
+		}
+
+		if (hash.size() > 0) {
+			// The segment folder of the stars in this folder.
+			File path = getSegmentPath(folder.getFolder(""), top_folder);
+			MagnitudeSegmentStore.open(path).addElements(hash);
+		}
+	}
+
+	/**
+	 * Copies the magnitude records in the segment files into the XML
+	 * files in the specified folder recurrsively.
+	 * @param folder the folder.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void copyToXml ( Folder folder )
+		throws IOException
+	{
+		Folder[] sub_folders = folder.list();
+		for (int i = 0 ; i < sub_folders.length ; i++) {
+			if (sub_folders[i].isFolder()) {
+				PrimitiveManager manager = getPrimitiveManager(sub_folders[i]);
+				XmlDBAccessor accessor = manager.getAccessor();
+
+				Vector record_list = new Vector();
+				XmlDBRecord record = accessor.getFirstElement();
+				while (record != null) {
+					record_list.addElement(record);
+					record = accessor.getNextElement();
+				}
+
+				if (record_list.size() > 0) {
+					manager = file_system.getPrimitiveManager(sub_folders[i], new XmlMagRecordHolder(), new XmlMagRecord());
+					manager.addElements(record_list);
+				}
+
+				copyToXml(sub_folders[i]);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the files in the specified folder and its sub folders
+	 * recurrsively. The folders are not deleted.
+	 * @param path the folder.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void deleteFiles ( File path )
+		throws IOException
+	{
+		File[] files = path.listFiles();
+		if (files == null)
+			return;
+
+		for (int i = 0 ; i < files.length ; i++) {
+			if (files[i].isDirectory()) {
+				deleteFiles(files[i]);
+			} else {
+				if (files[i].delete() == false)
+					throw new IOException();
+			}
+		}
+	}
+
+	/**
+	 * Deletes the specified folder and all files and folders in it.
+	 * @param path the folder.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void deleteTree ( File path )
+		throws IOException
+	{
+		File[] files = path.listFiles();
+		if (files != null) {
+			for (int i = 0 ; i < files.length ; i++)
+				deleteTree(files[i]);
+		}
+
+		if (path.exists()  &&  path.delete() == false)
+			throw new IOException();
+	}
+
 	/**
 	 * Creates the database folder.
 	 * @param star the catalog star.
@@ -202,7 +635,7 @@ public class MagnitudeDBManager extends CatalogTreeManager {
 		Vector list = new Vector();
 
 		// Checks the current folder.
-		PrimitiveManager manager = file_system.getPrimitiveManager(folder, new XmlMagRecordHolder(), new XmlMagRecord());
+		PrimitiveManager manager = getPrimitiveManager(folder);
 		XmlDBAccessor accessor = manager.getAccessor();
 
 		// Reads the magnitude records.
@@ -0,0 +1,226 @@
+/*
+ * @(#)MagnitudeSegmentManager.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.util.*;
+import net.aerith.misao.xml.*;
+
+/**
+ * The <code>MagnitudeSegmentManager</code> represents a database
+ * manager which covers the magnitude records of one star, stored in
+ * the <code>MagnitudeSegmentStore</code>.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class MagnitudeSegmentManager extends PrimitiveManager {
+	/**
+	 * The folder of the segment files.
+	 */
+	protected File path;
+
+	/**
+	 * The star name.
+	 */
+	protected String name;
+
+	/**
+	 * Constructs a <code>MagnitudeSegmentManager</code> of the
+	 * specified star in the specified folder. The folder is not
+	 * created until a record is added.
+	 * @param path the folder of the segment files.
+	 * @param name the star name.
+	 */
+	public MagnitudeSegmentManager ( File path, String name ) {
+		this.path = path;
+		this.name = name;
+		this.holder_class = new XmlMagRecordHolder();
+		this.record_class = new XmlMagRecord();
+	}
+
+	/**
+	 * Gets the folder path.
+	 * @return the folder path.
+	 */
+	public File getPath ( ) {
+		return path;
+	}
+
+	/**
+	 * Adds the specified XML element into the database.
+	 * @param element the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void addElement ( XmlDBRecord element )
+		throws IOException
+	{
+		Vector list = new Vector();
+		list.addElement(element);
+		addElements(list);
+	}
+
+	/**
+	 * Adds the XML elements in the specified list into the database.
+	 * All elements in the list are appended at once.
+	 * @param list the list of XML elements.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void addElements ( Vector list )
+		throws IOException
+	{
+		MagnitudeSegmentStore.open(path).addElements(name, list);
+	}
+
+	/**
+	 * Adds or updates the specified XML element into the database.
+	 * It checks if the element whose ID is the same as the specified
+	 * element already exists or not. When it does, the data is
+	 * updated. Otherwise, the element is newly added.
+	 * @param element the XML element.
+	 * @return the old XML element if the element of the specified ID
+	 * already exists, or null.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord setElement ( XmlDBRecord element )
+		throws IOException
+	{
+		return MagnitudeSegmentStore.open(path).setElement(name, (XmlMagRecord)element);
+	}
+
+	/**
+	 * Deletes the element of the specified ID.
+	 * @param id the ID.
+	 * @return the deleted XML element, or null if the element of the
+	 * specified ID does not exist.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord deleteElement ( String id )
+		throws IOException
+	{
+		if (path.exists() == false)
+			return null;
+
+		Hashtable hash = new Hashtable();
+		hash.put(id, id);
+		Vector list = MagnitudeSegmentStore.open(path).deleteElements(name, hash);
+		if (list.size() == 0)
+			return null;
+		return (XmlDBRecord)list.elementAt(0);
+	}
+
+	/**
+	 * Deletes the elements in the specified hash table. After the
+	 * operation, some of the elements in the specified hash table are
+	 * deleted, which are in this database. Others are remained. The
+	 * IDs of the deleted elements are also deleted from the hash
+	 * table.
+	 * @param hash the hash table whose keys are IDs of the elements
+	 * to be deleted.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void deleteElements ( Hashtable hash )
+		throws IOException
+	{
+		if (path.exists() == false)
+			return;
+
+		MagnitudeSegmentStore.open(path).deleteElements(name, hash);
+	}
+
+	/**
+	 * Deletes the elements in the specified hash table and adds the
+	 * XML elements in the specified list at once.
+	 * @param hash the hash table whose keys are IDs of the elements
+	 * to be deleted.
+	 * @param list the list of XML elements to be added.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void replaceElements ( Hashtable hash, Vector list )
+		throws IOException
+	{
+		MagnitudeSegmentStore.open(path).replaceElements(name, hash, list);
+	}
+
+	/**
+	 * Gets the magnitude records observed in the specified period, in
+	 * order of the Julian Day.
+	 * @param jd_start the Julian Day of the start of the period.
+	 * @param jd_end   the Julian Day of the end of the period.
+	 * @return the array of magnitude records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlMagRecord[] getElements ( double jd_start, double jd_end )
+		throws IOException
+	{
+		if (path.exists() == false)
+			return new XmlMagRecord[0];
+
+		return MagnitudeSegmentStore.open(path).getElements(name, jd_start, jd_end);
+	}
+
+	/**
+	 * Gets the sequential accessor to the elements in the database.
+	 * @return the sequential accessor.
+	 */
+	public XmlDBAccessor getAccessor ( ) {
+		return new SegmentAccessor();
+	}
+
+	/**
+	 * The <code>SegmentAccessor</code> represents a sequential
+	 * accessor to the magnitude records of the star.
+	 */
+	protected class SegmentAccessor implements XmlDBAccessor {
+		/**
+		 * The list of magnitude records.
+		 */
+		protected XmlMagRecord[] records;
+
+		/**
+		 * The index of the current element.
+		 */
+		protected int index = -1;
+
+		/**
+		 * Gets the first element in the database.
+		 * @return the XML element.
+		 * @exception IOException if I/O error occurs.
+		 */
+		public XmlDBRecord getFirstElement ( )
+			throws IOException
+		{
+			if (path.exists())
+				records = MagnitudeSegmentStore.open(path).getElements(name);
+			else
+				records = new XmlMagRecord[0];
+
+			index = -1;
+			return getNextElement();
+		}
+
+		/**
+		 * Gets the next element in the database.
+		 * @return the XML element.
+		 * @exception IOException if I/O error occurs.
+		 */
+		public XmlDBRecord getNextElement ( )
+			throws IOException
+		{
+			index++;
+
+			if (records == null)
+				throw new IOException();
+
+			if (index >= records.length)
+				return null;
+
+			return records[index];
+		}
+	}
+}
@@ -0,0 +1,1390 @@
+/*
+ * @(#)MagnitudeSegmentStore.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.zip.CRC32;
+import net.aerith.misao.util.JulianDay;
+import net.aerith.misao.xml.*;
+
+/**
+ * The <code>MagnitudeSegmentStore</code> represents a storage of the
+ * magnitude records of the stars in one folder of the magnitude
+ * database, in the binary segment files instead of the XML files.
+ * <p>
+ * The segment files are named 1.seg, 2.seg, ..., and only appended.
+ * Each addition or deletion is appended as a block, in which the
+ * records are stored column by column, followed by the checksum. A
+ * broken block at the end of a file, written when the process was
+ * killed, is truncated when the file is read. The deleted records
+ * are removed when the segments are compacted into one new segment
+ * in the background. The compacted segment begins with a base
+ * block, and the segments before it are ignored even if they are
+ * not deleted yet.
+ * <p>
+ * The records are read into memory at the first access, and are
+ * indexed by the star name and by the Julian Day. The records in a
+ * limited number of stores are kept in memory. There is only one
+ * store object for each folder in a process, and all methods are
+ * thread-safe. The records returned are copies.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class MagnitudeSegmentStore {
+	/**
+	 * The extension of the segment files.
+	 */
+	public final static String SEGMENT_EXTENSION = ".seg";
+
+	/**
+	 * The limit of the size of one segment file (1MB).
+	 */
+	protected final static long segment_size_limit = 1024L * 1024L;
+
+	/**
+	 * The number of segment files to be compacted.
+	 */
+	protected final static int compaction_segment_count = 8;
+
+	/**
+	 * The maximum number of stores whose records are kept in memory.
+	 */
+	protected final static int loaded_store_limit = 64;
+
+	/**
+	 * The magic number at the top of a block.
+	 */
+	private final static int BLOCK_MAGIC = 0x4d414731;
+
+	/**
+	 * The kind of block appended.
+	 */
+	private final static int BLOCK_APPEND = 0;
+
+	/**
+	 * The kind of block which contains all records after compaction.
+	 */
+	private final static int BLOCK_BASE = 1;
+
+	/**
+	 * The operation to add a record.
+	 */
+	private final static byte OPERATION_ADD = 0;
+
+	/**
+	 * The operation to delete a record.
+	 */
+	private final static byte OPERATION_DELETE = 1;
+
+	/**
+	 * The flags of the elements of a record.
+	 */
+	private final static int FLAG_MAG = 1;
+	private final static int FLAG_POSITION = 2;
+	private final static int FLAG_PIXELS_FROM_EDGE = 4;
+	private final static int FLAG_UNOFFICIAL = 8;
+	private final static int FLAG_DISCARDED = 16;
+	private final static int FLAG_PREEMPTED = 32;
+	private final static int FLAG_IMPORTED = 64;
+
+	/**
+	 * The lock object of the stores.
+	 */
+	private final static Object lock = new Object();
+
+	/**
+	 * The hash table of the stores, whose keys are the absolute paths.
+	 */
+	private static Hashtable stores = new Hashtable();
+
+	/**
+	 * The stores whose records are loaded, in order of access.
+	 */
+	private static LinkedHashMap loaded_stores = new LinkedHashMap(16, 0.75f, true);
+
+	/**
+	 * The list of stores to be compacted.
+	 */
+	private static Vector compaction_queue = new Vector();
+
+	/**
+	 * The compaction thread.
+	 */
+	private static Thread compactor = null;
+
+	/**
+	 * The folder of the segment files.
+	 */
+	protected File path;
+
+	/**
+	 * The hash table of the entries of the stars, whose keys are the
+	 * star names. In the case of null, the records are not loaded.
+	 */
+	protected Hashtable entries = null;
+
+	/**
+	 * The number of the segment files.
+	 */
+	protected int[] segments = new int[0];
+
+	/**
+	 * The number of the live records.
+	 */
+	protected int live_count = 0;
+
+	/**
+	 * The number of the records deleted or superseded.
+	 */
+	protected int dead_count = 0;
+
+	/**
+	 * Constructs a <code>MagnitudeSegmentStore</code>.
+	 * @param path the folder of the segment files.
+	 */
+	protected MagnitudeSegmentStore ( File path ) {
+		this.path = path;
+	}
+
+	/**
+	 * Gets the store in the specified folder.
+	 * @param path the folder of the segment files.
+	 * @return the store.
+	 * @exception IOException if the folder cannot be created.
+	 */
+	public static MagnitudeSegmentStore open ( File path )
+		throws IOException
+	{
+		if (path.exists()) {
+			if (path.isDirectory() == false)
+				throw new IOException();
+		} else {
+			if (path.mkdirs() == false  &&  path.isDirectory() == false)
+				throw new IOException();
+		}
+
+		String key = path.getAbsolutePath();
+		synchronized (lock) {
+			MagnitudeSegmentStore store = (MagnitudeSegmentStore)stores.get(key);
+			if (store == null) {
+				store = new MagnitudeSegmentStore(path);
+				stores.put(key, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Releases the stores in the specified folder and its sub folders.
+	 * This must be invoked before the folder is renamed or deleted.
+	 * @param path the folder.
+	 */
+	public static void release ( File path ) {
+		String prefix = path.getAbsolutePath();
+
+		synchronized (lock) {
+			Vector keys = new Vector(stores.keySet());
+			for (int i = 0 ; i < keys.size() ; i++) {
+				String key = (String)keys.elementAt(i);
+				if (key.equals(prefix)  ||  key.startsWith(prefix + File.separator)) {
+					MagnitudeSegmentStore store = (MagnitudeSegmentStore)stores.remove(key);
+					loaded_stores.remove(key);
+					compaction_queue.removeElement(store);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the specified file is a segment file.
+	 * @param file the file.
+	 * @return true if the specified file is a segment file.
+	 */
+	public static boolean isSegmentFile ( File file ) {
+		return (file.isFile()  &&  getSegmentNumber(file.getName()) > 0);
+	}
+
+	/**
+	 * Gets the folder of the segment files.
+	 * @return the folder of the segment files.
+	 */
+	public File getPath ( ) {
+		return path;
+	}
+
+	/**
+	 * Gets the names of the stars which have records.
+	 * @return the array of names of the stars.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized String[] getNames ( )
+		throws IOException
+	{
+		load();
+
+		Vector list = new Vector();
+		Enumeration keys = entries.keys();
+		while (keys.hasMoreElements()) {
+			String name = (String)keys.nextElement();
+			if (((StarEntry)entries.get(name)).size() > 0)
+				list.addElement(name);
+		}
+
+		String[] names = new String[list.size()];
+		for (int i = 0 ; i < names.length ; i++)
+			names[i] = (String)list.elementAt(i);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/**
+	 * Gets the magnitude records of the specified star, in order of
+	 * addition.
+	 * @param name the star name.
+	 * @return the array of magnitude records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized XmlMagRecord[] getElements ( String name )
+		throws IOException
+	{
+		load();
+
+		StarEntry entry = (StarEntry)entries.get(name);
+		if (entry == null)
+			return new XmlMagRecord[0];
+
+		XmlMagRecord[] records = new XmlMagRecord[entry.size()];
+		for (int i = 0 ; i < records.length ; i++)
+			records[i] = copy(entry.getRecord(i));
+		return records;
+	}
+
+	/**
+	 * Gets the magnitude records of the specified star observed in the
+	 * specified period, in order of the Julian Day.
+	 * @param name     the star name.
+	 * @param jd_start the Julian Day of the start of the period.
+	 * @param jd_end   the Julian Day of the end of the period.
+	 * @return the array of magnitude records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized XmlMagRecord[] getElements ( String name, double jd_start, double jd_end )
+		throws IOException
+	{
+		load();
+
+		StarEntry entry = (StarEntry)entries.get(name);
+		if (entry == null)
+			return new XmlMagRecord[0];
+
+		int[] order = entry.getOrderOfJD();
+		double[] jds = entry.jds;
+
+		// Finds the first record not before the start.
+		int low = 0;
+		int high = order.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (jds[order[mid]] < jd_start)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		Vector list = new Vector();
+		for (int i = low ; i < order.length  &&  jds[order[i]] <= jd_end ; i++)
+			list.addElement(copy(entry.getRecord(order[i])));
+
+		XmlMagRecord[] records = new XmlMagRecord[list.size()];
+		for (int i = 0 ; i < records.length ; i++)
+			records[i] = (XmlMagRecord)list.elementAt(i);
+		return records;
+	}
+
+	/**
+	 * Adds the magnitude records of the specified star.
+	 * @param name the star name.
+	 * @param list the list of magnitude records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void addElements ( String name, Vector list )
+		throws IOException
+	{
+		load();
+
+		Vector rows = new Vector();
+		for (int i = 0 ; i < list.size() ; i++)
+			rows.addElement(new Row(OPERATION_ADD, name, copy((XmlMagRecord)list.elementAt(i))));
+
+		append(rows);
+	}
+
+	/**
+	 * Adds the magnitude records of the stars at once. All records
+	 * are appended in one block.
+	 * @param hash the hash table whose keys are the star names and
+	 * values are the lists of magnitude records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void addElements ( Hashtable hash )
+		throws IOException
+	{
+		load();
+
+		Vector rows = new Vector();
+		Enumeration keys = hash.keys();
+		while (keys.hasMoreElements()) {
+			String name = (String)keys.nextElement();
+			Vector list = (Vector)hash.get(name);
+			for (int i = 0 ; i < list.size() ; i++)
+				rows.addElement(new Row(OPERATION_ADD, name, copy((XmlMagRecord)list.elementAt(i))));
+		}
+
+		if (rows.size() > 0)
+			append(rows);
+	}
+
+	/**
+	 * Adds or updates the magnitude record of the specified star.
+	 * @param name   the star name.
+	 * @param record the magnitude record.
+	 * @return the old magnitude record if the record of the same ID
+	 * already exists, or null.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized XmlMagRecord setElement ( String name, XmlMagRecord record )
+		throws IOException
+	{
+		load();
+
+		XmlMagRecord old_record = find(name, record.getID());
+
+		Vector rows = new Vector();
+		if (old_record != null)
+			rows.addElement(new Row(OPERATION_DELETE, name, createDeletion(old_record)));
+		rows.addElement(new Row(OPERATION_ADD, name, copy(record)));
+
+		append(rows);
+
+		return (old_record == null ? null : copy(old_record));
+	}
+
+	/**
+	 * Deletes the magnitude records of the specified star whose IDs
+	 * are in the specified hash table, and adds the new records. All
+	 * of them are appended in one block, so either all or none of
+	 * them are applied even if the process is killed.
+	 * @param name the star name.
+	 * @param hash the hash table whose keys are IDs of the records to
+	 * be deleted.
+	 * @param list the list of magnitude records to be added.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void replaceElements ( String name, Hashtable hash, Vector list )
+		throws IOException
+	{
+		load();
+
+		Vector rows = new Vector();
+
+		StarEntry entry = (StarEntry)entries.get(name);
+		if (entry != null) {
+			for (int i = 0 ; i < entry.size() ; i++) {
+				XmlMagRecord record = entry.getRecord(i);
+				if (hash.get(record.getID()) != null)
+					rows.addElement(new Row(OPERATION_DELETE, name, createDeletion(record)));
+			}
+		}
+
+		for (int i = 0 ; i < list.size() ; i++)
+			rows.addElement(new Row(OPERATION_ADD, name, copy((XmlMagRecord)list.elementAt(i))));
+
+		if (rows.size() > 0)
+			append(rows);
+	}
+
+	/**
+	 * Deletes the magnitude records of the specified star whose IDs
+	 * are in the specified hash table. The IDs of the deleted records
+	 * are deleted from the hash table.
+	 * @param name the star name.
+	 * @param hash the hash table whose keys are IDs of the records to
+	 * be deleted.
+	 * @return the list of deleted records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized Vector deleteElements ( String name, Hashtable hash )
+		throws IOException
+	{
+		load();
+
+		Vector deleted_list = new Vector();
+		Vector rows = new Vector();
+
+		StarEntry entry = (StarEntry)entries.get(name);
+		if (entry != null) {
+			for (int i = 0 ; i < entry.size() ; i++) {
+				XmlMagRecord record = entry.getRecord(i);
+				if (hash.get(record.getID()) != null) {
+					hash.remove(record.getID());
+					deleted_list.addElement(copy(record));
+					rows.addElement(new Row(OPERATION_DELETE, name, createDeletion(record)));
+				}
+			}
+		}
+
+		if (rows.size() > 0)
+			append(rows);
+
+		return deleted_list;
+	}
+
+	/**
+	 * Deletes all segment files.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void discard ( )
+		throws IOException
+	{
+		File[] files = path.listFiles();
+		for (int i = 0 ; i < files.length ; i++) {
+			if (isSegmentFile(files[i])  ||  files[i].getName().endsWith(SEGMENT_EXTENSION + ".tmp")) {
+				if (files[i].delete() == false)
+					throw new IOException();
+			}
+		}
+
+		entries = new Hashtable();
+		segments = new int[0];
+		live_count = 0;
+		dead_count = 0;
+	}
+
+	/**
+	 * Compacts the segment files into one new segment file, which
+	 * contains only the live records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized void compact ( )
+		throws IOException
+	{
+		load();
+
+		if (segments.length <= 1  &&  dead_count == 0)
+			return;
+
+		Vector rows = new Vector();
+		Enumeration keys = entries.keys();
+		while (keys.hasMoreElements()) {
+			String name = (String)keys.nextElement();
+			StarEntry entry = (StarEntry)entries.get(name);
+			for (int i = 0 ; i < entry.size() ; i++)
+				rows.addElement(new Row(OPERATION_ADD, name, entry.getRecord(i)));
+		}
+
+		int number = (segments.length == 0 ? 1 : segments[segments.length - 1] + 1);
+		File tmp_file = new File(path, String.valueOf(number) + SEGMENT_EXTENSION + ".tmp");
+		File file = new File(path, String.valueOf(number) + SEGMENT_EXTENSION);
+
+		FileOutputStream stream = new FileOutputStream(tmp_file);
+		try {
+			stream.write(encodeBlock(BLOCK_BASE, rows));
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+
+		if (tmp_file.renameTo(file) == false) {
+			tmp_file.delete();
+			throw new IOException();
+		}
+
+		// The old segments are ignored after the base block is
+		// written, even if they fail to be deleted.
+		for (int i = 0 ; i < segments.length ; i++)
+			new File(path, String.valueOf(segments[i]) + SEGMENT_EXTENSION).delete();
+
+		segments = new int[] { number };
+		dead_count = 0;
+	}
+
+	/**
+	 * Compacts the stores in the compaction queue. This method is
+	 * invoked by the compaction thread, and also can be invoked to
+	 * compact them immediately.
+	 */
+	public static void compactQueued ( ) {
+		while (true) {
+			MagnitudeSegmentStore store = null;
+			synchronized (lock) {
+				if (compaction_queue.size() == 0)
+					return;
+				store = (MagnitudeSegmentStore)compaction_queue.elementAt(0);
+				compaction_queue.removeElementAt(0);
+			}
+
+			try {
+				store.compact();
+			} catch ( IOException exception ) {
+				System.err.println(exception);
+			}
+		}
+	}
+
+	/**
+	 * Reads the records from the segment files if not read yet. This
+	 * must be invoked in a block synchronized on this store.
+	 * @exception IOException if I/O error occurs.
+	 */
+	protected void load ( )
+		throws IOException
+	{
+		if (entries == null) {
+			entries = new Hashtable();
+			live_count = 0;
+			dead_count = 0;
+
+			// Lists the segment files in order of number.
+			Vector list = new Vector();
+			File[] files = path.listFiles();
+			if (files == null)
+				throw new IOException();
+			for (int i = 0 ; i < files.length ; i++) {
+				if (isSegmentFile(files[i])) {
+					list.addElement(new Integer(getSegmentNumber(files[i].getName())));
+				} else if (files[i].getName().endsWith(SEGMENT_EXTENSION + ".tmp")) {
+					// The compaction was not completed.
+					files[i].delete();
+				}
+			}
+			segments = new int[list.size()];
+			for (int i = 0 ; i < segments.length ; i++)
+				segments[i] = ((Integer)list.elementAt(i)).intValue();
+			Arrays.sort(segments);
+
+			for (int i = 0 ; i < segments.length ; i++)
+				readSegment(new File(path, String.valueOf(segments[i]) + SEGMENT_EXTENSION));
+		}
+
+		Vector victims = new Vector();
+		synchronized (lock) {
+			loaded_stores.put(path.getAbsolutePath(), this);
+
+			Iterator it = loaded_stores.values().iterator();
+			while (loaded_stores.size() > loaded_store_limit) {
+				victims.addElement(it.next());
+				it.remove();
+			}
+		}
+
+		// The records of the stores least recently used are released.
+		// It must not be done in the block synchronized on the lock.
+		for (int i = 0 ; i < victims.size() ; i++) {
+			MagnitudeSegmentStore store = (MagnitudeSegmentStore)victims.elementAt(i);
+			if (store != this) {
+				synchronized (store) {
+					store.entries = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the blocks in the specified segment file. The broken
+	 * block at the end and the bytes after it are truncated.
+	 * @param file the segment file.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void readSegment ( File file )
+		throws IOException
+	{
+		byte[] data = new byte[(int)file.length()];
+		DataInputStream stream = new DataInputStream(new FileInputStream(file));
+		try {
+			stream.readFully(data);
+		} finally {
+			stream.close();
+		}
+
+		int offset = 0;
+		while (offset + 20 <= data.length) {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, data.length - offset));
+			if (in.readInt() != BLOCK_MAGIC)
+				break;
+			int kind = in.readInt();
+			int length = in.readInt();
+			if (length < 0  ||  offset + 12 + length + 8 > data.length)
+				break;
+
+			CRC32 crc = new CRC32();
+			crc.update(data, offset + 12, length);
+			in.skipBytes(length);
+			if (in.readLong() != crc.getValue())
+				break;
+
+			if (kind == BLOCK_BASE) {
+				entries = new Hashtable();
+				live_count = 0;
+				dead_count = 0;
+			}
+
+			Vector rows = decodeRows(new DataInputStream(new ByteArrayInputStream(data, offset + 12, length)));
+			for (int i = 0 ; i < rows.size() ; i++)
+				apply((Row)rows.elementAt(i));
+
+			offset += 12 + length + 8;
+		}
+
+		// The broken block is cut off, otherwise the blocks appended
+		// after it would never be read.
+		if (offset < data.length) {
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(offset);
+				raf.getFD().sync();
+			} finally {
+				raf.close();
+			}
+		}
+	}
+
+	/**
+	 * Appends the rows to the last segment file and applies them to
+	 * the records in memory. This must be invoked in a block
+	 * synchronized on this store.
+	 * @param rows the list of rows.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void append ( Vector rows )
+		throws IOException
+	{
+		byte[] block = encodeBlock(BLOCK_APPEND, rows);
+
+		int number = (segments.length == 0 ? 1 : segments[segments.length - 1]);
+		File file = new File(path, String.valueOf(number) + SEGMENT_EXTENSION);
+		if (file.exists()  &&  file.length() + block.length > segment_size_limit) {
+			number++;
+			file = new File(path, String.valueOf(number) + SEGMENT_EXTENSION);
+		}
+
+		FileOutputStream stream = new FileOutputStream(file, true);
+		try {
+			stream.write(block);
+			stream.getFD().sync();
+		} finally {
+			stream.close();
+		}
+
+		if (segments.length == 0  ||  segments[segments.length - 1] != number) {
+			int[] s = new int[segments.length + 1];
+			System.arraycopy(segments, 0, s, 0, segments.length);
+			s[segments.length] = number;
+			segments = s;
+		}
+
+		for (int i = 0 ; i < rows.size() ; i++)
+			apply((Row)rows.elementAt(i));
+
+		if (segments.length >= compaction_segment_count  ||  (dead_count > 100  &&  dead_count > live_count))
+			requestCompaction();
+	}
+
+	/**
+	 * Applies the row to the records in memory.
+	 * @param row the row.
+	 */
+	private void apply ( Row row ) {
+		StarEntry entry = (StarEntry)entries.get(row.name);
+		if (entry == null) {
+			entry = new StarEntry();
+			entries.put(row.name, entry);
+		}
+
+		if (row.operation == OPERATION_ADD) {
+			entry.add(row.record);
+			live_count++;
+		} else {
+			if (entry.remove(row.record.getID())) {
+				live_count--;
+				dead_count++;
+			}
+			dead_count++;
+		}
+	}
+
+	/**
+	 * Finds the record of the specified ID of the specified star.
+	 * @param name the star name.
+	 * @param id   the ID.
+	 * @return the record, or null if not found.
+	 */
+	private XmlMagRecord find ( String name, String id ) {
+		StarEntry entry = (StarEntry)entries.get(name);
+		if (entry != null) {
+			for (int i = 0 ; i < entry.size() ; i++) {
+				if (entry.getRecord(i).getID().equals(id))
+					return entry.getRecord(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds this store into the compaction queue.
+	 */
+	private void requestCompaction ( ) {
+		synchronized (lock) {
+			if (compaction_queue.contains(this) == false)
+				compaction_queue.addElement(this);
+
+			if (compactor == null) {
+				compactor = new CompactionThread();
+				compactor.start();
+			}
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Gets the number of the segment file of the specified name.
+	 * @param name the file name.
+	 * @return the number, or 0 if it is not a segment file.
+	 */
+	private static int getSegmentNumber ( String name ) {
+		if (name.endsWith(SEGMENT_EXTENSION) == false)
+			return 0;
+
+		try {
+			return Integer.parseInt(name.substring(0, name.length() - SEGMENT_EXTENSION.length()));
+		} catch ( NumberFormatException exception ) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Creates the record to represent the deletion of the specified
+	 * record, which has only the ID.
+	 * @param record the record to be deleted.
+	 * @return the record of the deletion.
+	 */
+	private static XmlMagRecord createDeletion ( XmlMagRecord record ) {
+		XmlMagRecord deletion = new XmlMagRecord();
+		deletion.setImageXmlPath(record.getImageXmlPath());
+		return deletion;
+	}
+
+	/**
+	 * Gets the Julian Day of the specified record.
+	 * @param record the record.
+	 * @return the Julian Day, or NaN if the date is invalid.
+	 */
+	private static double getJD ( XmlMagRecord record ) {
+		try {
+			return JulianDay.create(record.getDate()).getJD();
+		} catch ( Exception exception ) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Creates a copy of the specified record.
+	 * @param record the record.
+	 * @return the copy.
+	 */
+	protected static XmlMagRecord copy ( XmlMagRecord record ) {
+		XmlMagRecord r = new XmlMagRecord();
+
+		r.setDate(record.getDate());
+		if (record.getMag() != null) {
+			XmlMag mag = new XmlMag();
+			mag.setContent(record.getMag().getContent());
+			mag.setUpperLimit(record.getMag().getUpperLimit());
+			mag.setInaccurate(record.getMag().getInaccurate());
+			mag.setOrder(record.getMag().getOrder());
+			r.setMag(mag);
+		}
+		r.setFilter(record.getFilter());
+		r.setChip(record.getChip());
+		r.setCatalog(record.getCatalog());
+		r.setObserver(record.getObserver());
+		r.setInstruments(record.getInstruments());
+		r.setImageXmlPath(record.getImageXmlPath());
+		r.setName(record.getName());
+		if (record.getPosition() != null) {
+			XmlPosition position = new XmlPosition();
+			position.setX(record.getPosition().getX());
+			position.setY(record.getPosition().getY());
+			r.setPosition(position);
+		}
+		r.setPixelsFromEdge(record.getPixelsFromEdge());
+
+		net.aerith.misao.xml.relaxer.XmlReported[] reported = record.getReported();
+		for (int i = 0 ; i < reported.length ; i++) {
+			XmlReported rep = new XmlReported();
+			rep.setTo(reported[i].getTo());
+			r.addReported(rep);
+		}
+		if (record.getUnofficial() != null)
+			r.setUnofficial(new XmlUnofficial());
+		if (record.getDiscarded() != null)
+			r.setDiscarded(new XmlDiscarded());
+		if (record.getPreempted() != null)
+			r.setPreempted(new XmlPreempted());
+		if (record.getImported() != null)
+			r.setImported(new XmlImported());
+
+		net.aerith.misao.xml.relaxer.XmlBlending[] blendings = record.getBlending();
+		for (int i = 0 ; i < blendings.length ; i++) {
+			XmlBlending blending = new XmlBlending();
+			blending.setClassValue(blendings[i].getClassValue());
+			blending.setContent(blendings[i].getContent());
+			r.addBlending(blending);
+		}
+		r.setNote(record.getNote());
+
+		return r;
+	}
+
+	/**
+	 * Encodes the rows into a block, which consists of the magic
+	 * number, the kind, the length of data, the data and the
+	 * checksum.
+	 * @param kind the kind of the block.
+	 * @param rows the list of rows.
+	 * @return the block.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static byte[] encodeBlock ( int kind, Vector rows )
+		throws IOException
+	{
+		int count = rows.size();
+		XmlMagRecord[] records = new XmlMagRecord[count];
+		for (int i = 0 ; i < count ; i++)
+			records[i] = ((Row)rows.elementAt(i)).record;
+
+		ByteArrayOutputStream data_stream = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(data_stream);
+
+		out.writeInt(count);
+
+		for (int i = 0 ; i < count ; i++)
+			out.writeByte(((Row)rows.elementAt(i)).operation);
+
+		String[] names = new String[count];
+		for (int i = 0 ; i < count ; i++)
+			names[i] = ((Row)rows.elementAt(i)).name;
+		writeStrings(out, names);
+
+		for (int i = 0 ; i < count ; i++)
+			out.writeDouble(getJD(records[i]));
+
+		for (int i = 0 ; i < count ; i++) {
+			int flags = 0;
+			if (records[i].getMag() != null)
+				flags |= FLAG_MAG;
+			if (records[i].getPosition() != null)
+				flags |= FLAG_POSITION;
+			if (records[i].getPixelsFromEdge() != null)
+				flags |= FLAG_PIXELS_FROM_EDGE;
+			if (records[i].getUnofficial() != null)
+				flags |= FLAG_UNOFFICIAL;
+			if (records[i].getDiscarded() != null)
+				flags |= FLAG_DISCARDED;
+			if (records[i].getPreempted() != null)
+				flags |= FLAG_PREEMPTED;
+			if (records[i].getImported() != null)
+				flags |= FLAG_IMPORTED;
+			out.writeByte(flags);
+		}
+
+		String[] values = new String[count];
+
+		// The magnitude.
+		for (int i = 0 ; i < count ; i++)
+			out.writeFloat(records[i].getMag() == null ? 0.0f : records[i].getMag().getContent());
+		for (int i = 0 ; i < count ; i++)
+			values[i] = (records[i].getMag() == null ? null : records[i].getMag().getUpperLimit());
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = (records[i].getMag() == null ? null : records[i].getMag().getInaccurate());
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++) {
+			values[i] = null;
+			if (records[i].getMag() != null  &&  records[i].getMag().getOrder() != null)
+				values[i] = records[i].getMag().getOrder().toString();
+		}
+		writeStrings(out, values);
+
+		// The position.
+		for (int i = 0 ; i < count ; i++)
+			out.writeFloat(records[i].getPosition() == null ? 0.0f : records[i].getPosition().getX());
+		for (int i = 0 ; i < count ; i++)
+			out.writeFloat(records[i].getPosition() == null ? 0.0f : records[i].getPosition().getY());
+		for (int i = 0 ; i < count ; i++)
+			out.writeInt(records[i].getPixelsFromEdge() == null ? 0 : records[i].getPixelsFromEdge().intValue());
+
+		// The string elements.
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getDate();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getFilter();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getChip();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getCatalog();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getObserver();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getInstruments();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getImageXmlPath();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getName();
+		writeStrings(out, values);
+		for (int i = 0 ; i < count ; i++)
+			values[i] = records[i].getNote();
+		writeStrings(out, values);
+
+		// The reported elements.
+		Vector list = new Vector();
+		for (int i = 0 ; i < count ; i++) {
+			net.aerith.misao.xml.relaxer.XmlReported[] reported = records[i].getReported();
+			out.writeInt(reported.length);
+			for (int j = 0 ; j < reported.length ; j++)
+				list.addElement(reported[j].getTo());
+		}
+		writeStrings(out, toArray(list));
+
+		// The blending elements.
+		Vector class_list = new Vector();
+		list = new Vector();
+		for (int i = 0 ; i < count ; i++) {
+			net.aerith.misao.xml.relaxer.XmlBlending[] blendings = records[i].getBlending();
+			out.writeInt(blendings.length);
+			for (int j = 0 ; j < blendings.length ; j++) {
+				class_list.addElement(blendings[j].getClassValue());
+				list.addElement(blendings[j].getContent());
+			}
+		}
+		writeStrings(out, toArray(class_list));
+		writeStrings(out, toArray(list));
+
+		out.close();
+		byte[] data = data_stream.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update(data);
+
+		ByteArrayOutputStream block_stream = new ByteArrayOutputStream();
+		out = new DataOutputStream(block_stream);
+		out.writeInt(BLOCK_MAGIC);
+		out.writeInt(kind);
+		out.writeInt(data.length);
+		out.write(data);
+		out.writeLong(crc.getValue());
+		out.close();
+
+		return block_stream.toByteArray();
+	}
+
+	/**
+	 * Decodes the rows in the data of a block.
+	 * @param in the input stream of the data of a block.
+	 * @return the list of rows.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static Vector decodeRows ( DataInputStream in )
+		throws IOException
+	{
+		int count = in.readInt();
+
+		byte[] operations = new byte[count];
+		in.readFully(operations);
+
+		String[] names = readStrings(in, count);
+
+		double[] jds = new double[count];
+		for (int i = 0 ; i < count ; i++)
+			jds[i] = in.readDouble();
+
+		byte[] flags = new byte[count];
+		in.readFully(flags);
+
+		XmlMagRecord[] records = new XmlMagRecord[count];
+		for (int i = 0 ; i < count ; i++)
+			records[i] = new XmlMagRecord();
+
+		// The magnitude.
+		float[] mags = new float[count];
+		for (int i = 0 ; i < count ; i++)
+			mags[i] = in.readFloat();
+		String[] upper_limits = readStrings(in, count);
+		String[] inaccurates = readStrings(in, count);
+		String[] orders = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++) {
+			if ((flags[i] & FLAG_MAG) != 0) {
+				XmlMag mag = new XmlMag();
+				mag.setContent(mags[i]);
+				mag.setUpperLimit(upper_limits[i]);
+				mag.setInaccurate(inaccurates[i]);
+				if (orders[i] != null)
+					mag.setOrder(new BigInteger(orders[i]));
+				records[i].setMag(mag);
+			}
+		}
+
+		// The position.
+		float[] xs = new float[count];
+		for (int i = 0 ; i < count ; i++)
+			xs[i] = in.readFloat();
+		for (int i = 0 ; i < count ; i++) {
+			float y = in.readFloat();
+			if ((flags[i] & FLAG_POSITION) != 0) {
+				XmlPosition position = new XmlPosition();
+				position.setX(xs[i]);
+				position.setY(y);
+				records[i].setPosition(position);
+			}
+		}
+		for (int i = 0 ; i < count ; i++) {
+			int pixels = in.readInt();
+			if ((flags[i] & FLAG_PIXELS_FROM_EDGE) != 0)
+				records[i].setPixelsFromEdge(new Integer(pixels));
+		}
+
+		// The string elements.
+		String[] values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setDate(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setFilter(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setChip(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setCatalog(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setObserver(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setInstruments(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setImageXmlPath(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setName(values[i]);
+		values = readStrings(in, count);
+		for (int i = 0 ; i < count ; i++)
+			records[i].setNote(values[i]);
+
+		for (int i = 0 ; i < count ; i++) {
+			if ((flags[i] & FLAG_UNOFFICIAL) != 0)
+				records[i].setUnofficial(new XmlUnofficial());
+			if ((flags[i] & FLAG_DISCARDED) != 0)
+				records[i].setDiscarded(new XmlDiscarded());
+			if ((flags[i] & FLAG_PREEMPTED) != 0)
+				records[i].setPreempted(new XmlPreempted());
+			if ((flags[i] & FLAG_IMPORTED) != 0)
+				records[i].setImported(new XmlImported());
+		}
+
+		// The reported elements.
+		int[] reported_counts = new int[count];
+		int total = 0;
+		for (int i = 0 ; i < count ; i++) {
+			reported_counts[i] = in.readInt();
+			total += reported_counts[i];
+		}
+		values = readStrings(in, total);
+		int index = 0;
+		for (int i = 0 ; i < count ; i++) {
+			for (int j = 0 ; j < reported_counts[i] ; j++) {
+				XmlReported reported = new XmlReported();
+				reported.setTo(values[index++]);
+				records[i].addReported(reported);
+			}
+		}
+
+		// The blending elements.
+		int[] blending_counts = new int[count];
+		total = 0;
+		for (int i = 0 ; i < count ; i++) {
+			blending_counts[i] = in.readInt();
+			total += blending_counts[i];
+		}
+		String[] class_values = readStrings(in, total);
+		values = readStrings(in, total);
+		index = 0;
+		for (int i = 0 ; i < count ; i++) {
+			for (int j = 0 ; j < blending_counts[i] ; j++) {
+				XmlBlending blending = new XmlBlending();
+				blending.setClassValue(class_values[index]);
+				blending.setContent(values[index]);
+				records[i].addBlending(blending);
+				index++;
+			}
+		}
+
+		Vector rows = new Vector();
+		for (int i = 0 ; i < count ; i++) {
+			Row row = new Row(operations[i], names[i], records[i]);
+			row.jd = jds[i];
+			rows.addElement(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * Writes the column of strings, which consists of the dictionary
+	 * of the distinct strings and the indexes to the dictionary. The
+	 * index of null is -1.
+	 * @param out    the output stream.
+	 * @param values the array of strings.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static void writeStrings ( DataOutputStream out, String[] values )
+		throws IOException
+	{
+		Hashtable hash = new Hashtable();
+		Vector dictionary = new Vector();
+		int[] indexes = new int[values.length];
+		for (int i = 0 ; i < values.length ; i++) {
+			if (values[i] == null) {
+				indexes[i] = -1;
+			} else {
+				Integer index = (Integer)hash.get(values[i]);
+				if (index == null) {
+					index = new Integer(dictionary.size());
+					hash.put(values[i], index);
+					dictionary.addElement(values[i]);
+				}
+				indexes[i] = index.intValue();
+			}
+		}
+
+		out.writeInt(dictionary.size());
+		for (int i = 0 ; i < dictionary.size() ; i++)
+			out.writeUTF((String)dictionary.elementAt(i));
+		for (int i = 0 ; i < indexes.length ; i++)
+			out.writeInt(indexes[i]);
+	}
+
+	/**
+	 * Reads the column of strings.
+	 * @param in    the input stream.
+	 * @param count the number of strings.
+	 * @return the array of strings.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static String[] readStrings ( DataInputStream in, int count )
+		throws IOException
+	{
+		String[] dictionary = new String[in.readInt()];
+		for (int i = 0 ; i < dictionary.length ; i++)
+			dictionary[i] = in.readUTF();
+
+		String[] values = new String[count];
+		for (int i = 0 ; i < count ; i++) {
+			int index = in.readInt();
+			values[i] = (index < 0 ? null : dictionary[index]);
+		}
+		return values;
+	}
+
+	/**
+	 * Converts the list of strings into an array.
+	 * @param list the list of strings.
+	 * @return the array of strings.
+	 */
+	private static String[] toArray ( Vector list ) {
+		String[] values = new String[list.size()];
+		for (int i = 0 ; i < values.length ; i++)
+			values[i] = (String)list.elementAt(i);
+		return values;
+	}
+
+	/**
+	 * The <code>Row</code> represents an operation on a record.
+	 */
+	private static class Row {
+		/**
+		 * The operation.
+		 */
+		private byte operation;
+
+		/**
+		 * The star name.
+		 */
+		private String name;
+
+		/**
+		 * The record.
+		 */
+		private XmlMagRecord record;
+
+		/**
+		 * The Julian Day.
+		 */
+		private double jd;
+
+		/**
+		 * Constructs a <code>Row</code>.
+		 * @param operation the operation.
+		 * @param name      the star name.
+		 * @param record    the record.
+		 */
+		private Row ( byte operation, String name, XmlMagRecord record ) {
+			this.operation = operation;
+			this.name = name;
+			this.record = record;
+			this.jd = getJD(record);
+		}
+	}
+
+	/**
+	 * The <code>StarEntry</code> represents the records of a star,
+	 * with the index by the Julian Day.
+	 */
+	private static class StarEntry {
+		/**
+		 * The list of records in order of addition.
+		 */
+		private Vector records = new Vector();
+
+		/**
+		 * The Julian Day of the records.
+		 */
+		private double[] jds = new double[16];
+
+		/**
+		 * The indexes of the records in order of the Julian Day. In
+		 * the case of null, it must be created again.
+		 */
+		private int[] order = null;
+
+		/**
+		 * Gets the number of records.
+		 * @return the number of records.
+		 */
+		private int size ( ) {
+			return records.size();
+		}
+
+		/**
+		 * Gets the record at the specified index.
+		 * @param index the index.
+		 * @return the record.
+		 */
+		private XmlMagRecord getRecord ( int index ) {
+			return (XmlMagRecord)records.elementAt(index);
+		}
+
+		/**
+		 * Adds the record.
+		 * @param record the record.
+		 */
+		private void add ( XmlMagRecord record ) {
+			if (records.size() == jds.length) {
+				double[] d = new double[jds.length * 2];
+				System.arraycopy(jds, 0, d, 0, jds.length);
+				jds = d;
+			}
+			jds[records.size()] = getJD(record);
+			records.addElement(record);
+			order = null;
+		}
+
+		/**
+		 * Removes the first record of the specified ID.
+		 * @param id the ID.
+		 * @return true if removed.
+		 */
+		private boolean remove ( String id ) {
+			for (int i = 0 ; i < records.size() ; i++) {
+				if (getRecord(i).getID().equals(id)) {
+					records.removeElementAt(i);
+					System.arraycopy(jds, i + 1, jds, i, records.size() - i);
+					order = null;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Gets the indexes of the records in order of the Julian Day.
+		 * The records with an invalid date are at the end.
+		 * @return the array of indexes.
+		 */
+		private int[] getOrderOfJD ( ) {
+			if (order == null) {
+				int n = records.size();
+				Integer[] indexes = new Integer[n];
+				for (int i = 0 ; i < n ; i++)
+					indexes[i] = new Integer(i);
+				Arrays.sort(indexes, new Comparator() {
+					public int compare ( Object o1, Object o2 ) {
+						double jd1 = jds[((Integer)o1).intValue()];
+						double jd2 = jds[((Integer)o2).intValue()];
+						return Double.compare(jd1, jd2);
+					}
+				});
+				order = new int[n];
+				for (int i = 0 ; i < n ; i++)
+					order[i] = indexes[i].intValue();
+			}
+			return order;
+		}
+	}
+
+	/**
+	 * The <code>CompactionThread</code> is a thread to compact the
+	 * stores in the background.
+	 */
+	protected static class CompactionThread extends Thread {
+		/**
+		 * Constructs a <code>CompactionThread</code>.
+		 */
+		public CompactionThread ( ) {
+			super("MagnitudeSegmentStore compactor");
+			setDaemon(true);
+		}
+
+		/**
+		 * Runs this thread.
+		 */
+		public void run ( ) {
+			while (true) {
+				synchronized (lock) {
+					while (compaction_queue.size() == 0) {
+						try {
+							lock.wait();
+						} catch ( InterruptedException exception ) {
+						}
+					}
+				}
+
+				compactQueued();
+			}
+		}
+	}
+}
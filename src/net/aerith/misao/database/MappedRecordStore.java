@@ -0,0 +1,1121 @@
+/*
+ * @(#)MappedRecordStore.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.zip.CRC32;
+import javax.xml.parsers.*;
+import javax.xml.transform.*;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+import net.aerith.misao.xml.IONode;
+
+/**
+ * The <code>MappedRecordStore</code> represents a storage of the XML
+ * elements in one folder, which are kept in the files mapped into
+ * memory, not on the Java heap.
+ * <p>
+ * The XML elements are appended to the data file records.N.dat, where
+ * N is the generation. The deletion is also appended as a record. The
+ * index file records.idx is a hash table of the offsets of the live
+ * elements, whose keys are the IDs. Both files are mapped into memory.
+ * A broken record at the end of the data file is ignored.
+ * <p>
+ * The index file is marked as clean when the store is closed. When
+ * the index file is not clean, or does not exist, it is created again
+ * from the data file. When most of the data file consists of deleted
+ * elements, the live elements are copied into the data file of the
+ * next generation.
+ * <p>
+ * Only one store is created for one folder. The number of stores
+ * whose files are opened at once is limited.
+ * <p>
+ * All methods are thread-safe.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class MappedRecordStore {
+	/**
+	 * The name of the index file.
+	 */
+	public final static String INDEX_FILE = "records.idx";
+
+	/**
+	 * The maximum number of stores whose files are opened at once.
+	 */
+	protected final static int opened_store_limit = 64;
+
+	/**
+	 * The minimum size of the deleted elements to rewrite the data
+	 * file (64KB).
+	 */
+	protected final static long compaction_size_limit = 65536L;
+
+	/**
+	 * The magic number at the top of the data file.
+	 */
+	private final static int DATA_MAGIC = 0x52454344;
+
+	/**
+	 * The magic number at the top of a record.
+	 */
+	private final static int RECORD_MAGIC = 0x52454331;
+
+	/**
+	 * The magic number at the top of the index file.
+	 */
+	private final static int INDEX_MAGIC = 0x49445831;
+
+	/**
+	 * The size of the header of the index file.
+	 */
+	private final static int INDEX_HEADER_SIZE = 40;
+
+	/**
+	 * The size of a slot of the index file.
+	 */
+	private final static int SLOT_SIZE = 12;
+
+	/**
+	 * The offset of the empty slot.
+	 */
+	private final static long SLOT_EMPTY = 0;
+
+	/**
+	 * The offset of the slot whose element is deleted.
+	 */
+	private final static long SLOT_DELETED = -1;
+
+	/**
+	 * The operation to add an element.
+	 */
+	private final static byte OPERATION_ADD = 0;
+
+	/**
+	 * The operation to delete elements.
+	 */
+	private final static byte OPERATION_DELETE = 1;
+
+	/**
+	 * The lock object of the stores.
+	 */
+	private final static Object lock = new Object();
+
+	/**
+	 * The hash table of the stores, whose keys are the absolute paths.
+	 */
+	private static Hashtable stores = new Hashtable();
+
+	/**
+	 * The stores whose files are opened, in order of access.
+	 */
+	private static LinkedHashMap opened_stores = new LinkedHashMap(16, 0.75f, true);
+
+	/**
+	 * The folder.
+	 */
+	protected File path;
+
+	/**
+	 * True when the files are opened.
+	 */
+	protected boolean opened = false;
+
+	/**
+	 * The generation of the data file.
+	 */
+	protected int generation = 0;
+
+	/**
+	 * The channel of the data file.
+	 */
+	protected FileChannel data_channel = null;
+
+	/**
+	 * The length of the data file.
+	 */
+	protected long data_length = 0;
+
+	/**
+	 * The mapped data file. The length may be shorter than the file.
+	 */
+	protected MappedByteBuffer data_buffer = null;
+
+	/**
+	 * The channel of the index file.
+	 */
+	protected FileChannel index_channel = null;
+
+	/**
+	 * The mapped index file.
+	 */
+	protected MappedByteBuffer index_buffer = null;
+
+	/**
+	 * The number of slots.
+	 */
+	protected int capacity = 0;
+
+	/**
+	 * The number of live elements.
+	 */
+	protected int count = 0;
+
+	/**
+	 * The number of slots of live or deleted elements.
+	 */
+	protected int used = 0;
+
+	/**
+	 * The total size of the records of live elements.
+	 */
+	protected long live_bytes = 0;
+
+	/**
+	 * True when the index file is modified after opened.
+	 */
+	protected boolean dirty = false;
+
+	/**
+	 * The document builder to read the XML elements.
+	 */
+	protected DocumentBuilder builder = null;
+
+	/**
+	 * The transformer to write the XML elements.
+	 */
+	protected Transformer transformer = null;
+
+	/**
+	 * Constructs a <code>MappedRecordStore</code> of the specified
+	 * folder.
+	 * @param path the folder.
+	 */
+	protected MappedRecordStore ( File path ) {
+		this.path = path;
+	}
+
+	/**
+	 * Gets the store of the specified folder.
+	 * @param path the folder.
+	 * @return the store.
+	 */
+	public static MappedRecordStore open ( File path ) {
+		synchronized (lock) {
+			String key = path.getAbsolutePath();
+			MappedRecordStore store = (MappedRecordStore)stores.get(key);
+			if (store == null) {
+				store = new MappedRecordStore(path);
+				stores.put(key, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Closes all stores in the specified folder and its sub folders,
+	 * and forgets them. This method must be invoked before the
+	 * folder is removed.
+	 * @param path the folder.
+	 */
+	public static void discard ( File path ) {
+		String prefix = path.getAbsolutePath();
+
+		Vector list = new Vector();
+		synchronized (lock) {
+			Enumeration keys = stores.keys();
+			while (keys.hasMoreElements()) {
+				String key = (String)keys.nextElement();
+				if (key.equals(prefix)  ||  key.startsWith(prefix + File.separator)) {
+					list.addElement(stores.remove(key));
+					opened_stores.remove(key);
+				}
+			}
+		}
+
+		for (int i = 0 ; i < list.size() ; i++)
+			((MappedRecordStore)list.elementAt(i)).close();
+	}
+
+	/**
+	 * Closes all stores. The index files are marked as clean.
+	 */
+	public static void closeAll ( ) {
+		Vector list = new Vector();
+		synchronized (lock) {
+			list.addAll(opened_stores.values());
+			opened_stores.clear();
+		}
+
+		for (int i = 0 ; i < list.size() ; i++)
+			((MappedRecordStore)list.elementAt(i)).close();
+	}
+
+	/**
+	 * Registers this store as opened. The store least recently used
+	 * is closed when too many stores are opened.
+	 */
+	private void touch ( ) {
+		Vector victims = new Vector();
+
+		synchronized (lock) {
+			opened_stores.put(path.getAbsolutePath(), this);
+
+			Iterator it = opened_stores.values().iterator();
+			while (opened_stores.size() > opened_store_limit  &&  it.hasNext()) {
+				MappedRecordStore store = (MappedRecordStore)it.next();
+				if (store != this) {
+					victims.addElement(store);
+					it.remove();
+				}
+			}
+		}
+
+		// Other stores are closed out of the lock of this store.
+		for (int i = 0 ; i < victims.size() ; i++)
+			((MappedRecordStore)victims.elementAt(i)).close();
+	}
+
+	/**
+	 * Gets the element of the specified ID.
+	 * @param id           the ID.
+	 * @param record_class the class object of the XML records.
+	 * @return the XML element, or null.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord getElement ( String id, XmlDBRecord record_class )
+		throws IOException
+	{
+		touch();
+
+		synchronized (this) {
+			if (ensureOpened(false) == false)
+				return null;
+
+			int hash = id.hashCode() & 0x7fffffff;
+			for (int slot = hash % capacity ; ; slot = (slot + 1) % capacity) {
+				long offset = getSlotOffset(slot);
+				if (offset == SLOT_EMPTY)
+					return null;
+
+				if (offset != SLOT_DELETED  &&  getSlotHash(slot) == hash) {
+					Record record = readRecord(getDataBuffer(offset), offset);
+					if (record.id.equals(id))
+						return createElement(record.xml, record_class);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the XML elements in the specified list.
+	 * @param list the list of XML elements.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void addElements ( Vector list )
+		throws IOException
+	{
+		touch();
+
+		synchronized (this) {
+			ensureOpened(true);
+
+			byte[][] xmls = new byte[list.size()][];
+			for (int i = 0 ; i < list.size() ; i++)
+				xmls[i] = createXml((XmlDBRecord)list.elementAt(i));
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			long[] offsets = new long[list.size()];
+			int[] sizes = new int[list.size()];
+			for (int i = 0 ; i < list.size() ; i++) {
+				offsets[i] = data_length + stream.size();
+				writeRecord(stream, OPERATION_ADD, ((XmlDBRecord)list.elementAt(i)).getID(), xmls[i]);
+				sizes[i] = (int)(data_length + stream.size() - offsets[i]);
+			}
+			append(stream.toByteArray());
+
+			for (int i = 0 ; i < list.size() ; i++) {
+				insertSlot(((XmlDBRecord)list.elementAt(i)).getID(), offsets[i]);
+				live_bytes += sizes[i];
+			}
+			writeHeader();
+		}
+	}
+
+	/**
+	 * Deletes the elements in the specified hash table. The IDs of the
+	 * deleted elements are also deleted from the hash table.
+	 * @param hash         the hash table whose keys are IDs of the
+	 * elements to be deleted.
+	 * @param record_class the class object of the XML records.
+	 * @return the list of deleted XML elements.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public Vector deleteElements ( Hashtable hash, XmlDBRecord record_class )
+		throws IOException
+	{
+		touch();
+
+		synchronized (this) {
+			Vector deleted_list = new Vector();
+
+			if (ensureOpened(false) == false)
+				return deleted_list;
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			Vector deleted_ids = new Vector();
+
+			Enumeration keys = hash.keys();
+			while (keys.hasMoreElements()) {
+				String id = (String)keys.nextElement();
+				Vector l = findSlots(id);
+				if (l.size() > 0) {
+					for (int i = 0 ; i < l.size() ; i++) {
+						int slot = ((Integer)l.elementAt(i)).intValue();
+						long offset = getSlotOffset(slot);
+						Record record = readRecord(getDataBuffer(offset), offset);
+						deleted_list.addElement(createElement(record.xml, record_class));
+					}
+					writeRecord(stream, OPERATION_DELETE, id, new byte[0]);
+					deleted_ids.addElement(id);
+				}
+			}
+
+			if (deleted_ids.size() == 0)
+				return deleted_list;
+
+			markDirty();
+			append(stream.toByteArray());
+
+			for (int i = 0 ; i < deleted_ids.size() ; i++) {
+				String id = (String)deleted_ids.elementAt(i);
+				removeSlots(id);
+				hash.remove(id);
+			}
+			writeHeader();
+
+			long dead_bytes = data_length - 4 - live_bytes;
+			if (dead_bytes > compaction_size_limit  &&  dead_bytes > live_bytes)
+				compact();
+
+			return deleted_list;
+		}
+	}
+
+	/**
+	 * Gets the snapshot of all live elements. The snapshot is not
+	 * affected by the following modification of the store.
+	 * @return the snapshot.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public Snapshot getSnapshot ( )
+		throws IOException
+	{
+		touch();
+
+		synchronized (this) {
+			return createSnapshot();
+		}
+	}
+
+	/**
+	 * Creates the snapshot of all live elements.
+	 * @return the snapshot.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private Snapshot createSnapshot ( )
+		throws IOException
+	{
+		if (ensureOpened(false) == false)
+			return new Snapshot(null, new long[0]);
+
+		long[] offsets = new long[count];
+		int index = 0;
+		for (int slot = 0 ; slot < capacity ; slot++) {
+			long offset = getSlotOffset(slot);
+			if (offset != SLOT_EMPTY  &&  offset != SLOT_DELETED)
+				offsets[index++] = offset;
+		}
+		Arrays.sort(offsets);
+
+		return new Snapshot(getDataBuffer(data_length - 1).duplicate(), offsets);
+	}
+
+	/**
+	 * Opens the files if not opened.
+	 * @param create_flag true when to create the files if they do not
+	 * exist.
+	 * @return true if the files are opened.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private boolean ensureOpened ( boolean create_flag )
+		throws IOException
+	{
+		if (opened)
+			return true;
+
+		File index_file = new File(path, INDEX_FILE);
+
+		// Reads the header of the index file.
+		boolean clean = false;
+		generation = 0;
+		if (index_file.exists()  &&  index_file.length() >= INDEX_HEADER_SIZE) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index_file)));
+			try {
+				if (in.readInt() == INDEX_MAGIC) {
+					clean = (in.readInt() == 1);
+					generation = in.readInt();
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		// Finds the data file of the latest generation when the index
+		// file is broken.
+		if (clean == false) {
+			File[] files = path.listFiles();
+			if (files != null) {
+				for (int i = 0 ; i < files.length ; i++) {
+					int g = getGeneration(files[i].getName());
+					if (g > generation)
+						generation = g;
+				}
+			}
+		}
+
+		File data_file = getDataFile(generation);
+		if (data_file.exists() == false) {
+			if (create_flag == false)
+				return false;
+
+			if (path.exists() == false  &&  path.mkdirs() == false)
+				throw new IOException();
+
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(data_file));
+			out.writeInt(DATA_MAGIC);
+			out.close();
+			clean = false;
+		}
+
+		data_channel = new RandomAccessFile(data_file, "rw").getChannel();
+		data_length = data_channel.size();
+		data_buffer = null;
+
+		ByteBuffer magic = ByteBuffer.allocate(4);
+		if (data_length < 4  ||  data_channel.read(magic, 0) != 4  ||  magic.getInt(0) != DATA_MAGIC) {
+			data_channel.close();
+			System.err.println("Broken data file: " + data_file.getPath());
+			throw new IOException();
+		}
+
+		opened = true;
+		dirty = false;
+
+		if (clean) {
+			index_channel = new RandomAccessFile(index_file, "rw").getChannel();
+			index_buffer = index_channel.map(FileChannel.MapMode.READ_WRITE, 0, index_channel.size());
+			capacity = index_buffer.getInt(12);
+			count = index_buffer.getInt(16);
+			used = index_buffer.getInt(20);
+			long covered_length = index_buffer.getLong(24);
+			live_bytes = index_buffer.getLong(32);
+
+			if (covered_length != data_length  ||  index_channel.size() != INDEX_HEADER_SIZE + (long)capacity * SLOT_SIZE)
+				clean = false;
+		}
+
+		if (clean == false) {
+			if (index_channel != null)
+				index_channel.close();
+			index_channel = null;
+			index_buffer = null;
+
+			rebuildIndex();
+		}
+
+		deleteOldFiles();
+
+		return true;
+	}
+
+	/**
+	 * Closes the files. The index file is marked as clean.
+	 */
+	protected synchronized void close ( ) {
+		if (opened == false)
+			return;
+
+		try {
+			writeHeader();
+			index_buffer.putInt(4, 1);
+			index_buffer.force();
+			index_channel.close();
+			data_channel.close();
+		} catch ( IOException exception ) {
+			System.err.println(exception);
+		}
+
+		opened = false;
+		index_channel = null;
+		index_buffer = null;
+		data_channel = null;
+		data_buffer = null;
+	}
+
+	/**
+	 * Creates the index file from the data file. The broken records
+	 * at the end of the data file are removed.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void rebuildIndex ( )
+		throws IOException
+	{
+		createIndex(64);
+
+		MappedByteBuffer buffer = data_channel.map(FileChannel.MapMode.READ_ONLY, 0, data_length);
+		long offset = 4;
+		while (offset < data_length) {
+			Record record = readRecord(buffer, offset);
+			if (record == null)
+				break;
+
+			if (record.operation == OPERATION_ADD) {
+				insertSlot(record.id, offset);
+				live_bytes += record.size;
+			} else {
+				removeSlots(record.id);
+			}
+
+			offset += record.size;
+		}
+
+		if (offset < data_length) {
+			data_channel.truncate(offset);
+			data_length = offset;
+		}
+
+		data_buffer = null;
+		writeHeader();
+	}
+
+	/**
+	 * Creates the empty index file of the specified capacity.
+	 * @param new_capacity the number of slots.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void createIndex ( int new_capacity )
+		throws IOException
+	{
+		File index_file = new File(path, INDEX_FILE);
+		if (index_channel != null)
+			index_channel.close();
+		index_file.delete();
+
+		RandomAccessFile raf = new RandomAccessFile(index_file, "rw");
+		raf.setLength(INDEX_HEADER_SIZE + (long)new_capacity * SLOT_SIZE);
+		index_channel = raf.getChannel();
+		index_buffer = index_channel.map(FileChannel.MapMode.READ_WRITE, 0, index_channel.size());
+
+		capacity = new_capacity;
+		count = 0;
+		used = 0;
+		live_bytes = 0;
+		dirty = true;
+
+		index_buffer.putInt(0, INDEX_MAGIC);
+		index_buffer.putInt(4, 0);
+		writeHeader();
+	}
+
+	/**
+	 * Writes the header of the index file.
+	 */
+	private void writeHeader ( ) {
+		index_buffer.putInt(8, generation);
+		index_buffer.putInt(12, capacity);
+		index_buffer.putInt(16, count);
+		index_buffer.putInt(20, used);
+		index_buffer.putLong(24, data_length);
+		index_buffer.putLong(32, live_bytes);
+	}
+
+	/**
+	 * Marks the index file as not clean before it is modified.
+	 */
+	private void markDirty ( ) {
+		if (dirty == false) {
+			index_buffer.putInt(4, 0);
+			index_buffer.force();
+			dirty = true;
+		}
+	}
+
+	/**
+	 * Gets the hash value at the specified slot.
+	 * @param slot the slot.
+	 * @return the hash value.
+	 */
+	private int getSlotHash ( int slot ) {
+		return index_buffer.getInt(INDEX_HEADER_SIZE + slot * SLOT_SIZE);
+	}
+
+	/**
+	 * Gets the offset in the data file at the specified slot.
+	 * @param slot the slot.
+	 * @return the offset.
+	 */
+	private long getSlotOffset ( int slot ) {
+		return index_buffer.getLong(INDEX_HEADER_SIZE + slot * SLOT_SIZE + 4);
+	}
+
+	/**
+	 * Sets the hash value and the offset at the specified slot.
+	 * @param slot   the slot.
+	 * @param hash   the hash value.
+	 * @param offset the offset.
+	 */
+	private void setSlot ( int slot, int hash, long offset ) {
+		index_buffer.putInt(INDEX_HEADER_SIZE + slot * SLOT_SIZE, hash);
+		index_buffer.putLong(INDEX_HEADER_SIZE + slot * SLOT_SIZE + 4, offset);
+	}
+
+	/**
+	 * Inserts the offset of the element of the specified ID into the
+	 * index. The index is enlarged when it is almost full.
+	 * @param id     the ID.
+	 * @param offset the offset in the data file.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void insertSlot ( String id, long offset )
+		throws IOException
+	{
+		markDirty();
+
+		if ((used + 1) * 4 > capacity * 3)
+			resizeIndex(Math.max(64, (count + 1) * 4));
+
+		int hash = id.hashCode() & 0x7fffffff;
+		int slot = hash % capacity;
+		while (getSlotOffset(slot) != SLOT_EMPTY)
+			slot = (slot + 1) % capacity;
+
+		setSlot(slot, hash, offset);
+		count++;
+		used++;
+	}
+
+	/**
+	 * Finds the slots of the elements of the specified ID.
+	 * @param id the ID.
+	 * @return the list of slots.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private Vector findSlots ( String id )
+		throws IOException
+	{
+		Vector list = new Vector();
+
+		int hash = id.hashCode() & 0x7fffffff;
+		for (int slot = hash % capacity ; ; slot = (slot + 1) % capacity) {
+			long offset = getSlotOffset(slot);
+			if (offset == SLOT_EMPTY)
+				break;
+
+			if (offset != SLOT_DELETED  &&  getSlotHash(slot) == hash) {
+				Record record = readRecord(getDataBuffer(offset), offset);
+				if (record.id.equals(id))
+					list.addElement(new Integer(slot));
+			}
+		}
+
+		return list;
+	}
+
+	/**
+	 * Removes the elements of the specified ID from the index.
+	 * @param id the ID.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void removeSlots ( String id )
+		throws IOException
+	{
+		Vector list = findSlots(id);
+		for (int i = 0 ; i < list.size() ; i++) {
+			int slot = ((Integer)list.elementAt(i)).intValue();
+			long offset = getSlotOffset(slot);
+			live_bytes -= readRecord(getDataBuffer(offset), offset).size;
+			setSlot(slot, 0, SLOT_DELETED);
+			count--;
+		}
+	}
+
+	/**
+	 * Creates the index of the specified capacity again. The deleted
+	 * slots are removed.
+	 * @param new_capacity the number of slots.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void resizeIndex ( int new_capacity )
+		throws IOException
+	{
+		int[] hashes = new int[count];
+		long[] offsets = new long[count];
+		int n = 0;
+		for (int slot = 0 ; slot < capacity ; slot++) {
+			long offset = getSlotOffset(slot);
+			if (offset != SLOT_EMPTY  &&  offset != SLOT_DELETED) {
+				hashes[n] = getSlotHash(slot);
+				offsets[n] = offset;
+				n++;
+			}
+		}
+		long old_live_bytes = live_bytes;
+
+		createIndex(new_capacity);
+
+		for (int i = 0 ; i < n ; i++) {
+			int slot = hashes[i] % capacity;
+			while (getSlotOffset(slot) != SLOT_EMPTY)
+				slot = (slot + 1) % capacity;
+			setSlot(slot, hashes[i], offsets[i]);
+		}
+		count = n;
+		used = n;
+		live_bytes = old_live_bytes;
+		writeHeader();
+	}
+
+	/**
+	 * Copies the live elements into the data file of the next
+	 * generation.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void compact ( )
+		throws IOException
+	{
+		Snapshot snapshot = createSnapshot();
+
+		int new_generation = generation + 1;
+		File data_file = getDataFile(new_generation);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(data_file)));
+		try {
+			out.writeInt(DATA_MAGIC);
+			for (int i = 0 ; i < snapshot.offsets.length ; i++) {
+				Record record = readRecord(snapshot.buffer, snapshot.offsets[i]);
+				writeRecord(out, OPERATION_ADD, record.id, record.xml);
+			}
+		} finally {
+			out.close();
+		}
+
+		data_channel.close();
+		data_channel = new RandomAccessFile(data_file, "rw").getChannel();
+		data_length = data_channel.size();
+		data_buffer = null;
+		generation = new_generation;
+
+		rebuildIndex();
+		deleteOldFiles();
+	}
+
+	/**
+	 * Deletes the data files of the old generations. The file mapped
+	 * by a snapshot may not be deleted on some platforms, and it is
+	 * deleted next time.
+	 */
+	private void deleteOldFiles ( ) {
+		File[] files = path.listFiles();
+		if (files == null)
+			return;
+
+		for (int i = 0 ; i < files.length ; i++) {
+			int g = getGeneration(files[i].getName());
+			if (g >= 0  &&  g != generation)
+				files[i].delete();
+		}
+	}
+
+	/**
+	 * Appends the records at the end of the data file.
+	 * @param data the records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private void append ( byte[] data )
+		throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		long position = data_length;
+		while (buffer.hasRemaining())
+			position += data_channel.write(buffer, position);
+		data_length = position;
+	}
+
+	/**
+	 * Gets the mapped data file which contains the specified offset.
+	 * @param offset the offset in the data file.
+	 * @return the mapped data file.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private ByteBuffer getDataBuffer ( long offset )
+		throws IOException
+	{
+		if (data_buffer == null  ||  offset >= data_buffer.capacity())
+			data_buffer = data_channel.map(FileChannel.MapMode.READ_ONLY, 0, data_length);
+		return data_buffer;
+	}
+
+	/**
+	 * Gets the data file of the specified generation.
+	 * @param g the generation.
+	 * @return the data file.
+	 */
+	private File getDataFile ( int g ) {
+		return new File(path, "records." + g + ".dat");
+	}
+
+	/**
+	 * Gets the generation of the data file of the specified name.
+	 * @param name the file name.
+	 * @return the generation, or -1 if it is not a data file.
+	 */
+	private static int getGeneration ( String name ) {
+		if (name.startsWith("records.")  &&  name.endsWith(".dat")) {
+			try {
+				return Integer.parseInt(name.substring(8, name.length() - 4));
+			} catch ( NumberFormatException exception ) {
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes a record.
+	 * @param stream    the output stream.
+	 * @param operation the operation.
+	 * @param id        the ID.
+	 * @param xml       the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static void writeRecord ( OutputStream stream, byte operation, String id, byte[] xml )
+		throws IOException
+	{
+		ByteArrayOutputStream body_stream = new ByteArrayOutputStream();
+		DataOutputStream body_out = new DataOutputStream(body_stream);
+		body_out.writeByte(operation);
+		body_out.writeUTF(id);
+		body_out.writeInt(xml.length);
+		body_out.write(xml);
+		body_out.close();
+		byte[] body = body_stream.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update(body);
+
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeInt(RECORD_MAGIC);
+		out.writeInt(body.length);
+		out.write(body);
+		out.writeLong(crc.getValue());
+		out.flush();
+	}
+
+	/**
+	 * Reads a record at the specified offset.
+	 * @param buffer the mapped data file.
+	 * @param offset the offset.
+	 * @return the record, or null if broken.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static Record readRecord ( ByteBuffer buffer, long offset )
+		throws IOException
+	{
+		int position = (int)offset;
+		if (position + 8 > buffer.limit()  ||  buffer.getInt(position) != RECORD_MAGIC)
+			return null;
+
+		int length = buffer.getInt(position + 4);
+		if (length <= 0  ||  (long)position + 16 + length > buffer.limit())
+			return null;
+
+		byte[] body = new byte[length];
+		ByteBuffer b = buffer.duplicate();
+		b.position(position + 8);
+		b.get(body);
+
+		CRC32 crc = new CRC32();
+		crc.update(body);
+		if (b.getLong() != crc.getValue())
+			return null;
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+		Record record = new Record();
+		record.operation = in.readByte();
+		record.id = in.readUTF();
+		record.xml = new byte[in.readInt()];
+		in.readFully(record.xml);
+		record.size = 16 + length;
+		return record;
+	}
+
+	/**
+	 * Creates the XML text of the specified element.
+	 * @param element the XML element.
+	 * @return the XML text in UTF-8.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private byte[] createXml ( XmlDBRecord element )
+		throws IOException
+	{
+		try {
+			if (builder == null)
+				builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+			if (transformer == null) {
+				transformer = TransformerFactory.newInstance().newTransformer();
+				transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+				transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			}
+
+			Document document = builder.newDocument();
+			((IONode)element).makeElement(document);
+
+			ByteArrayOutputStream stream = new ByteArrayOutputStream();
+			transformer.transform(new DOMSource(document), new StreamResult(stream));
+			return stream.toByteArray();
+		} catch ( ParserConfigurationException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} catch ( TransformerException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Creates the element from the specified XML text.
+	 * @param xml          the XML text in UTF-8.
+	 * @param record_class the class object of the XML records.
+	 * @return the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private XmlDBRecord createElement ( byte[] xml, XmlDBRecord record_class )
+		throws IOException
+	{
+		try {
+			if (builder == null)
+				builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+
+			Document document = builder.parse(new ByteArrayInputStream(xml));
+			XmlDBRecord element = record_class.create();
+			((IONode)element).setup(document);
+			return element;
+		} catch ( ParserConfigurationException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} catch ( SAXException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Reads the element at the specified offset in the snapshot.
+	 * @param snapshot     the snapshot.
+	 * @param index        the index in the snapshot.
+	 * @param record_class the class object of the XML records.
+	 * @return the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public synchronized XmlDBRecord getElement ( Snapshot snapshot, int index, XmlDBRecord record_class )
+		throws IOException
+	{
+		Record record = readRecord(snapshot.buffer, snapshot.offsets[index]);
+		if (record == null)
+			throw new IOException();
+		return createElement(record.xml, record_class);
+	}
+
+	/**
+	 * Closes all stores when the Java VM exits, so that the index
+	 * files need not be created again next time.
+	 */
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run ( ) {
+				closeAll();
+			}
+		});
+	}
+
+	/**
+	 * The <code>Record</code> represents a record in the data file.
+	 */
+	protected static class Record {
+		/**
+		 * The operation.
+		 */
+		protected byte operation;
+
+		/**
+		 * The ID.
+		 */
+		protected String id;
+
+		/**
+		 * The XML text in UTF-8.
+		 */
+		protected byte[] xml;
+
+		/**
+		 * The size of the record in the data file.
+		 */
+		protected int size;
+	}
+
+	/**
+	 * The <code>Snapshot</code> represents the live elements in the
+	 * store at a moment.
+	 */
+	public static class Snapshot {
+		/**
+		 * The mapped data file.
+		 */
+		protected ByteBuffer buffer;
+
+		/**
+		 * The offsets of the live elements in order of the position.
+		 */
+		protected long[] offsets;
+
+		/**
+		 * Constructs a <code>Snapshot</code>.
+		 * @param buffer  the mapped data file.
+		 * @param offsets the offsets of the live elements.
+		 */
+		protected Snapshot ( ByteBuffer buffer, long[] offsets ) {
+			this.buffer = buffer;
+			this.offsets = offsets;
+		}
+
+		/**
+		 * Gets the number of elements.
+		 * @return the number of elements.
+		 */
+		public int size ( ) {
+			return offsets.length;
+		}
+	}
+}
@@ -19,7 +19,7 @@ import net.aerith.misao.io.XmlDBHolderCache;
  * the specified limit of file size.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 23
+ * @version 2026 October 18
  */
 
 public class PrimitiveFileManager extends PrimitiveManager {
@@ -88,10 +88,13 @@ public class PrimitiveFileManager extends PrimitiveManager {
 		// Reads the XML document.
 		XmlDBHolder holder = XmlDBHolderCache.read(file, holder_class);
 
-		holder.addDBRecord(element);
+		// The cached document may be saved by another thread.
+		synchronized (holder) {
+			holder.addDBRecord(element);
 
-		// Saves the XML document.
-		XmlDBHolderCache.write(file, holder);
+			// Saves the XML document.
+			XmlDBHolderCache.write(file, holder);
+		}
 	}
 
 	/**
@@ -140,10 +143,13 @@ public class PrimitiveFileManager extends PrimitiveManager {
 		// Reads the XML document.
 		XmlDBHolder holder = XmlDBHolderCache.read(file, holder_class);
 
-		holder.addDBRecord(element);
+		// The cached document may be saved by another thread.
+		synchronized (holder) {
+			holder.addDBRecord(element);
 
-		// Saves the XML document.
-		XmlDBHolderCache.write(file, holder);
+			// Saves the XML document.
+			XmlDBHolderCache.write(file, holder);
+		}
 
 		return old_record;
 	}
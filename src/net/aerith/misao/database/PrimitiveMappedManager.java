@@ -0,0 +1,218 @@
+/*
+ * @(#)PrimitiveMappedManager.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.database;
+import java.io.*;
+import java.util.*;
+
+/**
+ * The <code>PrimitiveMappedManager</code> represents a database
+ * manager which covers one folder containing XML elements of the same
+ * type.
+ * <p>
+ * The elements are stored in the <code>MappedRecordStore</code>, the
+ * files mapped into memory with the hash table of the IDs. Like the
+ * <code>PrimitiveMemoryManager</code>, an element is found quickly
+ * by the ID, but the elements are not kept on the Java heap, and are
+ * saved in the files.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PrimitiveMappedManager extends PrimitiveManager {
+	/**
+	 * The folder of the database.
+	 */
+	protected File path;
+
+	/**
+	 * Constructs a <code>PrimitiveMappedManager</code> in the
+	 * specified folder, which consists of the XML elements of the
+	 * specified class.
+	 * @param path         the folder to create the database.
+	 * @param holder_class the holder class object of the XML records.
+	 * @param record_class the class object of the XML records.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public PrimitiveMappedManager ( File path, XmlDBHolder holder_class, XmlDBRecord record_class )
+		throws IOException
+	{
+		this.path = path;
+		this.holder_class = holder_class;
+		this.record_class = record_class;
+
+		if (path.exists()) {
+			if (path.isDirectory() == false)
+				throw new IOException();
+		} else {
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Gets the folder path.
+	 * @return the folder path.
+	 */
+	public File getPath ( ) {
+		return path;
+	}
+
+	/**
+	 * Gets the element of the specified ID.
+	 * @param id the ID.
+	 * @return the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord getElement ( String id )
+		throws IOException
+	{
+		return MappedRecordStore.open(path).getElement(id, record_class);
+	}
+
+	/**
+	 * Adds the specified XML element into the database.
+	 * @param element the XML element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void addElement ( XmlDBRecord element )
+		throws IOException
+	{
+		Vector list = new Vector();
+		list.addElement(element);
+		addElements(list);
+	}
+
+	/**
+	 * Adds the XML elements in the specified list into the database.
+	 * All elements in the list are appended at once.
+	 * @param list the list of XML elements.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void addElements ( Vector list )
+		throws IOException
+	{
+		MappedRecordStore.open(path).addElements(list);
+	}
+
+	/**
+	 * Adds or updates the specified XML element into the database.
+	 * It checks if the element whose ID is the same as the specified
+	 * element already exists or not. When it does, the data is
+	 * updated. Otherwise, the element is newly added.
+	 * @param element the XML element.
+	 * @return the old XML element if the element of the specified ID
+	 * already exists, or null.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord setElement ( XmlDBRecord element )
+		throws IOException
+	{
+		XmlDBRecord old_record = deleteElement(element.getID());
+
+		addElement(element);
+
+		return old_record;
+	}
+
+	/**
+	 * Deletes the element of the specified ID.
+	 * @param id the ID.
+	 * @return the deleted XML element, or null if the element of the
+	 * specified ID does not exist.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlDBRecord deleteElement ( String id )
+		throws IOException
+	{
+		Hashtable hash = new Hashtable();
+		hash.put(id, id);
+		Vector list = MappedRecordStore.open(path).deleteElements(hash, record_class);
+		if (list.size() == 0)
+			return null;
+		return (XmlDBRecord)list.elementAt(0);
+	}
+
+	/**
+	 * Deletes the elements in the specified hash table. After the
+	 * operation, some of the elements in the specified hash table are
+	 * deleted, which are in this database. Others are remained. The
+	 * IDs of the deleted elements are also deleted from the hash
+	 * table.
+	 * @param hash the hash table whose keys are IDs of the elements
+	 * to be deleted.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void deleteElements ( Hashtable hash )
+		throws IOException
+	{
+		MappedRecordStore.open(path).deleteElements(hash, record_class);
+	}
+
+	/**
+	 * Gets the sequential accessor to the elements in the database.
+	 * @return the sequential accessor.
+	 */
+	public XmlDBAccessor getAccessor ( ) {
+		return new MappedAccessor();
+	}
+
+	/**
+	 * The <code>MappedAccessor</code> represents a sequential
+	 * accessor to the elements in the snapshot of the store.
+	 */
+	protected class MappedAccessor implements XmlDBAccessor {
+		/**
+		 * The store.
+		 */
+		protected MappedRecordStore store;
+
+		/**
+		 * The snapshot of the store.
+		 */
+		protected MappedRecordStore.Snapshot snapshot;
+
+		/**
+		 * The index of the current element.
+		 */
+		protected int index = -1;
+
+		/**
+		 * Gets the first element in the database.
+		 * @return the XML element.
+		 * @exception IOException if I/O error occurs.
+		 */
+		public XmlDBRecord getFirstElement ( )
+			throws IOException
+		{
+			store = MappedRecordStore.open(path);
+			snapshot = store.getSnapshot();
+
+			index = -1;
+			return getNextElement();
+		}
+
+		/**
+		 * Gets the next element in the database.
+		 * @return the XML element.
+		 * @exception IOException if I/O error occurs.
+		 */
+		public XmlDBRecord getNextElement ( )
+			throws IOException
+		{
+			index++;
+
+			if (snapshot == null)
+				throw new IOException();
+
+			if (index >= snapshot.size())
+				return null;
+
+			return store.getElement(snapshot, index, record_class);
+		}
+	}
+}
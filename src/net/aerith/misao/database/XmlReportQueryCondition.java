@@ -12,9 +12,15 @@ import net.aerith.misao.xml.*;
 /**
  * The <code>XmlReportQueryCondition</code> represents a query 
  * condition to select XML report documents.
+ * <p>
+ * In addition to the range of the limiting magnitude, the position
+ * to be covered by the image, the period of the date and the names of
+ * the observer and the instruments can be specified. They are used to
+ * select the XML report documents by the <code>InformationIndex</code>
+ * without reading all of the documents.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2002 January 18
+ * @version 2026 October 18
  */
 
 public class XmlReportQueryCondition {
@@ -28,6 +34,36 @@ public class XmlReportQueryCondition {
 	 */
 	protected double fainter_limit = 99.9;
 
+	/**
+	 * The R.A. and Decl. to be covered by the image, or null.
+	 */
+	protected Coor coor = null;
+
+	/**
+	 * The radius around the R.A. and Decl. in degree.
+	 */
+	protected double radius = 0.0;
+
+	/**
+	 * The Julian Day of the start of the period.
+	 */
+	protected double jd_start = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * The Julian Day of the end of the period.
+	 */
+	protected double jd_end = Double.POSITIVE_INFINITY;
+
+	/**
+	 * The observer, or null.
+	 */
+	protected String observer = null;
+
+	/**
+	 * The instruments, or null.
+	 */
+	protected String instruments = null;
+
 	/**
 	 * Returns true if the specified XML report document is acceptable
 	 * by this query condition.
@@ -35,8 +71,27 @@ public class XmlReportQueryCondition {
 	 * @return true if the specified XML report document is acceptable
 	 */
 	public boolean accept ( XmlInformation info ) {
-		if (brighter_limit <= info.getLimitingMag()  &&  info.getLimitingMag() <= fainter_limit)
+		if (brighter_limit <= info.getLimitingMag()  &&  info.getLimitingMag() <= fainter_limit) {
+			if (coor != null) {
+				Coor center_coor = ((XmlCenter)info.getCenter()).getCoor();
+				if (center_coor.getAngularDistanceTo(coor) > info.getFieldRadiusInDegree() + radius)
+					return false;
+			}
+
+			if (hasPeriod()) {
+				double jd = info.getMidDate().getJD();
+				if (jd < jd_start  ||  jd_end < jd)
+					return false;
+			}
+
+			if (observer != null  &&  observer.equals(info.getObserver()) == false)
+				return false;
+
+			if (instruments != null  &&  instruments.equals(info.getInstruments()) == false)
+				return false;
+
 			return true;
+		}
 
 		return false;
 	}
@@ -68,4 +123,97 @@ public class XmlReportQueryCondition {
 	public double getFainterLimit ( ) {
 		return fainter_limit;
 	}
+
+	/**
+	 * Sets the R.A. and Decl. to be covered by the image.
+	 * @param coor   the R.A. and Decl.
+	 * @param radius the radius around the R.A. and Decl. in degree.
+	 */
+	public void setCoverage ( Coor coor, double radius ) {
+		this.coor = coor;
+		this.radius = radius;
+	}
+
+	/**
+	 * Gets the R.A. and Decl. to be covered by the image.
+	 * @return the R.A. and Decl., or null if not specified.
+	 */
+	public Coor getCoverageCoor ( ) {
+		return coor;
+	}
+
+	/**
+	 * Gets the radius around the R.A. and Decl. to be covered by the
+	 * image.
+	 * @return the radius in degree.
+	 */
+	public double getCoverageRadius ( ) {
+		return radius;
+	}
+
+	/**
+	 * Sets the period of the date.
+	 * @param jd_start the Julian Day of the start of the period.
+	 * @param jd_end   the Julian Day of the end of the period.
+	 */
+	public void setPeriod ( double jd_start, double jd_end ) {
+		this.jd_start = jd_start;
+		this.jd_end = jd_end;
+	}
+
+	/**
+	 * Returns true if the period of the date is specified.
+	 * @return true if the period of the date is specified.
+	 */
+	public boolean hasPeriod ( ) {
+		return (jd_start != Double.NEGATIVE_INFINITY  ||  jd_end != Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Gets the Julian Day of the start of the period.
+	 * @return the Julian Day of the start of the period.
+	 */
+	public double getStartJD ( ) {
+		return jd_start;
+	}
+
+	/**
+	 * Gets the Julian Day of the end of the period.
+	 * @return the Julian Day of the end of the period.
+	 */
+	public double getEndJD ( ) {
+		return jd_end;
+	}
+
+	/**
+	 * Sets the observer.
+	 * @param observer the observer, or null.
+	 */
+	public void setObserver ( String observer ) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Gets the observer.
+	 * @return the observer, or null if not specified.
+	 */
+	public String getObserver ( ) {
+		return observer;
+	}
+
+	/**
+	 * Sets the instruments.
+	 * @param instruments the instruments, or null.
+	 */
+	public void setInstruments ( String instruments ) {
+		this.instruments = instruments;
+	}
+
+	/**
+	 * Gets the instruments.
+	 * @return the instruments, or null if not specified.
+	 */
+	public String getInstruments ( ) {
+		return instruments;
+	}
 }
@@ -16,6 +16,7 @@ import javax.swing.table.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 import net.aerith.misao.gui.event.*;
 import net.aerith.misao.gui.table.*;
 import net.aerith.misao.pixy.Resource;
@@ -28,7 +29,7 @@ import net.aerith.misao.util.*;
  * files and the progress of the operation.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 May 4
+ * @version 2026 October 18
  */
 
 public class FileOperationTable extends SortableTable implements MultiTaskConductor {
@@ -423,6 +424,11 @@ public class FileOperationTable extends SortableTable implements MultiTaskConduc
 			record.setStatus(TableRecord.STATUS_READY);
 		}
 
+		if (operation != null  &&  operation.getThreadCount() > 1) {
+			operateConcurrently(operation, target_list);
+			return;
+		}
+
 		Exception operating_exception = null;
 
 		for (int i = 0 ; i < target_list.size() ; i++) {
@@ -449,6 +455,85 @@ public class FileOperationTable extends SortableTable implements MultiTaskConduc
 			throw operating_exception;
 	}
 
+	/**
+	 * Operates the multi task operation on the target records with
+	 * a bounded pool of worker threads. The items are prepared on the
+	 * worker threads concurrently, but committed on this thread in 
+	 * the order of the records. At most twice as many items as the 
+	 * threads are prepared in advance, not to hold too many results.
+	 * @param operation the multi task operation.
+	 * @param target_list the list of target records.
+	 * @exception InterruptedException if the operation is stopped.
+	 * @exception Exception if an error occurs.
+	 */
+	protected void operateConcurrently ( final MultiTaskOperation operation, Vector target_list )
+		throws InterruptedException, Exception
+	{
+		int thread_count = operation.getThreadCount();
+		int window = thread_count * 2;
+
+		ExecutorService pool = Executors.newFixedThreadPool(thread_count, new ThreadFactory() {
+			public Thread newThread ( Runnable runnable ) {
+				Thread thread = new Thread(runnable);
+				thread.setDaemon(true);
+				thread.setPriority(Resource.getThreadPriority());
+				return thread;
+			}
+		});
+
+		Vector futures = new Vector();
+		Exception operating_exception = null;
+
+		try {
+			for (int i = 0 ; i < target_list.size() ; i++) {
+				if (operation.isStopped()) {
+					for (int j = i ; j < futures.size() ; j++)
+						((Future)futures.elementAt(j)).cancel(true);
+					throw new InterruptedException();
+				}
+
+				while (futures.size() < target_list.size()  &&  futures.size() < i + window) {
+					final int index = futures.size();
+					final Object target = ((TableRecord)target_list.elementAt(index)).getOperationTarget();
+					futures.addElement(pool.submit(new Callable() {
+						public Object call ( )
+							throws Exception
+						{
+							return operation.prepare(target, index);
+						}
+					}));
+				}
+
+				TableRecord record = (TableRecord)target_list.elementAt(i);
+				Future future = (Future)futures.elementAt(i);
+				futures.setElementAt(null, i);
+
+				try {
+					Object prepared = null;
+					try {
+						prepared = future.get();
+					} catch ( ExecutionException exception ) {
+						if (exception.getCause() instanceof Exception)
+							throw (Exception)exception.getCause();
+						throw exception;
+					}
+
+					operation.commit(record.getOperationTarget(), prepared);
+
+					record.setStatus(TableRecord.STATUS_DONE);
+				} catch ( Exception exception ) {
+					record.setStatus(TableRecord.STATUS_FAILED);
+					operating_exception = exception;
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		if (operating_exception != null)
+			throw operating_exception;
+	}
+
 	/**
 	 * Returns the list of target records for the operation. 
 	 * @return the list of target records for the operation. 
@@ -47,7 +47,7 @@ import net.aerith.misao.toolkit.VariableStarSearch.VariableStarSearchDesktop;
  * run every function.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 July 8
+ * @version 2026 October 18
  */
 
 public class MainFrame extends BaseFrame {
@@ -283,7 +283,7 @@ public class MainFrame extends BaseFrame {
 	 * @return an array of menu items.
 	 */
 	public JMenuItem[] createConfigurationMenus ( ) {
-		JMenuItem[] items = new JMenuItem[2];
+		JMenuItem[] items = new JMenuItem[3];
 
 		items[0] = new JMenuItem("Default Catalog Path");
 		items[0].addActionListener(new DefaultCatalogPathListener());
@@ -291,6 +291,9 @@ public class MainFrame extends BaseFrame {
 		items[1] = new JMenuItem("Image Configuration");
 		items[1].addActionListener(new ImageConfigurationListener());
 
+		items[2] = new JMenuItem("Performance Configuration");
+		items[2].addActionListener(new PerformanceConfigurationListener());
+
 		return items;
 	}
 
@@ -1133,6 +1136,43 @@ public class MainFrame extends BaseFrame {
 		}
 	}
 
+	/**
+	 * The <code>PerformanceConfigurationListener</code> is a listener
+	 * class of menu selection to configure the performance 
+	 * configuration.
+	 */
+	protected class PerformanceConfigurationListener implements ActionListener, Runnable {
+		/**
+		 * Invoked when one of the menus is selected.
+		 * @param e contains the selected menu item.
+		 */
+		public void actionPerformed ( ActionEvent e ) {
+			Thread thread = new Thread(this);
+			thread.setPriority(Resource.getThreadPriority());
+			thread.start();
+		}
+
+		/**
+		 * Runs this thread.
+		 */
+		public void run ( ) {
+			PerformanceConfigurationDialog dialog = new PerformanceConfigurationDialog();
+
+			int answer = dialog.show(pane);
+			if (answer == 0) {
+				Resource.setCatalogCacheSizeLimit(dialog.getCatalogCacheSizeLimit());
+				Resource.setPlateSolutionCacheSize(dialog.getPlateSolutionCacheSize());
+				Resource.setFastDatabaseRebuildEnabled(dialog.isFastDatabaseRebuildEnabled());
+				Resource.setMappedTemporaryDatabaseEnabled(dialog.isMappedTemporaryDatabaseEnabled());
+				Resource.setLocalThresholdEnabled(dialog.isLocalThresholdEnabled());
+
+				// The cached stars are released when the cache is
+				// disabled or shrunk.
+				CatalogQueryCache.clear();
+			}
+		}
+	}
+
 	/**
 	 * The <code>ImageAndXmlFileDropTargetListener</code> is a 
 	 * listener class of drop event from native filer application.
@@ -0,0 +1,150 @@
+/*
+ * @(#)PerformanceConfigurationDialog.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.gui.dialog;
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import javax.swing.border.*;
+import net.aerith.misao.util.Format;
+import net.aerith.misao.pixy.Resource;
+
+/**
+ * The <code>PerformanceConfigurationDialog</code> represents a dialog
+ * to configure the caches and the optional fast modes of the 
+ * operations.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PerformanceConfigurationDialog extends Dialog {
+	/**
+	 * The text field of the size of the catalog query cache.
+	 */
+	protected JTextField text_catalog_cache_size;
+
+	/**
+	 * The text field of the number of images kept in the plate
+	 * solution cache.
+	 */
+	protected JTextField text_plate_solution_cache_size;
+
+	/**
+	 * The check box to construct the raw database in the fast
+	 * rebuild mode.
+	 */
+	protected JCheckBox checkbox_fast_database_rebuild;
+
+	/**
+	 * The check box to create the temporary database in the files
+	 * mapped into memory.
+	 */
+	protected JCheckBox checkbox_mapped_temporary_database;
+
+	/**
+	 * The check box to detect stars with the threshold at each pixel
+	 * in the examination.
+	 */
+	protected JCheckBox checkbox_local_threshold;
+
+	/**
+	 * Constructs a <code>PerformanceConfigurationDialog</code>.
+	 */
+	public PerformanceConfigurationDialog ( ) {
+		components = new Object[4];
+
+		text_catalog_cache_size = new JTextField(String.valueOf(Resource.getCatalogCacheSizeLimit() / 1024L / 1024L));
+		text_catalog_cache_size.setColumns(6);
+
+		JPanel panel_catalog_cache = new JPanel();
+		panel_catalog_cache.add(text_catalog_cache_size);
+		panel_catalog_cache.add(new JLabel("MB (0 to disable)"));
+		panel_catalog_cache.setBorder(new TitledBorder("Catalog query cache"));
+		components[0] = panel_catalog_cache;
+
+		text_plate_solution_cache_size = new JTextField(String.valueOf(Resource.getPlateSolutionCacheSize()));
+		text_plate_solution_cache_size.setColumns(6);
+
+		JPanel panel_plate_solution_cache = new JPanel();
+		panel_plate_solution_cache.add(new JLabel("Start batch matching from previous"));
+		panel_plate_solution_cache.add(text_plate_solution_cache_size);
+		panel_plate_solution_cache.add(new JLabel("images (0 to disable)"));
+		panel_plate_solution_cache.setBorder(new TitledBorder("Plate solution cache"));
+		components[1] = panel_plate_solution_cache;
+
+		checkbox_fast_database_rebuild = new JCheckBox("Add the magnitude data of several images at once", Resource.isFastDatabaseRebuildEnabled());
+		checkbox_mapped_temporary_database = new JCheckBox("Create the temporary database in files mapped into memory", Resource.isMappedTemporaryDatabaseEnabled());
+
+		JPanel panel_raw_database = new JPanel();
+		panel_raw_database.setLayout(new GridLayout(2, 1));
+		panel_raw_database.add(checkbox_fast_database_rebuild);
+		panel_raw_database.add(checkbox_mapped_temporary_database);
+		panel_raw_database.setBorder(new TitledBorder("Raw database construction"));
+		components[2] = panel_raw_database;
+
+		checkbox_local_threshold = new JCheckBox("Detect stars with the threshold at each pixel based on the sky noise", Resource.isLocalThresholdEnabled());
+
+		JPanel panel_local_threshold = new JPanel();
+		panel_local_threshold.add(checkbox_local_threshold);
+		panel_local_threshold.setBorder(new TitledBorder("Star detection"));
+		components[3] = panel_local_threshold;
+	}
+
+	/**
+	 * Gets the title of the dialog.
+	 * @return the title of the dialog.
+	 */
+	protected String getTitle ( ) {
+		return "Performance Configuration";
+	}
+
+	/**
+	 * Gets the maximum total size of the stars in the catalog query
+	 * cache.
+	 * @return the maximum total size in bytes.
+	 */
+	public long getCatalogCacheSizeLimit ( ) {
+		return Math.max(0L, (long)Format.intValueOf(text_catalog_cache_size.getText())) * 1024L * 1024L;
+	}
+
+	/**
+	 * Gets the maximum number of previous images whose results of
+	 * examination are kept in a batch examination.
+	 * @return the maximum number of images.
+	 */
+	public int getPlateSolutionCacheSize ( ) {
+		return Math.max(0, Format.intValueOf(text_plate_solution_cache_size.getText()));
+	}
+
+	/**
+	 * Returns true when to construct the raw database in the fast
+	 * rebuild mode.
+	 * @return true when to construct in the fast rebuild mode.
+	 */
+	public boolean isFastDatabaseRebuildEnabled ( ) {
+		return checkbox_fast_database_rebuild.isSelected();
+	}
+
+	/**
+	 * Returns true when to create the temporary database of the raw
+	 * database construction in the files mapped into memory.
+	 * @return true when to create in the files mapped into memory.
+	 */
+	public boolean isMappedTemporaryDatabaseEnabled ( ) {
+		return checkbox_mapped_temporary_database.isSelected();
+	}
+
+	/**
+	 * Returns true when to detect stars with the threshold at each
+	 * pixel based on the RMS noise of the sky in the examination.
+	 * @return true when to use the threshold at each pixel.
+	 */
+	public boolean isLocalThresholdEnabled ( ) {
+		return checkbox_local_threshold.isSelected();
+	}
+}
@@ -14,7 +14,7 @@ import net.aerith.misao.util.*;
  * This is the base class of ByteBuffer, IntBuffer, etc.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 January 28
+ * @version 2026 October 18
  */
 
 public abstract class Buffer implements Statisticable {
@@ -92,6 +92,77 @@ public abstract class Buffer implements Statisticable {
 	public abstract void setValue ( int x, int y, double value )
 		throws IndexOutOfBoundsException;
 
+	/**
+	 * Gets pixel values of the specified part of a row at once. The
+	 * values are the same as those of <tt>getValue</tt>.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		for (int i = 0 ; i < width ; i++)
+			values[offset + i] = getValue(x + i, y);
+	}
+
+	/**
+	 * Sets pixel values of the specified part of a row at once. The
+	 * values are forcedly converted into the data type of image
+	 * buffer, as same as <tt>setValue</tt>.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		for (int i = 0 ; i < width ; i++)
+			setValue(x + i, y, values[offset + i]);
+	}
+
+	/**
+	 * Gets the value to be stored in the buffer when the specified
+	 * value is set. It is the same as the value returned by 
+	 * <tt>getValue</tt> after <tt>setValue</tt>.
+	 * @param value the value to set.
+	 * @return the value to be stored.
+	 */
+	public abstract double getStoredValue ( double value );
+
+	/**
+	 * Gets the value in the buffer inversed between white and black,
+	 * as same as <tt>inverse</tt>.
+	 * @param value the value in the buffer.
+	 * @return the inversed value.
+	 */
+	public abstract double getInversedValue ( double value );
+
+	/**
+	 * Checks if the specified part of a row is in the image area.
+	 * @param x     the x position of the first pixel.
+	 * @param y     the y position.
+	 * @param width the number of pixels.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	protected void checkRow ( int x, int y, int width )
+		throws IndexOutOfBoundsException
+	{
+		if (x < 0  ||  width < 0  ||  x + width > size.getWidth()  ||
+			y < 0  ||  y >= size.getHeight()) {
+			throw new IndexOutOfBoundsException();
+		}
+	}
+
 	/**
 	 * Reads pixel values and set pixel values into the buffer.
 	 * @param input the input stream pointing to the start of int
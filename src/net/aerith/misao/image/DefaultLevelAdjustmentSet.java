@@ -46,12 +46,20 @@ import net.aerith.misao.image.filter.*;
  *   <li>Set the minimum as <i>average - 1.0 * deviation</i>, the 
  *       maximum as <i>average + 4.25 * deviation</i>.
  * </ol>
+ * <p>
+ * The result is cached for the image, so the level of the same image
+ * is not calculated again while the pixel values are not changed.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 25
+ * @version 2026 October 18
  */
 
 public class DefaultLevelAdjustmentSet extends LevelAdjustmentSet {
+	/**
+	 * The key of the cached result.
+	 */
+	private final static String CACHE_KEY = "DefaultLevelAdjustmentSet";
+
 	/**
 	 * Constructs a <code>DefaultLevelAdjustmentSet</code> based on 
 	 * the specified image.
@@ -60,6 +68,24 @@ public class DefaultLevelAdjustmentSet extends LevelAdjustmentSet {
 	public DefaultLevelAdjustmentSet ( MonoImage mono_image ) {
 		super(mono_image);
 
+		LevelAdjustmentSet set = (LevelAdjustmentSet)PixelScan.getCachedObject(mono_image, CACHE_KEY);
+		if (set != null) {
+			original_statistics = set.original_statistics;
+			current_minimum = set.current_minimum;
+			current_maximum = set.current_maximum;
+			return;
+		}
+
+		long version = mono_image.getVersion();
+		adjust(mono_image);
+		PixelScan.putCachedObject(mono_image, version, CACHE_KEY, new LevelAdjustmentSet(this));
+	}
+
+	/**
+	 * Calculates the minimum and maximum value of the specified image.
+	 * @param mono_image the image.
+	 */
+	private void adjust ( MonoImage mono_image ) {
 		try {
 			double range_min = original_statistics.getMin();
 			double range_max = original_statistics.getMax();
@@ -90,13 +116,23 @@ public class DefaultLevelAdjustmentSet extends LevelAdjustmentSet {
 				int image_size = mono_image.getSize().getWidth() * mono_image.getSize().getHeight();
 				MonoImage new_image = new MonoImage(new FloatBuffer(new Size(image_size - max_count, 1)));
 
+				int width = mono_image.getSize().getWidth();
+				double[] values = new double[width];
+				double[] new_values = new double[width];
 				int index = 0;
-				for (int i = 0 ; i < image_size ; i++) {
-					double value = mono_image.getValueAt(i);
-					if (value < most_min  ||  value >= most_max) {
-						new_image.setValue(index, 0, value);
-						index++;
+				for (int y = 0 ; y < mono_image.getSize().getHeight() ; y++) {
+					mono_image.getRow(y, values);
+
+					int count = 0;
+					for (int x = 0 ; x < width ; x++) {
+						if (values[x] < most_min  ||  values[x] >= most_max) {
+							new_values[count] = values[x];
+							count++;
+						}
 					}
+
+					new_image.setRow(index, 0, count, new_values, 0);
+					index += count;
 				}
 
 				// Initializes again with the new image.
@@ -206,26 +242,30 @@ public class DefaultLevelAdjustmentSet extends LevelAdjustmentSet {
 					variation++;
 			}
 
+			double average = statistics.getAverage();
+			double deviation = statistics.getDeviation();
+
 			if (variation > 5) {
-				// Creates a mini image based on the smoothed histogram.
-				Array mini_image = new Array(total_count);
+				// Calculates the statistics of a mini image based on 
+				// the smoothed histogram. Each value appears as many 
+				// times as the count, so the sums are accumulated 
+				// without creating the mini image.
 				double value = (range_max - range_min) / 100.0 / 2.0 + range_min;
-				total_count = 0;
+				double amount = 0.0;
+				double amount2 = 0.0;
 				for (int i = 1 ; i <= 100 ; i++) {
 					int count = (int)(histogram_image.getValue(i, 0) * scale);
-					for (int j = 0 ; j < count ; j++) {
-						mini_image.set(total_count, value);
-						total_count++;
-					}
+					amount += value * (double)count;
+					amount2 += value * value * (double)count;
 					value += (range_max - range_min) / 100.0;
 				}
 
-				statistics = new Statistics(mini_image);
-				statistics.calculate();
+				average = amount / (double)total_count;
+				deviation = Math.sqrt(Math.max(0.0, amount2 / (double)total_count - average * average));
 			}
 
-			current_minimum = statistics.getAverage() - statistics.getDeviation() * 1.0;
-			current_maximum = statistics.getAverage() + statistics.getDeviation() * 4.25;
+			current_minimum = average - deviation * 1.0;
+			current_maximum = average + deviation * 4.25;
 
 			if (current_minimum < original_statistics.getMin())
 				current_minimum = original_statistics.getMin();
@@ -14,7 +14,7 @@ import net.aerith.misao.util.*;
  * image buffer.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2001 May 15
+ * @version 2026 October 18
  */
 
 public class DoubleBuffer extends Buffer {
@@ -101,6 +101,73 @@ public class DoubleBuffer extends Buffer {
 		set(x, y, value);
 	}
 
+	/**
+	 * Gets pixel values of the specified part of a row at once.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (pixels == null)
+			throw new IndexOutOfBoundsException();
+		checkRow(x, y, width);
+
+		int ptr = y * size.getWidth() + x;
+		for (int i = 0 ; i < width ; i++)
+			values[offset + i] = pixels[ptr + i];
+	}
+
+	/**
+	 * Sets pixel values of the specified part of a row at once. The
+	 * values are forcedly converted into the data type of image
+	 * buffer.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (pixels == null)
+			throw new IndexOutOfBoundsException();
+		checkRow(x, y, width);
+
+		int ptr = y * size.getWidth() + x;
+		for (int i = 0 ; i < width ; i++)
+			pixels[ptr + i] = values[offset + i];
+	}
+
+	/**
+	 * Gets the value to be stored in the buffer when the specified
+	 * value is set. It is the same as the value returned by 
+	 * <tt>getValue</tt> after <tt>setValue</tt>.
+	 * @param value the value to set.
+	 * @return the value to be stored.
+	 */
+	public double getStoredValue ( double value ) {
+		return value;
+	}
+
+	/**
+	 * Gets the value in the buffer inversed between white and black,
+	 * as same as <tt>inverse</tt>.
+	 * @param value the value in the buffer.
+	 * @return the inversed value.
+	 */
+	public double getInversedValue ( double value ) {
+		return - value;
+	}
+
 	/**
 	 * Reads pixel values and set pixel values into the buffer.
 	 * @param input the input stream pointing to the start of int
@@ -20,7 +20,7 @@ import net.aerith.misao.util.*;
  * Integer.MIN_VALUE and Integer.MAX_VALUE. 
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2000 November 28
+ * @version 2026 October 18
  */
 
 public class IntBuffer extends Buffer {
@@ -110,6 +110,73 @@ public class IntBuffer extends Buffer {
 		set(x, y, (int)value);
 	}
 
+	/**
+	 * Gets pixel values of the specified part of a row at once.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (pixels == null)
+			throw new IndexOutOfBoundsException();
+		checkRow(x, y, width);
+
+		int ptr = y * size.getWidth() + x;
+		for (int i = 0 ; i < width ; i++)
+			values[offset + i] = (double)pixels[ptr + i];
+	}
+
+	/**
+	 * Sets pixel values of the specified part of a row at once. The
+	 * values are forcedly converted into the data type of image
+	 * buffer.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (pixels == null)
+			throw new IndexOutOfBoundsException();
+		checkRow(x, y, width);
+
+		int ptr = y * size.getWidth() + x;
+		for (int i = 0 ; i < width ; i++)
+			pixels[ptr + i] = (int)values[offset + i];
+	}
+
+	/**
+	 * Gets the value to be stored in the buffer when the specified
+	 * value is set. It is the same as the value returned by 
+	 * <tt>getValue</tt> after <tt>setValue</tt>.
+	 * @param value the value to set.
+	 * @return the value to be stored.
+	 */
+	public double getStoredValue ( double value ) {
+		return (double)(int)value;
+	}
+
+	/**
+	 * Gets the value in the buffer inversed between white and black,
+	 * as same as <tt>inverse</tt>.
+	 * @param value the value in the buffer.
+	 * @return the inversed value.
+	 */
+	public double getInversedValue ( double value ) {
+		return (double)(- (int)value);
+	}
+
 	/**
 	 * Reads pixel values and set pixel values into the buffer.
 	 * @param input the input stream pointing to the start of int
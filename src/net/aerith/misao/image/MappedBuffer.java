@@ -0,0 +1,616 @@
+/*
+ * @(#)MappedBuffer.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.image;
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.aerith.misao.util.*;
+
+/**
+ * The <code>MappedBuffer</code> is a class of an image buffer backed
+ * by the memory-mapped pixel data of an uncompressed FITS file. The
+ * pixel values are decoded from the big-endian data in the file on
+ * every access, so the image is never read into the heap.
+ * <P>
+ * The mapping itself is read-only. When a pixel is set, only the
+ * row containing the pixel is copied into the heap, and the copy is
+ * used afterward. Reversing upside down or left to the right only
+ * changes the direction to access the rows and columns.
+ * <P>
+ * The return value of <tt>getValue</tt> is the same as that of the
+ * buffer of the corresponding type, <code>ByteBuffer</code>,
+ * <code>ShortBuffer</code>, <code>IntBuffer</code> or
+ * <code>FloatBuffer</code>, read from the same file.
+ * <P>
+ * The buffer can be read and modified by the parallel filters. The
+ * copied rows are published safely, and a row is read from either
+ * the copy or the mapping consistently.
+ * <P>
+ * Before the image is saved into the mapped file, all rows must be
+ * copied into the heap by <tt>detach</tt>, because the file is
+ * truncated when it is opened to write.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class MappedBuffer extends Buffer {
+	/**
+	 * The mapped pixel data. The first byte is the first pixel.
+	 */
+	private java.nio.ByteBuffer mapping;
+
+	/**
+	 * The mapped file, or null if unknown.
+	 */
+	private File file = null;
+
+	/**
+	 * The BITPIX value of the data.
+	 */
+	private int bitpix;
+
+	/**
+	 * The number of bytes of a pixel.
+	 */
+	private int pixel_bytes;
+
+	/**
+	 * The number of bytes of a row.
+	 */
+	private int row_bytes;
+
+	/**
+	 * True if 16-bit data in the file is signed.
+	 */
+	private boolean signed_data;
+
+	/**
+	 * True if the rows are accessed from the bottom.
+	 */
+	private boolean reversed_vertically = false;
+
+	/**
+	 * True if the columns are accessed from the right.
+	 */
+	private boolean reversed_horizontally = false;
+
+	/**
+	 * The rows copied into the heap, indexed by the row number in the
+	 * file. The element is null when the row is not modified.
+	 */
+	private AtomicReferenceArray copied_rows;
+
+	/**
+	 * Constructs a <code>MappedBuffer</code> of the specified mapped
+	 * data.
+	 * @param mapping     the mapped pixel data.
+	 * @param bitpix      the BITPIX value of the data.
+	 * @param signed_data true if 16-bit data is signed.
+	 * @param buffer_size the image size.
+	 * @exception UnsupportedBufferTypeException if the data type is
+	 * unsupported.
+	 */
+	public MappedBuffer ( java.nio.ByteBuffer mapping, int bitpix, boolean signed_data, Size buffer_size )
+		throws UnsupportedBufferTypeException
+	{
+		this.mapping = mapping;
+		this.bitpix = bitpix;
+		this.pixel_bytes = getPixelBytes(bitpix);
+		this.signed_data = signed_data;
+
+		size = buffer_size;
+		row_bytes = size.getWidth() * pixel_bytes;
+		copied_rows = new AtomicReferenceArray(size.getHeight());
+
+		// The same decoding as DataInput.
+		this.mapping.order(java.nio.ByteOrder.BIG_ENDIAN);
+	}
+
+	/**
+	 * Maps the pixel data in the specified file and creates a new
+	 * <code>MappedBuffer</code>.
+	 * @param file        the file.
+	 * @param offset      the position of the pixel data in the file.
+	 * @param bitpix      the BITPIX value of the data.
+	 * @param signed_data true if 16-bit data is signed.
+	 * @param buffer_size the image size.
+	 * @return the new buffer.
+	 * @exception IOException if I/O error occurs, or the file is too
+	 * short or too large to map.
+	 * @exception UnsupportedBufferTypeException if the data type is
+	 * unsupported.
+	 */
+	public static MappedBuffer map ( File file, long offset, int bitpix, boolean signed_data, Size buffer_size )
+		throws IOException, UnsupportedBufferTypeException
+	{
+		long length = (long)buffer_size.getWidth() * (long)buffer_size.getHeight() * (long)getPixelBytes(bitpix);
+		if (length > Integer.MAX_VALUE)
+			throw new IOException("too large to map: " + file.getPath());
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < offset + length)
+				throw new EOFException(file.getPath());
+
+			// The mapping remains valid after the channel is closed.
+			MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			MappedBuffer buffer = new MappedBuffer(mapping, bitpix, signed_data, buffer_size);
+			buffer.file = file;
+			return buffer;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Gets the number of bytes of a pixel.
+	 * @param bitpix the BITPIX value of the data.
+	 * @return the number of bytes of a pixel.
+	 * @exception UnsupportedBufferTypeException if the data type is
+	 * unsupported.
+	 */
+	private static int getPixelBytes ( int bitpix )
+		throws UnsupportedBufferTypeException
+	{
+		switch (bitpix) {
+			case 8:
+			case -8:
+				return 1;
+			case 16:
+			case -16:
+				return 2;
+			case 32:
+			case -32:
+				return 4;
+		}
+		throw new UnsupportedBufferTypeException();
+	}
+
+	/**
+	 * Gets the data type of buffer, one of the types defined in
+	 * <code>MonoImage</code>.
+	 * @return the data type.
+	 */
+	public int getBufferType ( ) {
+		if (bitpix == -32)
+			return MonoImage.TYPE_FLOAT;
+		if (bitpix == 32)
+			return MonoImage.TYPE_INT;
+		if (pixel_bytes == 2)
+			return MonoImage.TYPE_SHORT;
+		return MonoImage.TYPE_BYTE;
+	}
+
+	/**
+	 * Returns true if the specified row is copied into the heap.
+	 * @param y the y position.
+	 * @return true if the specified row is copied into the heap.
+	 */
+	public boolean isCopied ( int y ) {
+		return copied_rows.get(getFileRow(y)) != null;
+	}
+
+	/**
+	 * Gets the row number in the file of the specified y position.
+	 * @param y the y position.
+	 * @return the row number in the file.
+	 */
+	private int getFileRow ( int y ) {
+		if (reversed_vertically)
+			return size.getHeight() - 1 - y;
+		return y;
+	}
+
+	/**
+	 * Gets the column number in the file of the specified x position.
+	 * @param x the x position.
+	 * @return the column number in the file.
+	 */
+	private int getFileColumn ( int x ) {
+		if (reversed_horizontally)
+			return size.getWidth() - 1 - x;
+		return x;
+	}
+
+	/**
+	 * Returns true if the pixel data is mapped from the specified
+	 * file.
+	 * @param file the file.
+	 * @return true if the pixel data is mapped from the file.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public boolean isMappedFrom ( File file )
+		throws IOException
+	{
+		if (this.file == null)
+			return false;
+		return this.file.getCanonicalFile().equals(file.getCanonicalFile());
+	}
+
+	/**
+	 * Copies all rows into the heap, so that the mapping is never
+	 * read afterward. This must be invoked before the mapped file is
+	 * overwritten.
+	 */
+	public void detach ( ) {
+		for (int row = 0 ; row < size.getHeight() ; row++)
+			copyRow(row);
+	}
+
+	/**
+	 * Copies the specified row into the heap, if it is not copied yet.
+	 * @param row the row number in the file.
+	 * @return the copied row.
+	 */
+	private java.nio.ByteBuffer copyRow ( int row ) {
+		java.nio.ByteBuffer row_buffer = (java.nio.ByteBuffer)copied_rows.get(row);
+		if (row_buffer != null)
+			return row_buffer;
+
+		synchronized (this) {
+			row_buffer = (java.nio.ByteBuffer)copied_rows.get(row);
+			if (row_buffer == null) {
+				byte[] bytes = new byte[row_bytes];
+				java.nio.ByteBuffer source = mapping.duplicate();
+				source.position(row * row_bytes);
+				source.get(bytes);
+				row_buffer = java.nio.ByteBuffer.wrap(bytes);
+				copied_rows.set(row, row_buffer);
+			}
+			return row_buffer;
+		}
+	}
+
+	/**
+	 * Decodes the pixel value at the specified position in the byte
+	 * buffer.
+	 * @param row_buffer the byte buffer.
+	 * @param offset     the position of the pixel.
+	 * @return the pixel value.
+	 */
+	private double decode ( java.nio.ByteBuffer row_buffer, int offset ) {
+		switch (bitpix) {
+			case 32:
+				return (double)row_buffer.getInt(offset);
+			case -32:
+				return (double)row_buffer.getFloat(offset);
+		}
+		if (pixel_bytes == 2) {
+			// The same value as ShortBuffer, between 0 and 65535.
+			int value = (int)row_buffer.getShort(offset);
+			if (signed_data)
+				return (double)(value + 32768);
+			return (double)(value & 0xffff);
+		}
+		return (double)(row_buffer.get(offset) & 0xff);
+	}
+
+	/**
+	 * Encodes the pixel value at the specified position in the byte
+	 * buffer. The value is forcedly converted into the data type of
+	 * image buffer.
+	 * @param row_buffer the byte buffer.
+	 * @param offset     the position of the pixel.
+	 * @param value      the pixel value.
+	 */
+	private void encode ( java.nio.ByteBuffer row_buffer, int offset, double value ) {
+		switch (bitpix) {
+			case 32:
+				row_buffer.putInt(offset, (int)value);
+				return;
+			case -32:
+				row_buffer.putFloat(offset, (float)value);
+				return;
+		}
+		if (pixel_bytes == 2) {
+			if (signed_data)
+				row_buffer.putShort(offset, (short)((int)value - 32768));
+			else
+				row_buffer.putShort(offset, (short)(int)value);
+			return;
+		}
+		row_buffer.put(offset, (byte)(int)value);
+	}
+
+	/**
+	 * Gets pixel value of a specified position.
+	 * @param x the x position.
+	 * @param y the y position.
+	 * @return the pixel value of the position.
+	 * @exception IndexOutOfBoundsException if specified position is
+	 * out of the image area.
+	 */
+	public double getValue ( int x, int y )
+		throws IndexOutOfBoundsException
+	{
+		if (x < 0  ||  x >= size.getWidth()  ||
+			y < 0  ||  y >= size.getHeight()) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		// The copied row is read only once, so the buffer and the
+		// position are consistent even if the row is copied by
+		// another thread at the same time.
+		int row = getFileRow(y);
+		int position = 0;
+		java.nio.ByteBuffer row_buffer = (java.nio.ByteBuffer)copied_rows.get(row);
+		if (row_buffer == null) {
+			row_buffer = mapping;
+			position = row * row_bytes;
+		}
+		return decode(row_buffer, position + getFileColumn(x) * pixel_bytes);
+	}
+
+	/**
+	 * Sets pixel value of a specified position. The value is forcedly
+	 * converted into the data type of image buffer. The row
+	 * containing the pixel is copied into the heap at the first time.
+	 * @param x     the x position.
+	 * @param y     the y position.
+	 * @param value the value to set.
+	 * @exception IndexOutOfBoundsException if specified position is
+	 * out of the image area.
+	 */
+	public void setValue ( int x, int y, double value )
+		throws IndexOutOfBoundsException
+	{
+		if (x < 0  ||  x >= size.getWidth()  ||
+			y < 0  ||  y >= size.getHeight()) {
+			throw new IndexOutOfBoundsException();
+		}
+
+		java.nio.ByteBuffer row_buffer = copyRow(getFileRow(y));
+		encode(row_buffer, getFileColumn(x) * pixel_bytes, value);
+	}
+
+	/**
+	 * Gets pixel values of the specified part of a row at once. The
+	 * row is looked up only once.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		checkRow(x, y, width);
+
+		int row = getFileRow(y);
+		int position = 0;
+		java.nio.ByteBuffer row_buffer = (java.nio.ByteBuffer)copied_rows.get(row);
+		if (row_buffer == null) {
+			row_buffer = mapping;
+			position = row * row_bytes;
+		}
+		if (reversed_horizontally) {
+			int ptr = position + getFileColumn(x) * pixel_bytes;
+			for (int i = 0 ; i < width ; i++, ptr -= pixel_bytes)
+				values[offset + i] = decode(row_buffer, ptr);
+		} else {
+			int ptr = position + x * pixel_bytes;
+			for (int i = 0 ; i < width ; i++, ptr += pixel_bytes)
+				values[offset + i] = decode(row_buffer, ptr);
+		}
+	}
+
+	/**
+	 * Sets pixel values of the specified part of a row at once. The
+	 * values are forcedly converted into the data type of image
+	 * buffer, as same as <tt>setValue</tt>. The row is copied into
+	 * the heap at the first time.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		checkRow(x, y, width);
+
+		java.nio.ByteBuffer row_buffer = copyRow(getFileRow(y));
+		if (reversed_horizontally) {
+			int ptr = getFileColumn(x) * pixel_bytes;
+			for (int i = 0 ; i < width ; i++, ptr -= pixel_bytes)
+				encode(row_buffer, ptr, values[offset + i]);
+		} else {
+			int ptr = x * pixel_bytes;
+			for (int i = 0 ; i < width ; i++, ptr += pixel_bytes)
+				encode(row_buffer, ptr, values[offset + i]);
+		}
+	}
+
+	/**
+	 * Gets the value to be stored in the buffer when the specified
+	 * value is set. It is the same as the value returned by 
+	 * <tt>getValue</tt> after <tt>setValue</tt>.
+	 * @param value the value to set.
+	 * @return the value to be stored.
+	 */
+	public double getStoredValue ( double value ) {
+		switch (bitpix) {
+			case 32:
+				return (double)(int)value;
+			case -32:
+				return (double)(float)value;
+		}
+		if (pixel_bytes == 2)
+			return (double)(((int)value) & 0xffff);
+		return (double)(((int)value) & 0xff);
+	}
+
+	/**
+	 * Gets the value in the buffer inversed between white and black,
+	 * as same as <tt>inverse</tt>.
+	 * @param value the value in the buffer.
+	 * @return the inversed value.
+	 */
+	public double getInversedValue ( double value ) {
+		switch (bitpix) {
+			case 32:
+				return (double)(- (int)value);
+			case -32:
+				return - value;
+		}
+		if (pixel_bytes == 2)
+			return (double)(65535 - (int)value);
+		return (double)(255 - (int)value);
+	}
+
+	/**
+	 * Reads pixel values and set pixel values into the buffer. All
+	 * rows are copied into the heap.
+	 * @param input the input stream pointing to the start of data.
+	 * @param size  the size of image.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void read ( DataInput input, Size size )
+		throws IOException
+	{
+		for (int y = 0 ; y < size.getHeight() ; y++) {
+			byte[] bytes = new byte[row_bytes];
+			input.readFully(bytes);
+			copied_rows.set(y, java.nio.ByteBuffer.wrap(bytes));
+		}
+		reversed_vertically = false;
+		reversed_horizontally = false;
+	}
+
+	/**
+	 * Write pixel values into the specified stream.
+	 * @param output the output stream.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void write ( DataOutput output )
+		throws IOException
+	{
+		// When the flag to be signed is changed after mapped, the
+		// 16-bit data must be converted.
+		if (pixel_bytes == 2  &&  signed_flag != signed_data) {
+			for (int y = 0 ; y < size.getHeight() ; y++) {
+				for (int x = 0 ; x < size.getWidth() ; x++) {
+					int value = (int)getValue(x, y);
+					if (signed_flag)
+						value -= 32768;
+					output.writeShort(value);
+				}
+			}
+			return;
+		}
+
+		byte[] bytes = new byte[row_bytes];
+		for (int y = 0 ; y < size.getHeight() ; y++) {
+			int row = getFileRow(y);
+			int offset = 0;
+			java.nio.ByteBuffer source = (java.nio.ByteBuffer)copied_rows.get(row);
+			if (source == null) {
+				source = mapping;
+				offset = row * row_bytes;
+			}
+			source = source.duplicate();
+
+			if (reversed_horizontally) {
+				for (int x = 0 ; x < size.getWidth() ; x++) {
+					source.position(offset + (size.getWidth() - 1 - x) * pixel_bytes);
+					source.get(bytes, x * pixel_bytes, pixel_bytes);
+				}
+			} else {
+				source.position(offset);
+				source.get(bytes);
+			}
+
+			output.write(bytes);
+		}
+	}
+
+	/**
+	 * Inverses white and black. All rows are copied into the heap.
+	 */
+	public void inverse ( ) {
+		for (int row = 0 ; row < size.getHeight() ; row++) {
+			java.nio.ByteBuffer row_buffer = copyRow(row);
+
+			for (int offset = 0 ; offset < row_bytes ; offset += pixel_bytes) {
+				switch (bitpix) {
+					case 32:
+						row_buffer.putInt(offset, - row_buffer.getInt(offset));
+						break;
+					case -32:
+						row_buffer.putFloat(offset, - row_buffer.getFloat(offset));
+						break;
+					default:
+						// The same as ByteBuffer and ShortBuffer,
+						// whether signed or not.
+						if (pixel_bytes == 2)
+							row_buffer.putShort(offset, (short)(~ row_buffer.getShort(offset)));
+						else
+							row_buffer.put(offset, (byte)(~ row_buffer.get(offset)));
+						break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reverses upside down.
+	 */
+	public void reverseVertically ( ) {
+		reversed_vertically = ! reversed_vertically;
+	}
+
+	/**
+	 * Reverses left to the right.
+	 */
+	public void reverseHorizontally ( ) {
+		reversed_horizontally = ! reversed_horizontally;
+	}
+
+	/**
+	 * Creates a clone image buffer. The mapping is shared, and only
+	 * the rows copied into the heap are copied.
+	 * @return the new clone image buffer.
+	 */
+	public Buffer cloneBuffer ( ) {
+		MappedBuffer new_buffer = null;
+		try {
+			new_buffer = new MappedBuffer(mapping, bitpix, signed_data, size);
+		} catch ( UnsupportedBufferTypeException exception ) {
+			// never happens.
+			System.err.println(exception);
+			return null;
+		}
+
+		new_buffer.file = file;
+		new_buffer.signed_flag = signed_flag;
+		new_buffer.reversed_vertically = reversed_vertically;
+		new_buffer.reversed_horizontally = reversed_horizontally;
+
+		synchronized (this) {
+			for (int row = 0 ; row < size.getHeight() ; row++) {
+				java.nio.ByteBuffer row_buffer = (java.nio.ByteBuffer)copied_rows.get(row);
+				if (row_buffer != null) {
+					byte[] bytes = new byte[row_bytes];
+					System.arraycopy(row_buffer.array(), 0, bytes, 0, row_bytes);
+					new_buffer.copied_rows.set(row, java.nio.ByteBuffer.wrap(bytes));
+				}
+			}
+		}
+
+		return new_buffer;
+	}
+}
@@ -19,10 +19,10 @@ import net.aerith.misao.gui.*;
  * data type (byte, int, etc.) is not need to consider.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 26
+ * @version 2026 October 18
  */
 
-public class MonoImage implements ImageContent, Statisticable {
+public class MonoImage implements ImageContent, BulkStatisticable {
 	/**
 	 * The type number of buffer indicating byte.
 	 */
@@ -68,6 +68,12 @@ public class MonoImage implements ImageContent, Statisticable {
 	 */
 	protected boolean signed_flag = false;
 
+	/**
+	 * The version, which is increased when the pixel values are
+	 * changed.
+	 */
+	private long version = 0;
+
 	/**
 	 * Converts the RGB value into gray value.
 	 * @param r the R value.
@@ -114,6 +120,16 @@ public class MonoImage implements ImageContent, Statisticable {
 	public void setPixelValueConvertParameters ( double zero_point, double magnification ) {
 		bzero += zero_point;
 		bscale *= magnification;
+		version++;
+	}
+
+	/**
+	 * Gets the version of the pixel values. It is increased when the
+	 * pixel values are changed through the methods of this class.
+	 * @return the version.
+	 */
+	public long getVersion ( ) {
+		return version;
 	}
 
 	/**
@@ -136,6 +152,8 @@ public class MonoImage implements ImageContent, Statisticable {
 				return TYPE_FLOAT;
 			if (buffer instanceof DoubleBuffer)
 				return TYPE_DOUBLE;
+			if (buffer instanceof MappedBuffer)
+				return ((MappedBuffer)buffer).getBufferType();
 		}
 		throw new UnsupportedBufferTypeException();
 	}
@@ -148,6 +166,7 @@ public class MonoImage implements ImageContent, Statisticable {
 		signed_flag = true;
 		if (buffer != null)
 			buffer.setSigned();
+		version++;
 	}
 
 	/**
@@ -173,6 +192,32 @@ public class MonoImage implements ImageContent, Statisticable {
 		return getValue(x, y);
 	}
 
+	/**
+	 * Calculates the statistics of pixel values between the specified
+	 * limits. All pixels are scanned at once in parallel, and the
+	 * result is cached while the pixel values are not changed.
+	 * @param minimum_limit the minimum limit of value, or null.
+	 * @param maximum_limit the maximum limit of value, or null.
+	 * @return the array of the number of pixels, the minimum value,
+	 * the maximum value, the average and the standard deviation.
+	 */
+	public double[] calculateStatistics ( Double minimum_limit, Double maximum_limit ) {
+		return PixelScan.calculateStatistics(this, minimum_limit, maximum_limit);
+	}
+
+	/**
+	 * Calculates the histogram of pixel values. All pixels are scanned
+	 * at once in parallel, and the result is cached while the pixel
+	 * values are not changed.
+	 * @param minimum_value  the minimum value of the histogram range.
+	 * @param maximum_value  the maximum value of the histogram range.
+	 * @param division_count the division_count;
+	 * @return the array of the histogram.
+	 */
+	public int[] calculateHistogram ( double minimum_value, double maximum_value, int division_count ) {
+		return PixelScan.calculateHistogram(this, minimum_value, maximum_value, division_count);
+	}
+
 	/**
 	 * Gets pixel value of a specified position. The return value is
 	 * converted into true pixel value with the zero point value and
@@ -345,6 +390,210 @@ public class MonoImage implements ImageContent, Statisticable {
 		if (buffer == null)
 			throw new IndexOutOfBoundsException();
 		buffer.setValue(x, y, (value - bzero) / bscale);
+		version++;
+	}
+
+	/**
+	 * Gets pixel values of a row at once. The values are converted 
+	 * into true pixel values with the zero point value and the 
+	 * magnification value, as same as <tt>getValue</tt>. This is 
+	 * much faster than invoking <tt>getValue</tt> for each pixel.
+	 * @param y      the y position.
+	 * @param values the array to store the pixel values, whose 
+	 * length must be equal to or larger than the image width.
+	 * @exception IndexOutOfBoundsException if specified position is
+	 * out of the image area.
+	 */
+	public void getRow ( int y, double[] values )
+		throws IndexOutOfBoundsException
+	{
+		getRow(0, y, getSize().getWidth(), values, 0);
+	}
+
+	/**
+	 * Gets pixel values of the specified part of a row at once. The
+	 * values are converted into true pixel values with the zero 
+	 * point value and the magnification value, as same as 
+	 * <tt>getValue</tt>.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (buffer == null)
+			throw new IndexOutOfBoundsException();
+		buffer.getRow(x, y, width, values, offset);
+		for (int i = offset ; i < offset + width ; i++)
+			values[i] = values[i] * bscale + bzero;
+	}
+
+	/**
+	 * Gets the values in the buffer of the specified part of a row 
+	 * at once. The values are not converted into true pixel values.
+	 * In the case of byte and short data, they are integers between
+	 * 0 and 255, or 0 and 65535.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void getBufferRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (buffer == null)
+			throw new IndexOutOfBoundsException();
+		buffer.getRow(x, y, width, values, offset);
+	}
+
+	/**
+	 * Converts the value in the buffer into true pixel value with
+	 * the zero point value and the magnification value.
+	 * @param value the value in the buffer.
+	 * @return the true pixel value.
+	 */
+	public double convertBufferValue ( double value ) {
+		return value * bscale + bzero;
+	}
+
+	/**
+	 * Converts the true pixel value into the value to be stored in
+	 * the buffer, as same as <tt>setValue</tt>.
+	 * @param value the true pixel value.
+	 * @return the value to be stored in the buffer.
+	 */
+	public double convertToBufferValue ( double value ) {
+		return buffer.getStoredValue((value - bzero) / bscale);
+	}
+
+	/**
+	 * Gets the value in the buffer inversed between white and black,
+	 * as same as <tt>inverse</tt>.
+	 * @param value the value in the buffer.
+	 * @return the inversed value.
+	 */
+	public double getInversedBufferValue ( double value ) {
+		return buffer.getInversedValue(value);
+	}
+
+	/**
+	 * Gets pixel values of the specified part of a row at once. If 
+	 * the specified part is out of the image area, the values of the
+	 * pixels on the image closest from the positions are stored, as
+	 * same as <tt>getValueOnFlatExtension</tt>. So this method never
+	 * throw IndexOutOfBoundsException.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array to store the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 */
+	public void getRowOnFlatExtension ( int x, int y, int width, double[] values, int offset ) {
+		if (y < 0)
+			y = 0;
+		if (y >= getSize().getHeight())
+			y = getSize().getHeight() - 1;
+
+		// The range in the image area.
+		int start = (x < 0) ? Math.min(- x, width) : 0;
+		int end = (x + width > getSize().getWidth()) ? Math.max(getSize().getWidth() - x, start) : width;
+
+		if (start < end)
+			getRow(x + start, y, end - start, values, offset + start);
+		for (int i = 0 ; i < start ; i++)
+			values[offset + i] = getValueOnFlatExtension(x + i, y);
+		for (int i = end ; i < width ; i++)
+			values[offset + i] = getValueOnFlatExtension(x + i, y);
+	}
+
+	/**
+	 * Gets pixel values of the specified rectangle at once. The 
+	 * value at (x + i, y + j) is stored at <tt>j * width + i</tt> in
+	 * the array. If the rectangle is out of the image area, the 
+	 * values are stored as same as <tt>getValueOnFlatExtension</tt>.
+	 * So this method never throw IndexOutOfBoundsException.
+	 * @param x      the x position of the upper left pixel.
+	 * @param y      the y position of the upper left pixel.
+	 * @param width  the width of the rectangle.
+	 * @param height the height of the rectangle.
+	 * @param values the array to store the pixel values.
+	 */
+	public void getTileOnFlatExtension ( int x, int y, int width, int height, double[] values ) {
+		for (int j = 0 ; j < height ; j++)
+			getRowOnFlatExtension(x, y + j, width, values, j * width);
+	}
+
+	/**
+	 * Sets the values in the buffer of the specified part of a row 
+	 * at once. The values are not converted with the zero point 
+	 * value and the magnification value.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setBufferRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (buffer == null)
+			throw new IndexOutOfBoundsException();
+		buffer.setRow(x, y, width, values, offset);
+		version++;
+	}
+
+	/**
+	 * Sets pixel values of a row at once. The input values must be
+	 * true pixel values, as same as <tt>setValue</tt>. 
+	 * @param y      the y position.
+	 * @param values the array of the pixel values, whose length must
+	 * be equal to or larger than the image width.
+	 * @exception IndexOutOfBoundsException if specified position is
+	 * out of the image area.
+	 */
+	public void setRow ( int y, double[] values )
+		throws IndexOutOfBoundsException
+	{
+		setRow(0, y, getSize().getWidth(), values, 0);
+	}
+
+	/**
+	 * Sets pixel values of the specified part of a row at once. The
+	 * input values must be true pixel values, as same as 
+	 * <tt>setValue</tt>. The array is not changed.
+	 * @param x      the x position of the first pixel.
+	 * @param y      the y position.
+	 * @param width  the number of pixels.
+	 * @param values the array of the pixel values.
+	 * @param offset the index in the array of the first pixel.
+	 * @exception IndexOutOfBoundsException if specified part is out
+	 * of the image area.
+	 */
+	public void setRow ( int x, int y, int width, double[] values, int offset )
+		throws IndexOutOfBoundsException
+	{
+		if (buffer == null)
+			throw new IndexOutOfBoundsException();
+
+		if (bzero == 0.0  &&  bscale == 1.0) {
+			buffer.setRow(x, y, width, values, offset);
+		} else {
+			double[] buffer_values = new double[width];
+			for (int i = 0 ; i < width ; i++)
+				buffer_values[i] = (values[offset + i] - bzero) / bscale;
+			buffer.setRow(x, y, width, buffer_values, 0);
+		}
+		version++;
 	}
 
 	/**
@@ -494,6 +743,7 @@ public class MonoImage implements ImageContent, Statisticable {
 		}
 
 		buffer.read(input, size);
+		version++;
 	}
 
 	/**
@@ -511,6 +761,22 @@ public class MonoImage implements ImageContent, Statisticable {
 		buffer.write(output);
 	}
 
+	/**
+	 * Copies the pixel values into the heap if they are mapped from
+	 * the specified file. This must be invoked before the file is
+	 * overwritten.
+	 * @param file the file to be overwritten.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void detachMapping ( File file )
+		throws IOException
+	{
+		if (buffer instanceof MappedBuffer) {
+			if (((MappedBuffer)buffer).isMappedFrom(file))
+				((MappedBuffer)buffer).detach();
+		}
+	}
+
 	/**
 	 * Creates an <code>java.awt.Image</code> from the image buffer.
 	 * The range of pixel values is expanded so that the minimum value
@@ -535,10 +801,12 @@ public class MonoImage implements ImageContent, Statisticable {
 	public Image getImage ( double minimum, double maximum ) {
 		Size size = buffer.getSize();
 		int pixels[] = new int[size.getWidth() * size.getHeight()];
+		double[] values = new double[size.getWidth()];
 		int ptr = 0;
 		for (int y = 0 ; y < size.getHeight() ; y++) {
+			getRow(y, values);
 			for (int x = 0 ; x < size.getWidth() ; x++) {
-				int value = (int)((getValue(x, y) - minimum) / (maximum - minimum) * 256);
+				int value = (int)((values[x] - minimum) / (maximum - minimum) * 256);
 				if (value < 0)
 					value = 0;
 				if (value > 255)
@@ -556,6 +824,7 @@ public class MonoImage implements ImageContent, Statisticable {
 	 */
 	public void inverse ( ) {
 		buffer.inverse();
+		version++;
 	}
 
 	/**
@@ -563,6 +832,7 @@ public class MonoImage implements ImageContent, Statisticable {
 	 */
 	public void reverseVertically ( ) {
 		buffer.reverseVertically();
+		version++;
 	}
 
 	/**
@@ -570,6 +840,7 @@ public class MonoImage implements ImageContent, Statisticable {
 	 */
 	public void reverseHorizontally ( ) {
 		buffer.reverseHorizontally();
+		version++;
 	}
 
 	/**
@@ -581,10 +852,14 @@ public class MonoImage implements ImageContent, Statisticable {
 	public void subtract ( MonoImage image )
 		throws IndexOutOfBoundsException
 	{
+		double[] values = new double[getSize().getWidth()];
+		double[] values2 = new double[getSize().getWidth()];
 		for (int y = 0 ; y < getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < getSize().getWidth() ; x++) {
-				setValue(x, y, getValue(x, y) - image.getValue(x, y));
-			}
+			getRow(y, values);
+			image.getRow(0, y, getSize().getWidth(), values2, 0);
+			for (int x = 0 ; x < getSize().getWidth() ; x++)
+				values[x] -= values2[x];
+			setRow(y, values);
 		}
 	}
 
@@ -623,6 +898,24 @@ public class MonoImage implements ImageContent, Statisticable {
 			new_image = new MonoImage(new IntBuffer(new_size));
 		if (buffer instanceof FloatBuffer)
 			new_image = new MonoImage(new FloatBuffer(new_size));
+		if (buffer instanceof DoubleBuffer)
+			new_image = new MonoImage(new DoubleBuffer(new_size));
+		if (buffer instanceof MappedBuffer) {
+			switch (((MappedBuffer)buffer).getBufferType()) {
+				case TYPE_BYTE:
+					new_image = new MonoImage(new ByteBuffer(new_size));
+					break;
+				case TYPE_SHORT:
+					new_image = new MonoImage(new ShortBuffer(new_size));
+					break;
+				case TYPE_INT:
+					new_image = new MonoImage(new IntBuffer(new_size));
+					break;
+				case TYPE_FLOAT:
+					new_image = new MonoImage(new FloatBuffer(new_size));
+					break;
+			}
+		}
 
 		if (new_image != null) {
 			new_image.bzero = bzero;
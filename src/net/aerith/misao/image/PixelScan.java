@@ -0,0 +1,394 @@
+/*
+ * @(#)PixelScan.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.image;
+import java.util.*;
+import net.aerith.misao.util.*;
+
+/**
+ * The <code>PixelScan</code> is a class to calculate the statistics
+ * and the histogram of all pixels of a <code>MonoImage</code>.
+ * <p>
+ * The minimum, maximum, average, standard deviation and histogram are
+ * calculated together in one pass over the rows of the image buffer.
+ * The image is divided into parts of the fixed number of pixels, which
+ * are scanned in parallel, and the results of the parts are reduced
+ * in order, so the result does not depend on the number of threads.
+ * <p>
+ * The results are cached for each image, while the version of the
+ * image is not changed. So the repeated level adjustments and redraws
+ * of the histogram of the same image do not scan the pixels again.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PixelScan {
+	/**
+	 * The number of pixels of a part to scan in parallel.
+	 */
+	private final static int PART_SIZE = 65536;
+
+	/**
+	 * The maximum number of results cached for an image.
+	 */
+	private final static int CACHE_LIMIT = 32;
+
+	/**
+	 * The table of caches, whose key is the image.
+	 */
+	private static WeakHashMap caches = new WeakHashMap();
+
+	/**
+	 * Calculates the statistics of pixel values between the specified
+	 * limits, as same as <code>Statistics</code>. The returned array
+	 * consists of the number of pixels, the minimum value, the
+	 * maximum value, the average and the standard deviation.
+	 * @param image         the image.
+	 * @param minimum_limit the minimum limit of value, or null.
+	 * @param maximum_limit the maximum limit of value, or null.
+	 * @return the array of the statistics.
+	 */
+	public static double[] calculateStatistics ( MonoImage image, Double minimum_limit, Double maximum_limit ) {
+		String key = "statistics," + minimum_limit + "," + maximum_limit;
+		double[] statistics = (double[])getCachedObject(image, key);
+		if (statistics == null) {
+			long version = image.getVersion();
+			Part part = scan(image, minimum_limit, maximum_limit, 0.0, 0.0, 0);
+			statistics = part.getStatistics();
+			putCachedObject(image, version, key, statistics);
+		}
+		return (double[])statistics.clone();
+	}
+
+	/**
+	 * Calculates the histogram of pixel values, as same as
+	 * <code>Histogram</code>. The statistics of all pixels are also
+	 * calculated at the same time and cached.
+	 * @param image          the image.
+	 * @param minimum_value  the minimum value of the histogram range.
+	 * @param maximum_value  the maximum value of the histogram range.
+	 * @param division_count the division_count;
+	 * @return the array of the histogram.
+	 */
+	public static int[] calculateHistogram ( MonoImage image, double minimum_value, double maximum_value, int division_count ) {
+		String key = "histogram," + minimum_value + "," + maximum_value + "," + division_count;
+		int[] histogram = (int[])getCachedObject(image, key);
+		if (histogram == null) {
+			long version = image.getVersion();
+			Part part = scan(image, null, null, minimum_value, maximum_value, division_count);
+			histogram = part.histogram;
+			putCachedObject(image, version, key, histogram);
+			putCachedObject(image, version, "statistics,null,null", part.getStatistics());
+		}
+		return (int[])histogram.clone();
+	}
+
+	/**
+	 * Gets the object cached for the specified image with the
+	 * specified key. When the image is changed after the object is
+	 * cached, it returns null.
+	 * @param image the image.
+	 * @param key   the key.
+	 * @return the cached object, or null.
+	 */
+	public static synchronized Object getCachedObject ( MonoImage image, String key ) {
+		Cache cache = (Cache)caches.get(image);
+		if (cache == null  ||  cache.version != image.getVersion())
+			return null;
+		return cache.objects.get(key);
+	}
+
+	/**
+	 * Caches the specified object for the specified image with the
+	 * specified key.
+	 * @param image   the image.
+	 * @param version the version of the image when the object was
+	 * calculated.
+	 * @param key     the key.
+	 * @param object  the object.
+	 */
+	public static synchronized void putCachedObject ( MonoImage image, long version, String key, Object object ) {
+		// The image changed during the calculation is not cached.
+		if (version != image.getVersion())
+			return;
+
+		Cache cache = (Cache)caches.get(image);
+		if (cache == null  ||  cache.version != version) {
+			cache = new Cache(version);
+			caches.put(image, cache);
+		}
+		if (cache.objects.size() >= CACHE_LIMIT)
+			cache.objects.clear();
+		cache.objects.put(key, object);
+	}
+
+	/**
+	 * Scans all pixels of the image in parallel.
+	 * @param image          the image.
+	 * @param minimum_limit  the minimum limit of value, or null.
+	 * @param maximum_limit  the maximum limit of value, or null.
+	 * @param minimum_value  the minimum value of the histogram range.
+	 * @param maximum_value  the maximum value of the histogram range.
+	 * @param division_count the division_count, or 0 when the
+	 * histogram is not required.
+	 * @return the result.
+	 */
+	private static Part scan ( final MonoImage image, final Double minimum_limit, final Double maximum_limit, final double minimum_value, final double maximum_value, final int division_count ) {
+		final int width = image.getSize().getWidth();
+		int height = image.getSize().getHeight();
+		int total = width * height;
+
+		final int[] bounds = ParallelExecutor.divide(total, (total + PART_SIZE - 1) / PART_SIZE);
+		final Part[] parts = new Part[bounds.length - 1];
+		ParallelExecutor.execute(parts.length, new ParallelOperation() {
+			public void operate ( int index ) {
+				Part part = new Part(minimum_limit, maximum_limit, minimum_value, maximum_value, division_count);
+
+				double[] values = new double[Math.min(width, bounds[index+1] - bounds[index])];
+				int position = bounds[index];
+				while (position < bounds[index+1]) {
+					int y = position / width;
+					int x = position - y * width;
+					int length = Math.min(width - x, bounds[index+1] - position);
+					image.getRow(x, y, length, values, 0);
+					part.add(values, length);
+					position += length;
+				}
+
+				parts[index] = part;
+			}
+		});
+
+		Part result = new Part(minimum_limit, maximum_limit, minimum_value, maximum_value, division_count);
+		for (int i = 0 ; i < parts.length ; i++)
+			result.merge(parts[i]);
+		return result;
+	}
+
+	/**
+	 * The <code>Part</code> represents the statistics and the
+	 * histogram of a part of the image.
+	 */
+	private static class Part {
+		/**
+		 * The minimum limit of value, or null.
+		 */
+		private Double minimum_limit;
+
+		/**
+		 * The maximum limit of value, or null.
+		 */
+		private Double maximum_limit;
+
+		/**
+		 * The minimum value of the histogram range.
+		 */
+		private double minimum_value;
+
+		/**
+		 * The size of a block of the histogram.
+		 */
+		private double block_size;
+
+		/**
+		 * The division count of the histogram.
+		 */
+		private int division_count;
+
+		/**
+		 * The number of pixels.
+		 */
+		private long count = 0;
+
+		/**
+		 * The minimum value.
+		 */
+		private double minimum = 0.0;
+
+		/**
+		 * The maximum value.
+		 */
+		private double maximum = 0.0;
+
+		/**
+		 * The average.
+		 */
+		private double average = 0.0;
+
+		/**
+		 * The sum of squares of differences from the average.
+		 */
+		private double m2 = 0.0;
+
+		/**
+		 * The histogram, or null.
+		 */
+		private int[] histogram = null;
+
+		/**
+		 * Constructs an empty <code>Part</code>.
+		 * @param minimum_limit  the minimum limit of value, or null.
+		 * @param maximum_limit  the maximum limit of value, or null.
+		 * @param minimum_value  the minimum value of the histogram range.
+		 * @param maximum_value  the maximum value of the histogram range.
+		 * @param division_count the division_count, or 0.
+		 */
+		private Part ( Double minimum_limit, Double maximum_limit, double minimum_value, double maximum_value, int division_count ) {
+			this.minimum_limit = minimum_limit;
+			this.maximum_limit = maximum_limit;
+			this.minimum_value = minimum_value;
+			this.block_size = (maximum_value - minimum_value) / (double)division_count;
+			this.division_count = division_count;
+
+			if (division_count > 0)
+				histogram = new int[division_count + 2];
+		}
+
+		/**
+		 * Adds the pixel values.
+		 * @param values the array of pixel values.
+		 * @param length the number of pixel values.
+		 */
+		private void add ( double[] values, int length ) {
+			double lower = (minimum_limit != null) ? minimum_limit.doubleValue() : Double.NEGATIVE_INFINITY;
+			double upper = (maximum_limit != null) ? maximum_limit.doubleValue() : Double.POSITIVE_INFINITY;
+
+			// The sums are accumulated from the first value, in order
+			// to avoid the loss of digits.
+			int n = 0;
+			double shift = 0.0;
+			double sum = 0.0;
+			double sum2 = 0.0;
+			double min = 0.0;
+			double max = 0.0;
+			for (int i = 0 ; i < length ; i++) {
+				double value = values[i];
+
+				if (histogram != null) {
+					int index = (int)((value - minimum_value) / block_size);
+					if (index < 0)
+						index = -1;
+					if (index >= division_count)
+						index = division_count;
+					histogram[index+1]++;
+				}
+
+				if (lower > value  ||  upper < value)
+					continue;
+
+				if (n == 0) {
+					shift = value;
+					min = value;
+					max = value;
+				} else {
+					if (min > value)
+						min = value;
+					if (max < value)
+						max = value;
+				}
+				double d = value - shift;
+				sum += d;
+				sum2 += d * d;
+				n++;
+			}
+
+			if (n > 0) {
+				Part part = new Part(null, null, 0.0, 0.0, 0);
+				part.count = n;
+				part.minimum = min;
+				part.maximum = max;
+				part.average = shift + sum / (double)n;
+				part.m2 = Math.max(0.0, sum2 - sum * sum / (double)n);
+				mergeStatistics(part);
+			}
+		}
+
+		/**
+		 * Merges the result of another part.
+		 * @param part the another part.
+		 */
+		private void merge ( Part part ) {
+			mergeStatistics(part);
+
+			if (histogram != null) {
+				for (int i = 0 ; i < histogram.length ; i++)
+					histogram[i] += part.histogram[i];
+			}
+		}
+
+		/**
+		 * Merges the statistics of another part.
+		 * @param part the another part.
+		 */
+		private void mergeStatistics ( Part part ) {
+			if (part.count == 0)
+				return;
+
+			if (count == 0) {
+				count = part.count;
+				minimum = part.minimum;
+				maximum = part.maximum;
+				average = part.average;
+				m2 = part.m2;
+				return;
+			}
+
+			if (minimum > part.minimum)
+				minimum = part.minimum;
+			if (maximum < part.maximum)
+				maximum = part.maximum;
+
+			long n = count + part.count;
+			double delta = part.average - average;
+			average += delta * (double)part.count / (double)n;
+			m2 += part.m2 + delta * delta * (double)count * (double)part.count / (double)n;
+			count = n;
+		}
+
+		/**
+		 * Gets the array of the number of pixels, the minimum value,
+		 * the maximum value, the average and the standard deviation.
+		 * @return the array of the statistics.
+		 */
+		private double[] getStatistics ( ) {
+			double[] statistics = new double[5];
+			statistics[0] = (double)count;
+			if (count > 0) {
+				statistics[1] = minimum;
+				statistics[2] = maximum;
+				statistics[3] = average;
+				statistics[4] = Math.sqrt(m2 / (double)count);
+			}
+			return statistics;
+		}
+	}
+
+	/**
+	 * The <code>Cache</code> represents the objects cached for an
+	 * image of a version.
+	 */
+	private static class Cache {
+		/**
+		 * The version of the image.
+		 */
+		private long version;
+
+		/**
+		 * The table of cached objects.
+		 */
+		private Hashtable objects = new Hashtable();
+
+		/**
+		 * Constructs a <code>Cache</code>.
+		 * @param version the version of the image.
+		 */
+		private Cache ( long version ) {
+			this.version = version;
+		}
+	}
+}
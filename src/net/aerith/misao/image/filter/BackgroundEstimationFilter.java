@@ -13,68 +13,122 @@ import net.aerith.misao.image.*;
  * The <code>BackgroundEstimationFilter</code> is an image processing
  * filter to create the background image. The result is stored in the
  * new image.
+ * <p>
+ * The sky value and the RMS noise are estimated on a coarse mesh by
+ * the <code>BackgroundMesh</code>, and interpolated into the images
+ * of the original size. The RMS image is available after the
+ * operation by <tt>getRmsImage</tt>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class BackgroundEstimationFilter extends Filter {
+	/**
+	 * The size of a cell of the mesh.
+	 */
+	protected int mesh_size = 64;
+
+	/**
+	 * The mesh of the sky estimated by the operation.
+	 */
+	protected BackgroundMesh mesh = null;
+
+	/**
+	 * The width of the band along the edge where the sky image is
+	 * estimated by the median filter again.
+	 */
+	protected final static int EDGE_WIDTH = 8;
+
 	/**
 	 * Constructs a filter.
 	 */
 	public BackgroundEstimationFilter ( ) {
 	}
 
+	/**
+	 * Sets the size of a cell of the mesh to estimate the sky.
+	 * @param size the size of a cell.
+	 */
+	public void setMeshSize ( int size ) {
+		mesh_size = size;
+	}
+
+	/**
+	 * Gets the RMS image, the noise of the sky at each pixel. It is
+	 * created from the mesh estimated by the operation, so it is only
+	 * available after the operation.
+	 * @return the RMS image.
+	 */
+	public MonoImage getRmsImage ( ) {
+		if (mesh == null)
+			return null;
+		return mesh.createRmsImage();
+	}
+
 	/**
 	 * Operates the image processing filter and creates the new image
 	 * buffer.
 	 * @param image the original image to process.
 	 * @return the new image buffer.
 	 */
-	public MonoImage operate ( MonoImage image ) {
-		// Creates sky field as a result of median filter.
-		MonoImage sky_image = new RescaleFilter(new Size(image.getSize().getWidth() / 8, image.getSize().getHeight() / 8)).operate(image);
-		new MedianFilter(5).operate(sky_image);
-		sky_image = new RescaleFilter(image.getSize()).operate(sky_image);
-		new SmoothFilter(16).operate(sky_image);
+	public MonoImage operate ( final MonoImage image ) {
+		// Creates sky field interpolated between the sigma-clipped 
+		// modes on the mesh.
+		mesh = new BackgroundMesh(image);
+		mesh.setMeshSize(mesh_size);
+		mesh.calculate();
+		final MonoImage sky_image = mesh.createSkyImage();
 
 		// Because of the following two reasons, many noises can be easily
 		// detected at the edge of images.
-		//   1. The image size reduction, median filter and smoothing filter
-		//      algorithms tend to estimate the sky image around the edge
-		//      much closer to the value at the inner pixles.
+		//   1. The mesh algorithm tends to estimate the sky image around
+		//      the edge much closer to the value at the inner pixles.
 		//   2. Some CCD images tend to be brighter within a several pixels 
 		//      from the edge.
 		// In order to avoid the noises, the sky images around the edge
-		// are estimated by 8x8 median filter again.
-		MedianFilter filter = new MedianFilter(8);
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (y < 8  ||  y >= image.getSize().getHeight() - 8  ||  
-					x < 8  ||  x >= image.getSize().getWidth() - 8) {
-					int pixels_from_edge = 99;
-					if (x < 8) {
-						if (pixels_from_edge > x)
-							pixels_from_edge = x;
-					}
-					if (x >= image.getSize().getWidth() - 8) {
-						if (pixels_from_edge > image.getSize().getWidth() - x - 1)
-							pixels_from_edge = image.getSize().getWidth() - x - 1;
-					}
-					if (y < 8) {
-						if (pixels_from_edge > y)
-							pixels_from_edge = y;
-					}
-					if (y >= image.getSize().getHeight() - 8) {
-						if (pixels_from_edge > image.getSize().getHeight() - y - 1)
-							pixels_from_edge = image.getSize().getHeight() - y - 1;
+		// are estimated by 8x8 median filter again. The rows are operated
+		// in parallel.
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+		final int[] bounds = ParallelExecutor.divide(height, ParallelExecutor.getPartCount(height, 64));
+		ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				int half = EDGE_WIDTH / 2;
+				int window = half * 2 + 1;
+				double[] tile = new double[window * window];
+				double[] row = new double[width];
+
+				for (int y = bounds[index] ; y < bounds[index+1] ; y++) {
+					boolean edge_row = (y < EDGE_WIDTH  ||  y >= height - EDGE_WIDTH);
+					sky_image.getRow(y, row);
+
+					for (int x = 0 ; x < width ; x++) {
+						if (edge_row == false  &&  x == EDGE_WIDTH  &&  width - EDGE_WIDTH > x)
+							x = width - EDGE_WIDTH;
+
+						int pixels_from_edge = 99;
+						if (x < EDGE_WIDTH)
+							pixels_from_edge = Math.min(pixels_from_edge, x);
+						if (x >= width - EDGE_WIDTH)
+							pixels_from_edge = Math.min(pixels_from_edge, width - x - 1);
+						if (y < EDGE_WIDTH)
+							pixels_from_edge = Math.min(pixels_from_edge, y);
+						if (y >= height - EDGE_WIDTH)
+							pixels_from_edge = Math.min(pixels_from_edge, height - y - 1);
+						if (pixels_from_edge >= EDGE_WIDTH)
+							continue;
+
+						image.getTileOnFlatExtension(x - half, y - half, window, window, tile);
+						double value1 = DoubleArrays.select(tile, 0, tile.length, tile.length / 2);
+						double value2 = row[x];
+						row[x] = value1 * ((double)EDGE_WIDTH - (double)pixels_from_edge) / (double)EDGE_WIDTH + value2 * (double)pixels_from_edge / (double)EDGE_WIDTH;
 					}
-					double value1 = filter.getFilteredValue(image, x, y);
-					double value2 = sky_image.getValue(x, y);
-					sky_image.setValue(x, y, value1 * (8.0 - (double)pixels_from_edge) / 8.0 + value2 * (double)pixels_from_edge / 8.0);
+
+					sky_image.setRow(y, row);
 				}
 			}
-		}
+		});
 
 		return sky_image;
 	}
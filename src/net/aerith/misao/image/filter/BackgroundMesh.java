@@ -0,0 +1,434 @@
+/*
+ * @(#)BackgroundMesh.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.image.filter;
+import net.aerith.misao.util.*;
+import net.aerith.misao.image.*;
+
+/**
+ * The <code>BackgroundMesh</code> is a class to estimate the sky
+ * background and its RMS noise of an image on a coarse mesh.
+ * <p>
+ * The image is divided into cells of about the specified mesh size.
+ * The pixel values in each cell are clipped iteratively at the
+ * specified sigma around the median, and the mode of the remaining
+ * pixels is estimated as <tt>2.5 * median - 1.5 * mean</tt>, or the
+ * median when the distribution is much skewed by stars. The standard
+ * deviation of the remaining pixels is the RMS noise of the cell.
+ * The cells are operated in parallel.
+ * <p>
+ * The values of the cells are filtered by a median filter on the
+ * mesh to reject the cells contaminated by bright objects, and the
+ * sky image and the RMS image are interpolated with the natural
+ * bicubic spline between the centers of the cells.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class BackgroundMesh {
+	/**
+	 * The image.
+	 */
+	protected MonoImage image;
+
+	/**
+	 * The size of a cell of the mesh.
+	 */
+	protected int mesh_size = 64;
+
+	/**
+	 * The size of the median filter on the mesh.
+	 */
+	protected int filter_size = 3;
+
+	/**
+	 * The sigma to clip the pixel values in a cell.
+	 */
+	protected double clipping_sigma = 3.0;
+
+	/**
+	 * The maximum number of iterations of clipping.
+	 */
+	protected final static int MAX_ITERATION = 10;
+
+	/**
+	 * The number of cells in the x direction.
+	 */
+	protected int columns = 0;
+
+	/**
+	 * The number of cells in the y direction.
+	 */
+	protected int rows = 0;
+
+	/**
+	 * The boundaries of cells in the x direction.
+	 */
+	protected int[] x_bounds = null;
+
+	/**
+	 * The boundaries of cells in the y direction.
+	 */
+	protected int[] y_bounds = null;
+
+	/**
+	 * The sky value of each cell. The value of the cell at (i, j) is
+	 * stored at <tt>j * columns + i</tt>.
+	 */
+	protected double[] sky_values = null;
+
+	/**
+	 * The RMS noise of each cell.
+	 */
+	protected double[] rms_values = null;
+
+	/**
+	 * Constructs a <code>BackgroundMesh</code> of the specified image.
+	 * @param image the image.
+	 */
+	public BackgroundMesh ( MonoImage image ) {
+		this.image = image;
+	}
+
+	/**
+	 * Sets the size of a cell of the mesh.
+	 * @param size the size of a cell.
+	 */
+	public void setMeshSize ( int size ) {
+		mesh_size = (size < 1) ? 1 : size;
+	}
+
+	/**
+	 * Sets the size of the median filter on the mesh. When 1 is
+	 * specified, the cells are not filtered.
+	 * @param size the size of the median filter.
+	 */
+	public void setFilterSize ( int size ) {
+		filter_size = (size < 1) ? 1 : size;
+	}
+
+	/**
+	 * Sets the sigma to clip the pixel values in a cell.
+	 * @param sigma the sigma to clip.
+	 */
+	public void setClippingSigma ( double sigma ) {
+		clipping_sigma = sigma;
+	}
+
+	/**
+	 * Gets the number of cells in the x direction.
+	 * @return the number of cells in the x direction.
+	 */
+	public int getColumnCount ( ) {
+		return columns;
+	}
+
+	/**
+	 * Gets the number of cells in the y direction.
+	 * @return the number of cells in the y direction.
+	 */
+	public int getRowCount ( ) {
+		return rows;
+	}
+
+	/**
+	 * Gets the sky value of the specified cell.
+	 * @param i the x index of the cell.
+	 * @param j the y index of the cell.
+	 * @return the sky value.
+	 */
+	public double getSkyValue ( int i, int j ) {
+		return sky_values[j * columns + i];
+	}
+
+	/**
+	 * Gets the RMS noise of the specified cell.
+	 * @param i the x index of the cell.
+	 * @param j the y index of the cell.
+	 * @return the RMS noise.
+	 */
+	public double getRmsValue ( int i, int j ) {
+		return rms_values[j * columns + i];
+	}
+
+	/**
+	 * Calculates the sky value and the RMS noise of all cells.
+	 */
+	public void calculate ( ) {
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+
+		columns = Math.max(1, (width + mesh_size / 2) / mesh_size);
+		rows = Math.max(1, (height + mesh_size / 2) / mesh_size);
+		x_bounds = ParallelExecutor.divide(width, columns);
+		y_bounds = ParallelExecutor.divide(height, rows);
+
+		sky_values = new double[columns * rows];
+		rms_values = new double[columns * rows];
+
+		final int[] bounds = ParallelExecutor.divide(rows, ParallelExecutor.getPartCount(rows, 1));
+		ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				double[] row = new double[width];
+				int[] counts = new int[columns];
+				double[][] cells = new double[columns][];
+				for (int i = 0 ; i < columns ; i++)
+					cells[i] = new double[(x_bounds[i+1] - x_bounds[i]) * (y_bounds[1] - y_bounds[0] + 1)];
+
+				for (int j = bounds[index] ; j < bounds[index+1] ; j++) {
+					// Reads the pixels of a row of cells at once.
+					for (int i = 0 ; i < columns ; i++)
+						counts[i] = 0;
+					for (int y = y_bounds[j] ; y < y_bounds[j+1] ; y++) {
+						image.getRow(y, row);
+						for (int i = 0 ; i < columns ; i++) {
+							int length = x_bounds[i+1] - x_bounds[i];
+							System.arraycopy(row, x_bounds[i], cells[i], counts[i], length);
+							counts[i] += length;
+						}
+					}
+
+					double[] result = new double[2];
+					for (int i = 0 ; i < columns ; i++) {
+						calculateCell(cells[i], counts[i], result);
+						sky_values[j * columns + i] = result[0];
+						rms_values[j * columns + i] = result[1];
+					}
+				}
+			}
+		});
+
+		if (filter_size > 1) {
+			sky_values = filterMesh(sky_values);
+			rms_values = filterMesh(rms_values);
+		}
+	}
+
+	/**
+	 * Calculates the sky value and the RMS noise of a cell. The order
+	 * of the values in the array is changed by the operation.
+	 * @param values the pixel values in the cell.
+	 * @param count  the number of pixels.
+	 * @param result the array to store the sky value and the RMS
+	 * noise.
+	 */
+	protected void calculateCell ( double[] values, int count, double[] result ) {
+		// Clips the pixels around the median until no pixel is
+		// rejected. The remaining pixels are always moved to the head
+		// of the array, so they are not sorted.
+		int n = count;
+		double mean = 0.0;
+		double sigma = 0.0;
+		double median = 0.0;
+		for (int iteration = 0 ; iteration < MAX_ITERATION  &&  n > 0 ; iteration++) {
+			double sum = 0.0;
+			for (int k = 0 ; k < n ; k++)
+				sum += values[k];
+			mean = sum / (double)n;
+			double sum2 = 0.0;
+			for (int k = 0 ; k < n ; k++)
+				sum2 += (values[k] - mean) * (values[k] - mean);
+			sigma = Math.sqrt(sum2 / (double)n);
+			median = DoubleArrays.median(values, 0, n);
+
+			double lower = median - sigma * clipping_sigma;
+			double upper = median + sigma * clipping_sigma;
+			int new_n = 0;
+			for (int k = 0 ; k < n ; k++) {
+				if (lower <= values[k]  &&  values[k] <= upper)
+					values[new_n++] = values[k];
+			}
+
+			if (new_n == n  ||  new_n == 0)
+				break;
+			n = new_n;
+		}
+
+		// The mode is estimated from the median and the mean, unless
+		// the distribution is much skewed by stars.
+		if (sigma > 0.0  &&  (mean - median) / sigma < 0.3)
+			result[0] = 2.5 * median - 1.5 * mean;
+		else
+			result[0] = median;
+		result[1] = sigma;
+	}
+
+	/**
+	 * Operates the median filter on the mesh. Out of the mesh, the
+	 * values are reflected oddly around the cell, so that the cells
+	 * along the edge are not biased by the gradient of the sky.
+	 * @param mesh the values of cells.
+	 * @return the filtered values of cells.
+	 */
+	protected double[] filterMesh ( double[] mesh ) {
+		int half = filter_size / 2;
+		double[] filtered = new double[mesh.length];
+		double[] window = new double[(half * 2 + 1) * (half * 2 + 1)];
+		for (int j = 0 ; j < rows ; j++) {
+			for (int i = 0 ; i < columns ; i++) {
+				int count = 0;
+				for (int jj = j - half ; jj <= j + half ; jj++) {
+					boolean y_inside = (0 <= jj  &&  jj < rows);
+					int cj = y_inside ? jj : j;
+					int rj = y_inside ? jj : Math.max(0, Math.min(rows - 1, 2 * j - jj));
+					for (int ii = i - half ; ii <= i + half ; ii++) {
+						boolean x_inside = (0 <= ii  &&  ii < columns);
+						if (x_inside  &&  y_inside) {
+							window[count++] = mesh[jj * columns + ii];
+						} else {
+							int ci = x_inside ? ii : i;
+							int ri = x_inside ? ii : Math.max(0, Math.min(columns - 1, 2 * i - ii));
+							window[count++] = 2.0 * mesh[cj * columns + ci] - mesh[rj * columns + ri];
+						}
+					}
+				}
+				filtered[j * columns + i] = DoubleArrays.median(window, 0, count);
+			}
+		}
+		return filtered;
+	}
+
+	/**
+	 * Creates the sky image interpolated between the centers of the
+	 * cells.
+	 * @return the sky image.
+	 */
+	public MonoImage createSkyImage ( ) {
+		return createImage(sky_values);
+	}
+
+	/**
+	 * Creates the RMS image interpolated between the centers of the
+	 * cells.
+	 * @return the RMS image.
+	 */
+	public MonoImage createRmsImage ( ) {
+		return createImage(rms_values);
+	}
+
+	/**
+	 * Creates the image interpolated with the natural bicubic spline
+	 * between the centers of the cells. Out of the centers of the
+	 * outermost cells, the values are extrapolated linearly. The
+	 * rows of the image are interpolated in parallel.
+	 * @param mesh the values of cells.
+	 * @return the image.
+	 */
+	protected MonoImage createImage ( final double[] mesh ) {
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+		final MonoImage new_image = new MonoImage(new FloatBuffer(image.getSize()));
+
+		final double[] x_centers = new double[columns];
+		for (int i = 0 ; i < columns ; i++)
+			x_centers[i] = (double)(x_bounds[i] + x_bounds[i+1] - 1) / 2.0;
+		final double[] y_centers = new double[rows];
+		for (int j = 0 ; j < rows ; j++)
+			y_centers[j] = (double)(y_bounds[j] + y_bounds[j+1] - 1) / 2.0;
+
+		// The splines in the y direction of each column of cells.
+		final double[][] column_values = new double[columns][rows];
+		final double[][] column_d2 = new double[columns][rows];
+		for (int i = 0 ; i < columns ; i++) {
+			for (int j = 0 ; j < rows ; j++)
+				column_values[i][j] = mesh[j * columns + i];
+			calculateSecondDerivatives(y_centers, column_values[i], column_d2[i]);
+		}
+
+		final int[] bounds = ParallelExecutor.divide(height, ParallelExecutor.getPartCount(height, 64));
+		ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				double[] node_values = new double[columns];
+				double[] node_d2 = new double[columns];
+				double[] row = new double[width];
+
+				for (int y = bounds[index] ; y < bounds[index+1] ; y++) {
+					for (int i = 0 ; i < columns ; i++)
+						node_values[i] = interpolate(y_centers, column_values[i], column_d2[i], 0, (double)y);
+					calculateSecondDerivatives(x_centers, node_values, node_d2);
+
+					int segment = 0;
+					for (int x = 0 ; x < width ; x++) {
+						while (segment < columns - 2  &&  (double)x > x_centers[segment + 1])
+							segment++;
+						row[x] = interpolate(x_centers, node_values, node_d2, segment, (double)x);
+					}
+					new_image.setRow(y, row);
+				}
+			}
+		});
+
+		return new_image;
+	}
+
+	/**
+	 * Calculates the second derivatives of the natural cubic spline
+	 * through the specified nodes.
+	 * @param positions the positions of the nodes.
+	 * @param values    the values at the nodes.
+	 * @param d2        the array to store the second derivatives.
+	 */
+	private static void calculateSecondDerivatives ( double[] positions, double[] values, double[] d2 ) {
+		int n = positions.length;
+		d2[0] = 0.0;
+		d2[n - 1] = 0.0;
+		if (n < 3)
+			return;
+
+		// Solves the tridiagonal equations.
+		double[] u = new double[n];
+		u[0] = 0.0;
+		for (int i = 1 ; i < n - 1 ; i++) {
+			double h0 = positions[i] - positions[i-1];
+			double h1 = positions[i+1] - positions[i];
+			double s = h0 / (h0 + h1);
+			double p = s * d2[i-1] + 2.0;
+			d2[i] = (s - 1.0) / p;
+			u[i] = (values[i+1] - values[i]) / h1 - (values[i] - values[i-1]) / h0;
+			u[i] = (6.0 * u[i] / (h0 + h1) - s * u[i-1]) / p;
+		}
+		for (int i = n - 2 ; i >= 1 ; i--)
+			d2[i] = d2[i] * d2[i+1] + u[i];
+	}
+
+	/**
+	 * Gets the value of the natural cubic spline at the specified
+	 * position. Out of the nodes, the value is extrapolated linearly.
+	 * @param positions the positions of the nodes.
+	 * @param values    the values at the nodes.
+	 * @param d2        the second derivatives at the nodes.
+	 * @param segment   the index of the segment to start searching.
+	 * @param x         the position.
+	 * @return the value.
+	 */
+	private static double interpolate ( double[] positions, double[] values, double[] d2, int segment, double x ) {
+		int n = positions.length;
+		if (n == 1)
+			return values[0];
+
+		if (x <= positions[0]) {
+			double h = positions[1] - positions[0];
+			double slope = (values[1] - values[0]) / h - h * (2.0 * d2[0] + d2[1]) / 6.0;
+			return values[0] + slope * (x - positions[0]);
+		}
+		if (x >= positions[n - 1]) {
+			double h = positions[n - 1] - positions[n - 2];
+			double slope = (values[n - 1] - values[n - 2]) / h + h * (d2[n - 2] + 2.0 * d2[n - 1]) / 6.0;
+			return values[n - 1] + slope * (x - positions[n - 1]);
+		}
+
+		int k = segment;
+		while (k < n - 2  &&  x > positions[k + 1])
+			k++;
+
+		double h = positions[k + 1] - positions[k];
+		double a = (positions[k + 1] - x) / h;
+		double b = (x - positions[k]) / h;
+		return a * values[k] + b * values[k + 1] + ((a * a * a - a) * d2[k] + (b * b * b - b) * d2[k + 1]) * h * h / 6.0;
+	}
+}
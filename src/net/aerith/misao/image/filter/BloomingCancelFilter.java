@@ -32,7 +32,7 @@ import net.aerith.misao.pixy.star_detection.AdjoiningPixelDetector;
  *     two stars must not be blended.
  * </ul>
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class BloomingCancelFilter extends Filter {
@@ -303,8 +303,7 @@ public class BloomingCancelFilter extends Filter {
 		monitor_set.addMessage("Influenced direction: " + directions[blooming_direction]);
 
 		// Detects blooming stars as AdjoiningPixel objects.
-		MonoImage tmp_image = blooming_flag_image.cloneImage();
-		AdjoiningPixelDetector ap_detector = new AdjoiningPixelDetector(tmp_image);
+		AdjoiningPixelDetector ap_detector = new AdjoiningPixelDetector(blooming_flag_image);
 		ap_detector.setThreshold(0.5);
 		ap_detector.setMinimumPeakValue(0.5);
 		try {
@@ -313,7 +312,6 @@ public class BloomingCancelFilter extends Filter {
 			return image;
 		}
 		Vector ap_list = ap_detector.getAdjoiningPixelList();
-		tmp_image = null;
 		monitor_set.addMessage("Number of blooming stars: " + ap_list.size());
 
 		// Removes tiny blooming.
@@ -891,7 +889,7 @@ public class BloomingCancelFilter extends Filter {
 
 		// Operates local smooth filter around the center of
 		// the blooming star.
-		tmp_image = image.cloneImage();
+		MonoImage tmp_image = image.cloneImage();
 		for (int i = 0 ; i < blooming_stars.length ; i++) {
 			double fx = blooming_stars[i].center.getX();
 			double fy = blooming_stars[i].center.getY();
@@ -14,7 +14,7 @@ import net.aerith.misao.image.*;
  * equalize the image. The result is stored in the original image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class EqualizeFilter extends Filter {
@@ -62,8 +62,7 @@ public class EqualizeFilter extends Filter {
 			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
 				array.set(x, image.getValue(x, y));
 			}
-			array.sortAscendant();
-			double median = array.getValueAt(image.getSize().getWidth() / 2);
+			double median = array.select(image.getSize().getWidth() / 2);
 			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
 				image.setValue(x, y, image.getValue(x, y) - median);
 			}
@@ -74,8 +73,7 @@ public class EqualizeFilter extends Filter {
 			for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
 				array.set(y, image.getValue(x, y));
 			}
-			array.sortAscendant();
-			double median = array.getValueAt(image.getSize().getHeight() / 2);
+			double median = array.select(image.getSize().getHeight() / 2);
 			for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
 				image.setValue(x, y, image.getValue(x, y) - median);
 			}
@@ -21,7 +21,7 @@ import net.aerith.misao.image.*;
  * stored in the original image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class FillIllegalRowAndColumnFilter extends Filter {
@@ -130,8 +130,7 @@ public class FillIllegalRowAndColumnFilter extends Filter {
 			Array array_in_row = new Array(size.getWidth());
 			for (int x = 0 ; x < size.getWidth() ; x++)
 				array_in_row.set(x, image.getValue(x, y));
-			array_in_row.sortAscendant();
-			array.set(y, array_in_row.getValueAt(size.getWidth() / 2));
+			array.set(y, array_in_row.select(size.getWidth() / 2));
 		}
 		ArrayIndex index = array.sortAscendant();
 
@@ -173,8 +172,7 @@ public class FillIllegalRowAndColumnFilter extends Filter {
 			Array array_in_column = new Array(size.getHeight());
 			for (int y = 0 ; y < size.getHeight() ; y++)
 				array_in_column.set(y, image.getValue(x, y));
-			array_in_column.sortAscendant();
-			array.set(x, array_in_column.getValueAt(size.getHeight() / 2));
+			array.set(x, array_in_column.select(size.getHeight() / 2));
 		}
 		index = array.sortAscendant();
 
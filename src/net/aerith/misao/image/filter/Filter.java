@@ -22,10 +22,10 @@ import net.aerith.misao.util.MonitorSet;
  * original image remains unchanged.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
-public abstract class Filter {
+public abstract class Filter implements Cloneable {
 	/**
 	 * The set of monitors.
 	 */
@@ -47,6 +47,35 @@ public abstract class Filter {
 		monitor_set.addMonitor(monitor);
 	}
 
+	/**
+	 * Gets the size of the halo required to operate the filter on a
+	 * part of the image. It returns a positive value when the filter
+	 * stores the result into the original image buffer, and each 
+	 * pixel value of the result only depends on the pixels within 
+	 * the halo, extended flatly out of the image area. Otherwise it
+	 * returns -1, and the filter is always operated on the whole 
+	 * image.
+	 * @return the size of the halo, or -1.
+	 */
+	public int getHaloSize ( ) {
+		return -1;
+	}
+
+	/**
+	 * Creates a copy of this filter with the same parameters. The
+	 * result of an operation is kept in the copy separately, so the
+	 * copy can be operated on another thread at the same time as 
+	 * this filter. The monitors are shared.
+	 * @return the copy of this filter.
+	 */
+	public Filter duplicate ( ) {
+		try {
+			return (Filter)clone();
+		} catch ( CloneNotSupportedException exception ) {
+			throw new InternalError(exception.toString());
+		}
+	}
+
 	/**
 	 * Operates the image processing filter.
 	 * @return the filtered image.
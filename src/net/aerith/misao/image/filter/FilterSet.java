@@ -14,7 +14,7 @@ import net.aerith.misao.image.*;
  * filters.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 17
+ * @version 2026 October 18
  */
 
 public class FilterSet implements ImageConverter {
@@ -45,6 +45,19 @@ public class FilterSet implements ImageConverter {
 			list_name.addElement(filter_set.list_name.elementAt(i));
 	}
 
+	/**
+	 * Creates a copy of this filter set, which consists of the copies
+	 * of the filters. The copy can be operated on another thread at
+	 * the same time as this filter set.
+	 * @return the copy of this filter set.
+	 */
+	public FilterSet duplicate ( ) {
+		FilterSet filter_set = new FilterSet();
+		for (int i = 0 ; i < list_filter.size() ; i++)
+			filter_set.add(((Filter)list_filter.elementAt(i)).duplicate(), (String)list_name.elementAt(i));
+		return filter_set;
+	}
+
 	/**
 	 * Adds a filter.
 	 * @param filter the filter.
@@ -87,7 +100,10 @@ public class FilterSet implements ImageConverter {
 	}
 
 	/**
-	 * Converts an image.
+	 * Converts an image. The filters are operated by the
+	 * <code>TiledFilterEngine</code>, so the consecutive point filters
+	 * are operated at once, and the filters are operated concurrently
+	 * on parts of the image if possible.
 	 * @param image an image.
 	 * @return a new image.
 	 * @exception Exception if an exception occurs.
@@ -95,11 +111,6 @@ public class FilterSet implements ImageConverter {
 	public MonoImage convertImage ( MonoImage image )
 		throws Exception
 	{
-		for (int i = 0 ; i < list_filter.size() ; i++) {
-			Filter filter = (Filter)list_filter.elementAt(i);
-			image = filter.operate(image);
-		}
-
-		return image;
+		return new TiledFilterEngine().operate(image, getFilters());
 	}
 }
@@ -15,10 +15,10 @@ import net.aerith.misao.image.*;
  * in the original image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
-public class FlatteningFilter extends Filter {
+public class FlatteningFilter extends PointFilter {
 	/**
 	 * The flat image.
 	 */
@@ -33,21 +33,24 @@ public class FlatteningFilter extends Filter {
 	}
 
 	/**
-	 * Operates the image processing filter and stores the result into
-	 * the original image buffer.
-	 * @param image the original image to process.
-	 * @return the original image buffer.
+	 * Operates the filter on the values in the buffer of a row. The
+	 * pixels out of the flat image are not changed.
+	 * @param image  the image to process.
+	 * @param y      the y position.
+	 * @param values the values in the buffer of the row, to be 
+	 * overwritten with the result.
+	 * @param work   the work array as long as the row.
 	 */
-	public MonoImage operate ( MonoImage image ) {
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				try {
-					image.setValue(x, y, image.getValue(x, y) / flat_image.getValue(x, y));
-				} catch ( IndexOutOfBoundsException exception ) {
-				}
-			}
-		}
+	public void operateRow ( MonoImage image, int y, double[] values, double[] work ) {
+		if (y >= flat_image.getSize().getHeight())
+			return;
+
+		int width = Math.min(image.getSize().getWidth(), flat_image.getSize().getWidth());
+		flat_image.getRow(0, y, width, work, 0);
 
-		return image;
+		for (int x = 0 ; x < width ; x++) {
+			double value = image.convertBufferValue(values[x]) / work[x];
+			values[x] = image.convertToBufferValue(value);
+		}
 	}
 }
@@ -15,16 +15,29 @@ import net.aerith.misao.image.*;
  * original image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 13
+ * @version 2026 October 18
  */
 
-public class InverseWhiteAndBlackFilter extends Filter {
+public class InverseWhiteAndBlackFilter extends PointFilter {
 	/**
 	 * Constructs a filter.
 	 */
 	public InverseWhiteAndBlackFilter ( ) {
 	}
 
+	/**
+	 * Operates the filter on the values in the buffer of a row.
+	 * @param image  the image to process.
+	 * @param y      the y position.
+	 * @param values the values in the buffer of the row, to be 
+	 * overwritten with the result.
+	 * @param work   the work array as long as the row.
+	 */
+	public void operateRow ( MonoImage image, int y, double[] values, double[] work ) {
+		for (int x = 0 ; x < image.getSize().getWidth() ; x++)
+			values[x] = image.getInversedBufferValue(values[x]);
+	}
+
 	/**
 	 * Operates the image processing filter and stores the result into
 	 * the original image buffer.
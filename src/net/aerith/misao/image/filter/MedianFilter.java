@@ -6,15 +6,24 @@
  */
 
 package net.aerith.misao.image.filter;
+import java.util.Arrays;
 import net.aerith.misao.util.*;
 import net.aerith.misao.image.*;
 
 /**
  * The <code>MedianFilter</code> is an image processing filter of 
  * median filter. The result is stored in the original image.
+ * <p>
+ * The image is divided into bands of rows, which are operated 
+ * concurrently. In the case of byte and short data, the median is 
+ * found by the sliding histogram of the values in the buffer 
+ * (Huang's algorithm). Otherwise, the sorted values in the window
+ * are updated when the window slides. In both cases, the result is
+ * the same as sorting all pixels in the window for each pixel, 
+ * which is done in <tt>getFilteredValue</tt>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class MedianFilter extends Filter {
@@ -50,6 +59,15 @@ public class MedianFilter extends Filter {
 			filter_size = 1;
 	}
 
+	/**
+	 * Gets the size of the halo required to operate the filter on a
+	 * part of the image.
+	 * @return the size of the halo.
+	 */
+	public int getHaloSize ( ) {
+		return filter_size / 2;
+	}
+
 	/**
 	 * Gets the filtered value at the specified position.
 	 * @param image the original image to process.
@@ -58,21 +76,14 @@ public class MedianFilter extends Filter {
 	 * @return the filtered value.
 	 */
 	public double getFilteredValue ( MonoImage image, int x, int y ) {
-		int area_size = filter_size / 2;
-		area_size = (area_size * 2 + 1) * (area_size * 2 + 1);
+		int half = filter_size / 2;
+		int window = half * 2 + 1;
+		int area_size = window * window;
 
-		Array array = new Array(area_size);
+		double[] values = DoubleArrays.getScratchBuffer(area_size);
+		image.getTileOnFlatExtension(x - half, y - half, window, window, values);
 
-		int count = 0;
-		for (int dy = - filter_size / 2 ; dy <= filter_size / 2 ; dy++) {
-			for (int dx = - filter_size / 2 ; dx <= filter_size / 2 ; dx++) {
-				array.set(count++, image.getValueOnFlatExtension(x + dx, y + dy));
-			}
-		}
-
-		array.sortAscendant();
-
-		return array.getValueAt(area_size / 2);
+		return DoubleArrays.select(values, 0, area_size, area_size / 2);
 	}
 
 	/**
@@ -82,14 +93,385 @@ public class MedianFilter extends Filter {
 	 * @return the original image buffer.
 	 */
 	public MonoImage operate ( MonoImage image ) {
-		MonoImage original_image = (MonoImage)image.cloneImage();
+		int height = image.getSize().getHeight();
+		if (image.getSize().getWidth() == 0  ||  height == 0)
+			return image;
 
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				image.setValue(x, y, getFilteredValue(original_image, x, y));
-			}
+		int bins = 0;
+		try {
+			if (image.getBufferType() == MonoImage.TYPE_BYTE)
+				bins = 256;
+			if (image.getBufferType() == MonoImage.TYPE_SHORT)
+				bins = 65536;
+		} catch ( UnsupportedBufferTypeException exception ) {
 		}
 
+		int count = ParallelExecutor.getPartCount(height, 32);
+		int[] bounds = ParallelExecutor.divide(height, count);
+		final Band[] bands = new Band[count];
+		for (int i = 0 ; i < count ; i++)
+			bands[i] = new Band(image, bounds[i], bounds[i+1], bins);
+
+		// The rows of the adjacent bands must be read before they are
+		// overwritten.
+		ParallelExecutor.execute(count, new ParallelOperation() {
+			public void operate ( int index ) {
+				bands[index].readAdjacentRows();
+			}
+		});
+		ParallelExecutor.execute(count, new ParallelOperation() {
+			public void operate ( int index ) {
+				bands[index].operate();
+			}
+		});
+
 		return image;
 	}
+
+	/**
+	 * The <code>Band</code> represents a band of rows of the image to
+	 * be operated on one thread.
+	 */
+	protected class Band {
+		/**
+		 * The image.
+		 */
+		protected MonoImage image;
+
+		/**
+		 * The first row of the band.
+		 */
+		protected int start;
+
+		/**
+		 * The row next to the last row of the band.
+		 */
+		protected int end;
+
+		/**
+		 * The half of the window size.
+		 */
+		protected int half;
+
+		/**
+		 * The window size.
+		 */
+		protected int window;
+
+		/**
+		 * The number of bins of the histogram, or 0 when the sorted
+		 * values are used.
+		 */
+		protected int bins;
+
+		/**
+		 * The ring buffer of the rows in the band. The element i of a
+		 * row is the value at x = i - half. The original rows are kept
+		 * because the rows are overwritten before read as the rows 
+		 * behind.
+		 */
+		protected double[][] rows;
+
+		/**
+		 * The rows above the band.
+		 */
+		protected double[][] upper_rows;
+
+		/**
+		 * The rows below the band.
+		 */
+		protected double[][] lower_rows;
+
+		/**
+		 * The number of rows in the band already read.
+		 */
+		protected int loaded;
+
+		/**
+		 * Constructs a <code>Band</code>.
+		 * @param image the image.
+		 * @param start the first row of the band.
+		 * @param end   the row next to the last row of the band.
+		 * @param bins  the number of bins of the histogram, or 0.
+		 */
+		public Band ( MonoImage image, int start, int end, int bins ) {
+			this.image = image;
+			this.start = start;
+			this.end = end;
+			this.bins = bins;
+
+			half = filter_size / 2;
+			window = half * 2 + 1;
+
+			loaded = start;
+		}
+
+		/**
+		 * Reads the rows of the adjacent bands required to operate.
+		 */
+		public void readAdjacentRows ( ) {
+			upper_rows = new double[half][];
+			lower_rows = new double[half][];
+			for (int i = 0 ; i < half ; i++) {
+				if (start - half + i >= 0)
+					upper_rows[i] = readRow(start - half + i, new double[image.getSize().getWidth() + half * 2]);
+				if (end + i < image.getSize().getHeight())
+					lower_rows[i] = readRow(end + i, new double[image.getSize().getWidth() + half * 2]);
+			}
+		}
+
+		/**
+		 * Reads the specified row. In the case of the histogram, the 
+		 * values in the buffer are read. Otherwise, the true pixel 
+		 * values are read.
+		 * @param y   the y position.
+		 * @param row the array to store the values.
+		 * @return the array.
+		 */
+		protected double[] readRow ( int y, double[] row ) {
+			int width = image.getSize().getWidth();
+
+			if (bins > 0)
+				image.getBufferRow(0, y, width, row, half);
+			else
+				image.getRow(0, y, width, row, half);
+
+			// The flat extension.
+			for (int i = 0 ; i < half ; i++) {
+				row[i] = row[half];
+				row[half + width + i] = row[half + width - 1];
+			}
+
+			return row;
+		}
+
+		/**
+		 * Gets the row required to operate at the specified y 
+		 * position on the flat extension.
+		 * @param y the y position.
+		 * @return the row.
+		 */
+		protected double[] getRow ( int y ) {
+			if (y < 0)
+				y = 0;
+			if (y >= image.getSize().getHeight())
+				y = image.getSize().getHeight() - 1;
+
+			if (y < start)
+				return upper_rows[y - (start - half)];
+			if (y >= end)
+				return lower_rows[y - end];
+			return rows[(y - start) % window];
+		}
+
+		/**
+		 * Operates the filter on the band.
+		 */
+		public void operate ( ) {
+			int width = image.getSize().getWidth();
+
+			rows = new double[window][width + half * 2];
+
+			double[][] window_rows = new double[window][];
+			double[] buffer = new double[width];
+
+			SlidingHistogram histogram = null;
+			double[] sorted = null;
+			if (bins > 0)
+				histogram = new SlidingHistogram(bins, window * window / 2);
+			else
+				sorted = new double[window * window];
+
+			for (int y = start ; y < end ; y++) {
+				while (loaded < end  &&  loaded <= y + half) {
+					readRow(loaded, rows[(loaded - start) % window]);
+					loaded++;
+				}
+
+				for (int dy = 0 ; dy < window ; dy++)
+					window_rows[dy] = getRow(y - half + dy);
+
+				if (histogram != null)
+					operateHistogram(window_rows, histogram, buffer);
+				else
+					operateSorted(window_rows, sorted, buffer);
+
+				image.setRow(y, buffer);
+			}
+		}
+
+		/**
+		 * Operates the filter on a row by the sliding histogram.
+		 * @param window_rows the rows in the window.
+		 * @param histogram   the histogram.
+		 * @param buffer      the array to store the result.
+		 */
+		protected void operateHistogram ( double[][] window_rows, SlidingHistogram histogram, double[] buffer ) {
+			for (int dy = 0 ; dy < window ; dy++) {
+				for (int dx = 0 ; dx < window ; dx++)
+					histogram.add((int)window_rows[dy][dx]);
+			}
+			buffer[0] = image.convertBufferValue((double)histogram.getMedian());
+
+			for (int x = 1 ; x < buffer.length ; x++) {
+				for (int dy = 0 ; dy < window ; dy++) {
+					histogram.remove((int)window_rows[dy][x - 1]);
+					histogram.add((int)window_rows[dy][x + window - 1]);
+				}
+				buffer[x] = image.convertBufferValue((double)histogram.getMedian());
+			}
+
+			int last = buffer.length - 1;
+			for (int dy = 0 ; dy < window ; dy++) {
+				for (int dx = 0 ; dx < window ; dx++)
+					histogram.remove((int)window_rows[dy][last + dx]);
+			}
+		}
+
+		/**
+		 * Operates the filter on a row by the sorted values in the 
+		 * window.
+		 * @param window_rows the rows in the window.
+		 * @param sorted      the array to keep the sorted values.
+		 * @param buffer      the array to store the result.
+		 */
+		protected void operateSorted ( double[][] window_rows, double[] sorted, double[] buffer ) {
+			int count = 0;
+			for (int dy = 0 ; dy < window ; dy++) {
+				for (int dx = 0 ; dx < window ; dx++)
+					sorted[count++] = window_rows[dy][dx];
+			}
+			Arrays.sort(sorted);
+			buffer[0] = sorted[count / 2];
+
+			for (int x = 1 ; x < buffer.length ; x++) {
+				for (int dy = 0 ; dy < window ; dy++)
+					replace(sorted, window_rows[dy][x - 1], window_rows[dy][x + window - 1]);
+				buffer[x] = sorted[count / 2];
+			}
+		}
+
+		/**
+		 * Replaces a value in the sorted array with a new value, 
+		 * keeping the array sorted.
+		 * @param sorted    the sorted array.
+		 * @param old_value the value to remove.
+		 * @param new_value the value to insert.
+		 */
+		protected void replace ( double[] sorted, double old_value, double new_value ) {
+			int index = Arrays.binarySearch(sorted, old_value);
+
+			if (Double.compare(new_value, old_value) > 0) {
+				int new_index = index;
+				while (new_index + 1 < sorted.length  &&  Double.compare(sorted[new_index + 1], new_value) < 0)
+					new_index++;
+				System.arraycopy(sorted, index + 1, sorted, index, new_index - index);
+				sorted[new_index] = new_value;
+			} else {
+				int new_index = index;
+				while (new_index > 0  &&  Double.compare(sorted[new_index - 1], new_value) > 0)
+					new_index--;
+				System.arraycopy(sorted, new_index, sorted, new_index + 1, index - new_index);
+				sorted[new_index] = new_value;
+			}
+		}
+	}
+
+	/**
+	 * The <code>SlidingHistogram</code> is a sliding histogram of integer 
+	 * values, which keeps track of the k-th smallest value. The 
+	 * coarse histogram of every 256 bins is also kept so that the 
+	 * empty range is skipped quickly.
+	 */
+	protected class SlidingHistogram {
+		/**
+		 * The number of values in each bin.
+		 */
+		protected int[] fine;
+
+		/**
+		 * The number of values in every 256 bins.
+		 */
+		protected int[] coarse;
+
+		/**
+		 * The order of the value to keep track of, 0 for the 
+		 * smallest.
+		 */
+		protected int order;
+
+		/**
+		 * The current k-th smallest value.
+		 */
+		protected int median = 0;
+
+		/**
+		 * The number of values smaller than <tt>median</tt>.
+		 */
+		protected int smaller = 0;
+
+		/**
+		 * Constructs a <code>SlidingHistogram</code>.
+		 * @param bins  the number of bins, a multiple of 256.
+		 * @param order the order of the value to keep track of.
+		 */
+		public SlidingHistogram ( int bins, int order ) {
+			fine = new int[bins];
+			coarse = new int[bins / 256];
+			this.order = order;
+		}
+
+		/**
+		 * Adds a value.
+		 * @param value the value.
+		 */
+		public void add ( int value ) {
+			fine[value]++;
+			coarse[value >> 8]++;
+			if (value < median)
+				smaller++;
+		}
+
+		/**
+		 * Removes a value.
+		 * @param value the value.
+		 */
+		public void remove ( int value ) {
+			fine[value]--;
+			coarse[value >> 8]--;
+			if (value < median)
+				smaller--;
+		}
+
+		/**
+		 * Gets the k-th smallest value. The histogram must contain
+		 * more values than the order.
+		 * @return the k-th smallest value.
+		 */
+		public int getMedian ( ) {
+			// Too large.
+			while (smaller > order) {
+				if ((median & 0xff) == 0  &&  smaller - coarse[(median >> 8) - 1] > order) {
+					median -= 256;
+					smaller -= coarse[median >> 8];
+				} else {
+					median--;
+					smaller -= fine[median];
+				}
+			}
+
+			// Too small.
+			while (smaller + fine[median] <= order) {
+				if ((median & 0xff) == 0  &&  smaller + coarse[median >> 8] <= order) {
+					smaller += coarse[median >> 8];
+					median += 256;
+				} else {
+					smaller += fine[median];
+					median++;
+				}
+			}
+
+			return median;
+		}
+	}
 }
@@ -0,0 +1,59 @@
+/*
+ * @(#)PointFilter.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.image.filter;
+import net.aerith.misao.image.MonoImage;
+
+/**
+ * The <code>PointFilter</code> is an abstract class of image 
+ * processing filter which converts each pixel value independently. 
+ * The result is stored in the original image.
+ * <p>
+ * The consecutive point filters are operated at once by the 
+ * <code>TiledFilterEngine</code>, reading and writing each row only 
+ * once.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public abstract class PointFilter extends Filter {
+	/**
+	 * Gets the size of the halo required to operate the filter on a
+	 * part of the image.
+	 * @return 0.
+	 */
+	public int getHaloSize ( ) {
+		return 0;
+	}
+
+	/**
+	 * Operates the filter on the values in the buffer of a row. The 
+	 * result must be the values to be stored in the buffer, as same 
+	 * as <tt>MonoImage#setValue</tt>. The work array is reused for
+	 * the rows, so that the filter does not need to allocate an 
+	 * array for each row.
+	 * @param image  the image to process.
+	 * @param y      the y position.
+	 * @param values the values in the buffer of the row, to be 
+	 * overwritten with the result.
+	 * @param work   the work array as long as the row.
+	 */
+	public abstract void operateRow ( MonoImage image, int y, double[] values, double[] work );
+
+	/**
+	 * Operates the image processing filter and stores the result into
+	 * the original image buffer.
+	 * @param image the original image to process.
+	 * @return the original image buffer.
+	 */
+	public MonoImage operate ( MonoImage image ) {
+		Filter[] filters = new Filter[1];
+		filters[0] = this;
+		return new TiledFilterEngine().operate(image, filters);
+	}
+}
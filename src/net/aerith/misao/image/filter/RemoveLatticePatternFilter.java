@@ -15,7 +15,7 @@ import net.aerith.misao.image.*;
  * result is stored in the new image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 17
+ * @version 2026 October 18
  */
 
 public class RemoveLatticePatternFilter extends Filter {
@@ -41,8 +41,7 @@ public class RemoveLatticePatternFilter extends Filter {
 			for (int y = 0 ; y < size.getHeight() ; y++)
 				array.set(y, image.getValue(x, y));
 
-			array.sortAscendant();
-			double median = array.getValueAt(size.getHeight() / 2);
+			double median = array.select(size.getHeight() / 2);
 
 			for (int y = 0 ; y < size.getHeight() ; y++)
 				buffer.set(x, y, (float)(image.getValue(x, y) - median));
@@ -54,8 +53,7 @@ public class RemoveLatticePatternFilter extends Filter {
 			for (int x = 0 ; x < size.getWidth() ; x++)
 				array.set(x, buffer.getValue(x, y));
 
-			array.sortAscendant();
-			double median = array.getValueAt(size.getWidth() / 2);
+			double median = array.select(size.getWidth() / 2);
 
 			for (int x = 0 ; x < size.getWidth() ; x++)
 				buffer.set(x, y, (float)(buffer.get(x, y) - median));
@@ -14,7 +14,7 @@ import net.aerith.misao.image.*;
  * smoothing. The result is stored in the original image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class SmoothFilter extends Filter {
@@ -57,40 +57,100 @@ public class SmoothFilter extends Filter {
 	 * @return the original image buffer.
 	 */
 	public MonoImage operate ( MonoImage image ) {
-		double[] buffer = new double[image.getSize().getWidth()];
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
+		int width = image.getSize().getWidth();
+		int height = image.getSize().getHeight();
+
+		int back = (filter_size - 1) / 2 + 1;
+		int ahead = filter_size / 2;
+
+		// Horizontally.
+		double[] row = new double[width + back + ahead];
+		double[] buffer = new double[width];
+		for (int y = 0 ; y < height ; y++) {
+			// row[i] is the value at x = i - back.
+			image.getRowOnFlatExtension(- back, y, row.length, row, 0);
+
 			double val = 0.0;
-			for (int x = - (filter_size - 1) / 2 - 1 ; x < filter_size / 2 ; x++)
-				val += image.getValueOnFlatExtension(x, y);
+			for (int x = - back ; x < ahead ; x++)
+				val += row[x + back];
 
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				val -= image.getValueOnFlatExtension(x - (filter_size - 1) / 2 - 1, y);
-				val += image.getValueOnFlatExtension(x + filter_size / 2, y);
+			for (int x = 0 ; x < width ; x++) {
+				val -= row[x];
+				val += row[x + back + ahead];
 
 				buffer[x] = val / (double)filter_size;
 			}
 
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				image.setValue(x, y, buffer[x]);
+			image.setRow(y, buffer);
 		}
 
-		buffer = new double[image.getSize().getHeight()];
-		for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-			double val = 0.0;
-			for (int y = - (filter_size - 1) / 2 - 1 ; y < filter_size / 2 ; y++)
-				val += image.getValueOnFlatExtension(x, y);
+		// Vertically. The columns are processed at once row by row.
+		// The original rows are kept in the ring buffer, because the
+		// rows are overwritten before read as the rows behind. The 
+		// top row is kept separately, since it is referred repeatedly
+		// on the flat extension.
+		double[][] rows = new double[filter_size + 1][width];
+		double[] top_row = new double[width];
+		image.getRow(0, top_row);
 
-			for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-				val -= image.getValueOnFlatExtension(x, y - (filter_size - 1) / 2 - 1);
-				val += image.getValueOnFlatExtension(x, y + filter_size / 2);
+		double[] vals = new double[width];
+		int loaded = 0;
+		for (int y = - back ; y < ahead ; y++) {
+			loaded = loadRow(image, rows, loaded, y);
+			double[] r = getLoadedRow(rows, top_row, y, height);
+			for (int x = 0 ; x < width ; x++)
+				vals[x] += r[x];
+		}
+
+		for (int y = 0 ; y < height ; y++) {
+			loaded = loadRow(image, rows, loaded, y + ahead);
 
-				buffer[y] = val / (double)filter_size;
+			double[] r1 = getLoadedRow(rows, top_row, y - back, height);
+			double[] r2 = getLoadedRow(rows, top_row, y + ahead, height);
+			for (int x = 0 ; x < width ; x++) {
+				vals[x] -= r1[x];
+				vals[x] += r2[x];
+
+				buffer[x] = vals[x] / (double)filter_size;
 			}
 
-			for (int y = 0 ; y < image.getSize().getHeight() ; y++)
-				image.setValue(x, y, buffer[y]);
+			image.setRow(y, buffer);
 		}
 
 		return image;
 	}
+
+	/**
+	 * Reads the rows into the ring buffer up to the specified row.
+	 * @param image   the image.
+	 * @param rows    the ring buffer.
+	 * @param loaded  the number of rows already read.
+	 * @param y       the y position of the row required.
+	 * @return the number of rows read.
+	 */
+	private int loadRow ( MonoImage image, double[][] rows, int loaded, int y ) {
+		if (y >= image.getSize().getHeight())
+			y = image.getSize().getHeight() - 1;
+		while (loaded <= y) {
+			image.getRow(loaded, rows[loaded % rows.length]);
+			loaded++;
+		}
+		return loaded;
+	}
+
+	/**
+	 * Gets the row read into the ring buffer on the flat extension.
+	 * @param rows    the ring buffer.
+	 * @param top_row the top row.
+	 * @param y       the y position.
+	 * @param height  the image height.
+	 * @return the row.
+	 */
+	private double[] getLoadedRow ( double[][] rows, double[] top_row, int y, int height ) {
+		if (y <= 0)
+			return top_row;
+		if (y >= height)
+			y = height - 1;
+		return rows[y % rows.length];
+	}
 }
@@ -19,9 +19,14 @@ import net.aerith.misao.pixy.star_detection.AdjoiningPixelDetector;
  * The streaks must extend horizontally. It operates the edge 
  * detection and subtraction in two directions, from top to bottom and
  * from bottom to top. Then it merges the two results.
+ * <p>
+ * The flags of pixels are kept in bit sets. The lines are processed
+ * in parallel, except for the edge detection and subtraction, in which
+ * each line depends on the result of the lines above. In that case,
+ * the pixels in a line are processed in parallel.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class StreakCancelFilter extends Filter {
@@ -130,7 +135,7 @@ public class StreakCancelFilter extends Filter {
 	 * @param image the original image to process.
 	 * @return the original image buffer.
 	 */
-	public MonoImage operate ( MonoImage image ) {
+	public MonoImage operate ( final MonoImage image ) {
 		monitor_set.addMessage("[Streak cancel filter]");
 		monitor_set.addMessage(new Date().toString());
 
@@ -144,120 +149,114 @@ public class StreakCancelFilter extends Filter {
 		background_deviation = estimator.getBackgroundDeviation();
 		monitor_set.addMessage("Background deviation: " + background_deviation);
 
-		// Creates the flag image to judge if the pixel is background or not.
-		// If 0, the pixel is part of a star, otherwise, the pixel is 
-		// background. If 1, the background spreads around the pixel. If 
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+
+		// Creates the flags to judge if the pixel is background or not.
+		// If 0, the pixel is part of a star, otherwise, the pixel is
+		// background. If 1, the background spreads around the pixel. If
 		// 2, the background spreads towards left, that is a star exists
 		// near to the right. If 3, the background spreads towards right,
 		// that is a star exists near to the left.
-		background_flag_image = createBackgroundFlagImage(image);
+		// The flag value is kept in two bit sets, the lower bit and the
+		// higher bit.
+		FlagSet[] bg_flags = createBackgroundFlags(image);
 
 		// From top to botom, detects the streaks.
-		// The flag image which represents the streak pixels is returned.
+		// The flags which represent the streak pixels are returned.
 		// The image buffer is modified.
 		MonoImage tmp_image = image.cloneImage();
-		MonoImage streak_flag_image1 = detectStreakTopToBottom(tmp_image, background_flag_image);
+		FlagSet streak_flags1 = detectStreakTopToBottom(tmp_image, bg_flags);
 		tmp_image = null;
 
 		// From bottom to top, detects the streaks.
-		// The flag image which represents the streak pixels is returned.
+		// The flags which represent the streak pixels are returned.
 		// The image buffer is modified.
 		tmp_image = image.cloneImage();
 		tmp_image.reverseVertically();
-		background_flag_image.reverseVertically();
-		MonoImage streak_flag_image2 = detectStreakTopToBottom(tmp_image, background_flag_image);
-		background_flag_image.reverseVertically();
-		streak_flag_image2.reverseVertically();
+		FlagSet streak_flags2 = detectStreakTopToBottom(tmp_image, reverseVertically(bg_flags)).reverseVertically();
 		tmp_image = null;
 
-		// Merges the two flag images, frmo top to bottom and from bottom to top.
-		// If the pixels is judged as streaks in any direction, the flag is
-		// set to 2. Otherwise, set to 0.
+		// Merges the two flags, frmo top to bottom and from bottom to top.
 		// The streak area shape becomes asymmetric against the star center
 		// only in one direction. Therefore the pixel is streak if judged as
 		// streak in any direction.
-		streak_flag_image = streak_flag_image1.cloneImage();
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (streak_flag_image1.getValue(x, y) > 0.5  ||  streak_flag_image2.getValue(x, y) > 0.5) {
-					streak_flag_image.setValue(x, y, 2);
-				}
-			}
-		}
+		final FlagSet streak_flags = new FlagSet(width, height);
+		streak_flags.or(streak_flags1);
+		streak_flags.or(streak_flags2);
+		streak_flags1 = null;
+		streak_flags2 = null;
 
 		// From top to bottom, subtracts the streaks.
-		MonoImage image1 = image.cloneImage();
-		subtractTopToBottom(image1, background_flag_image, streak_flag_image);
+		final MonoImage image1 = image.cloneImage();
+		subtractTopToBottom(image1, bg_flags, streak_flags);
 
 		// From bottom to top, subtracts the streaks.
-		MonoImage image2 = image.cloneImage();
+		final MonoImage image2 = image.cloneImage();
 		image2.reverseVertically();
-		background_flag_image.reverseVertically();
-		streak_flag_image.reverseVertically();
-		subtractTopToBottom(image2, background_flag_image, streak_flag_image);
+		subtractTopToBottom(image2, reverseVertically(bg_flags), streak_flags.reverseVertically());
 		image2.reverseVertically();
-		background_flag_image.reverseVertically();
-		streak_flag_image.reverseVertically();
 
 		// Keeps the original image.
-		MonoImage original_image = image.cloneImage();
+		final MonoImage original_image = image.cloneImage();
 
 		// Merges the two subtracted images, from top to bottom and from bottom to top.
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				double v1 = image1.getValue(x, y);
-				double v2 = image2.getValue(x, y);
-
-				if (streak_flag_image.getValue(x, y) > 0.5) {
-					// Not to be discontinuous at the edge of streaks, the two results 
-					// are weighed based on the distance from the edge. If the pixel
-					// is near by the top edge, the result from top to bottom is
-					// much more weighed.
-
-					// Checks the distance from the top edge.
-					int dy_top = 1;
-					while (y - dy_top >= 0  &&  
-						   (streak_flag_image1.getValue(x, y - dy_top) > 0.5  ||  streak_flag_image2.getValue(x, y - dy_top) > 0.5)) {
-						dy_top++;
-					}
+		// Each column is processed in parallel, and the distance from the edges
+		// are obtained from the vertical series of streak pixels.
+		final int[] column_bounds = ParallelExecutor.divide(width, ParallelExecutor.getPartCount(width, 16));
+		ParallelExecutor.execute(column_bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				for (int x = column_bounds[index] ; x < column_bounds[index+1] ; x++) {
+					int top = 0;
+					while (top < height) {
+						if (streak_flags.get(x, top) == false) {
+							top++;
+							continue;
+						}
 
-					// Checks the distance from the bottom edge.
-					int dy_bottom = 1;
-					while (y + dy_bottom < image.getSize().getHeight()  &&  
-						   (streak_flag_image1.getValue(x, y + dy_bottom) > 0.5  ||  streak_flag_image2.getValue(x, y + dy_bottom) > 0.5)) {
-						dy_bottom++;
-					}
+						int bottom = top;
+						while (bottom + 1 < height  &&  streak_flags.get(x, bottom + 1))
+							bottom++;
+
+						for (int y = top ; y <= bottom ; y++) {
+							double v1 = image1.getValue(x, y);
+							double v2 = image2.getValue(x, y);
+
+							// Not to be discontinuous at the edge of streaks, the two results
+							// are weighed based on the distance from the edge. If the pixel
+							// is near by the top edge, the result from top to bottom is
+							// much more weighed.
+							int dy_top = y - top + 1;
+							int dy_bottom = bottom - y + 1;
+							double v = (v1 * (double)dy_bottom + v2 * (double)dy_top) / (double)(dy_top + dy_bottom);
+
+							// However, when there is a star in the streak area, a faint
+							// pattern like a cometary tail appears below the star.
+							// Therefore, if the pixel is below of a star in one direction,
+							// only the resulf in another direction is adopted.
+							if (original_image.getValueOnFlatExtension(x, y - dy_top - 1) > v + background_deviation * 2.0) {
+								if (original_image.getValueOnFlatExtension(x, y + dy_bottom + 1) <= v + background_deviation * 2.0)
+									// A star exists only above.
+									v = v2;
+							} else if (original_image.getValueOnFlatExtension(x, y + dy_bottom + 1) > v + background_deviation * 2.0) {
+								// A star exists only below.
+								v = v1;
+							}
 
-					// Calculates the merged value of the results in two directions,
-					// weighed based on the distance from the edge not to be
-					// discontinuous at the edge of streaks. If the pixel
-					// is near by the top edge, the result from top to bottom is
-					// much more weighed.
-					double v = (v1 * (double)dy_bottom + v2 * (double)dy_top) / (double)(dy_top + dy_bottom);
-
-					// However, when there is a star in the streak area, a faint
-					// pattern like a cometary tail appears below the star.
-					// Therefore, if the pixel is below of a star in one direction,
-					// only the resulf in another direction is adopted.
-					if (original_image.getValueOnFlatExtension(x, y - dy_top - 1) > v + background_deviation * 2.0) {
-						if (original_image.getValueOnFlatExtension(x, y + dy_bottom + 1) <= v + background_deviation * 2.0)
-							// A star exists only above.
-							v = v2;
-					} else if (original_image.getValueOnFlatExtension(x, y + dy_bottom + 1) > v + background_deviation * 2.0) {
-						// A star exists only below.
-						v = v1;
-					}
+							image.setValue(x, y, v);
+						}
 
-					image.setValue(x, y, v);
+						top = bottom + 1;
+					}
 				}
 			}
-		}
-
-		image1 = null;
-		image2 = null;
+		});
 
-		if (keep_background_flag_image == false)
+		if (keep_background_flag_image)
+			background_flag_image = createFlagImage(bg_flags[0], bg_flags[1]);
+		else
 			background_flag_image = null;
+		bg_flags = null;
 
 		// The subtracted image looks like after sweeped by a brush.
 		// But in order to delete the foot of streaks, the background
@@ -266,39 +265,50 @@ public class StreakCancelFilter extends Filter {
 		// the pixel value is restored.
 		// In addition, when the result value becomes larger than the
 		// original, it is a mistake. So also restored.
-		tmp_image = image.cloneImage();
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (streak_flag_image.getValue(x, y) > 0.5) {
-					// Calculates the amount of 3x3 pixels.
-					double orig_v = 0.0;
-					double v = 0.0;
-					for (int dy = -1 ; dy <= 1 ; dy++) {
-						for (int dx = -1 ; dx <= 1 ; dx++) {
-							orig_v += original_image.getValueOnFlatExtension(x + dx, y + dy);
-							v += tmp_image.getValueOnFlatExtension(x + dx, y + dy);
-						}
-					}
+		final MonoImage result_image = image.cloneImage();
+		final FlagSet restored_flags = new FlagSet(width, height);
+		final int[] row_bounds = ParallelExecutor.divide(height, ParallelExecutor.getPartCount(height, 16));
+		ParallelExecutor.execute(row_bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				for (int y = row_bounds[index] ; y < row_bounds[index+1] ; y++) {
+					for (int x = 0 ; x < width ; x++) {
+						if (streak_flags.get(x, y)) {
+							// Calculates the amount of 3x3 pixels.
+							double orig_v = 0.0;
+							double v = 0.0;
+							for (int dy = -1 ; dy <= 1 ; dy++) {
+								for (int dx = -1 ; dx <= 1 ; dx++) {
+									orig_v += original_image.getValueOnFlatExtension(x + dx, y + dy);
+									v += result_image.getValueOnFlatExtension(x + dx, y + dy);
+								}
+							}
 
-					// If the result value is similar to the original value,
-					// the pixel value is restored.
-					// In addition, when the result value becomes larger than the
-					// original, it is a mistake. So also restored.
-					if (orig_v - v < background_deviation  ||
-						tmp_image.getValue(x, y) >= original_image.getValue(x, y) + background_deviation) {
-						image.setValue(x, y, original_image.getValue(x, y));
-
-						// Sets the flag to 1 which represents the pixel is regarded
-						// as part of streak, but restored here.
-						streak_flag_image.setValue(x, y, 1);
+							// If the result value is similar to the original value,
+							// the pixel value is restored.
+							// In addition, when the result value becomes larger than the
+							// original, it is a mistake. So also restored.
+							if (orig_v - v < background_deviation  ||
+								result_image.getValue(x, y) >= original_image.getValue(x, y) + background_deviation) {
+								image.setValue(x, y, original_image.getValue(x, y));
+
+								// The pixel is regarded as part of streak, but
+								// restored here.
+								restored_flags.set(x, y);
+							}
+						}
 					}
 				}
 			}
-		}
-		tmp_image = null;
-
-		if (keep_streak_flag_image == false)
+		});
+
+		// If 2, the pixels is part of a streak. If 1, the pixel is
+		// regarded as part of a streak but restored finally.
+		if (keep_streak_flag_image) {
+			streak_flags.andNot(restored_flags);
+			streak_flag_image = createFlagImage(restored_flags, streak_flags);
+		} else {
 			streak_flag_image = null;
+		}
 
 		monitor_set.addMessage(new Date().toString());
 		monitor_set.addSeparator();
@@ -307,222 +317,297 @@ public class StreakCancelFilter extends Filter {
 	}
 
 	/**
-	 * Creates the flag image to judge if the pixel is background or
-	 * not. If 0, the pixel is part of a star, otherwise, the pixel is
-	 * background. If 1, the background spreads around the pixel. If 
+	 * Creates the flags to judge if the pixel is background or not.
+	 * If 0, the pixel is part of a star, otherwise, the pixel is
+	 * background. If 1, the background spreads around the pixel. If
 	 * 2, the background spreads towards left, that is a star exists
 	 * near to the right. If 3, the background spreads towards right,
 	 * that is a star exists near to the left.
+	 * <p>
+	 * Each row is processed in parallel.
 	 * @param image the original image.
-	 * @return the flag image.
+	 * @return the lower bits and the higher bits of the flags.
 	 */
-	private MonoImage createBackgroundFlagImage ( MonoImage image ) {
-		MonoImage flag_image = new MonoImage(new ByteBuffer(image.getSize()));
-
-		Array array = new Array(filter_size);
-
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			// Sets the flag as 1 if the background spreads around the pixel,
-			// as 2 if the background spreads towards left, that is a star 
-			// exists near to the right, as 3 if the background spreads 
-			// towards right, that is a star exists near to the left.
-			// Here verifies if the pixel is the background or not, in 
-			// the three directions.
-			Vector bg_flag_list = new Vector();
-			for (int direction = 0 ; direction < 3 ; direction++) {
-				boolean[] bg_flag = new boolean[image.getSize().getWidth()];
-				for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-					bg_flag[x] = false;
-				bg_flag_list.addElement(bg_flag);
-			}
-
-			// The flag to judge the pixel is background in any direction
-			// of the three.
-			boolean[] bg_any = new boolean[image.getSize().getWidth()];
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				bg_any[x] = false;
-
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				for (int direction = 0 ; direction < 3 ; direction++) {
-					boolean[] bg_flag = (boolean[])bg_flag_list.elementAt(direction);
-
-					int base_x = - (filter_size - 1) / 2;
-					if (direction == 2)
-						base_x = 0;
-					else if (direction == 1)
-						base_x = - filter_size + 1;
-
-					// If the deviation around the pixel is less than three
-					// times of the background deviation, it is the background.
-					for (int dx = 0 ; dx < filter_size ; dx++)
-						array.set(dx, image.getValueOnFlatExtension(x + base_x + dx, y));
-					array.sortAscendant();
-					Statistics stat = new Statistics(array);
-					stat.calculate();
-					if (stat.getDeviation() < background_deviation * 3.0) {
-						bg_flag[x] = true;
-						bg_any[x] = true;
+	private FlagSet[] createBackgroundFlags ( final MonoImage image ) {
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+
+		final FlagSet[] flags = new FlagSet[2];
+		flags[0] = new FlagSet(width, height);
+		flags[1] = new FlagSet(width, height);
+
+		final int[] bounds = ParallelExecutor.divide(height, ParallelExecutor.getPartCount(height, 8));
+		ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				double[] values = new double[width + 2 * filter_size];
+				boolean[] window_flag = new boolean[width + filter_size];
+				double[] window = new double[filter_size];
+
+				boolean[][] bg_flag = new boolean[3][width];
+				boolean[] bg_any = new boolean[width];
+				int[] bg_any_count = new int[width + 1];
+
+				for (int y = bounds[index] ; y < bounds[index+1] ; y++) {
+					// Sets the flag as 1 if the background spreads around the pixel,
+					// as 2 if the background spreads towards left, that is a star
+					// exists near to the right, as 3 if the background spreads
+					// towards right, that is a star exists near to the left.
+					// Here verifies if the pixel is the background or not, in
+					// the three directions.
+					// The three directions share the same series of windows,
+					// so each window is judged only once.
+					readExtendedRow(image, y, values);
+					judgeBackgroundWindows(values, width + filter_size - 1, window_flag, window);
+
+					for (int x = 0 ; x < width ; x++) {
+						bg_any[x] = false;
+						for (int direction = 0 ; direction < 3 ; direction++) {
+							bg_flag[direction][x] = window_flag[x + getBaseX(direction + 1) + filter_size - 1];
+							if (bg_flag[direction][x])
+								bg_any[x] = true;
+						}
 					}
-				}
-			}
 
-			// In principle, the background must spread towards both sides.
-			// However, only in the following two cases, the background
-			// is regardes as to spread towards one side.
-			//   1. If the deviation around the pixel including both sides
-			//      becomes too large.
-			//   2. If there are some pixels in one side which cannot be
-			//      background because the deviation becomes too large 
-			//      in any direction. In other words, the number of 
-			//      background pixels is larger when to count in one side
-			//      than when to count in both sides.
-			// It is in order to judge if the pixel is really besides a
-			// star or not.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				int max_bg_count = 0;
-				for (int direction = 0 ; direction < 3 ; direction++) {
-					boolean[] bg_flag = (boolean[])bg_flag_list.elementAt(direction);
-
-					int base_x = - (filter_size - 1) / 2;
-					if (direction == 2)
-						base_x = 0;
-					else if (direction == 1)
-						base_x = - filter_size + 1;
-
-					if (bg_flag[x]) {
-						int bg_count = 0;
-						for (int dx = 0 ; dx < filter_size ; dx++) {
-							if (0 <= x + base_x + dx  &&  x + base_x + dx < image.getSize().getWidth()) {
-								if (bg_any[x + base_x + dx])
-									bg_count++;
+					bg_any_count[0] = 0;
+					for (int x = 0 ; x < width ; x++)
+						bg_any_count[x+1] = bg_any_count[x] + (bg_any[x] ? 1 : 0);
+
+					// In principle, the background must spread towards both sides.
+					// However, only in the following two cases, the background
+					// is regardes as to spread towards one side.
+					//   1. If the deviation around the pixel including both sides
+					//      becomes too large.
+					//   2. If there are some pixels in one side which cannot be
+					//      background because the deviation becomes too large
+					//      in any direction. In other words, the number of
+					//      background pixels is larger when to count in one side
+					//      than when to count in both sides.
+					// It is in order to judge if the pixel is really besides a
+					// star or not.
+					for (int x = 0 ; x < width ; x++) {
+						int flag = 0;
+						int max_bg_count = 0;
+						for (int direction = 0 ; direction < 3 ; direction++) {
+							if (bg_flag[direction][x]) {
+								int x1 = Math.max(0, x + getBaseX(direction + 1));
+								int x2 = Math.min(width, x + getBaseX(direction + 1) + filter_size);
+								int bg_count = bg_any_count[x2] - bg_any_count[x1];
+								if (max_bg_count < bg_count) {
+									flag = direction + 1;
+									max_bg_count = bg_count;
+								}
 							}
 						}
-						if (max_bg_count < bg_count) {
-							flag_image.setValue(x, y, direction + 1);
-							max_bg_count = bg_count;
-						}
+
+						if ((flag & 1) != 0)
+							flags[0].set(x, y);
+						if ((flag & 2) != 0)
+							flags[1].set(x, y);
 					}
 				}
 			}
+		});
+
+		return flags;
+	}
+
+	/**
+	 * Judges if the deviation of the pixel values in each window is
+	 * less than three times of the background deviation or not. The
+	 * k-th window consists of the pixel values from k-th to
+	 * (k + filter size - 1)-th.
+	 * <p>
+	 * The sums of the values in the windows are calculated by the
+	 * running sums. Only when the deviation is too close to the limit
+	 * to judge by the running sums, it is calculated again in the
+	 * same order as <code>Statistics</code>, so the result is exactly
+	 * the same.
+	 * @param values      the pixel values.
+	 * @param count       the number of windows.
+	 * @param window_flag the array to store the result.
+	 * @param window      the work array whose length is the filter size.
+	 */
+	private void judgeBackgroundWindows ( double[] values, int count, boolean[] window_flag, double[] window ) {
+		int n = filter_size;
+		double limit = background_deviation * 3.0;
+		double limit2 = limit * limit;
+
+		// The deviation is never less than zero.
+		if ((limit > 0.0) == false) {
+			for (int i = 0 ; i < count ; i++)
+				window_flag[i] = false;
+			return;
 		}
 
-		return flag_image;
+		// The running sums are restarted at every block of windows,
+		// and the values are shifted by the first value of the block,
+		// in order to keep the rounding error small enough.
+		for (int block = 0 ; block < count ; block += n) {
+			int block_end = Math.min(count, block + n);
+			double base = values[block];
+
+			// Estimates the maximum rounding error of the variance, of
+			// both the running sums and the calculation by Statistics.
+			double amount_abs = 0.0;
+			double amount2 = 0.0;
+			double max_value2 = 0.0;
+			for (int i = block ; i < block_end + n - 1 ; i++) {
+				double d = values[i] - base;
+				amount_abs += Math.abs(d);
+				amount2 += d * d;
+				max_value2 = Math.max(max_value2, values[i] * values[i]);
+			}
+			double tolerance = 1.0e-12 * ((double)(2 * n) * (amount2 + amount_abs * amount_abs / (double)n) / (double)n + (double)n * max_value2) + 1.0e-9 * limit2;
+
+			double sum = 0.0;
+			double sum2 = 0.0;
+			for (int i = block ; i < block + n ; i++) {
+				double d = values[i] - base;
+				sum += d;
+				sum2 += d * d;
+			}
+
+			for (int i = block ; i < block_end ; i++) {
+				if (i > block) {
+					double d_in = values[i + n - 1] - base;
+					double d_out = values[i - 1] - base;
+					sum += d_in - d_out;
+					sum2 += d_in * d_in - d_out * d_out;
+				}
+
+				// When the variance is almost zero, the deviation by
+				// Statistics may become NaN because of the rounding error,
+				// so it is also calculated again.
+				double average = sum / (double)n;
+				double variance = sum2 / (double)n - average * average;
+				if (variance > tolerance  &&  variance < limit2 - tolerance) {
+					window_flag[i] = true;
+				} else if (variance > limit2 + tolerance) {
+					window_flag[i] = false;
+				} else {
+					System.arraycopy(values, i, window, 0, n);
+					Arrays.sort(window, 0, n);
+					window_flag[i] = (calculateDeviation(window, n) < limit);
+				}
+			}
+		}
 	}
 
 	/**
-	 * Detects the streaks from top to bottom. The specified image 
+	 * Detects the streaks from top to bottom. The specified image
 	 * buffer is modified.
 	 * <p>
-	 * First of all, it detects the edges and creates the flag image
-	 * of edges, for each line from top to bottom, by subtracting the
+	 * First of all, it detects the edges and creates the flags of
+	 * edges, for each line from top to bottom, by subtracting the
 	 * difference between the above line. After that, tiny edges are
 	 * removed because they are not real streaks. And the remained
 	 * streakes are spreaded in order to cover the foot.
-	 * @param image         the original image to process.
-	 * @param bg_flag_image the flag image to represent the background
-	 * pixels.
-	 * @return the flag image to represents the streak pixels.
+	 * @param image    the original image to process.
+	 * @param bg_flags the flags to represent the background pixels.
+	 * @return the flags to represents the streak pixels.
 	 */
-	private MonoImage detectStreakTopToBottom ( MonoImage image, MonoImage bg_flag_image ) {
-		MonoImage flag_image = new MonoImage(new ByteBuffer(image.getSize()));
+	private FlagSet detectStreakTopToBottom ( MonoImage image, final FlagSet[] bg_flags ) {
+		int width = image.getSize().getWidth();
+		int height = image.getSize().getHeight();
+
+		final FlagSet flags = new FlagSet(width, height);
 
 		// Keeps the original image.
 		MonoImage original_image = image.cloneImage();
 
-		// Detects the edges and creates the flag image.
-		// The flag is 2 if the difference from the line above is large, 
+		// Detects the edges and creates the flags.
+		// The flag is 2 if the difference from the line above is large,
 		// 1 if the difference is not large enough, and 0 if not edges.
 		// Judges one line by one from top to bottom. The difference is
 		// subtracted when edges are detected.
 		// In order to calculate the deviation to detect the edge,
 		// three lines are required at least. So the y value starts from 3.
-		for (int y = 3 ; y < image.getSize().getHeight() ; y++) {
+		BackgroundAverage bg_average = new BackgroundAverage(image, bg_flags);
+		for (int y = 0 ; y < 3  &&  y < height ; y++)
+			bg_average.calculateRow(y);
+
+		double[] buffer = new double[width];
+		byte[] edge_flag = new byte[width];
+		for (int y = 3 ; y < height ; y++) {
 			// When edges are detected, the difference from the line above
 			// is subtracted. The result is stored in the temporary buffer.
 			// It is stored to the image after all the process of one line
 			// are completed.
-			double[] buffer = new double[image.getSize().getWidth()];
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				buffer[x] = image.getValue(x, y);
-
-			// The flag is 2 if the difference from the line above is large, 
+			// The flag is 2 if the difference from the line above is large,
 			// 1 if the difference is not large enough, and 0 if not edges.
-			byte[] edge_flag = new byte[image.getSize().getWidth()];
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				edge_flag[x] = 0;
-
-			// Judges if the pixel is part of an edge and calculates the
-			// subtracted value for each pixel.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				EdgePixel pixel = operateAt(image, bg_flag_image, x, y);
-				buffer[x] = pixel.value;
-				edge_flag[x] = pixel.flag;
-			}
+			bg_average.calculateRow(y);
+			bg_average.operateRow(y, buffer, edge_flag, null);
 
 			// Only if the edge pixels with flag 2 chains and is long enough,
 			// they are regarded as a real edge. Otherwise, the flag of the pixels
-			// is reduced to 1, to the candidates of edges.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
+			// is reduced to 1, to the candidates of edges. Here the pixels
+			// whose remaining length of chain is shorter than the filter size
+			// are reduced.
+			for (int x = 0 ; x < width ; ) {
 				if (edge_flag[x] > 1) {
-					int run_length = 0;
-					for (int x2 = x ; x2 < image.getSize().getWidth() ; x2++) {
-						if (edge_flag[x2] > 1)
-							run_length++;
-						else
-							break;
+					int end = x;
+					while (end < width  &&  edge_flag[end] > 1)
+						end++;
+					for ( ; x < end ; x++) {
+						if (end - x < filter_size)
+							edge_flag[x] = 1;
 					}
-					if (run_length < filter_size)
-						edge_flag[x] = 1;
+				} else {
+					x++;
 				}
 			}
 
 			// Edge candidate pixels where the difference is not large enough are
 			// regarded as extension of the real edges if they are adjoining to
 			// the real edges, and the flag is upgraded to 2.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
+			for (int x = 0 ; x < width ; x++) {
 				if (edge_flag[x] > 1) {
 					for (int x2 = x - 1 ; x2 >= 0  &&  edge_flag[x2] == 1 ; x2--)
 						edge_flag[x2] = 2;
-					for (int x2 = x + 1 ; x2 < image.getSize().getWidth()  &&  edge_flag[x2] == 1 ; x2++) {
+					for (int x2 = x + 1 ; x2 < width  &&  edge_flag[x2] == 1 ; x2++) {
 						edge_flag[x2] = 2;
 						x++;
 					}
 				}
 			}
 
-			// Sets the flag image so that the edges are part of streaks.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (edge_flag[x] > 1)
-					flag_image.setValue(x, y, 1);
-			}
-
-			// Subtracts the difference only if the pixel is part of edges.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (edge_flag[x] > 1)
+			// Sets the flags so that the edges are part of streaks, and
+			// subtracts the difference only if the pixel is part of edges.
+			boolean modified = false;
+			for (int x = 0 ; x < width ; x++) {
+				if (edge_flag[x] > 1) {
+					flags.set(x, y);
 					image.setValue(x, y, buffer[x]);
+					modified = true;
+				}
 			}
+
+			// The averages of the lines above must be calculated from
+			// the subtracted values.
+			if (modified)
+				bg_average.calculateRow(y);
 		}
+		bg_average = null;
 
-		image = original_image;
+		final MonoImage unmodified_image = original_image;
+		image = null;
 		original_image = null;
 
 		// In fact, many false streaks are detected at around the stars.
 		// They are usually very small. So it checks the area of all streaks
 		// and annuls tiny streaks.
-		MonoImage tmp_image = flag_image.cloneImage();
-		AdjoiningPixelDetector ap_detector = new AdjoiningPixelDetector(tmp_image);
+		AdjoiningPixelDetector ap_detector = new AdjoiningPixelDetector(createFlagImage(flags, null));
 		ap_detector.setThreshold(0.5);
 		ap_detector.setMinimumPeakValue(0.5);
 		try {
 			ap_detector.operate();
 		} catch ( Exception exception ) {
 			System.err.println(exception);
-			return image;
+			return flags;
 		}
 		Vector ap_list = ap_detector.getAdjoiningPixelList();
-		tmp_image = null;
 
-		// In order to avoid being influenced by very large streaks, 
+		// In order to avoid being influenced by very large streaks,
 		// only three quarters from smallest streaks are used to calculate
 		// the average and deviation.
 		Array ap_size_array = new Array(ap_list.size());
@@ -538,9 +623,9 @@ public class StreakCancelFilter extends Filter {
 		monitor_set.addMessage("Streak area size average: " + ap_stat.getAverage());
 		monitor_set.addMessage("Streak area size deviation: " + ap_stat.getDeviation());
 
-		// Annuls tiny streaks which is as small as the average 
+		// Annuls tiny streaks which is as small as the average
 		// of area sizes, or whose area size is smaller than the
-		// twice of average. However, if the area size is 100 or 
+		// twice of average. However, if the area size is 100 or
 		// larger, it is a real streak.
 		int ap_area_threshold = (int)(ap_stat.getAverage() + ap_stat.getDeviation() * 2);
 		if (ap_area_threshold < (int)(ap_stat.getAverage() * 2))
@@ -553,7 +638,7 @@ public class StreakCancelFilter extends Filter {
 			if (ap.getPixelCount() < ap_area_threshold) {
 				Pixel[] pixels = ap.getPixels();
 				for (int j = 0 ; j < pixels.length ; j++)
-					flag_image.setValue(pixels[j].getX(), pixels[j].getY(), 0);
+					flags.clear(pixels[j].getX(), pixels[j].getY());
 			} else {
 				ap_count++;
 			}
@@ -571,221 +656,568 @@ public class StreakCancelFilter extends Filter {
 		// it is regarded as extension of streaks.
 		// No edges are detected from the three lines on top.
 		// So the y value starts from 3.
-		for (int y = 3 ; y < image.getSize().getHeight() ; y++) {
-			// Because only background pixels are considered when to extend
-			// the foot of streaks, here creates the buffer of x positions
-			// of background pixels.
-			int[] bg_x = new int[image.getSize().getWidth()];
-			int bg_count = 0;
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (bg_flag_image.getValue(x, y) > 0.5)
-					bg_x[bg_count++] = x;
-			}
+		// Each line is processed in parallel.
+		if (height > 3) {
+			final int[] bounds = ParallelExecutor.divide(height - 3, ParallelExecutor.getPartCount(height - 3, 8));
+			ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+				public void operate ( int index ) {
+					for (int y = 3 + bounds[index] ; y < 3 + bounds[index+1] ; y++)
+						extendStreakFoot(unmodified_image, bg_flags, flags, y);
+				}
+			});
+		}
 
-			// Extends the streak towards right.
-			for (int x = filter_size ; x < bg_count ; x++) {
-				// When the left side background pixel is streak, and the
-				// current background pixel is not streak, checks if the
-				// streak can be extended or not.
-				// Calculates the average and deviation of streak pixels in the 
-				// left side, and the avearge of background pixels in the right side.
-				// If the difference of them is smaller than three times of 
-				// deviation of the streak pixels in the left, and smaller than
-				// three times of the background deviation, the streak is extended.
-				if (flag_image.getValue(bg_x[x - 1], y) > 0.5  &&  flag_image.getValue(bg_x[x], y) < 0.5) {
-					Array streak_array = new Array(filter_size);
-					for (int dx = - filter_size ; dx <= -1 ; dx++)
-						streak_array.set(dx + filter_size, image.getValue(bg_x[x + dx], y));
-					Statistics streak_stat = new Statistics(streak_array);
-					streak_stat.calculate();
-
-					Array background_array = new Array(filter_size);
-					for (int dx = 0 ; dx < filter_size ; dx++) {
-						if (x + dx < bg_count)
-							background_array.set(dx, image.getValueOnFlatExtension(bg_x[x + dx], y));
-						else
-							background_array.set(dx, image.getValueOnFlatExtension(bg_x[bg_count - 1], y));
-					}
-					background_array.sortAscendant();
-					double background_median = background_array.getValueAt(filter_size / 2);
+		return flags;
+	}
 
-					if (background_median - streak_stat.getAverage() < streak_stat.getDeviation() * 3.0  &&
-						background_median - streak_stat.getAverage() < background_deviation * 3.0)
-						flag_image.setValue(bg_x[x], y, 1);
+	/**
+	 * Extends the streaks horizontally on the specified line, in order
+	 * to cover the foot of streaks.
+	 * @param image    the original image.
+	 * @param bg_flags the flags to represent the background pixels.
+	 * @param flags    the flags to represents the streak pixels.
+	 * @param y        the y position of the line.
+	 */
+	private void extendStreakFoot ( MonoImage image, FlagSet[] bg_flags, FlagSet flags, int y ) {
+		int width = image.getSize().getWidth();
+
+		double[] values = new double[width];
+		image.getRow(y, values);
+
+		// Because only background pixels are considered when to extend
+		// the foot of streaks, here creates the buffer of x positions
+		// of background pixels.
+		int[] bg_x = new int[width];
+		int bg_count = 0;
+		for (int x = 0 ; x < width ; x++) {
+			if (bg_flags[0].get(x, y)  ||  bg_flags[1].get(x, y))
+				bg_x[bg_count++] = x;
+		}
+
+		double[] streak_values = new double[filter_size];
+		double[] background_values = new double[filter_size];
+
+		// Extends the streak towards right.
+		for (int x = filter_size ; x < bg_count ; x++) {
+			// When the left side background pixel is streak, and the
+			// current background pixel is not streak, checks if the
+			// streak can be extended or not.
+			// Calculates the average and deviation of streak pixels in the
+			// left side, and the avearge of background pixels in the right side.
+			// If the difference of them is smaller than three times of
+			// deviation of the streak pixels in the left, and smaller than
+			// three times of the background deviation, the streak is extended.
+			if (flags.get(bg_x[x - 1], y)  &&  flags.get(bg_x[x], y) == false) {
+				for (int dx = - filter_size ; dx <= -1 ; dx++)
+					streak_values[dx + filter_size] = values[bg_x[x + dx]];
+				double streak_average = calculateAverage(streak_values, filter_size);
+				double streak_deviation = calculateDeviation(streak_values, filter_size);
+
+				for (int dx = 0 ; dx < filter_size ; dx++) {
+					if (x + dx < bg_count)
+						background_values[dx] = values[bg_x[x + dx]];
+					else
+						background_values[dx] = values[bg_x[bg_count - 1]];
 				}
-			}
+				double background_median = DoubleArrays.select(background_values, 0, filter_size, filter_size / 2);
 
-			// Extends the streak towards left.
-			for (int x = bg_count - 1 - filter_size ; x >= 0 ; x--) {
-				// When the right side background pixel is streak, and the
-				// current background pixel is not streak, checks if the
-				// streak can be extended or not.
-				// Calculates the average and deviation of streak pixels in the 
-				// right side, and the avearge of background pixels in the left side.
-				// If the difference of them is smaller than three times of 
-				// deviation of the streak pixels in the right, and smaller than
-				// three times of the background deviation, the streak is extended.
-				if (flag_image.getValue(bg_x[x], y) < 0.5  &&  flag_image.getValue(bg_x[x + 1], y) > 0.5) {
-					Array streak_array = new Array(filter_size);
-					for (int dx = 1 ; dx <= filter_size ; dx++)
-						streak_array.set(dx - 1, image.getValue(bg_x[x + dx], y));
-					Statistics streak_stat = new Statistics(streak_array);
-					streak_stat.calculate();
-
-					Array background_array = new Array(filter_size);
-					for (int dx = 0 ; dx < filter_size ; dx++) {
-						if (x - dx >= 0)
-							background_array.set(dx, image.getValueOnFlatExtension(bg_x[x - dx], y));
-						else
-							background_array.set(dx, image.getValueOnFlatExtension(bg_x[0], y));
-					}
-					background_array.sortAscendant();
-					double background_median = background_array.getValueAt(filter_size / 2);
+				if (background_median - streak_average < streak_deviation * 3.0  &&
+					background_median - streak_average < background_deviation * 3.0)
+					flags.set(bg_x[x], y);
+			}
+		}
 
-					if (background_median - streak_stat.getAverage() < streak_stat.getDeviation() * 3.0  &&
-						background_median - streak_stat.getAverage() < background_deviation * 3.0)
-						flag_image.setValue(bg_x[x], y, 1);
+		// Extends the streak towards left.
+		for (int x = bg_count - 1 - filter_size ; x >= 0 ; x--) {
+			// When the right side background pixel is streak, and the
+			// current background pixel is not streak, checks if the
+			// streak can be extended or not.
+			// Calculates the average and deviation of streak pixels in the
+			// right side, and the avearge of background pixels in the left side.
+			// If the difference of them is smaller than three times of
+			// deviation of the streak pixels in the right, and smaller than
+			// three times of the background deviation, the streak is extended.
+			if (flags.get(bg_x[x], y) == false  &&  flags.get(bg_x[x + 1], y)) {
+				for (int dx = 1 ; dx <= filter_size ; dx++)
+					streak_values[dx - 1] = values[bg_x[x + dx]];
+				double streak_average = calculateAverage(streak_values, filter_size);
+				double streak_deviation = calculateDeviation(streak_values, filter_size);
+
+				for (int dx = 0 ; dx < filter_size ; dx++) {
+					if (x - dx >= 0)
+						background_values[dx] = values[bg_x[x - dx]];
+					else
+						background_values[dx] = values[bg_x[0]];
 				}
+				double background_median = DoubleArrays.select(background_values, 0, filter_size, filter_size / 2);
+
+				if (background_median - streak_average < streak_deviation * 3.0  &&
+					background_median - streak_average < background_deviation * 3.0)
+					flags.set(bg_x[x], y);
 			}
 		}
-
-		return flag_image;
 	}
 
 	/**
 	 * Subtracts the streaks and stores the result into the original
 	 * image buffer, from top to bottom.
 	 * <p>
-	 * When the flag of a pixel is set in the specified streak flag 
-	 * image, difference between the average around the pixel and the
-	 * average of the pixels above is subtracted, and the streaks are
-	 * deleted one line by one from top to bottom.
-	 * @param image         the original image to process.
-	 * @param bg_flag_image the flag image to represent the background
-	 * pixels.
-	 * @param st_flag_image the flag image to represent the streaks.
+	 * When the flag of a pixel is set in the specified streak flags,
+	 * difference between the average around the pixel and the average
+	 * of the pixels above is subtracted, and the streaks are deleted
+	 * one line by one from top to bottom.
+	 * @param image    the original image to process.
+	 * @param bg_flags the flags to represent the background pixels.
+	 * @param st_flags the flags to represent the streaks.
 	 */
-	private void subtractTopToBottom ( MonoImage image, MonoImage bg_flag_image, MonoImage st_flag_image ) {
+	private void subtractTopToBottom ( MonoImage image, FlagSet[] bg_flags, FlagSet st_flags ) {
+		int width = image.getSize().getWidth();
+		int height = image.getSize().getHeight();
+
+		BackgroundAverage bg_average = new BackgroundAverage(image, bg_flags);
+		for (int y = 0 ; y < 3  &&  y < height ; y++)
+			bg_average.calculateRow(y);
+
 		// In order to calculate the deviation to detect the edge,
 		// three lines are required at least. So the y value starts from 3.
-		for (int y = 3 ; y < image.getSize().getHeight() ; y++) {
+		double[] buffer = new double[width];
+		for (int y = 3 ; y < height ; y++) {
 			// The result of subtraction is stored in the temporary buffer.
 			// It is stored to the image after all the process of one line
 			// are completed.
-			double[] buffer = new double[image.getSize().getWidth()];
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				buffer[x] = image.getValue(x, y);
-
-			// Calculates the subtracted value for every streak pixel.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (st_flag_image.getValue(x, y) > 0.5) {
-					EdgePixel pixel = operateAt(image, bg_flag_image, x, y);
-					buffer[x] = pixel.value;
-				}
-			}
+			bg_average.calculateRow(y);
+			bg_average.operateRow(y, buffer, null, st_flags);
 
 			// Stores the result of subtraction in the original image.
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++)
-				image.setValue(x, y, buffer[x]);
+			image.setRow(y, buffer);
+			bg_average.calculateRow(y);
+		}
+	}
+
+	/**
+	 * Calculates the average of the values in the same way as
+	 * <code>Statistics</code>.
+	 * @param values the array of values.
+	 * @param count  the number of values.
+	 * @return the average.
+	 */
+	private static double calculateAverage ( double[] values, int count ) {
+		double amount = 0.0;
+		for (int i = 0 ; i < count ; i++)
+			amount += values[i];
+		return amount / (double)count;
+	}
+
+	/**
+	 * Calculates the standard deviation of the values in the same way
+	 * as <code>Statistics</code>.
+	 * @param values the array of values.
+	 * @param count  the number of values.
+	 * @return the standard deviation.
+	 */
+	private static double calculateDeviation ( double[] values, int count ) {
+		double amount = 0.0;
+		double amount2 = 0.0;
+		for (int i = 0 ; i < count ; i++) {
+			amount += values[i];
+			amount2 += values[i] * values[i];
 		}
+		double average = amount / (double)count;
+		return Math.sqrt(amount2 / (double)count - average * average);
+	}
+
+	/**
+	 * Gets the relative x position of the first pixel of the window,
+	 * for the specified background flag.
+	 * @param flag the background flag.
+	 * @return the relative x position.
+	 */
+	private int getBaseX ( int flag ) {
+		if (flag == 3)
+			return 0;
+		if (flag == 2)
+			return - filter_size + 1;
+		return - (filter_size - 1) / 2;
+	}
+
+	/**
+	 * Reads the pixel values of the specified line, extended by the
+	 * filter size at both sides with the values at the edge. The value
+	 * at the x position is stored at (x + filter size - 1).
+	 * @param image  the image.
+	 * @param y      the y position.
+	 * @param values the array to store the values.
+	 */
+	private void readExtendedRow ( MonoImage image, int y, double[] values ) {
+		int width = image.getSize().getWidth();
+		image.getRow(0, y, width, values, filter_size - 1);
+		for (int i = 0 ; i < filter_size - 1 ; i++) {
+			values[i] = values[filter_size - 1];
+			values[width + filter_size - 1 + i] = values[width + filter_size - 2];
+		}
+	}
+
+	/**
+	 * Reverses the flags upside down. The returned flags share the
+	 * bits with the specified flags.
+	 * @param flags the flags.
+	 * @return the reversed flags.
+	 */
+	private static FlagSet[] reverseVertically ( FlagSet[] flags ) {
+		FlagSet[] reversed_flags = new FlagSet[flags.length];
+		for (int i = 0 ; i < flags.length ; i++)
+			reversed_flags[i] = flags[i].reverseVertically();
+		return reversed_flags;
 	}
 
 	/**
-	 * Judges if the pixel is part of an edge and calculates the
-	 * subtracted value for the specified pixel.
+	 * Creates the flag image. The pixel value is 1 if the lower bit is
+	 * set, and 2 if the higher bit is set, and 3 if both are set.
+	 * @param lower_flags  the lower bits.
+	 * @param higher_flags the higher bits, or null.
+	 * @return the flag image.
+	 */
+	private static MonoImage createFlagImage ( FlagSet lower_flags, FlagSet higher_flags ) {
+		int width = lower_flags.getWidth();
+		int height = lower_flags.getHeight();
+
+		MonoImage flag_image = new MonoImage(new ByteBuffer(new Size(width, height)));
+		double[] values = new double[width];
+		for (int y = 0 ; y < height ; y++) {
+			for (int x = 0 ; x < width ; x++) {
+				int flag = 0;
+				if (lower_flags.get(x, y))
+					flag += 1;
+				if (higher_flags != null  &&  higher_flags.get(x, y))
+					flag += 2;
+				values[x] = (double)flag;
+			}
+			flag_image.setRow(y, values);
+		}
+		return flag_image;
+	}
+
+	/**
+	 * The <code>BackgroundAverage</code> keeps the sums of background
+	 * pixel values in every window of the current line and 10 lines
+	 * above, in order to judge the edges and calculate the subtracted
+	 * values.
 	 * <p>
-	 * The flag is 2 if the difference from the line above is large, 
-	 * 1 if the difference is not large enough, and 0 if not edges.
-     *  Judges one line by one from top to bottom. The difference is
-	 * @param image         the original image to process.
-	 * @param bg_flag_image the flag image to represent the background
-	 * pixels.
-	 * @param x             the x position.
-	 * @param y             the y position.
-	 * @return the set of the flag and the subtracted value.
+	 * The sum in a window is calculated in the same order as before,
+	 * so the result is exactly the same. But it is calculated only
+	 * once for each line, and shared by all pixels in the 11 lines
+	 * below.
 	 */
-	private EdgePixel operateAt ( MonoImage image, MonoImage bg_flag_image, int x, int y ) {
-		EdgePixel edge_pixel = new EdgePixel();
-		edge_pixel.value = image.getValue(x, y);
-
-		// Only background pixels are processed.
-		if (bg_flag_image.getValue(x, y) > 0.5) {
-			int base_x = - (filter_size - 1) / 2;
-			if (bg_flag_image.getValue(x, y) > 2.5)
-				base_x = 0;
-			else if (bg_flag_image.getValue(x, y) > 1.5)
-				base_x = - filter_size + 1;
-
-			// The average of background pixels are calculated for the current
-			// line and 10 lines above, and stored in the array.
-			Array row_average_array = new Array(11);
-			int row_count = 0;
-			for (int dy = - 10 ; dy <= 0 ; dy++) {
-				if (y + dy >= 0) {
-					// Calculates the average of background pixels.
-					double bg_average = 0.0;
-					int bg_count = 0;
-					for (int dx = 0 ; dx < filter_size ; dx++) {
-						if (bg_flag_image.getValueOnFlatExtension(x + base_x + dx, y + dy) > 0.5) {
-							bg_average += image.getValueOnFlatExtension(x + base_x + dx, y + dy);
-							bg_count++;
-						}
-					}
-					if (bg_count > 0)
-						row_average_array.set(row_count++, bg_average / (double)bg_count);
-				}
+	protected class BackgroundAverage {
+		/**
+		 * The image.
+		 */
+		protected MonoImage image;
+
+		/**
+		 * The flags to represent the background pixels.
+		 */
+		protected FlagSet[] bg_flags;
+
+		/**
+		 * The image width.
+		 */
+		protected int width;
+
+		/**
+		 * The sums of background pixel values of each line.
+		 */
+		protected double[][] sums = new double[11][];
+
+		/**
+		 * The numbers of background pixels of each line.
+		 */
+		protected int[][] counts = new int[11][];
+
+		/**
+		 * The pixel values of the current line.
+		 */
+		protected double[] values;
+
+		/**
+		 * The background flags of the current line.
+		 */
+		protected byte[] flags;
+
+		/**
+		 * Constructs a <code>BackgroundAverage</code>.
+		 * @param image    the image.
+		 * @param bg_flags the flags to represent the background pixels.
+		 */
+		public BackgroundAverage ( MonoImage image, FlagSet[] bg_flags ) {
+			this.image = image;
+			this.bg_flags = bg_flags;
+
+			width = image.getSize().getWidth();
+			for (int i = 0 ; i < 11 ; i++) {
+				sums[i] = new double[width + filter_size - 1];
+				counts[i] = new int[width + filter_size - 1];
 			}
+			values = new double[width + 2 * filter_size];
+			flags = new byte[width + 2 * filter_size];
+		}
 
-			// In order to calculate the deviation of the average values,
-			// three lines containing any background pixels are required at least.
-			// The current line must contain the background pixels.
-			if (row_count > 3) {
-				Statistics stat = new Statistics(row_average_array.cloneArray(row_count - 1));
-				stat.calculate();
-
-				double last_average = row_average_array.getValueAt(row_count - 2);
-				double current_average = row_average_array.getValueAt(row_count - 1);
-
-				// The edge is detected if the difference between the average of 
-				// background pixels in the current line and that in the line above
-				// is large enough, compared to the deviation of average values of
-				// background pixels in each 10 lines above.
-				// The flag is 2 if the difference from the line above is large, 
-				// 1 if the difference is not large enough.
-				if (current_average - last_average > 3.0 * stat.getDeviation())
-					edge_pixel.flag = 2;
-				else if (current_average - last_average > 2.0 * stat.getDeviation())
-					edge_pixel.flag = 1;
-
-				// Subtracts the difference. The average of the current line 
-				// becomes the same as the average of average values of 
-				// the 10 lines above.
-				edge_pixel.value = image.getValue(x, y) + (stat.getAverage() - current_average);
+		/**
+		 * Calculates the sums of background pixel values in every
+		 * window of the specified line, from the current pixel values.
+		 * The pixel values and the background flags of the line are
+		 * also kept.
+		 * @param y the y position.
+		 */
+		public void calculateRow ( final int y ) {
+			readExtendedRow(image, y, values);
+			for (int i = 0 ; i < width + 2 * filter_size - 2 ; i++) {
+				int x = Math.min(Math.max(i - filter_size + 1, 0), width - 1);
+				flags[i] = 0;
+				if (bg_flags[0].get(x, y))
+					flags[i] += 1;
+				if (bg_flags[1].get(x, y))
+					flags[i] += 2;
 			}
+
+			final double[] sum = sums[y % 11];
+			final int[] count = counts[y % 11];
+			final int[] bounds = ParallelExecutor.divide(sum.length, ParallelExecutor.getPartCount(sum.length, 256));
+			ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+				public void operate ( int index ) {
+					for (int i = bounds[index] ; i < bounds[index+1] ; i++) {
+						double bg_sum = 0.0;
+						int bg_count = 0;
+						for (int dx = 0 ; dx < filter_size ; dx++) {
+							if (flags[i + dx] > 0) {
+								bg_sum += values[i + dx];
+								bg_count++;
+							}
+						}
+						sum[i] = bg_sum;
+						count[i] = bg_count;
+					}
+				}
+			});
 		}
 
-		return edge_pixel;
+		/**
+		 * Judges if each pixel of the specified line is part of an edge
+		 * and calculates the subtracted value. The sums of the line and
+		 * the lines above must be calculated in advance.
+		 * <p>
+		 * The flag is 2 if the difference from the line above is large,
+		 * 1 if the difference is not large enough, and 0 if not edges.
+		 * @param y         the y position.
+		 * @param buffer    the array to store the subtracted values.
+		 * @param edge_flag the array to store the flags, or null.
+		 * @param st_flags  the flags of pixels to process, or null when
+		 * to process all pixels.
+		 */
+		public void operateRow ( final int y, final double[] buffer, final byte[] edge_flag, final FlagSet st_flags ) {
+			final int[] bounds = ParallelExecutor.divide(width, ParallelExecutor.getPartCount(width, 256));
+			ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+				public void operate ( int index ) {
+					double[] row_averages = new double[11];
+
+					for (int x = bounds[index] ; x < bounds[index+1] ; x++) {
+						buffer[x] = values[x + filter_size - 1];
+						if (edge_flag != null)
+							edge_flag[x] = 0;
+
+						if (st_flags != null  &&  st_flags.get(x, y) == false)
+							continue;
+
+						// Only background pixels are processed.
+						int flag = flags[x + filter_size - 1];
+						if (flag == 0)
+							continue;
+
+						int i = x + getBaseX(flag) + filter_size - 1;
+
+						// The average of background pixels are calculated for the current
+						// line and 10 lines above, and stored in the array.
+						int row_count = 0;
+						for (int dy = - 10 ; dy <= 0 ; dy++) {
+							if (y + dy >= 0) {
+								int bg_count = counts[(y + dy) % 11][i];
+								if (bg_count > 0)
+									row_averages[row_count++] = sums[(y + dy) % 11][i] / (double)bg_count;
+							}
+						}
+
+						// In order to calculate the deviation of the average values,
+						// three lines containing any background pixels are required at least.
+						// The current line must contain the background pixels.
+						if (row_count > 3) {
+							double average = calculateAverage(row_averages, row_count - 1);
+							double deviation = calculateDeviation(row_averages, row_count - 1);
+
+							double last_average = row_averages[row_count - 2];
+							double current_average = row_averages[row_count - 1];
+
+							// The edge is detected if the difference between the average of
+							// background pixels in the current line and that in the line above
+							// is large enough, compared to the deviation of average values of
+							// background pixels in each 10 lines above.
+							// The flag is 2 if the difference from the line above is large,
+							// 1 if the difference is not large enough.
+							if (edge_flag != null) {
+								if (current_average - last_average > 3.0 * deviation)
+									edge_flag[x] = 2;
+								else if (current_average - last_average > 2.0 * deviation)
+									edge_flag[x] = 1;
+							}
+
+							// Subtracts the difference. The average of the current line
+							// becomes the same as the average of average values of
+							// the 10 lines above.
+							buffer[x] = values[x + filter_size - 1] + (average - current_average);
+						}
+					}
+				}
+			});
+		}
 	}
 
 	/**
-	 * The <code>EdgePixel</code> is a set of the flag and the 
-	 * subtracted value.
+	 * The <code>FlagSet</code> represents the flags of all pixels of
+	 * an image, kept in a bit set. Each line begins at the top of a
+	 * word, so the flags of different lines can be set in parallel.
 	 */
-	protected class EdgePixel {
+	protected static class FlagSet {
+		/**
+		 * The image width.
+		 */
+		protected int width;
+
+		/**
+		 * The image height.
+		 */
+		protected int height;
+
+		/**
+		 * The number of words of a line.
+		 */
+		protected int line_words;
+
+		/**
+		 * The bit set.
+		 */
+		protected long[] words;
+
 		/**
-		 * The flag.
+		 * True when the lines are reversed upside down.
 		 */
-		public byte flag = 0;
+		protected boolean reversed = false;
 
 		/**
-		 * The subtracted value.
+		 * Constructs an empty <code>FlagSet</code>.
+		 * @param width  the image width.
+		 * @param height the image height.
 		 */
-		public double value = 0.0;
+		public FlagSet ( int width, int height ) {
+			this.width = width;
+			this.height = height;
+
+			line_words = (width + 63) / 64;
+			words = new long[line_words * height];
+		}
 
 		/**
-		 * Constructs an empty <code>EdgePixel</code>.
+		 * Gets the image width.
+		 * @return the image width.
 		 */
-		public EdgePixel ( ) {
+		public int getWidth ( ) {
+			return width;
+		}
+
+		/**
+		 * Gets the image height.
+		 * @return the image height.
+		 */
+		public int getHeight ( ) {
+			return height;
+		}
+
+		/**
+		 * Creates the flags reversed upside down. The returned flags
+		 * share the bit set with this flags.
+		 * @return the reversed flags.
+		 */
+		public FlagSet reverseVertically ( ) {
+			FlagSet set = new FlagSet(0, 0);
+			set.width = width;
+			set.height = height;
+			set.line_words = line_words;
+			set.words = words;
+			set.reversed = ! reversed;
+			return set;
+		}
+
+		/**
+		 * Gets the index of the first word of the specified line.
+		 * @param y the y position.
+		 * @return the index of the first word.
+		 */
+		protected int getLineOffset ( int y ) {
+			if (reversed)
+				y = height - 1 - y;
+			return y * line_words;
+		}
+
+		/**
+		 * Returns true if the flag of the specified pixel is set.
+		 * @param x the x position.
+		 * @param y the y position.
+		 * @return true if the flag is set.
+		 */
+		public boolean get ( int x, int y ) {
+			return (words[getLineOffset(y) + (x >> 6)] & (1L << (x & 63))) != 0;
+		}
+
+		/**
+		 * Sets the flag of the specified pixel.
+		 * @param x the x position.
+		 * @param y the y position.
+		 */
+		public void set ( int x, int y ) {
+			words[getLineOffset(y) + (x >> 6)] |= 1L << (x & 63);
+		}
+
+		/**
+		 * Clears the flag of the specified pixel.
+		 * @param x the x position.
+		 * @param y the y position.
+		 */
+		public void clear ( int x, int y ) {
+			words[getLineOffset(y) + (x >> 6)] &= ~ (1L << (x & 63));
+		}
+
+		/**
+		 * Sets the flags which are set in the specified flags.
+		 * @param set the flags of the same size.
+		 */
+		public void or ( FlagSet set ) {
+			for (int y = 0 ; y < height ; y++) {
+				int offset = getLineOffset(y);
+				int offset2 = set.getLineOffset(y);
+				for (int i = 0 ; i < line_words ; i++)
+					words[offset + i] |= set.words[offset2 + i];
+			}
+		}
+
+		/**
+		 * Clears the flags which are set in the specified flags.
+		 * @param set the flags of the same size.
+		 */
+		public void andNot ( FlagSet set ) {
+			for (int y = 0 ; y < height ; y++) {
+				int offset = getLineOffset(y);
+				int offset2 = set.getLineOffset(y);
+				for (int i = 0 ; i < line_words ; i++)
+					words[offset + i] &= ~ set.words[offset2 + i];
+			}
 		}
 	}
 }
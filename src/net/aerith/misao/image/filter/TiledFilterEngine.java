@@ -0,0 +1,161 @@
+/*
+ * @(#)TiledFilterEngine.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.image.filter;
+import net.aerith.misao.util.*;
+import net.aerith.misao.image.*;
+
+/**
+ * The <code>TiledFilterEngine</code> is a class to operate a chain of
+ * image processing filters concurrently.
+ * <p>
+ * The consecutive <code>PointFilter</code>s are operated at once on
+ * bands of rows, so the intermediate images are never stored. The
+ * filter whose halo size is positive is operated on the tiles of the
+ * image with the halo around, and the results are stored into a new
+ * image. Other filters are operated on the whole image one by one.
+ * The result is the same as operating the filters one by one.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class TiledFilterEngine {
+	/**
+	 * The size of a tile.
+	 */
+	protected int tile_size = 512;
+
+	/**
+	 * Constructs a <code>TiledFilterEngine</code>.
+	 */
+	public TiledFilterEngine ( ) {
+	}
+
+	/**
+	 * Sets the size of a tile.
+	 * @param size the size of a tile.
+	 */
+	public void setTileSize ( int size ) {
+		tile_size = size;
+		if (tile_size < 1)
+			tile_size = 1;
+	}
+
+	/**
+	 * Operates the filters in order.
+	 * @param image   the image to process.
+	 * @param filters the filters.
+	 * @return the filtered image.
+	 */
+	public MonoImage operate ( MonoImage image, Filter[] filters ) {
+		int i = 0;
+		while (i < filters.length) {
+			if (filters[i] instanceof PointFilter) {
+				int count = 1;
+				while (i + count < filters.length  &&  filters[i + count] instanceof PointFilter)
+					count++;
+
+				PointFilter[] point_filters = new PointFilter[count];
+				for (int j = 0 ; j < count ; j++)
+					point_filters[j] = (PointFilter)filters[i + j];
+				operatePointFilters(image, point_filters);
+
+				i += count;
+			} else if (filters[i].getHaloSize() > 0) {
+				image = operateOnTiles(image, filters[i]);
+				i++;
+			} else {
+				image = filters[i].operate(image);
+				i++;
+			}
+		}
+
+		return image;
+	}
+
+	/**
+	 * Operates the point filters at once on bands of rows. The result
+	 * is stored into the original image. The arrays of a row are 
+	 * allocated once for each band.
+	 * @param image   the image to process.
+	 * @param filters the point filters.
+	 */
+	protected void operatePointFilters ( final MonoImage image, final PointFilter[] filters ) {
+		final int width = image.getSize().getWidth();
+		int height = image.getSize().getHeight();
+
+		int count = ParallelExecutor.getPartCount(height, 16);
+		final int[] bounds = ParallelExecutor.divide(height, count);
+
+		ParallelExecutor.execute(count, new ParallelOperation() {
+			public void operate ( int index ) {
+				double[] values = new double[width];
+				double[] work = new double[width];
+				for (int y = bounds[index] ; y < bounds[index + 1] ; y++) {
+					image.getBufferRow(0, y, width, values, 0);
+					for (int i = 0 ; i < filters.length ; i++)
+						filters[i].operateRow(image, y, values, work);
+					image.setBufferRow(0, y, width, values, 0);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Operates the filter on the tiles of the image with the halo 
+	 * around. The results are stored into a new image.
+	 * @param image  the image to process.
+	 * @param filter the filter.
+	 * @return the filtered image.
+	 */
+	protected MonoImage operateOnTiles ( final MonoImage image, final Filter filter ) {
+		final int width = image.getSize().getWidth();
+		final int height = image.getSize().getHeight();
+		final int halo = filter.getHaloSize();
+
+		final int columns = (width + tile_size - 1) / tile_size;
+		int rows = (height + tile_size - 1) / tile_size;
+		if (columns * rows <= 1)
+			return filter.operate(image);
+
+		final MonoImage new_image = image.cloneImage(image.getSize());
+		if (new_image == null)
+			return filter.operate(image);
+
+		ParallelExecutor.execute(columns * rows, new ParallelOperation() {
+			public void operate ( int index ) {
+				int x0 = (index % columns) * tile_size;
+				int y0 = (index / columns) * tile_size;
+				int x1 = Math.min(x0 + tile_size, width);
+				int y1 = Math.min(y0 + tile_size, height);
+
+				// The tile with the halo.
+				int hx0 = Math.max(x0 - halo, 0);
+				int hy0 = Math.max(y0 - halo, 0);
+				int hx1 = Math.min(x1 + halo, width);
+				int hy1 = Math.min(y1 + halo, height);
+
+				MonoImage tile = image.cloneImage(new Size(hx1 - hx0, hy1 - hy0));
+				double[] values = new double[hx1 - hx0];
+				for (int y = hy0 ; y < hy1 ; y++) {
+					image.getBufferRow(hx0, y, hx1 - hx0, values, 0);
+					tile.setBufferRow(0, y - hy0, hx1 - hx0, values, 0);
+				}
+
+				tile = filter.operate(tile);
+
+				for (int y = y0 ; y < y1 ; y++) {
+					tile.getBufferRow(x0 - hx0, y - hy0, x1 - x0, values, 0);
+					new_image.setBufferRow(x0, y, x1 - x0, values, 0);
+				}
+			}
+		});
+
+		return new_image;
+	}
+}
@@ -19,7 +19,7 @@ import net.aerith.misao.pixy.Resource;
  * just an access interface to FITS file.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 April 13
+ * @version 2026 October 18
  */
 
 public class Fits extends Format {
@@ -95,23 +95,46 @@ public class Fits extends Format {
 		Size size = new Size(Integer.parseInt(header.getProperty("NAXIS1")), 
 							 Integer.parseInt(header.getProperty("NAXIS2")));
 
-		MonoImage image = new MonoImage();
-
 		int bitpix = Integer.parseInt(header.getProperty("BITPIX"));
-		if (Math.abs(bitpix) == 8) {
-			image.readByteImage(stream, size);
-		} else if (Math.abs(bitpix) == 16) {
-			// Short type buffer keeps value as unsigned, but in FITS 
-			// file, short value is considered as signed.
-			if (signed())
-				image.setSigned();
-			image.readShortImage(stream, size);
-		} else if (bitpix == 32) {
-			image.readIntImage(stream, size);
-		} else if (bitpix == -32) {
-			image.readFloatImage(stream, size);
-		} else {
-			throw new UnsupportedBufferTypeException();
+
+		MonoImage image = null;
+
+		// Uncompressed file on the local disk is memory-mapped.
+		File file = getMappableFile();
+		if (file != null) {
+			try {
+				image = new MonoImage(MappedBuffer.map(file, header.getHeaderLength(), bitpix, signed(), size));
+				if (Math.abs(bitpix) == 16  &&  signed()) {
+					// Short type buffer keeps value as unsigned, so the 
+					// bzero value must be shifted as same as 
+					// MonoImage#readShortImage.
+					image.setSigned();
+					image.setPixelValueConvertParameters(-32768.0, 1.0);
+				}
+			} catch ( IOException exception ) {
+				// Reads from the stream instead.
+				image = null;
+			}
+		}
+
+		if (image == null) {
+			image = new MonoImage();
+
+			if (Math.abs(bitpix) == 8) {
+				image.readByteImage(stream, size);
+			} else if (Math.abs(bitpix) == 16) {
+				// Short type buffer keeps value as unsigned, but in FITS 
+				// file, short value is considered as signed.
+				if (signed())
+					image.setSigned();
+				image.readShortImage(stream, size);
+			} else if (bitpix == 32) {
+				image.readIntImage(stream, size);
+			} else if (bitpix == -32) {
+				image.readFloatImage(stream, size);
+			} else {
+				throw new UnsupportedBufferTypeException();
+			}
 		}
 
 		double bzero = 0.0;
@@ -134,6 +157,34 @@ public class Fits extends Format {
 		return new FitsDocument(image, header);
 	}
 
+	/**
+	 * Gets the file to be memory-mapped. It returns null if the url 
+	 * is not a local file, the file is compressed, or memory-mapping
+	 * is disabled.
+	 * @return the file to be memory-mapped, or null.
+	 */
+	protected File getMappableFile ( ) {
+		if (Resource.isFitsMappingEnabled() == false)
+			return null;
+		if (url.getProtocol().equals("file") == false)
+			return null;
+
+		String[] exts = Decoder.getCompressedExtensions();
+		for (int i = 0 ; i < exts.length ; i++) {
+			if (FileManager.endsWith(url.getPath(), "." + exts[i]))
+				return null;
+		}
+
+		try {
+			File file = new File(url.toURI());
+			if (file.isFile())
+				return file;
+		} catch ( URISyntaxException exception ) {
+		} catch ( IllegalArgumentException exception ) {
+		}
+		return null;
+	}
+
 	/**
 	 * Saves image buffer into a FITS file. The url of the FITS file 
 	 * must be set previously. The type of FITS file is properly 
@@ -167,6 +218,16 @@ public class Fits extends Format {
 		if (url == null)
 			throw new IOException();
 
+		// The image mapped from the same file must be read before the
+		// file is truncated.
+		if (url.getProtocol().equals("file")) {
+			try {
+				document.getImage().detachMapping(new File(url.toURI()));
+			} catch ( URISyntaxException exception ) {
+			} catch ( IllegalArgumentException exception ) {
+			}
+		}
+
 		DataOutputStream stream = Encoder.newOutputStream(url);
 
 		document.getHeader().write(stream);
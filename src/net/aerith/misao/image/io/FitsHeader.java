@@ -17,7 +17,7 @@ import net.aerith.misao.util.*;
  * FITS header.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2001 May 10
+ * @version 2026 October 18
  */
 
 public class FitsHeader {
@@ -31,6 +31,11 @@ public class FitsHeader {
 	 */
 	protected Properties properties;
 
+	/**
+	 * The number of bytes of the header in the file.
+	 */
+	protected long header_length = 0;
+
 	/**
 	 * Constructs an empty <code>FitsHeader</code>.
 	 */
@@ -109,6 +114,15 @@ public class FitsHeader {
 		return properties.getProperty(key);
 	}
 
+	/**
+	 * Gets the number of bytes of the header read from the file. The
+	 * data starts just after the header.
+	 * @return the number of bytes of the header.
+	 */
+	public long getHeaderLength ( ) {
+		return header_length;
+	}
+
 	/**
 	 * Reads the header of FITS file and creates a new 
 	 * <code>FitsHeader</code>.
@@ -127,6 +141,7 @@ public class FitsHeader {
 		while (true) {
 			input.readFully(buffer, 0, 80);
 			header.header_string += new String(buffer);
+			header.header_length += 80;
 			lines++;
 
 			String s = new String(buffer);
@@ -137,6 +152,7 @@ public class FitsHeader {
 					for (int i = 0 ; i < rest ; i++) {
 						input.readFully(buffer, 0, 80);
 						header.header_string += new String(buffer);
+						header.header_length += 80;
 					}
 				}
 				return header;
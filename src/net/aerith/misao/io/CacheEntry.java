@@ -13,7 +13,7 @@ import java.io.*;
  * disk cache.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 23
+ * @version 2026 October 18
  */
 
 public class CacheEntry {
@@ -37,6 +37,16 @@ public class CacheEntry {
 	 */
 	protected long last_used;
 
+	/**
+	 * The last updated time.
+	 */
+	protected long last_updated;
+
+	/**
+	 * The size of the file in bytes.
+	 */
+	protected long size = 0;
+
 	/**
 	 * Constructs a <code>CacheEntry</code>.
 	 * @param path    the file path.
@@ -48,6 +58,7 @@ public class CacheEntry {
 
 		update_count = 0;
 		last_used = System.currentTimeMillis();
+		last_updated = last_used;
 	}
 
 	/**
@@ -75,6 +86,30 @@ public class CacheEntry {
 		return last_used;
 	}
 
+	/**
+	 * Gets the last updated time in milli seconds.
+	 * @return the last updated time in milli seconds.
+	 */
+	public long getLastUpdatedTimeMillis ( ) {
+		return last_updated;
+	}
+
+	/**
+	 * Gets the size of the file.
+	 * @return the size of the file in bytes.
+	 */
+	public long getSize ( ) {
+		return size;
+	}
+
+	/**
+	 * Sets the size of the file.
+	 * @param size the size of the file in bytes.
+	 */
+	public void setSize ( long size ) {
+		this.size = size;
+	}
+
 	/**
 	 * Returns true when the entry is updated.
 	 * @return true when the entry is updated.
@@ -107,5 +142,6 @@ public class CacheEntry {
 
 		update_count++;
 		last_used = System.currentTimeMillis();
+		last_updated = last_used;
 	}
 }
@@ -14,9 +14,14 @@ import net.aerith.misao.database.*;
 /**
  * The <code>DiskFileSystem</code> represents a directory on the real
  * file system on the disk drive.
+ * <p>
+ * The XML elements in a folder are stored in XML files by default.
+ * They can be stored in the files mapped into memory instead, which
+ * is selected when the database is created, and is recorded in the
+ * directory.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2001 November 26
+ * @version 2026 October 18
  */
 
 public class DiskFileSystem implements FileSystem {
@@ -25,6 +30,18 @@ public class DiskFileSystem implements FileSystem {
 	 */
 	protected File db_folder;
 
+	/**
+	 * The name of the file which represents the XML elements are
+	 * stored in the files mapped into memory.
+	 */
+	public final static String MAPPED_MARKER = "mapped.db";
+
+	/**
+	 * True when the XML elements are stored in the files mapped into
+	 * memory.
+	 */
+	protected boolean mapped = false;
+
 	/**
 	 * Constructs a <code>DiskFileSystem</code>.
 	 * @param db_folder the directory.
@@ -32,6 +49,22 @@ public class DiskFileSystem implements FileSystem {
 	 */
 	public DiskFileSystem ( File db_folder )
 		throws IOException
+	{
+		this(db_folder, false);
+	}
+
+	/**
+	 * Constructs a <code>DiskFileSystem</code>. When the directory is
+	 * empty, the XML elements are stored in the files mapped into
+	 * memory if the flag is true. Otherwise, the way recorded in the
+	 * directory is used.
+	 * @param db_folder   the directory.
+	 * @param mapped_flag true when the XML elements are to be stored
+	 * in the files mapped into memory.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public DiskFileSystem ( File db_folder, boolean mapped_flag )
+		throws IOException
 	{
 		this.db_folder = db_folder;
 
@@ -42,6 +75,23 @@ public class DiskFileSystem implements FileSystem {
 			if (db_folder.mkdirs() == false)
 				throw new IOException();
 		}
+
+		File marker = new File(db_folder, MAPPED_MARKER);
+		if (mapped_flag  &&  db_folder.list().length == 0) {
+			if (marker.createNewFile() == false)
+				throw new IOException();
+		}
+		mapped = marker.exists();
+	}
+
+	/**
+	 * Returns true when the XML elements are stored in the files
+	 * mapped into memory.
+	 * @return true when the XML elements are stored in the files
+	 * mapped into memory.
+	 */
+	public boolean isMapped ( ) {
+		return mapped;
 	}
 
 	/**
@@ -108,6 +158,9 @@ public class DiskFileSystem implements FileSystem {
 	public PrimitiveManager getPrimitiveManager ( Folder folder, XmlDBHolder holder_class, XmlDBRecord record_class )
 		throws IOException
 	{
+		if (mapped)
+			return new PrimitiveMappedManager(((FileFolder)folder).getFile(), holder_class, record_class);
+
 		return new PrimitiveFileManager(((FileFolder)folder).getFile(), holder_class, record_class);
 	}
 
@@ -119,6 +172,8 @@ public class DiskFileSystem implements FileSystem {
 	public void discard ( )
 		throws IOException
 	{
+		MappedRecordStore.discard(db_folder);
+
 		if (discard(db_folder) == false)
 			throw new IOException();
 	}
@@ -20,7 +20,7 @@ import net.aerith.misao.util.Coor;
  * methods to search or copy files.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 6
+ * @version 2026 October 18
  */
 
 public class FileManager {
@@ -240,6 +240,23 @@ public class FileManager {
 	 */
 	public XmlReport readReport ( XmlInformation info, Coor coor, double radius )
 		throws IOException
+	{
+		XmlReportReader reader = new XmlReportReader();
+		reader.setCone(coor, radius);
+		return readReport(info, reader);
+	}
+
+	/**
+	 * Reads the XML report document recorded in the specified 
+	 * XML information element with only star data selected by the
+	 * filters of the specified reader.
+	 * @param info   the XML information element.
+	 * @param reader the reader of the XML report document.
+	 * @return the XML report document.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlReport readReport ( XmlInformation info, XmlReportReader reader )
+		throws IOException
 	{
 		if (info.getPath() == null)
 			throw new IOException();
@@ -247,7 +264,9 @@ public class FileManager {
 		File file = newFile(info.getPath());
 
 		BufferedReader in = Decoder.newReader(file);
-		XmlReport report = XmlReport.read(in, coor, radius);
+		XmlReport report = new XmlReport();
+		reader.read(in, report);
+		in.close();
 		report.getInformation().setPath(file.getPath());
 		return report;
 	}
@@ -322,6 +341,7 @@ public class FileManager {
 
 		BufferedReader in = Decoder.newReader(newFile(info.getPath()));
 		XmlStar star = XmlReport.readStar(in, name);
+		in.close();
 		return star;
 	}
 
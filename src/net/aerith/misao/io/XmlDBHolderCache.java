@@ -7,31 +7,64 @@
 
 package net.aerith.misao.io;
 import java.io.*;
+import java.util.*;
 import net.aerith.misao.database.XmlDBHolder;
+import net.aerith.misao.pixy.Resource;
 
 /**
  * The <code>XmlDBHolderCache</code> represents a disk cache to read
  * and write XML files in the database.
+ * <p>
+ * The entries are kept in order of access, so that a file is found
+ * and the least recently used file is evicted in a constant time.
+ * The cache is bounded by the number of files and by the total size
+ * of files, which are configured in <code>Resource</code>. 
+ * <p>
+ * The updated XML documents are not saved on the calling thread. 
+ * The write-behind thread saves them after a while, so that several
+ * updates of one file are coalesced into one write. A file updated
+ * many times is saved on the calling thread, because
+ * <code>XmlDBFileAccessor</code> checks the file size on the disk to
+ * find a vacant file. The updated
+ * documents evicted from the cache are also saved by the write-behind
+ * thread, because the calling thread may hold the monitor of another
+ * document.
+ * <p>
+ * All methods are thread-safe. When a cached XML document is modified
+ * directly, it must be done in a block synchronized on the document,
+ * followed by the <code>write</code> method.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 23
+ * @version 2026 October 18
  */
 
 public class XmlDBHolderCache {
 	/**
-	 * The number of XML files in cache.
+	 * The limit to update without saving to a file soon.
 	 */
-	protected final static int file_count = 100;
+	protected static int update_limit = 20;
 
 	/**
-	 * The limit to update without saving to a file.
+	 * The lock object of the cache.
 	 */
-	protected static int update_limit = 20;
+	protected final static Object lock = new Object();
+
+	/**
+	 * The entries in order of access, whose keys are the absolute 
+	 * paths.
+	 */
+	protected static LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+	/**
+	 * The updated entries which are evicted and now being saved, 
+	 * whose keys are the absolute paths.
+	 */
+	protected static HashMap evicting = new HashMap();
 
 	/**
-	 * The entries.
+	 * The total size of files in cache.
 	 */
-	protected static CacheEntry[] entries = new CacheEntry[file_count];
+	protected static long total_size = 0;
 
 	/**
 	 * True if the disk cache is enabled.
@@ -39,20 +72,73 @@ public class XmlDBHolderCache {
 	protected static boolean enable_cache = false;
 
 	/**
-	 * Enables/disables the disk cache.
+	 * The number of times a file is found in cache.
+	 */
+	protected static long hit_count = 0;
+
+	/**
+	 * The number of times a file is not found in cache.
+	 */
+	protected static long miss_count = 0;
+
+	/**
+	 * The number of evicted files.
+	 */
+	protected static long eviction_count = 0;
+
+	/**
+	 * The number of times an XML document in cache is saved.
+	 */
+	protected static long write_count = 0;
+
+	/**
+	 * The sequence number of saving, which is never reset.
+	 */
+	private static long save_sequence = 0;
+
+	/**
+	 * The write-behind thread.
+	 */
+	protected static Thread writer = null;
+
+	/**
+	 * Enables/disables the disk cache. When disabled, the updated XML
+	 * documents are saved before the cache is cleared.
 	 * @param flag true when to enable the disk cache.
 	 * @exception IOException if I/O error occurs.
 	 */
 	public static void enable ( boolean flag )
 		throws IOException
 	{
-		if (flag == false) {
+		if (flag) {
+			synchronized (lock) {
+				enable_cache = true;
+			}
+			return;
+		}
+
+		while (true) {
 			flush();
 
-			entries = new CacheEntry[file_count];
-		}
+			synchronized (lock) {
+				// A document may be updated while saving. The cache is
+				// cleared only when all documents are saved, in the
+				// same block as checked.
+				boolean updated = (evicting.size() > 0);
+				Iterator it = entries.values().iterator();
+				while (updated == false  &&  it.hasNext()) {
+					if (((CacheEntry)it.next()).isUpdated())
+						updated = true;
+				}
 
-		enable_cache = flag;
+				if (updated == false) {
+					entries.clear();
+					total_size = 0;
+					enable_cache = false;
+					return;
+				}
+			}
+		}
 	}
 
 	/**
@@ -65,58 +151,53 @@ public class XmlDBHolderCache {
 	public static XmlDBHolder read ( File file, XmlDBHolder holder_class )
 		throws IOException
 	{
-		int empty_index = -1;
-
-		if (enable_cache) {
-			int LRU_index = -1;
-			long LRU_last_used = -1;
-
-			for (int i = 0 ; i < file_count ; i++) {
-				if (entries[i] == null) {
-					// Empty area is found.
-					empty_index = i;
-				} else {
-					if (entries[i].getPath().equals(file.getAbsolutePath())) {
+		String path = file.getAbsolutePath();
+
+		while (true) {
+			boolean cache_flag = false;
+			long saved_sequence = 0;
+			synchronized (lock) {
+				cache_flag = enable_cache;
+
+				if (cache_flag) {
+					CacheEntry entry = lookup(path);
+					if (entry != null) {
 						// Specified file is found in cache.
-						return (XmlDBHolder)entries[i].getContent();
-					} else {
-						// Searches least recently used file.
-						if (LRU_last_used < 0  ||  LRU_last_used > entries[i].getLastUsedTimeMillis()) {
-							LRU_index = i;
-							LRU_last_used = entries[i].getLastUsedTimeMillis();
-						}
+						hit_count++;
+						return (XmlDBHolder)entry.getContent();
 					}
+
+					miss_count++;
+					saved_sequence = save_sequence;
 				}
 			}
 
-			// When not found in cache.
-
-			// When no empty area is found, saves the least
-			// recently used file and replaces.
-			if (empty_index < 0) {
-				if (entries[LRU_index].isUpdated()) {
-					File LRU_file = new File(entries[LRU_index].getPath());
-					Writer out = new PrintWriter(new DataOutputStream(new FileOutputStream(LRU_file)));
-					XmlDBHolder holder = (XmlDBHolder)entries[LRU_index].getContent();
-					holder.write(out);
-					out.close();
-				}
+			// Reads the XML document.
+			XmlDBHolder holder = holder_class.create();
+			Reader in = new BufferedReader(new FileReader(file));
+			holder.read(in);
+			in.close();
 
-				empty_index = LRU_index;
-			}
-		}
+			if (cache_flag == false)
+				return holder;
 
-		// Reads the XML document.
-		XmlDBHolder holder = holder_class.create();
-		Reader in = new BufferedReader(new FileReader(file));
-		holder.read(in);
-		in.close();
+			synchronized (lock) {
+				// The file may be read by another thread meanwhile.
+				CacheEntry entry = lookup(path);
+				if (entry != null)
+					return (XmlDBHolder)entry.getContent();
 
-		if (enable_cache) {
-			entries[empty_index] = new CacheEntry(file.getAbsolutePath(), holder);
-		}
+				// Some documents are saved meanwhile, so the file may
+				// be overwritten after it is read. Reads it again.
+				if (save_sequence != saved_sequence)
+					continue;
 
-		return holder;
+				entry = new CacheEntry(path, holder);
+				insert(entry, file.length());
+			}
+
+			return holder;
+		}
 	}
 
 	/**
@@ -128,38 +209,52 @@ public class XmlDBHolderCache {
 	public static void write ( File file, XmlDBHolder holder )
 		throws IOException
 	{
-		if (enable_cache) {
-			for (int i = 0 ; i < file_count ; i++) {
-				if (entries[i] != null) {
-					if (entries[i].getPath().equals(file.getAbsolutePath())) {
-						// Specified file is found in cache.
-						entries[i].update(holder);
-
-						// Saves forcely if the file is updated many times,
-						// but not saved in the file for a while.
-						// Then XmlDBFileAccessor#getVacantFile() can find
-						// a vacant file properly, because it checks the
-						// file size on the disk.
-						if (entries[i].getUpdateCount() >= update_limit) {
-							Writer out = new PrintWriter(new DataOutputStream(new FileOutputStream(file)));
-							holder.write(out);
-							out.close();
-
-							entries[i].resetUpdateCount();
-						}
+		String path = file.getAbsolutePath();
 
-						return;
-					}
+		boolean cache_flag = false;
+		CacheEntry entry = null;
+		boolean save_flag = false;
+		synchronized (lock) {
+			cache_flag = enable_cache;
+
+			if (cache_flag) {
+				entry = lookup(path);
+				if (entry == null) {
+					// When not found in cache, the document is added
+					// into cache, so that another thread never reads
+					// the file while it is being saved.
+					entry = new CacheEntry(path, holder);
+					insert(entry, file.length());
+				}
+
+				// It will be saved by the write-behind thread.
+				entry.update(holder);
+
+				startWriter();
+				save_flag = (entry.getUpdateCount() >= update_limit);
+			}
+		}
+
+		if (cache_flag) {
+			// Saves forcely if the file is updated many times, but
+			// not saved in the file for a while. Then
+			// XmlDBFileAccessor#getVacantFile() can find a vacant
+			// file properly, because it checks the file size on the
+			// disk. The monitor of the entry is not required, so
+			// that it never deadlocks with the write-behind thread
+			// while the caller holds the monitor of the document.
+			if (save_flag) {
+				synchronized (holder) {
+					saveContent(entry, holder);
 				}
 			}
+			return;
 		}
 
-		// When not found in cache.
+		// When the disk cache is disabled.
 
 		// Saves the XML document.
-		Writer out = new PrintWriter(new DataOutputStream(new FileOutputStream(file)));
-		holder.write(out);
-		out.close();
+		writeFile(file, holder);
 	}
 
 	/**
@@ -169,17 +264,333 @@ public class XmlDBHolderCache {
 	public static void flush ( )
 		throws IOException
 	{
-		for (int i = 0 ; i < file_count ; i++) {
-			if (entries[i] != null) {
-				if (entries[i].isUpdated()) {
-					// Saves the XML document.
-					File file = new File(entries[i].getPath());
-					Writer out = new PrintWriter(new DataOutputStream(new FileOutputStream(file)));
-					XmlDBHolder holder = (XmlDBHolder)entries[i].getContent();
-					holder.write(out);
-					out.close();
-
-					entries[i].resetUpdateCount();
+		Vector list = new Vector();
+		synchronized (lock) {
+			list.addAll(evicting.values());
+			list.addAll(entries.values());
+		}
+
+		for (int i = 0 ; i < list.size() ; i++)
+			save((CacheEntry)list.elementAt(i));
+	}
+
+	/**
+	 * Gets the number of times a file is found in cache.
+	 * @return the number of cache hits.
+	 */
+	public static long getHitCount ( ) {
+		synchronized (lock) {
+			return hit_count;
+		}
+	}
+
+	/**
+	 * Gets the number of times a file is not found in cache.
+	 * @return the number of cache misses.
+	 */
+	public static long getMissCount ( ) {
+		synchronized (lock) {
+			return miss_count;
+		}
+	}
+
+	/**
+	 * Gets the number of evicted files.
+	 * @return the number of evicted files.
+	 */
+	public static long getEvictionCount ( ) {
+		synchronized (lock) {
+			return eviction_count;
+		}
+	}
+
+	/**
+	 * Gets the number of times an XML document in cache is saved.
+	 * @return the number of writes.
+	 */
+	public static long getWriteCount ( ) {
+		synchronized (lock) {
+			return write_count;
+		}
+	}
+
+	/**
+	 * Gets the number of files in cache.
+	 * @return the number of files in cache.
+	 */
+	public static int getEntryCount ( ) {
+		synchronized (lock) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * Gets the total size of files in cache.
+	 * @return the total size of files in bytes.
+	 */
+	public static long getTotalSize ( ) {
+		synchronized (lock) {
+			return total_size;
+		}
+	}
+
+	/**
+	 * Resets the counters of hits, misses, evictions and writes.
+	 */
+	public static void resetCounters ( ) {
+		synchronized (lock) {
+			hit_count = 0;
+			miss_count = 0;
+			eviction_count = 0;
+			write_count = 0;
+		}
+	}
+
+	/**
+	 * Finds the entry of the specified path. An evicted entry which
+	 * is now being saved is restored into cache. This must be invoked
+	 * in a block synchronized on the lock.
+	 * @param path the absolute path.
+	 * @return the entry, or null if not found.
+	 */
+	private static CacheEntry lookup ( String path ) {
+		CacheEntry entry = (CacheEntry)entries.get(path);
+		if (entry == null) {
+			entry = (CacheEntry)evicting.remove(path);
+			if (entry != null) {
+				entries.put(path, entry);
+				total_size += entry.getSize();
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Adds the specified entry into cache, and evicts the least 
+	 * recently used entries if needed. The evicted entries which are
+	 * updated are handed to the write-behind thread. They must not be
+	 * saved here, because the caller may hold the monitor of another
+	 * document, and saving requires the monitors of the evicted entry
+	 * and its document. This must be invoked in a block synchronized 
+	 * on the lock.
+	 * @param entry the entry.
+	 * @param size  the size of the file in bytes.
+	 */
+	private static void insert ( CacheEntry entry, long size ) {
+		entry.setSize(size);
+		entries.put(entry.getPath(), entry);
+		total_size += size;
+
+		if (evict() > 0) {
+			startWriter();
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Evicts the least recently used entries while the cache exceeds
+	 * the limits. The most recently used entry is always kept. This
+	 * must be invoked in a block synchronized on the lock.
+	 * @return the number of evicted entries which must be saved.
+	 */
+	private static int evict ( ) {
+		int count = 0;
+
+		int entry_limit = Resource.getDBCacheEntryLimit();
+		long size_limit = Resource.getDBCacheSizeLimit();
+
+		Iterator it = entries.values().iterator();
+		while (entries.size() > 1  &&  (entries.size() > entry_limit  ||  total_size > size_limit)) {
+			CacheEntry entry = (CacheEntry)it.next();
+			it.remove();
+			total_size -= entry.getSize();
+			eviction_count++;
+
+			if (entry.isUpdated()) {
+				evicting.put(entry.getPath(), entry);
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Saves the XML document of the specified entry into the file if
+	 * it is updated.
+	 * @param entry the entry.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static void save ( CacheEntry entry )
+		throws IOException
+	{
+		synchronized (entry) {
+			while (true) {
+				XmlDBHolder holder = null;
+				synchronized (lock) {
+					if (entry.isUpdated() == false) {
+						if (evicting.get(entry.getPath()) == entry)
+							evicting.remove(entry.getPath());
+						return;
+					}
+					holder = (XmlDBHolder)entry.content;
+				}
+
+				synchronized (holder) {
+					// The document may be replaced meanwhile.
+					if (saveContent(entry, holder) == false)
+						continue;
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the specified XML document of the specified entry into the
+	 * file, unless the document of the entry is replaced. This must be
+	 * invoked in a block synchronized on the document.
+	 * @param entry  the entry.
+	 * @param holder the holder.
+	 * @return false if the document of the entry is replaced.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static boolean saveContent ( CacheEntry entry, XmlDBHolder holder )
+		throws IOException
+	{
+		int count = 0;
+		synchronized (lock) {
+			if (entry.content != holder)
+				return false;
+			if (entry.isUpdated() == false)
+				return true;
+			count = entry.getUpdateCount();
+		}
+
+		File file = new File(entry.getPath());
+		writeFile(file, holder);
+
+		synchronized (lock) {
+			if (entry.getUpdateCount() == count) {
+				entry.resetUpdateCount();
+
+				// The evicted entry is released after saved.
+				if (evicting.get(entry.getPath()) == entry)
+					evicting.remove(entry.getPath());
+			}
+
+			long size = file.length();
+			if (entries.containsKey(entry.getPath()))
+				total_size += size - entry.getSize();
+			entry.setSize(size);
+
+			write_count++;
+			save_sequence++;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes the XML document into the specified file.
+	 * @param file   the file.
+	 * @param holder the holder.
+	 * @exception IOException if I/O error occurs.
+	 */
+	private static void writeFile ( File file, XmlDBHolder holder )
+		throws IOException
+	{
+		Writer out = new PrintWriter(new DataOutputStream(new FileOutputStream(file)));
+		holder.write(out);
+		out.close();
+	}
+
+	/**
+	 * Starts the write-behind thread if not started yet. This must be
+	 * invoked in a block synchronized on the lock.
+	 */
+	private static void startWriter ( ) {
+		if (writer == null) {
+			writer = new WriteBehindThread();
+			writer.start();
+
+			// Saves the updated documents when the virtual machine
+			// shuts down.
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run ( ) {
+					try {
+						flush();
+					} catch ( IOException exception ) {
+						System.err.println(exception);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * The <code>WriteBehindThread</code> is a thread to save the
+	 * updated XML documents in cache in the background.
+	 */
+	protected static class WriteBehindThread extends Thread {
+		/**
+		 * Constructs a <code>WriteBehindThread</code>.
+		 */
+		public WriteBehindThread ( ) {
+			super("XmlDBHolderCache writer");
+			setDaemon(true);
+		}
+
+		/**
+		 * Runs this thread.
+		 */
+		public void run ( ) {
+			while (true) {
+				Vector list = new Vector();
+
+				synchronized (lock) {
+					long delay = Resource.getDBCacheWriteDelay();
+					long now = System.currentTimeMillis();
+
+					// The evicted entries are saved at once.
+					list.addAll(evicting.values());
+
+					Iterator it = entries.values().iterator();
+					while (it.hasNext()) {
+						CacheEntry entry = (CacheEntry)it.next();
+						if (entry.isUpdated()) {
+							if (now - entry.getLastUpdatedTimeMillis() >= delay  ||
+								entry.getUpdateCount() >= update_limit)
+								list.addElement(entry);
+						}
+					}
+
+					if (list.size() == 0) {
+						try {
+							lock.wait(Math.max(delay, 100));
+						} catch ( InterruptedException exception ) {
+						}
+						continue;
+					}
+				}
+
+				boolean failed = false;
+				for (int i = 0 ; i < list.size() ; i++) {
+					try {
+						save((CacheEntry)list.elementAt(i));
+					} catch ( IOException exception ) {
+						System.err.println(exception);
+						failed = true;
+					}
+				}
+
+				// Retries after a while when failed to save.
+				if (failed) {
+					synchronized (lock) {
+						try {
+							lock.wait(Math.max(Resource.getDBCacheWriteDelay(), 100));
+						} catch ( InterruptedException exception ) {
+						}
+					}
 				}
 			}
 		}
@@ -18,10 +18,16 @@ import net.aerith.misao.xml.*;
 import net.aerith.misao.io.*;
 import net.aerith.misao.catalog.CatalogManager;
 import net.aerith.misao.catalog.io.CatalogReader;
+import net.aerith.misao.catalog.io.CachedCatalogReader;
+import net.aerith.misao.catalog.io.CatalogQueryCache;
 import net.aerith.misao.pixy.image_loading.XmlImageLoader;
 import net.aerith.misao.pixy.star_detection.DefaultStarDetector;
 import net.aerith.misao.pixy.matching.MatchingOperator;
 import net.aerith.misao.pixy.matching.RetryManager;
+import net.aerith.misao.pixy.matching.SpeculativeMatchingOperator;
+import net.aerith.misao.pixy.matching.WarmStartMatchingOperator;
+import net.aerith.misao.pixy.matching.PlateSolution;
+import net.aerith.misao.pixy.matching.PlateSolutionCache;
 import net.aerith.misao.pixy.pairing.PairingOperator;
 
 /**
@@ -29,7 +35,7 @@ import net.aerith.misao.pixy.pairing.PairingOperator;
  * whole process of image examination. 
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2004 November 24
+ * @version 2026 October 18
  */
 
 public class ExaminationOperator extends Operation {
@@ -107,6 +113,23 @@ public class ExaminationOperator extends Operation {
 	 */
 	protected int minimum_STR_count = 4;
 
+	/**
+	 * The catalog reader given from outside. In the case of null, a
+	 * new reader of the catalog specified in the instruction is used.
+	 */
+	protected CatalogReader catalog_reader = null;
+
+	/**
+	 * The cache of the results of examination of the previous images
+	 * in the same run, or null when not to start matching from them.
+	 */
+	protected PlateSolutionCache plate_solution_cache = null;
+
+	/**
+	 * The sequential number of the image in the run.
+	 */
+	protected int plate_solution_sequence = 0;
+
 	/**
 	 * Constructs an <code>ExaminationOperator</code>.
 	 * @param instruction the instruction.
@@ -204,6 +227,31 @@ public class ExaminationOperator extends Operation {
 		minimum_STR_count = count;
 	}
 
+	/**
+	 * Sets the catalog reader to use instead of creating a new reader
+	 * of the catalog specified in the instruction. The reader must be
+	 * of the catalog specified in the instruction, and must not be 
+	 * used by another thread during the operation.
+	 * @param reader the catalog reader.
+	 */
+	public void setCatalogReader ( CatalogReader reader ) {
+		catalog_reader = reader;
+	}
+
+	/**
+	 * Sets the cache of the results of examination of the previous
+	 * images in the same run. The matching starts from the solution of
+	 * the previous image of the same field, when its center and field
+	 * of view agree with the instruction. The result of this image is
+	 * also stored in the cache.
+	 * @param cache    the cache of the results of examination.
+	 * @param sequence the sequential number of the image in the run.
+	 */
+	public void setPlateSolutionCache ( PlateSolutionCache cache, int sequence ) {
+		plate_solution_cache = cache;
+		plate_solution_sequence = sequence;
+	}
+
 	/**
 	 * Gets the XML report document.
 	 * @return the XML report document.
@@ -212,6 +260,22 @@ public class ExaminationOperator extends Operation {
 		return report;
 	}
 
+	/**
+	 * Creates a new reader of the catalog specified in the 
+	 * instruction. The catalog is read through the process-wide
+	 * catalog query cache.
+	 * @param instruction the instruction.
+	 * @return the catalog reader, or null if no such catalog.
+	 */
+	public static CatalogReader createCatalogReader ( XmlInstruction instruction ) {
+		CatalogReader reader = CatalogManager.getStarCatalogReader(instruction.getBaseCatalog().getContent());
+		if (instruction.getBaseCatalog().getContent().equals(CatalogManager.getSampleStarCatalogReader().getName()))
+			reader = CatalogManager.getSampleStarCatalogReader();
+		if (reader == null)
+			return null;
+		return new CachedCatalogReader(reader);
+	}
+
 	/**
 	 * Returns true if the operation is ready to start.
 	 * @return true if the operation is ready to start.
@@ -257,6 +321,8 @@ public class ExaminationOperator extends Operation {
 			detector.setApertureSize(inner_aperture_size, outer_aperture_size);
 			if (correct_blooming_position)
 				detector.setCorrectBloomingPosition();
+			if (Resource.isLocalThresholdEnabled())
+				detector.setLocalThreshold();
 			detector.addMonitor(monitor_set);
 			detector.operate();
 			StarImageList list_detected = detector.getStarList();
@@ -264,10 +330,9 @@ public class ExaminationOperator extends Operation {
 			list_detected.setMagnitude(new MagnitudeTranslationFormula());
 			list_detected.sort();
 
-			CatalogReader catalog_reader = CatalogManager.getStarCatalogReader(instruction.getBaseCatalog().getContent());
-			if (instruction.getBaseCatalog().getContent().equals(CatalogManager.getSampleStarCatalogReader().getName())) {
-				catalog_reader = CatalogManager.getSampleStarCatalogReader();
-			}
+			CatalogReader catalog_reader = this.catalog_reader;
+			if (catalog_reader == null)
+				catalog_reader = createCatalogReader(instruction);
 			if (catalog_reader == null) {
 				monitor_set.addMessage("No such catalog: " + instruction.getBaseCatalog().getContent());
 			} else {
@@ -282,14 +347,48 @@ public class ExaminationOperator extends Operation {
 				if (matching_mode != MatchingOperator.MODE_UNCERTAIN)
 					retry_manager.setPolicy(RetryManager.POLICY_NO_RETRY);
 
-				// Operates matching.
+				double position_angle_of_up = 0.0;
+				if (instruction.getRotation() != null)
+					position_angle_of_up = instruction.getRotation().getContent();
+
+				// Starts from the solution of the previous image of the
+				// same field if possible.
 				ChartMapFunction cmf = null;
-				while (true) {
-					try {
-						double position_angle_of_up = 0.0;
-						if (instruction.getRotation() != null)
-							position_angle_of_up = instruction.getRotation().getContent();
+				if (plate_solution_cache != null  &&  matching_mode != MatchingOperator.MODE_ACCURATE) {
+					double fov = Math.max(((XmlFov)instruction.getFov()).getWidthInDegree(), ((XmlFov)instruction.getFov()).getHeightInDegree());
+					PlateSolution solution = plate_solution_cache.find(plate_solution_sequence, catalog_reader.getName(), ((XmlCenter)instruction.getCenter()).getCoor(), fov, image.getSize());
+					if (solution != null) {
+						monitor_set.addMessage("Starts matching from the solution of the previous image.");
+						try {
+							WarmStartMatchingOperator matching_operator = new WarmStartMatchingOperator(image, solution, list_detected);
+							matching_operator.addMonitor(monitor_set);
+							matching_operator.operate();
+
+							cmf = matching_operator.getChartMapFunction();
+						} catch ( Exception exception ) {
+							monitor_set.addMessage("Warm start failed.");
+						}
+					}
+				}
 
+				// Operates matching.
+				if (cmf == null  &&  Resource.isParallelRetryEnabled()  &&  retry_manager.getCenterCoorCount() > 1  &&  SpeculativeMatchingOperator.supports(catalog_reader)) {
+					// Operates all retries concurrently. Here an exception
+					// is thrown when all retries failed.
+					SpeculativeMatchingOperator matching_operator = new SpeculativeMatchingOperator(
+						image, catalog_reader, instruction.getBaseCatalog().getPath(),
+						retry_manager,
+						position_angle_of_up,
+						list_detected);
+					matching_operator.setMode(matching_mode);
+					matching_operator.setJudgementMode(matching_judge);
+					matching_operator.addMonitor(monitor_set);
+					matching_operator.operate();
+
+					cmf = matching_operator.getChartMapFunction();
+				}
+				while (cmf == null) {
+					try {
 						MatchingOperator matching_operator = new MatchingOperator(
 							image, catalog_reader, instruction.getBaseCatalog().getPath(),
 							retry_manager.getCenterCoor(),
@@ -330,6 +429,8 @@ public class ExaminationOperator extends Operation {
 					operator.fixLimitingMagnitude(instruction.getProperLimitingMag(), instruction.getProperUpperLimitMag());
 				operator.operate();
 
+				CatalogQueryCache.report(monitor_set);
+
 				// Creates the XML report document.
 				report = operator.getXmlReportDocument();
 				XmlInformation info = (XmlInformation)report.getInformation();
@@ -337,6 +438,15 @@ public class ExaminationOperator extends Operation {
 				if (info.getStarCount().getStr() < minimum_STR_count)
 					throw new ExaminationFailedException();
 
+				if (plate_solution_cache != null) {
+					plate_solution_cache.store(plate_solution_sequence, new PlateSolution(
+						catalog_reader.getName(),
+						operator.getChartMapFunction(),
+						operator.getDistortionField(),
+						image.getSize(),
+						operator.getPairList()));
+				}
+
 				if (instruction.getDate() != null)
 					info.setDate(instruction.getDate());
 				if (instruction.getExposure() != null) {
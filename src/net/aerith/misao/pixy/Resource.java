@@ -16,7 +16,7 @@ import net.aerith.misao.xml.*;
  * messages for the PIXY system.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 July 15
+ * @version 2026 October 18
  */
 
 public class Resource {
@@ -70,6 +70,80 @@ public class Resource {
 	 */
 	private final static ImageIcon status_error_icon = new ImageIcon(ClassLoader.getSystemResource("net/aerith/misao/resources/images/error-i.gif"));
 
+	/**
+	 * True when uncompressed FITS files are to be memory-mapped.
+	 */
+	private static boolean fits_mapping_enabled = true;
+
+	/**
+	 * The maximum number of XML files in the disk cache of the
+	 * database.
+	 */
+	private static int db_cache_entry_limit = 100;
+
+	/**
+	 * The maximum total size of XML files in the disk cache of the
+	 * database in bytes.
+	 */
+	private static long db_cache_size_limit = 64L * 1024L * 1024L;
+
+	/**
+	 * The delay in milli seconds before the updated XML files in the
+	 * disk cache of the database are saved in the background.
+	 */
+	private static long db_cache_write_delay = 2000;
+
+	/**
+	 * The maximum total size of the stars in the catalog query cache
+	 * in bytes. In the case of 0, the cache is disabled.
+	 */
+	private static long catalog_cache_size_limit = 64L * 1024L * 1024L;
+
+	/**
+	 * The number of images to be examined concurrently in the batch
+	 * examination. It is limited up to 4 by default, since each 
+	 * examination holds a whole image and a catalog in the heap.
+	 */
+	private static int batch_examination_thread_count = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+
+	/**
+	 * True when the triangles pattern matching is to be solved in the
+	 * indexed mode.
+	 */
+	private static boolean indexed_matching_enabled = true;
+
+	/**
+	 * True when the retries of matching process in examination are
+	 * to be operated concurrently.
+	 */
+	private static boolean parallel_retry_enabled = true;
+
+	/**
+	 * The maximum number of previous images whose results of
+	 * examination are kept in a batch examination to start the
+	 * examination of the next image of the same field. In the case of
+	 * 0, it is disabled.
+	 */
+	private static int plate_solution_cache_size = 0;
+
+	/**
+	 * True when the raw database is constructed in the fast rebuild
+	 * mode.
+	 */
+	private static boolean fast_database_rebuild_enabled = false;
+
+	/**
+	 * True when the temporary database of the raw database
+	 * construction is created in the files mapped into memory.
+	 */
+	private static boolean mapped_temporary_database_enabled = false;
+
+	/**
+	 * True when stars are detected with the threshold at each pixel
+	 * based on the RMS noise of the sky.
+	 */
+	private static boolean local_threshold_enabled = false;
+
 	/**
 	 * Initializes the system configuration.
 	 */
@@ -181,6 +255,20 @@ public class Resource {
 		} catch ( IOException exception ) {
 			// It's OK even if the configuration file does not exist.
 		}
+
+		XmlPerformanceConfig config = (XmlPerformanceConfig)configuration.getPerformanceConfig();
+		if (config != null) {
+			if (config.getCatalogCacheSize() != null)
+				catalog_cache_size_limit = config.getCatalogCacheSize().longValue();
+			if (config.getPlateSolutionCacheSize() != null)
+				plate_solution_cache_size = config.getPlateSolutionCacheSize().intValue();
+			if (config.getFastDatabaseRebuild() != null)
+				fast_database_rebuild_enabled = config.getFastDatabaseRebuild().booleanValue();
+			if (config.getMappedTemporaryDatabase() != null)
+				mapped_temporary_database_enabled = config.getMappedTemporaryDatabase().booleanValue();
+			if (config.getLocalThreshold() != null)
+				local_threshold_enabled = config.getLocalThreshold().booleanValue();
+		}
 	}
 
 	/**
@@ -195,6 +283,23 @@ public class Resource {
 		}
 	}
 
+	/**
+	 * Gets the performance configuration to be modified. It returns
+	 * null when the configuration has not been read.
+	 * @return the performance configuration, or null.
+	 */
+	private static XmlPerformanceConfig getPerformanceConfig ( ) {
+		if (configuration == null)
+			return null;
+
+		XmlPerformanceConfig config = (XmlPerformanceConfig)configuration.getPerformanceConfig();
+		if (config == null) {
+			config = new XmlPerformanceConfig();
+			configuration.setPerformanceConfig(config);
+		}
+		return config;
+	}
+
 	/**
 	 * Sets the default catalog path. Several paths can be described 
 	 * separating with path separator.
@@ -263,6 +368,266 @@ public class Resource {
 		return order;
 	}
 
+	/**
+	 * Sets the flag whether uncompressed FITS files on the local disk
+	 * are to be memory-mapped instead of being read into the heap. 
+	 * This setting is not saved in the configuration file.
+	 * @param flag true when FITS files are to be memory-mapped.
+	 */
+	public static void setFitsMappingEnabled ( boolean flag ) {
+		fits_mapping_enabled = flag;
+	}
+
+	/**
+	 * Returns true when uncompressed FITS files on the local disk are
+	 * to be memory-mapped instead of being read into the heap.
+	 * @return true when FITS files are to be memory-mapped.
+	 */
+	public static boolean isFitsMappingEnabled ( ) {
+		return fits_mapping_enabled;
+	}
+
+	/**
+	 * Sets the maximum number of XML files in the disk cache of the
+	 * database. This setting is not saved in the configuration file.
+	 * @param count the maximum number of XML files.
+	 */
+	public static void setDBCacheEntryLimit ( int count ) {
+		db_cache_entry_limit = count;
+	}
+
+	/**
+	 * Gets the maximum number of XML files in the disk cache of the
+	 * database.
+	 * @return the maximum number of XML files.
+	 */
+	public static int getDBCacheEntryLimit ( ) {
+		return db_cache_entry_limit;
+	}
+
+	/**
+	 * Sets the maximum total size of XML files in the disk cache of
+	 * the database. This setting is not saved in the configuration 
+	 * file.
+	 * @param size the maximum total size in bytes.
+	 */
+	public static void setDBCacheSizeLimit ( long size ) {
+		db_cache_size_limit = size;
+	}
+
+	/**
+	 * Gets the maximum total size of XML files in the disk cache of
+	 * the database.
+	 * @return the maximum total size in bytes.
+	 */
+	public static long getDBCacheSizeLimit ( ) {
+		return db_cache_size_limit;
+	}
+
+	/**
+	 * Sets the delay before the updated XML files in the disk cache
+	 * of the database are saved in the background. This setting is
+	 * not saved in the configuration file.
+	 * @param millis the delay in milli seconds.
+	 */
+	public static void setDBCacheWriteDelay ( long millis ) {
+		db_cache_write_delay = millis;
+	}
+
+	/**
+	 * Gets the delay before the updated XML files in the disk cache
+	 * of the database are saved in the background.
+	 * @return the delay in milli seconds.
+	 */
+	public static long getDBCacheWriteDelay ( ) {
+		return db_cache_write_delay;
+	}
+
+	/**
+	 * Sets the maximum total size of the stars in the catalog query
+	 * cache. In the case of 0, the cache is disabled.
+	 * @param size the maximum total size in bytes.
+	 */
+	public static void setCatalogCacheSizeLimit ( long size ) {
+		catalog_cache_size_limit = size;
+
+		XmlPerformanceConfig config = getPerformanceConfig();
+		if (config != null) {
+			config.setCatalogCacheSize(new Long(size));
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Gets the maximum total size of the stars in the catalog query
+	 * cache.
+	 * @return the maximum total size in bytes.
+	 */
+	public static long getCatalogCacheSizeLimit ( ) {
+		return catalog_cache_size_limit;
+	}
+
+	/**
+	 * Sets the number of images to be examined concurrently in the 
+	 * batch examination. This setting is not saved in the 
+	 * configuration file.
+	 * @param count the number of images.
+	 */
+	public static void setBatchExaminationThreadCount ( int count ) {
+		batch_examination_thread_count = count;
+	}
+
+	/**
+	 * Gets the number of images to be examined concurrently in the 
+	 * batch examination.
+	 * @return the number of images.
+	 */
+	public static int getBatchExaminationThreadCount ( ) {
+		return batch_examination_thread_count;
+	}
+
+	/**
+	 * Sets the flag whether the triangles pattern matching is to be
+	 * solved in the indexed mode, which searches similar triangles on
+	 * a hash table and scores the candidates concurrently. This 
+	 * setting is not saved in the configuration file.
+	 * @param flag true when the indexed mode is to be used.
+	 */
+	public static void setIndexedMatchingEnabled ( boolean flag ) {
+		indexed_matching_enabled = flag;
+	}
+
+	/**
+	 * Returns true when the triangles pattern matching is to be 
+	 * solved in the indexed mode.
+	 * @return true when the indexed mode is to be used.
+	 */
+	public static boolean isIndexedMatchingEnabled ( ) {
+		return indexed_matching_enabled;
+	}
+
+	/**
+	 * Sets the flag whether the retries of matching process with 
+	 * different R.A. and Decl. of the center in examination are to be
+	 * operated concurrently, reading the catalog only once. This 
+	 * setting is not saved in the configuration file.
+	 * @param flag true when the retries are to be operated 
+	 * concurrently.
+	 */
+	public static void setParallelRetryEnabled ( boolean flag ) {
+		parallel_retry_enabled = flag;
+	}
+
+	/**
+	 * Returns true when the retries of matching process in 
+	 * examination are to be operated concurrently.
+	 * @return true when the retries are to be operated concurrently.
+	 */
+	public static boolean isParallelRetryEnabled ( ) {
+		return parallel_retry_enabled;
+	}
+
+	/**
+	 * Sets the maximum number of previous images whose results of
+	 * examination are kept in a batch examination, to start the
+	 * examination of the next image of the same field without the
+	 * triangles pattern matching. In the case of 0, it is disabled.
+	 * @param size the maximum number of images.
+	 */
+	public static void setPlateSolutionCacheSize ( int size ) {
+		plate_solution_cache_size = size;
+
+		XmlPerformanceConfig config = getPerformanceConfig();
+		if (config != null) {
+			config.setPlateSolutionCacheSize(new Integer(size));
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Gets the maximum number of previous images whose results of
+	 * examination are kept in a batch examination.
+	 * @return the maximum number of images.
+	 */
+	public static int getPlateSolutionCacheSize ( ) {
+		return plate_solution_cache_size;
+	}
+
+	/**
+	 * Sets the flag whether the raw database is constructed in the
+	 * fast rebuild mode, in which the magnitude data of several XML
+	 * report documents are added at once.
+	 * @param flag true when to construct in the fast rebuild mode.
+	 */
+	public static void setFastDatabaseRebuildEnabled ( boolean flag ) {
+		fast_database_rebuild_enabled = flag;
+
+		XmlPerformanceConfig config = getPerformanceConfig();
+		if (config != null) {
+			config.setFastDatabaseRebuild(new Boolean(flag));
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Returns true when the raw database is constructed in the fast
+	 * rebuild mode.
+	 * @return true when to construct in the fast rebuild mode.
+	 */
+	public static boolean isFastDatabaseRebuildEnabled ( ) {
+		return fast_database_rebuild_enabled;
+	}
+
+	/**
+	 * Sets the flag to create the temporary database of the raw
+	 * database construction in the files mapped into memory, instead
+	 * of on the Java heap.
+	 * @param flag true when to create in the files mapped into memory.
+	 */
+	public static void setMappedTemporaryDatabaseEnabled ( boolean flag ) {
+		mapped_temporary_database_enabled = flag;
+
+		XmlPerformanceConfig config = getPerformanceConfig();
+		if (config != null) {
+			config.setMappedTemporaryDatabase(new Boolean(flag));
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Returns true when the temporary database of the raw database
+	 * construction is created in the files mapped into memory.
+	 * @return true when to create in the files mapped into memory.
+	 */
+	public static boolean isMappedTemporaryDatabaseEnabled ( ) {
+		return mapped_temporary_database_enabled;
+	}
+
+	/**
+	 * Sets the flag to detect stars with the threshold at each pixel
+	 * based on the RMS noise of the sky, instead of the constant 
+	 * threshold over the image.
+	 * @param flag true when to use the threshold at each pixel.
+	 */
+	public static void setLocalThresholdEnabled ( boolean flag ) {
+		local_threshold_enabled = flag;
+
+		XmlPerformanceConfig config = getPerformanceConfig();
+		if (config != null) {
+			config.setLocalThreshold(new Boolean(flag));
+			saveConfiguration();
+		}
+	}
+
+	/**
+	 * Returns true when stars are detected with the threshold at each
+	 * pixel based on the RMS noise of the sky.
+	 * @return true when to use the threshold at each pixel.
+	 */
+	public static boolean isLocalThresholdEnabled ( ) {
+		return local_threshold_enabled;
+	}
+
 	/**
 	 * Returns the version and copyright message.
 	 * @return the version and copyright message.
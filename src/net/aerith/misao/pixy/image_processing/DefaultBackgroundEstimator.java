@@ -6,7 +6,6 @@
  */
 
 package net.aerith.misao.pixy.image_processing;
-import java.util.*;
 import net.aerith.misao.util.*;
 import net.aerith.misao.image.*;
 
@@ -14,9 +13,16 @@ import net.aerith.misao.image.*;
  * The <code>DefaultBackgroundEstimator</code> is a class to estimate
  * the background mean value and deviation. It assumes that the image
  * is flat.
+ * <p>
+ * The image is divided into the grid of about the specified number of
+ * areas, and the mean value and the deviation of a small patch at the
+ * center of each area are calculated. The background is the median of
+ * them. Because the patches are not selected at random, the result is
+ * always the same for the same image. The rows of the grid are 
+ * operated in parallel.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class DefaultBackgroundEstimator extends Operation {
@@ -38,7 +44,7 @@ public class DefaultBackgroundEstimator extends Operation {
 	/**
 	 * The number of areas to estimate the background.
 	 */
-	protected int area_count = 50;
+	protected int area_count = 256;
 
 	/**
 	 * The filter size to estimate the background.
@@ -54,6 +60,14 @@ public class DefaultBackgroundEstimator extends Operation {
 		this.image = image;
 	}
 
+	/**
+	 * Sets the number of areas to estimate the background.
+	 * @param count the number of areas.
+	 */
+	public void setAreaCount ( int count ) {
+		area_count = (count < 1) ? 1 : count;
+	}
+
 	/**
 	 * Gets the background mean value.
 	 * @return the background mean value.
@@ -86,35 +100,54 @@ public class DefaultBackgroundEstimator extends Operation {
 		throws Exception
 	{
 		if (image != null) {
-			Random random = new Random();
-
-			Array background_array = new Array(area_count);
-			Array deviation_array = new Array(area_count);
-			Array array = new Array(filter_size * filter_size);
-
-			for (int i = 0 ; i < area_count ; i++) {
-				int x = random.nextInt(image.getSize().getWidth());
-				int y = random.nextInt(image.getSize().getHeight());
-
-				int count = 0;
-				for (int dy = - (filter_size - 1) / 2 ; dy <= filter_size / 2 ; dy++) {
-					for (int dx = - (filter_size - 1) / 2 ; dx <= filter_size / 2 ; dx++) {
-						array.set(count++, image.getValueOnFlatExtension(x + dx, y + dy));
+			final int width = image.getSize().getWidth();
+			final int height = image.getSize().getHeight();
+			if (width <= 0  ||  height <= 0)
+				return;
+
+			// Divides the image into the grid of areas whose shape is
+			// similar to the image.
+			int columns = (int)Math.ceil(Math.sqrt((double)area_count * (double)width / (double)height));
+			if (columns < 1)
+				columns = 1;
+			if (columns > area_count)
+				columns = area_count;
+			int rows = (area_count + columns - 1) / columns;
+			final int grid_columns = columns;
+			final int grid_rows = rows;
+
+			final double[] background_values = new double[columns * rows];
+			final double[] deviation_values = new double[columns * rows];
+
+			final int[] bounds = ParallelExecutor.divide(rows, ParallelExecutor.getPartCount(rows, 4));
+			ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+				public void operate ( int index ) {
+					double[] values = new double[filter_size * filter_size];
+
+					for (int j = bounds[index] ; j < bounds[index+1] ; j++) {
+						int y = (int)((long)height * (long)(2 * j + 1) / (long)(2 * grid_rows));
+						for (int i = 0 ; i < grid_columns ; i++) {
+							int x = (int)((long)width * (long)(2 * i + 1) / (long)(2 * grid_columns));
+
+							image.getTileOnFlatExtension(x - (filter_size - 1) / 2, y - (filter_size - 1) / 2, filter_size, filter_size, values);
+
+							double amount = 0.0;
+							for (int k = 0 ; k < values.length ; k++)
+								amount += values[k];
+							double average = amount / (double)values.length;
+							double amount2 = 0.0;
+							for (int k = 0 ; k < values.length ; k++)
+								amount2 += (values[k] - average) * (values[k] - average);
+
+							background_values[j * grid_columns + i] = average;
+							deviation_values[j * grid_columns + i] = Math.sqrt(amount2 / (double)values.length);
+						}
 					}
 				}
+			});
 
-				Statistics stat = new Statistics(array);
-				stat.calculate();
-
-				background_array.set(i, stat.getAverage());
-				deviation_array.set(i, stat.getDeviation());
-			}
-
-			background_array.sortAscendant();
-			deviation_array.sortAscendant();
-
-			background_value = background_array.getValueAt(area_count / 2);
-			background_deviation = deviation_array.getValueAt(area_count / 2);
+			background_value = DoubleArrays.select(background_values, 0, background_values.length, background_values.length / 2);
+			background_deviation = DoubleArrays.select(deviation_values, 0, deviation_values.length, deviation_values.length / 2);
 		}
 	}
 }
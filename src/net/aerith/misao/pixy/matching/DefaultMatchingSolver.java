@@ -9,6 +9,7 @@ package net.aerith.misao.pixy.matching;
 import java.util.*;
 import net.aerith.misao.util.*;
 import net.aerith.misao.util.star.*;
+import net.aerith.misao.pixy.Resource;
 
 /**
  * The <code>DefaultMatchingSolver</code> is a class to solve matching
@@ -18,7 +19,7 @@ import net.aerith.misao.util.star.*;
  * map area of the second list is 4 times of that of the first list.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 17
+ * @version 2026 October 18
  */
 
 public class DefaultMatchingSolver extends Operation {
@@ -182,6 +183,8 @@ public class DefaultMatchingSolver extends Operation {
 			// Matching based on the triangles pattern matching.
 			TriangleMatchingSolver solver = new TriangleMatchingSolver(list1, list2);
 			solver.setCheckList(checklist1, checklist2);
+			if (Resource.isIndexedMatchingEnabled())
+				solver.setMode(TriangleMatchingSolver.MODE_INDEXED);
 			solver.setTriGraphSearchSteps(3, 6);
 			solver.setTriangleMapDivisionParameters(40, 1.05);
 			solver.setScoreToPass(0.35);
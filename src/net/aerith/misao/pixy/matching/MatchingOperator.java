@@ -22,7 +22,7 @@ import net.aerith.misao.pixy.InteractiveCatalogReader;
  * process. This invokes the <code>DefaultMatchingSolver#run</code>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 17
+ * @version 2026 October 18
  */
 
 public class MatchingOperator extends Operation {
@@ -72,6 +72,12 @@ public class MatchingOperator extends Operation {
 	 */
 	protected StarList list_catalog;
 
+	/**
+	 * The list of catalog stars read previously. In the case of null,
+	 * the catalog is read in the matching process.
+	 */
+	protected StarList preset_catalog = null;
+
 	/**
 	 * The chart composition of catalog stars.
 	 */
@@ -164,6 +170,29 @@ public class MatchingOperator extends Operation {
 		}
 	}
 
+	/**
+	 * Sets the list of catalog stars read previously, which is used
+	 * instead of reading the catalog. The stars must be within the
+	 * area to read and brighter than the limiting magnitude for 
+	 * matching. Note that the (x,y) positions of the stars are
+	 * changed in the matching process.
+	 * @param list the list of catalog stars.
+	 */
+	public void setCatalogList ( StarList list ) {
+		preset_catalog = list;
+	}
+
+	/**
+	 * Gets the limiting magnitude of the catalog stars to read for 
+	 * matching.
+	 * @param fov    the field of view in degree.
+	 * @param pixels the size of the image in pixel.
+	 * @return the limiting magnitude.
+	 */
+	public static double getLimitingMagnitudeForMatching ( double fov, int pixels ) {
+		return Astro.getProperLimitingMagnitude(fov / (double)pixels) - 3.0;
+	}
+
 	/**
 	 * Enables the interactive catalog reading.
 	 * @param pane the pane.
@@ -240,7 +269,7 @@ public class MatchingOperator extends Operation {
 		double fov = (fov_width > fov_height ? fov_width : fov_height);
 		int pixels = (width > height ? width : height);
 
-		limit_mag = Astro.getProperLimitingMagnitude(fov / (double)pixels) - 3.0;
+		limit_mag = getLimitingMagnitudeForMatching(fov, pixels);
 
 		monitor_set.addMessage("[Reading catalog for matching]");
 		monitor_set.addMessage(new Date().toString());
@@ -254,7 +283,9 @@ public class MatchingOperator extends Operation {
 		// Reads star data for matching.
 		catalog_reader.setLimitingMagnitude(limit_mag);
 		try {
-			if (pane == null) {
+			if (preset_catalog != null) {
+				list_catalog = new StarList(preset_catalog);
+			} else if (pane == null) {
 				list_catalog = catalog_reader.read(center_coor, fov * 2.0);
 			} else {
 				InteractiveCatalogReader interactive_reader = new InteractiveCatalogReader(catalog_reader);
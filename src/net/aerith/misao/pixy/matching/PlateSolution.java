@@ -0,0 +1,153 @@
+/*
+ * @(#)PlateSolution.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.pixy.matching;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+
+/**
+ * The <code>PlateSolution</code> represents the result of examination
+ * of an image to be reused for the next image of the same field. It
+ * consists of the chart map function, the distortion field, the size
+ * of the image, and the R.A. and Decl. of some bright catalog stars
+ * identified with the detected stars on the image.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PlateSolution {
+	/**
+	 * The maximum number of reference stars.
+	 */
+	public final static int MAXIMUM_REFERENCE_COUNT = 32;
+
+	/**
+	 * The catalog name.
+	 */
+	protected String catalog_name;
+
+	/**
+	 * The chart map function.
+	 */
+	protected ChartMapFunction cmf;
+
+	/**
+	 * The distortion field.
+	 */
+	protected DistortionField df;
+
+	/**
+	 * The size of the image.
+	 */
+	protected Size size;
+
+	/**
+	 * The R.A. and Decl. of the reference stars, in order of
+	 * magnitude.
+	 */
+	protected Coor[] references;
+
+	/**
+	 * Constructs a <code>PlateSolution</code>. The brightest catalog
+	 * stars among the pairs are used as the reference stars.
+	 * @param catalog_name the catalog name.
+	 * @param cmf          the chart map function.
+	 * @param df           the distortion field, or null.
+	 * @param size         the size of the image.
+	 * @param pair_list    the list of pairs between the detected stars
+	 * and the catalog stars.
+	 */
+	public PlateSolution ( String catalog_name,
+						   ChartMapFunction cmf,
+						   DistortionField df,
+						   Size size,
+						   Vector pair_list )
+	{
+		this.catalog_name = catalog_name;
+		this.cmf = cmf;
+		this.df = df;
+		this.size = size;
+
+		StarList list = new StarList();
+		for (int i = 0 ; i < pair_list.size() ; i++) {
+			StarPair pair = (StarPair)pair_list.elementAt(i);
+			if (pair.getFirstStar() != null  &&  pair.getSecondStar() != null)
+				list.addElement(pair.getSecondStar());
+		}
+		list.sort();
+
+		int count = Math.min(list.size(), MAXIMUM_REFERENCE_COUNT);
+		references = new Coor[count];
+		for (int i = 0 ; i < count ; i++)
+			references[i] = new Coor(((Star)list.elementAt(i)).getCoor());
+	}
+
+	/**
+	 * Gets the catalog name.
+	 * @return the catalog name.
+	 */
+	public String getCatalogName ( ) {
+		return catalog_name;
+	}
+
+	/**
+	 * Gets the chart map function.
+	 * @return the chart map function.
+	 */
+	public ChartMapFunction getChartMapFunction ( ) {
+		return cmf;
+	}
+
+	/**
+	 * Gets the distortion field.
+	 * @return the distortion field, or null.
+	 */
+	public DistortionField getDistortionField ( ) {
+		return df;
+	}
+
+	/**
+	 * Gets the size of the image.
+	 * @return the size of the image.
+	 */
+	public Size getSize ( ) {
+		return size;
+	}
+
+	/**
+	 * Gets the R.A. and Decl. of the reference stars, in order of
+	 * magnitude.
+	 * @return the array of R.A. and Decl. of the reference stars.
+	 */
+	public Coor[] getReferences ( ) {
+		return references;
+	}
+
+	/**
+	 * Gets the field of view in degree.
+	 * @return the field of view in degree.
+	 */
+	public double getFov ( ) {
+		int pixels = Math.max(size.getWidth(), size.getHeight());
+		return (double)pixels / cmf.getScaleUnitPerDegree();
+	}
+
+	/**
+	 * Returns true if this solution can be used for the image of the
+	 * specified size and the specified catalog.
+	 * @param catalog_name the catalog name.
+	 * @param size         the size of the image.
+	 * @return true if this solution can be used.
+	 */
+	public boolean fits ( String catalog_name, Size size ) {
+		return (this.catalog_name.equals(catalog_name)  &&
+				this.size.getWidth() == size.getWidth()  &&
+				this.size.getHeight() == size.getHeight());
+	}
+}
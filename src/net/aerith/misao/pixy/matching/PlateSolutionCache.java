@@ -0,0 +1,142 @@
+/*
+ * @(#)PlateSolutionCache.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.pixy.matching;
+import java.util.*;
+import net.aerith.misao.util.*;
+
+/**
+ * The <code>PlateSolutionCache</code> is a cache of the results of
+ * examination of images in one batch operation. It is created for
+ * each run, and the solutions are never shared with other runs.
+ * <p>
+ * The images are identified by the sequential numbers in the order
+ * of input. The image is seeded only from the images earlier than
+ * it by the lag or more, which is the number of images examined
+ * concurrently. The <code>find</code> method waits until all of such
+ * images are finished, so the seed of each image does not depend on
+ * the timing of threads and the results are reproducible. Only the
+ * solutions of the latest images within the capacity are kept.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PlateSolutionCache {
+	/**
+	 * The acceptable ratio of the field of view of the solution to
+	 * that of the instruction.
+	 */
+	protected final static double ACCEPTABLE_FOV_RATIO = 2.0;
+
+	/**
+	 * The maximum number of latest images whose solutions are kept.
+	 */
+	protected int capacity;
+
+	/**
+	 * The number of images examined concurrently.
+	 */
+	protected int lag;
+
+	/**
+	 * The table of solutions, whose key is the sequential number.
+	 */
+	protected Hashtable solutions = new Hashtable();
+
+	/**
+	 * The set of sequential numbers of finished images.
+	 */
+	protected Hashtable finished = new Hashtable();
+
+	/**
+	 * The lowest sequential number of unfinished images.
+	 */
+	protected int unfinished = 0;
+
+	/**
+	 * Constructs a <code>PlateSolutionCache</code>.
+	 * @param capacity the maximum number of latest images whose
+	 * solutions are kept.
+	 * @param lag      the number of images examined concurrently.
+	 */
+	public PlateSolutionCache ( int capacity, int lag ) {
+		this.capacity = (capacity < 1 ? 1 : capacity);
+		this.lag = (lag < 1 ? 1 : lag);
+	}
+
+	/**
+	 * Finds the solution of the latest image which can be used for
+	 * the image of the specified sequential number. The solution must
+	 * be of the same catalog and image size, and the center and the
+	 * field of view must agree with the instruction.
+	 * @param sequence     the sequential number of the image.
+	 * @param catalog_name the catalog name.
+	 * @param coor         the R.A. and Decl. of the center in the
+	 * instruction.
+	 * @param fov          the field of view in degree in the
+	 * instruction.
+	 * @param size         the size of the image.
+	 * @return the solution, or null if not found.
+	 * @exception InterruptedException if interrupted while waiting
+	 * for the earlier images.
+	 */
+	public synchronized PlateSolution find ( int sequence, String catalog_name, Coor coor, double fov, Size size )
+		throws InterruptedException
+	{
+		int last = sequence - lag;
+		while (unfinished <= last)
+			wait();
+
+		for (int i = last ; i > last - capacity  &&  i >= 0 ; i--) {
+			PlateSolution solution = (PlateSolution)solutions.get(new Integer(i));
+			if (solution != null  &&  solution.fits(catalog_name, size)) {
+				double ratio = solution.getFov() / fov;
+				if (ratio < 1.0 / ACCEPTABLE_FOV_RATIO  ||  ratio > ACCEPTABLE_FOV_RATIO)
+					continue;
+
+				double distance = solution.getChartMapFunction().getCenterCoor().getAngularDistanceTo(coor);
+				if (distance < fov / 2.0)
+					return solution;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the solution of the image of the specified sequential
+	 * number.
+	 * @param sequence the sequential number of the image.
+	 * @param solution the solution.
+	 */
+	public synchronized void store ( int sequence, PlateSolution solution ) {
+		solutions.put(new Integer(sequence), solution);
+	}
+
+	/**
+	 * Notifies that the examination of the image of the specified
+	 * sequential number is finished, whether it succeeded or not.
+	 * This must be invoked for all images in order not to block the
+	 * later images.
+	 * @param sequence the sequential number of the image.
+	 */
+	public synchronized void finish ( int sequence ) {
+		finished.put(new Integer(sequence), Boolean.TRUE);
+		while (finished.remove(new Integer(unfinished)) != null)
+			unfinished++;
+
+		// The solutions which can never be found are removed.
+		Enumeration keys = solutions.keys();
+		while (keys.hasMoreElements()) {
+			Integer key = (Integer)keys.nextElement();
+			if (key.intValue() <= unfinished - lag - capacity)
+				solutions.remove(key);
+		}
+
+		notifyAll();
+	}
+}
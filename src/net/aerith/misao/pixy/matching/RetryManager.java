@@ -16,7 +16,7 @@ import net.aerith.misao.util.*;
  * on the specified policy.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class RetryManager {
@@ -198,6 +198,31 @@ public class RetryManager {
 		return (Coor)coor_list.elementAt(retry_count);
 	}
 
+	/**
+	 * Gets the original R.A. and Decl. of the center.
+	 * @return the original R.A. and Decl. of the center.
+	 */
+	public Coor getOriginalCenterCoor ( ) {
+		return original_coor;
+	}
+
+	/**
+	 * Gets the number of the R.A. and Decl. of the center to try.
+	 * @return the number of the R.A. and Decl. of the center.
+	 */
+	public int getCenterCoorCount ( ) {
+		return coor_list.size();
+	}
+
+	/**
+	 * Gets the R.A. and Decl. of the center for the specified retry.
+	 * @param index the retry count.
+	 * @return the R.A. and Decl. of the center.
+	 */
+	public Coor getCenterCoorAt ( int index ) {
+		return (Coor)coor_list.elementAt(index);
+	}
+
 	/**
 	 * Gets the horizontal field of view for the current retry.
 	 * @return the horizontal field of view for the current retry.
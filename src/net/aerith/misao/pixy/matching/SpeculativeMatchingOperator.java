@@ -0,0 +1,381 @@
+/*
+ * @(#)SpeculativeMatchingOperator.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.pixy.matching;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.image.*;
+import net.aerith.misao.catalog.io.CatalogReader;
+
+/**
+ * The <code>SpeculativeMatchingOperator</code> is a class to operate
+ * matching process for all the R.A. and Decl. of the center generated
+ * by the <code>RetryManager</code> concurrently, instead of trying
+ * them one after another.
+ * <p>
+ * The catalog is read only once for the whole area which covers all
+ * the centers, and the stars within the area of each center are given
+ * to the <code>MatchingOperator</code>. Among the successful results,
+ * the one with the smallest retry count is adopted, so the result is
+ * the same as trying them in order. The retries after the adopted one
+ * are not started any more once it succeeds.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class SpeculativeMatchingOperator extends Operation {
+	/**
+	 * The status number which represents the retry is not started.
+	 */
+	public final static int STATUS_SKIPPED = 0;
+
+	/**
+	 * The status number which represents the retry succeeded.
+	 */
+	public final static int STATUS_SUCCEEDED = 1;
+
+	/**
+	 * The status number which represents the retry failed.
+	 */
+	public final static int STATUS_FAILED = 2;
+
+	/**
+	 * The image.
+	 */
+	protected MonoImage image;
+
+	/**
+	 * The catalog reader.
+	 */
+	protected CatalogReader catalog_reader;
+
+	/**
+	 * The retry manager.
+	 */
+	protected RetryManager retry_manager;
+
+	/**
+	 * The position angle of up.
+	 */
+	protected double position_angle_of_up = 0.0;
+
+	/**
+	 * The list of detected stars.
+	 */
+	protected StarImageList list_detected;
+
+	/**
+	 * The matching operation mode.
+	 */
+	protected int mode = MatchingOperator.MODE_UNCERTAIN;
+
+	/**
+	 * The judgement mode.
+	 */
+	protected int judge = MatchingOperator.JUDGEMENT_NORMAL;
+
+	/**
+	 * The chart composition of catalog stars.
+	 */
+	protected ChartMapFunction cmf = null;
+
+	/**
+	 * The retry count of the adopted result. In the case of -1, no
+	 * retry succeeded.
+	 */
+	protected int adopted_index = -1;
+
+	/**
+	 * The status of each retry.
+	 */
+	protected int[] statuses = new int[0];
+
+	/**
+	 * The time taken by each retry in milliseconds.
+	 */
+	protected long[] times = new long[0];
+
+	/**
+	 * Constructs a <code>SpeculativeMatchingOperator</code>.
+	 * @param image                the image.
+	 * @param catalog_reader       the catalog reader.
+	 * @param catalog_path         the catalog path separated by the
+	 * system dependent path separator.
+	 * @param retry_manager        the retry manager.
+	 * @param position_angle_of_up the position angle of up.
+	 * @param list_detected        the list of detected stars.
+	 */
+	public SpeculativeMatchingOperator ( MonoImage image,
+										 CatalogReader catalog_reader,
+										 String catalog_path,
+										 RetryManager retry_manager,
+										 double position_angle_of_up,
+										 StarImageList list_detected )
+	{
+		this.image = image;
+		this.catalog_reader = catalog_reader;
+		this.retry_manager = retry_manager;
+		this.position_angle_of_up = position_angle_of_up;
+		this.list_detected = list_detected;
+
+		if (catalog_path != null) {
+			String[] paths = Format.separatePath(catalog_path);
+			for (int i = 0 ; i < paths.length ; i++) {
+				try {
+					catalog_reader.addURL(new File(paths[i]).toURI().toURL());
+				} catch ( MalformedURLException exception ) {
+					System.err.println(exception);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the specified catalog reader can be used in the
+	 * speculative matching. The catalog with limit on the field of
+	 * view cannot be read for the whole area of all the centers.
+	 * @param reader the catalog reader.
+	 * @return true if the catalog reader can be used.
+	 */
+	public static boolean supports ( CatalogReader reader ) {
+		return (reader.hasFovLimit() == false);
+	}
+
+	/**
+	 * Sets the matching operation mode.
+	 * @param mode the mode number.
+	 */
+	public void setMode ( int mode ) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Sets the judgement mode.
+	 * @param mode the mode number.
+	 */
+	public void setJudgementMode ( int mode ) {
+		judge = mode;
+	}
+
+	/**
+	 * Gets the chart composition of catalog stars.
+	 * @return the chart composition of catalog stars.
+	 */
+	public ChartMapFunction getChartMapFunction ( ) {
+		return cmf;
+	}
+
+	/**
+	 * Gets the R.A. and Decl. of the center of the adopted result.
+	 * @return the R.A. and Decl. of the center, or null if no retry
+	 * succeeded.
+	 */
+	public Coor getAdoptedCenterCoor ( ) {
+		if (adopted_index < 0)
+			return null;
+		return retry_manager.getCenterCoorAt(adopted_index);
+	}
+
+	/**
+	 * Gets the retry count of the adopted result.
+	 * @return the retry count, or -1 if no retry succeeded.
+	 */
+	public int getAdoptedIndex ( ) {
+		return adopted_index;
+	}
+
+	/**
+	 * Gets the status of the specified retry.
+	 * @param index the retry count.
+	 * @return the status number.
+	 */
+	public int getStatus ( int index ) {
+		return statuses[index];
+	}
+
+	/**
+	 * Gets the time taken by the specified retry.
+	 * @param index the retry count.
+	 * @return the time in milliseconds.
+	 */
+	public long getTime ( int index ) {
+		return times[index];
+	}
+
+	/**
+	 * Returns true if the operation is ready to start.
+	 * @return true if the operation is ready to start.
+	 */
+	public boolean ready ( ) {
+		return true;
+	}
+
+	/**
+	 * Operates.
+	 * @exception Exception if an error occurs.
+	 * @exception MaximumRepetitionCountException if all retries
+	 * failed.
+	 */
+	public void operate ( )
+		throws Exception
+	{
+		final int count = retry_manager.getCenterCoorCount();
+		final double fov_width = retry_manager.getHorizontalFov();
+		final double fov_height = retry_manager.getVerticalFov();
+		final double fov = (fov_width > fov_height ? fov_width : fov_height);
+		int pixels = Math.max(image.getSize().getWidth(), image.getSize().getHeight());
+
+		double limit_mag = MatchingOperator.getLimitingMagnitudeForMatching(fov, pixels);
+
+		// The radius of the circle which covers the areas to read for
+		// all the centers.
+		Coor original_coor = retry_manager.getOriginalCenterCoor();
+		double radius = 0.0;
+		for (int i = 0 ; i < count ; i++) {
+			Coor coor = retry_manager.getCenterCoorAt(i);
+			double r = original_coor.getAngularDistanceTo(coor) + new CircumArea(coor, fov).getMaximumRadius();
+			if (radius < r)
+				radius = r;
+		}
+
+		monitor_set.addMessage("[Reading catalog for speculative matching]");
+		monitor_set.addMessage(new Date().toString());
+		monitor_set.addMessage("Catalog: " + catalog_reader.getName());
+		monitor_set.addMessage("R.A. and Decl. of the center: " + original_coor.getOutputStringTo100mArcsecWithUnit());
+		monitor_set.addMessage("Radius to read: " + Format.formatDouble(radius, 6, 3) + " degree");
+		monitor_set.addMessage("Limiting magnitude for matching: " + Format.formatDouble(limit_mag, 6, 3) + " mag");
+
+		catalog_reader.setLimitingMagnitude(limit_mag);
+		final CatalogStarList list_union = catalog_reader.read(original_coor, radius * 2.0);
+
+		monitor_set.addMessage("Catalog data: " + list_union.size() + " stars");
+		monitor_set.addMessage("Centers to try: " + count);
+		monitor_set.addMessage(new Date().toString());
+		monitor_set.addSeparator();
+
+		adopted_index = -1;
+		statuses = new int[count];
+		times = new long[count];
+
+		final BufferedMonitor[] monitors = new BufferedMonitor[count];
+		final ChartMapFunction[] cmfs = new ChartMapFunction[count];
+
+		ParallelExecutor.execute(count, new ParallelOperation() {
+			public void operate ( int index ) {
+				// Not started when an earlier retry has succeeded.
+				synchronized (SpeculativeMatchingOperator.this) {
+					if (adopted_index >= 0  &&  adopted_index < index)
+						return;
+				}
+
+				long start_time = System.currentTimeMillis();
+				monitors[index] = new BufferedMonitor();
+
+				try {
+					Coor coor = retry_manager.getCenterCoorAt(index);
+
+					// The stars within the area to read for this center.
+					CircumArea area = new CircumArea(coor, fov);
+					StarList list_catalog = new StarList();
+					for (int i = 0 ; i < list_union.size() ; i++) {
+						CatalogStar star = (CatalogStar)list_union.elementAt(i);
+						if (area.inArea(star.getCoor()))
+							list_catalog.addElement(new MatchingStar(star));
+					}
+
+					StarImageList list = new StarImageList();
+					for (int i = 0 ; i < list_detected.size() ; i++)
+						list.addElement(new StarImage((StarImage)list_detected.elementAt(i)));
+
+					MatchingOperator matching_operator = new MatchingOperator(
+						image, catalog_reader, null, coor, fov_width, fov_height,
+						position_angle_of_up, list);
+					matching_operator.setCatalogList(list_catalog);
+					matching_operator.setMode(mode);
+					matching_operator.setJudgementMode(judge);
+					matching_operator.addMonitor(monitors[index]);
+					matching_operator.operate();
+
+					cmfs[index] = matching_operator.getChartMapFunction();
+					statuses[index] = STATUS_SUCCEEDED;
+
+					synchronized (SpeculativeMatchingOperator.this) {
+						if (adopted_index < 0  ||  index < adopted_index)
+							adopted_index = index;
+					}
+				} catch ( Exception exception ) {
+					statuses[index] = STATUS_FAILED;
+				}
+
+				times[index] = System.currentTimeMillis() - start_time;
+			}
+		});
+
+		// Shows the messages in the same order as trying in order.
+		int last_index = (adopted_index >= 0 ? adopted_index : count - 1);
+		for (int i = 0 ; i <= last_index ; i++) {
+			if (monitors[i] != null)
+				monitors[i].flush(monitor_set);
+			if (statuses[i] != STATUS_SUCCEEDED)
+				monitor_set.addMessage("Matching failed. Retries.");
+		}
+
+		monitor_set.addMessage("[Speculative matching]");
+		for (int i = 0 ; i < count ; i++) {
+			String status = "skipped";
+			if (statuses[i] == STATUS_SUCCEEDED)
+				status = "succeeded";
+			if (statuses[i] == STATUS_FAILED)
+				status = "failed";
+			monitor_set.addMessage("Center " + (i + 1) + ": " + retry_manager.getCenterCoorAt(i).getOutputStringTo100mArcsecWithUnit() + " " + status + " (" + times[i] + " ms)");
+		}
+		if (adopted_index >= 0)
+			monitor_set.addMessage("Adopted center: " + getAdoptedCenterCoor().getOutputStringTo100mArcsecWithUnit());
+		monitor_set.addSeparator();
+
+		if (adopted_index < 0)
+			throw new MaximumRepetitionCountException();
+
+		cmf = cmfs[adopted_index];
+	}
+
+	/**
+	 * The <code>MatchingStar</code> is a copy of a catalog star used
+	 * in matching process, which has only the name, R.A. and Decl.,
+	 * and magnitude. Since the (x,y) position is changed in matching
+	 * process, each retry requires its own copies.
+	 */
+	protected static class MatchingStar extends Star {
+		/**
+		 * The name.
+		 */
+		protected String name;
+
+		/**
+		 * Constructs a <code>MatchingStar</code> of the specified
+		 * catalog star.
+		 * @param star the catalog star.
+		 */
+		public MatchingStar ( CatalogStar star ) {
+			name = star.getName();
+			setCoor(new Coor(star.getCoor()));
+			setMag(star.getMag());
+		}
+
+		/**
+		 * Gets the name of this star.
+		 * @return the name of this star.
+		 */
+		public String getName ( ) {
+			return name;
+		}
+	}
+}
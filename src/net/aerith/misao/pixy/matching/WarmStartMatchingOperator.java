@@ -0,0 +1,225 @@
+/*
+ * @(#)WarmStartMatchingOperator.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.pixy.matching;
+import java.util.*;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+import net.aerith.misao.image.*;
+
+/**
+ * The <code>WarmStartMatchingOperator</code> is a class to operate
+ * matching process based on the solution of the previous image of
+ * the same field, without reading the catalog. The reference stars
+ * of the solution are mapped onto the image and identified with the
+ * bright detected stars. When enough stars are identified, the chart
+ * map function is corrected for the small shift, rotation and scale
+ * difference. Otherwise the <code>MatchingFailedException</code> is
+ * thrown, and the normal matching process must be operated.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class WarmStartMatchingOperator extends Operation {
+	/**
+	 * The minimum number of reference stars to be identified.
+	 */
+	protected final static int MINIMUM_IDENTIFIED_COUNT = 5;
+
+	/**
+	 * The minimum ratio of the identified reference stars to the
+	 * reference stars within the image.
+	 */
+	protected final static double MINIMUM_IDENTIFIED_RATIO = 0.6;
+
+	/**
+	 * The image.
+	 */
+	protected MonoImage image;
+
+	/**
+	 * The solution of the previous image.
+	 */
+	protected PlateSolution solution;
+
+	/**
+	 * The list of detected stars.
+	 */
+	protected StarImageList list_detected;
+
+	/**
+	 * The chart composition of catalog stars.
+	 */
+	protected ChartMapFunction cmf = null;
+
+	/**
+	 * Constructs a <code>WarmStartMatchingOperator</code>.
+	 * @param image         the image.
+	 * @param solution      the solution of the previous image.
+	 * @param list_detected the list of detected stars, in order of
+	 * magnitude.
+	 */
+	public WarmStartMatchingOperator ( MonoImage image,
+									   PlateSolution solution,
+									   StarImageList list_detected )
+	{
+		this.image = image;
+		this.solution = solution;
+		this.list_detected = list_detected;
+	}
+
+	/**
+	 * Gets the chart composition of catalog stars.
+	 * @return the chart composition of catalog stars.
+	 */
+	public ChartMapFunction getChartMapFunction ( ) {
+		return cmf;
+	}
+
+	/**
+	 * Returns true if the operation is ready to start.
+	 * @return true if the operation is ready to start.
+	 */
+	public boolean ready ( ) {
+		return true;
+	}
+
+	/**
+	 * Operates.
+	 * @exception Exception if an error occurs.
+	 * @exception MatchingFailedException if the solution cannot be
+	 * used for the image.
+	 */
+	public void operate ( )
+		throws Exception
+	{
+		double fwidth = (double)image.getSize().getWidth();
+		double fheight = (double)image.getSize().getHeight();
+		double pixels = (fwidth > fheight ? fwidth : fheight);
+
+		ChartMapFunction base_cmf = solution.getChartMapFunction();
+		DistortionField inverse_df = null;
+		if (solution.getDistortionField() != null)
+			inverse_df = solution.getDistortionField().inverse();
+
+		monitor_set.addMessage("[Warm start matching]");
+		monitor_set.addMessage("R.A. and Decl. of the center of the previous image: " + base_cmf.getCenterCoor().getOutputStringTo100mArcsecWithUnit());
+
+		// The (x,y) position of the reference stars on the chart and
+		// on the image, so that (0,0) is at the center of the image.
+		Coor[] references = solution.getReferences();
+		PositionList list_chart = new PositionList();
+		PositionList list_reference = new PositionList();
+		for (int i = 0 ; i < references.length ; i++) {
+			Position chart_position = base_cmf.mapCoordinatesToXY(references[i]);
+			Position position = chart_position;
+			if (inverse_df != null) {
+				Position df_pos = inverse_df.getValue(chart_position);
+				position = new Position(chart_position.getX() + df_pos.getX(), chart_position.getY() + df_pos.getY());
+			}
+			if (Math.abs(position.getX()) < fwidth / 2.0  &&  Math.abs(position.getY()) < fheight / 2.0) {
+				list_chart.addElement(chart_position);
+				list_reference.addElement(position);
+			}
+		}
+
+		// Only the bright detected stars are used.
+		int count = Math.min(list_detected.size(), Math.max(references.length * 4, 100));
+		PositionList list_bright = new PositionList();
+		for (int i = 0 ; i < count ; i++) {
+			Position position = (Position)list_detected.elementAt(i);
+			list_bright.addElement(new Position(position.getX() - fwidth / 2.0, position.getY() - fheight / 2.0));
+		}
+
+		if (list_reference.size() < MINIMUM_IDENTIFIED_COUNT  ||  list_bright.size() < MINIMUM_IDENTIFIED_COUNT) {
+			monitor_set.addMessage("Too few stars to identify.");
+			monitor_set.addSeparator();
+			throw new MatchingFailedException();
+		}
+
+		PositionGrid grid = new PositionGrid(list_bright);
+
+		// First, the shift is estimated roughly by the median of the
+		// offsets to the nearest detected stars.
+		double search_radius = pixels / 40.0;
+		if (search_radius < 15.0)
+			search_radius = 15.0;
+
+		Vector dx_list = new Vector();
+		Vector dy_list = new Vector();
+		for (int i = 0 ; i < list_reference.size() ; i++) {
+			Position position = (Position)list_reference.elementAt(i);
+			int index = grid.findNearest(position.getX(), position.getY(), search_radius);
+			if (index >= 0) {
+				dx_list.addElement(new Double(grid.getX(index) - position.getX()));
+				dy_list.addElement(new Double(grid.getY(index) - position.getY()));
+			}
+		}
+
+		if (dx_list.size() < MINIMUM_IDENTIFIED_COUNT) {
+			monitor_set.addMessage("Identified stars: " + dx_list.size() + " / " + list_reference.size());
+			monitor_set.addSeparator();
+			throw new MatchingFailedException();
+		}
+
+		double dx = getMedian(dx_list);
+		double dy = getMedian(dy_list);
+
+		// Then the stars are identified precisely.
+		search_radius = pixels / 200.0;
+		if (search_radius < 3.0)
+			search_radius = 3.0;
+
+		Vector pair_list = new Vector();
+		for (int i = 0 ; i < list_reference.size() ; i++) {
+			Position position = (Position)list_reference.elementAt(i);
+			int index = grid.findNearest(position.getX() + dx, position.getY() + dy, search_radius);
+			if (index >= 0) {
+				Position position1 = new Position(grid.getX(index), grid.getY(index));
+				pair_list.addElement(new Pair(position1, (Position)list_chart.elementAt(i)));
+			}
+		}
+
+		monitor_set.addMessage("Shift: (" + Format.formatDouble(dx, 6, 3) + ", " + Format.formatDouble(dy, 6, 3) + ")");
+		monitor_set.addMessage("Identified stars: " + pair_list.size() + " / " + list_reference.size());
+
+		if (pair_list.size() < MINIMUM_IDENTIFIED_COUNT  ||  (double)pair_list.size() < (double)list_reference.size() * MINIMUM_IDENTIFIED_RATIO) {
+			monitor_set.addSeparator();
+			throw new MatchingFailedException();
+		}
+
+		// Calculates the map function to convert (x,y) on the image
+		// to (x,y) on the chart of the previous image.
+		MapFunction map_function = new MapFunction(pair_list, solution.getDistortionField());
+		if (Math.abs(map_function.getRatio() - 1.0) > 0.025  ||  Astro.getDistanceOfAngles(map_function.getAngle(), 0.0) > 2.0) {
+			monitor_set.addMessage("The field of view or the rotation is changed.");
+			monitor_set.addSeparator();
+			throw new MatchingFailedException();
+		}
+
+		cmf = base_cmf.map(map_function.inverse());
+
+		monitor_set.addMessage("R.A. and Decl. of the center: " + cmf.getCenterCoor().getOutputStringTo100mArcsecWithUnit());
+		monitor_set.addMessage("Field of view: " + Format.formatAngularSize(fwidth / cmf.getScaleUnitPerDegree(), fheight / cmf.getScaleUnitPerDegree()));
+		monitor_set.addMessage("Position angle of up: " + Format.formatDouble(cmf.getPositionAngle(), 6, 3));
+		monitor_set.addSeparator();
+	}
+
+	/**
+	 * Gets the median of the list of values.
+	 * @param list the list of <code>Double</code> values.
+	 * @return the median.
+	 */
+	private static double getMedian ( Vector list ) {
+		double[] values = new double[list.size()];
+		for (int i = 0 ; i < values.length ; i++)
+			values[i] = ((Double)list.elementAt(i)).doubleValue();
+		Arrays.sort(values);
+		return values[values.length / 2];
+	}
+}
@@ -27,7 +27,7 @@ import net.aerith.misao.pixy.ExaminationFailedException;
  * document.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2004 November 24
+ * @version 2026 October 18
  */
 
 public class PairingOperator extends Operation {
@@ -282,6 +282,33 @@ public class PairingOperator extends Operation {
 		return list_catalog;
 	}
 
+	/**
+	 * Gets the list of pairs between the detected stars and the 
+	 * catalog data. This method must be invoked after 
+	 * <code>operate</code> method is invoked.
+	 * @return the list of pairs.
+	 */
+	public Vector getPairList ( ) {
+		return pair_list;
+	}
+
+	/**
+	 * Gets the chart map function refined in the pairing process.
+	 * @return the chart map function.
+	 */
+	public ChartMapFunction getChartMapFunction ( ) {
+		return cmf;
+	}
+
+	/**
+	 * Gets the distortion field. This method must be invoked after 
+	 * <code>operate</code> method is invoked.
+	 * @return the distortion field.
+	 */
+	public DistortionField getDistortionField ( ) {
+		return df;
+	}
+
 	/**
 	 * Returns true if the operation is ready to start.
 	 * @return true if the operation is ready to start.
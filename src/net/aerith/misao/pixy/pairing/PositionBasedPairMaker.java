@@ -21,7 +21,7 @@ import net.aerith.misao.util.star.*;
  * set properly. The two lists are sorted in the constructor.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class PositionBasedPairMaker extends Operation {
@@ -118,37 +118,25 @@ public class PositionBasedPairMaker extends Operation {
 		monitor_set.addMessage(new Date().toString());
 
 		if (first_list != null  &&  second_list != null) {
-			PositionMap map2 = new PositionMap(second_list);
-			map2.divide(100, 100);
-			map2.acceptOutOfBounds();
+			PositionGrid grid2 = new PositionGrid(second_list, 100, 100);
+			int[] buffer = new int[64];
 
 			for (int i = 0 ; i < first_list.size() ; i++) {
 				Star star1 = (Star)first_list.elementAt(i);
 
 				// Finds the nearest star around the (x,y) of star1.
 				Star star2 = null;
-				double best_delta_pos = 0.0;
-				try {
-					Vector l = map2.getPartialListWithinRadius(new Position(star1.getX(), star1.getY()), search_radius);
-					for (int j = 0 ; j < l.size() ; j++) {
-						Star s = (Star)l.elementAt(j);
-						double delta_pos = (s.getX() - star1.getX()) * (s.getX() - star1.getX()) + (s.getY() - star1.getY()) * (s.getY() - star1.getY());
-						if (star2 == null  ||  best_delta_pos > delta_pos) {
-							star2 = s;
-							best_delta_pos = delta_pos;
-						}
-					}
-				} catch ( OutOfBoundsException exception ) {
-					// Never happens.
-				}
+				int index2 = grid2.findNearest(star1.getX(), star1.getY(), search_radius);
+				if (index2 >= 0)
+					star2 = (Star)second_list.elementAt(index2);
 
 				// Creates a pair.
 				StarPair pair = new StarPair(star1, star2);
 				pair_list.addElement(pair);
 
-				// Removes the paired star from the map of second list.
+				// Removes the paired star from the grid of second list.
 				if (star2 != null)
-					map2.removePosition(star2);
+					grid2.remove(index2);
 
 				// Checks if the single star in the first list is out of the area on the second map.
 				if (star2 == null  &&  second_map != null) {
@@ -158,9 +146,11 @@ public class PositionBasedPairMaker extends Operation {
 			}
 
 			// Adds the single stars in the second list to the list of pairs.
-			Vector l = map2.getAllPositions();
-			for (int j = 0 ; j < l.size() ; j++) {
-				Star star2 = (Star)l.elementAt(j);
+			for (int j = 0 ; j < second_list.size() ; j++) {
+				if (grid2.isRemoved(j))
+					continue;
+
+				Star star2 = (Star)second_list.elementAt(j);
 				StarPair pair = new StarPair(null, star2);
 				pair_list.addElement(pair);
 
@@ -23,7 +23,7 @@ import net.aerith.misao.util.star.*;
  * set properly. The two lists are sorted in the constructor.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class SimilarityBasedPairMaker extends Operation {
@@ -133,41 +133,42 @@ public class SimilarityBasedPairMaker extends Operation {
 		monitor_set.addMessage(new Date().toString());
 
 		if (first_list != null  &&  second_list != null) {
-			PositionMap map2 = new PositionMap(second_list);
-			map2.divide(100, 100);
-			map2.acceptOutOfBounds();
+			PositionGrid grid2 = new PositionGrid(second_list, 100, 100);
+			int[] buffer = new int[64];
 
 			for (int i = 0 ; i < first_list.size() ; i++) {
 				Star star1 = (Star)first_list.elementAt(i);
 
 				// Finds the brightest star around the (x,y) of star1.
 				Star star2 = null;
+				int index2 = -1;
 				double best_similarity = 0.0;
-				try {
-					Vector l = map2.getPartialListWithinRadius(new Position(star1.getX(), star1.getY()), position_error * 3.0);
-					for (int j = 0 ; j < l.size() ; j++) {
-						Star s = (Star)l.elementAt(j);
-
-						double d_pos = Math.sqrt((star1.getX() - s.getX()) * (star1.getX() - s.getX()) + (star1.getY() - s.getY()) * (star1.getY() - s.getY()));
-						double d_mag = star1.getMag() - s.getMag();
-						double similarity = Math.exp(- d_pos * d_pos / 2.0 / position_error / position_error) * Math.exp(- d_mag * d_mag / 2.0 / magnitude_error / magnitude_error);
-
-						if (star2 == null  ||  best_similarity < similarity) {
-							star2 = s;
-							best_similarity = similarity;
-						}
+				int count = grid2.findWithinRadius(star1.getX(), star1.getY(), position_error * 3.0, buffer);
+				if (count > buffer.length) {
+					buffer = new int[count * 2];
+					grid2.findWithinRadius(star1.getX(), star1.getY(), position_error * 3.0, buffer);
+				}
+				for (int j = 0 ; j < count ; j++) {
+					Star s = (Star)second_list.elementAt(buffer[j]);
+
+					double d_pos = Math.sqrt((star1.getX() - s.getX()) * (star1.getX() - s.getX()) + (star1.getY() - s.getY()) * (star1.getY() - s.getY()));
+					double d_mag = star1.getMag() - s.getMag();
+					double similarity = Math.exp(- d_pos * d_pos / 2.0 / position_error / position_error) * Math.exp(- d_mag * d_mag / 2.0 / magnitude_error / magnitude_error);
+
+					if (star2 == null  ||  best_similarity < similarity) {
+						star2 = s;
+						index2 = buffer[j];
+						best_similarity = similarity;
 					}
-				} catch ( OutOfBoundsException exception ) {
-					// Never happens.
 				}
 
 				// Creates a pair.
 				StarPair pair = new StarPair(star1, star2);
 				pair_list.addElement(pair);
 
-				// Removes the paired star from the map of second list.
+				// Removes the paired star from the grid of second list.
 				if (star2 != null)
-					map2.removePosition(star2);
+					grid2.remove(index2);
 
 				// Checks if the single star in the first list is out of the area on the second map.
 				if (star2 == null  &&  second_map != null) {
@@ -177,9 +178,11 @@ public class SimilarityBasedPairMaker extends Operation {
 			}
 
 			// Adds the single stars in the second list to the list of pairs.
-			Vector l = map2.getAllPositions();
-			for (int j = 0 ; j < l.size() ; j++) {
-				Star star2 = (Star)l.elementAt(j);
+			for (int j = 0 ; j < second_list.size() ; j++) {
+				if (grid2.isRemoved(j))
+					continue;
+
+				Star star2 = (Star)second_list.elementAt(j);
 				StarPair pair = new StarPair(null, star2);
 				pair_list.addElement(pair);
 
@@ -26,7 +26,7 @@ import net.aerith.misao.util.star.*;
  * set properly. The two lists are sorted in the constructor.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public class StarImageRadiusBasedPairMaker extends Operation {
@@ -150,29 +150,31 @@ public class StarImageRadiusBasedPairMaker extends Operation {
 		monitor_set.addMessage(new Date().toString());
 
 		if (first_list != null  &&  second_list != null) {
-			PositionMap map2 = new PositionMap(second_list);
-			map2.divide(100, 100);
-			map2.acceptOutOfBounds();
+			PositionGrid grid2 = new PositionGrid(second_list, 100, 100);
+			int[] buffer = new int[64];
 
 			for (int i = 0 ; i < first_list.size() ; i++) {
 				StarImage star1 = (StarImage)first_list.elementAt(i);
 
 				Star star2 = null;
+				int index2 = -1;
 
 				double radius = star1.getRadius() * search_radius_coefficient;
 				if (radius >= minimum_radius) {
 					// Finds the brightest star around the (x,y) of star1.
-					try {
-						Vector l = map2.getPartialListWithinRadius(new Position(star1.getX(), star1.getY()), radius);
-						for (int j = 0 ; j < l.size() ; j++) {
-							Star s = (Star)l.elementAt(j);
-							if (s.getMag() <= star1.getMag() + acceptable_mag_difference) {
-								if (star2 == null  ||  star2.getMag() > s.getMag())
-									star2 = s;
+					int count = grid2.findWithinRadius(star1.getX(), star1.getY(), radius, buffer);
+					if (count > buffer.length) {
+						buffer = new int[count * 2];
+						grid2.findWithinRadius(star1.getX(), star1.getY(), radius, buffer);
+					}
+					for (int j = 0 ; j < count ; j++) {
+						Star s = (Star)second_list.elementAt(buffer[j]);
+						if (s.getMag() <= star1.getMag() + acceptable_mag_difference) {
+							if (star2 == null  ||  star2.getMag() > s.getMag()) {
+								star2 = s;
+								index2 = buffer[j];
 							}
 						}
-					} catch ( OutOfBoundsException exception ) {
-						// Never happens.
 					}
 				}
 
@@ -180,9 +182,9 @@ public class StarImageRadiusBasedPairMaker extends Operation {
 				StarPair pair = new StarPair(star1, star2);
 				pair_list.addElement(pair);
 
-				// Removes the paired star from the map of second list.
+				// Removes the paired star from the grid of second list.
 				if (star2 != null)
-					map2.removePosition(star2);
+					grid2.remove(index2);
 
 				// Checks if the single star in the first list is out of the area on the second map.
 				if (star2 == null  &&  second_map != null) {
@@ -192,9 +194,11 @@ public class StarImageRadiusBasedPairMaker extends Operation {
 			}
 
 			// Adds the single stars in the second list to the list of pairs.
-			Vector l = map2.getAllPositions();
-			for (int j = 0 ; j < l.size() ; j++) {
-				Star star2 = (Star)l.elementAt(j);
+			for (int j = 0 ; j < second_list.size() ; j++) {
+				if (grid2.isRemoved(j))
+					continue;
+
+				Star star2 = (Star)second_list.elementAt(j);
 				StarPair pair = new StarPair(null, star2);
 				pair_list.addElement(pair);
 
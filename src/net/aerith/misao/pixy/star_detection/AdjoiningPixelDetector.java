@@ -7,7 +7,6 @@
 
 package net.aerith.misao.pixy.star_detection;
 import java.util.Vector;
-import java.util.Stack;
 import net.aerith.misao.util.*;
 import net.aerith.misao.image.*;
 
@@ -16,10 +15,13 @@ import net.aerith.misao.image.*;
  * pixels of the image into some sets of adjoining pixels whose value
  * is greater than the specified threshold.
  * <p>
- * Note that the value of the image is changed after the operation.
+ * The pixels over the threshold are labelled as horizontal runs on
+ * bands of rows in parallel, and the runs are united into connected
+ * components across the bands. The value of the image is not changed
+ * by the operation.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 November 15
+ * @version 2026 October 18
  */
 
 public class AdjoiningPixelDetector extends Operation {
@@ -33,6 +35,12 @@ public class AdjoiningPixelDetector extends Operation {
 	 */
 	protected double threshold = 0.0;
 
+	/**
+	 * The image of the threshold at each pixel, or null when the
+	 * constant threshold is used.
+	 */
+	protected MonoImage threshold_image = null;
+
 	/**
 	 * The minimum peak value to detect a set of adjoining pixels.
 	 */
@@ -43,6 +51,28 @@ public class AdjoiningPixelDetector extends Operation {
 	 */
 	protected Vector list = null;
 
+	/**
+	 * The width of the image.
+	 */
+	private int width = 0;
+
+	/**
+	 * The height of the image.
+	 */
+	private int height = 0;
+
+	/**
+	 * The runs of pixels over the threshold in order of the raster
+	 * scan, available during the operation.
+	 */
+	private RunList runs = null;
+
+	/**
+	 * The index of the first run in each row, available during the
+	 * operation.
+	 */
+	private int[] row_first = null;
+
 	/**
 	 * Constructs a <code>AdjoiningPixelDetector</code> with a image
 	 * object where to deblend into some sets of adjoining pixels.
@@ -60,6 +90,17 @@ public class AdjoiningPixelDetector extends Operation {
 		threshold = new_threshold;
 	}
 
+	/**
+	 * Sets the image of the threshold at each pixel. When it is set,
+	 * the pixels whose value is greater than the value of the same 
+	 * position in the threshold image are detected, instead of the
+	 * constant threshold.
+	 * @param new_image the image of the threshold.
+	 */
+	public void setThresholdImage ( MonoImage new_image ) {
+		threshold_image = new_image;
+	}
+
 	/**
 	 * Sets the minimum peak value to detect a set of adjoining pixels.
 	 * @param new_value the minimum peak value.
@@ -93,59 +134,400 @@ public class AdjoiningPixelDetector extends Operation {
 	{
 		list = new Vector();
 
-		for (int y = 0 ; y < image.getSize().getHeight() ; y++) {
-			for (int x = 0 ; x < image.getSize().getWidth() ; x++) {
-				if (image.getValue(x, y) > threshold) {
-					AdjoiningPixel ap = detectAdjoiningPixel(x, y);
+		width = image.getSize().getWidth();
+		height = image.getSize().getHeight();
+		if (width <= 0  ||  height <= 0)
+			return;
+
+		// Labels the runs of pixels over the threshold on each band
+		// of rows in parallel.
+		int band_count = ParallelExecutor.getPartCount(height, 64);
+		final int[] bounds = ParallelExecutor.divide(height, band_count);
+		final RunList[] bands = new RunList[band_count];
+		ParallelExecutor.execute(band_count, new ParallelOperation() {
+			public void operate ( int index ) {
+				bands[index] = labelBand(bounds[index], bounds[index+1]);
+			}
+		});
+
+		// Concatenates the runs of all bands.
+		int total = 0;
+		for (int i = 0 ; i < band_count ; i++)
+			total += bands[i].count;
+		runs = new RunList(total);
+		for (int i = 0 ; i < band_count ; i++)
+			runs.append(bands[i]);
+		bands[0] = null;
+
+		row_first = new int[height + 1];
+		int r = 0;
+		for (int y = 0 ; y <= height ; y++) {
+			while (r < runs.count  &&  runs.row[r] < y)
+				r++;
+			row_first[y] = r;
+		}
+
+		// Merges the components across the boundaries of the bands.
+		for (int i = 1 ; i < band_count ; i++)
+			connectRows(bounds[i] - 1);
 
-					if (ap.getPeakValue() > minimum_peak)
-						list.addElement(ap);
+		// Resolves the root of every run, and collects the components
+		// in order of their first pixel in the raster scan.
+		int component_count = 0;
+		int[] first_run = new int[runs.count];
+		int[] x_min = new int[runs.count];
+		int[] x_max = new int[runs.count];
+		int[] y_max = new int[runs.count];
+		for (int i = 0 ; i < runs.count ; i++) {
+			int root = runs.find(i);
+			runs.parent[i] = root;
+
+			if (root == i) {
+				first_run[component_count++] = i;
+				x_min[i] = runs.start[i];
+				x_max[i] = runs.end[i];
+				y_max[i] = runs.row[i];
+			} else {
+				if (x_min[root] > runs.start[i])
+					x_min[root] = runs.start[i];
+				if (x_max[root] < runs.end[i])
+					x_max[root] = runs.end[i];
+				y_max[root] = runs.row[i];
+			}
+		}
+
+		// Traces the pixels of each component in parallel.
+		final AdjoiningPixel[] aps = new AdjoiningPixel[component_count];
+		final int[] f_first_run = first_run;
+		final int[] f_x_min = x_min;
+		final int[] f_x_max = x_max;
+		final int[] f_y_max = y_max;
+		final int[] component_bounds = ParallelExecutor.divide(component_count, ParallelExecutor.getPartCount(component_count, 256));
+		ParallelExecutor.execute(component_bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				IntStack stack = new IntStack();
+				for (int c = component_bounds[index] ; c < component_bounds[index+1] ; c++) {
+					int root = f_first_run[c];
+					aps[c] = traceComponent(root, f_x_min[root], f_x_max[root], runs.row[root], f_y_max[root], stack);
 				}
 			}
+		});
+
+		for (int c = 0 ; c < component_count ; c++) {
+			if (aps[c].getPeakValue() > minimum_peak)
+				list.addElement(aps[c]);
 		}
+
+		runs = null;
+		row_first = null;
 	}
 
 	/**
-	 * Detects adjoining pixels around the specified position. The 
-	 * pixel values in the <code>image</code> is changed by this 
-	 * process. 
-	 * @param x the x position.
-	 * @param y the y position.
-	 * @return the adjoining pixels around the specified position.
+	 * Detects the runs of pixels over the threshold in the specified
+	 * band of rows, and connects the overlapping runs in the adjacent
+	 * rows.
+	 * @param y_begin the first row of the band.
+	 * @param y_end   the row next to the last row of the band.
+	 * @return the list of runs.
 	 */
-	private AdjoiningPixel detectAdjoiningPixel ( int x, int y ) {
-		AdjoiningPixel ap = new AdjoiningPixel();
+	private RunList labelBand ( int y_begin, int y_end ) {
+		RunList band = new RunList(64);
 
-		Stack stack = new Stack();
-		stack.push(new Pixel(x, y, image.getValue(x, y)));
-
-		while (stack.empty() == false) {
-			Pixel pixel = (Pixel)stack.pop();
-
-			x = pixel.getX();
-			y = pixel.getY();
-
-			if (image.getValue(x, y) > threshold) {
-				ap.addPixel(pixel);
-
-				// The pixel value is cleared.
-				image.setValue(x, y, threshold - 1);
-
-				if (0 <= x  &&  x < image.getSize().getWidth()  &&
-					0 <= y-1  &&  y-1 < image.getSize().getHeight())
-					stack.push(new Pixel(x, y-1, image.getValue(x, y-1)));
-				if (0 <= x-1  &&  x-1 < image.getSize().getWidth()  &&
-					0 <= y  &&  y < image.getSize().getHeight())
-					stack.push(new Pixel(x-1, y, image.getValue(x-1, y)));
-				if (0 <= x+1  &&  x+1 < image.getSize().getWidth()  &&
-					0 <= y  &&  y < image.getSize().getHeight())
-					stack.push(new Pixel(x+1, y, image.getValue(x+1, y)));
-				if (0 <= x  &&  x < image.getSize().getWidth()  &&
-					0 <= y+1  &&  y+1 < image.getSize().getHeight())
-					stack.push(new Pixel(x, y+1, image.getValue(x, y+1)));
+		double[] values = new double[width];
+		double[] thresholds = null;
+		if (threshold_image != null)
+			thresholds = new double[width];
+		int previous_begin = 0;
+		int previous_end = 0;
+		for (int y = y_begin ; y < y_end ; y++) {
+			image.getRow(y, values);
+
+			// When the threshold at each pixel is used, the pixels over
+			// the threshold are marked as 1 and others as 0.
+			if (thresholds != null) {
+				threshold_image.getRow(y, thresholds);
+				for (int x = 0 ; x < width ; x++)
+					values[x] = (values[x] > thresholds[x]) ? 1.0 : 0.0;
+			}
+			double row_threshold = (thresholds != null) ? 0.5 : threshold;
+
+			int current_begin = band.count;
+			int x = 0;
+			while (x < width) {
+				if (values[x] > row_threshold) {
+					int start = x;
+					while (x < width  &&  values[x] > row_threshold)
+						x++;
+					band.add(y, start, x);
+				} else {
+					x++;
+				}
 			}
+			int current_end = band.count;
+
+			band.connect(previous_begin, previous_end, current_begin, current_end);
+
+			previous_begin = current_begin;
+			previous_end = current_end;
+		}
+
+		return band;
+	}
+
+	/**
+	 * Connects the overlapping runs in the specified row and the next
+	 * row.
+	 * @param y the row.
+	 */
+	private void connectRows ( int y ) {
+		runs.connect(row_first[y], row_first[y+1], row_first[y+1], row_first[y+2]);
+	}
+
+	/**
+	 * Traces the pixels of the specified component in the same order
+	 * as the depth first search from its first pixel in the raster
+	 * scan. The order of pixels affects the results of the methods
+	 * of <code>AdjoiningPixel</code>.
+	 * @param root  the root run of the component.
+	 * @param x_min the minimum x position of the component.
+	 * @param x_max the maximum x position of the component plus 1.
+	 * @param y_min the minimum y position of the component.
+	 * @param y_max the maximum y position of the component.
+	 * @param stack the work stack.
+	 * @return the adjoining pixels of the component.
+	 */
+	private AdjoiningPixel traceComponent ( int root, int x_min, int x_max, int y_min, int y_max, IntStack stack ) {
+		AdjoiningPixel ap = new AdjoiningPixel();
+
+		int box_width = x_max - x_min;
+		int box_height = y_max - y_min + 1;
+		long[] visited = new long[(int)(((long)box_width * (long)box_height + 63L) / 64L)];
+
+		stack.clear();
+		stack.push(runs.start[root] - x_min);
+
+		while (stack.size > 0) {
+			int p = stack.pop();
+			if ((visited[p >> 6] & (1L << (p & 63))) != 0)
+				continue;
+			visited[p >> 6] |= 1L << (p & 63);
+
+			int x = p % box_width + x_min;
+			int y = p / box_width + y_min;
+			ap.addPixel(new Pixel(x, y, image.getValue(x, y)));
+
+			if (y-1 >= y_min  &&  isMember(root, x, y-1))
+				pushUnvisited(stack, visited, p - box_width);
+			if (x-1 >= x_min  &&  isMember(root, x-1, y))
+				pushUnvisited(stack, visited, p - 1);
+			if (x+1 < x_max  &&  isMember(root, x+1, y))
+				pushUnvisited(stack, visited, p + 1);
+			if (y+1 <= y_max  &&  isMember(root, x, y+1))
+				pushUnvisited(stack, visited, p + box_width);
 		}
 
 		return ap;
 	}
+
+	/**
+	 * Pushes the specified position into the stack if it is not
+	 * visited yet.
+	 * @param stack   the work stack.
+	 * @param visited the flags of visited positions.
+	 * @param p       the position in the bounding box.
+	 */
+	private static void pushUnvisited ( IntStack stack, long[] visited, int p ) {
+		if ((visited[p >> 6] & (1L << (p & 63))) == 0)
+			stack.push(p);
+	}
+
+	/**
+	 * Returns true if the specified pixel belongs to the component.
+	 * @param root the root run of the component.
+	 * @param x    the x position.
+	 * @param y    the y position.
+	 * @return true if the specified pixel belongs to the component.
+	 */
+	private boolean isMember ( int root, int x, int y ) {
+		int low = row_first[y];
+		int high = row_first[y+1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (runs.end[mid] <= x)
+				low = mid + 1;
+			else if (runs.start[mid] > x)
+				high = mid - 1;
+			else
+				return runs.parent[mid] == root;
+		}
+		return false;
+	}
+
+	/**
+	 * The <code>RunList</code> is a list of horizontal runs of pixels
+	 * over the threshold, held in primitive arrays, with the parent
+	 * links of the union-find forest.
+	 */
+	protected static class RunList {
+		/**
+		 * The number of runs.
+		 */
+		protected int count = 0;
+
+		/**
+		 * The y position of each run.
+		 */
+		protected int[] row;
+
+		/**
+		 * The first x position of each run.
+		 */
+		protected int[] start;
+
+		/**
+		 * The x position next to the last pixel of each run.
+		 */
+		protected int[] end;
+
+		/**
+		 * The parent run of each run.
+		 */
+		protected int[] parent;
+
+		/**
+		 * Constructs a <code>RunList</code>.
+		 * @param capacity the initial capacity.
+		 */
+		protected RunList ( int capacity ) {
+			capacity = Math.max(capacity, 1);
+			row = new int[capacity];
+			start = new int[capacity];
+			end = new int[capacity];
+			parent = new int[capacity];
+		}
+
+		/**
+		 * Adds a new run.
+		 * @param y       the y position.
+		 * @param x_start the first x position.
+		 * @param x_end   the x position next to the last pixel.
+		 */
+		protected void add ( int y, int x_start, int x_end ) {
+			if (count == row.length) {
+				int capacity = row.length * 2;
+				row = java.util.Arrays.copyOf(row, capacity);
+				start = java.util.Arrays.copyOf(start, capacity);
+				end = java.util.Arrays.copyOf(end, capacity);
+				parent = java.util.Arrays.copyOf(parent, capacity);
+			}
+
+			row[count] = y;
+			start[count] = x_start;
+			end[count] = x_end;
+			parent[count] = count;
+			count++;
+		}
+
+		/**
+		 * Appends all runs of the specified list.
+		 * @param list the list of runs.
+		 */
+		protected void append ( RunList list ) {
+			System.arraycopy(list.row, 0, row, count, list.count);
+			System.arraycopy(list.start, 0, start, count, list.count);
+			System.arraycopy(list.end, 0, end, count, list.count);
+			for (int i = 0 ; i < list.count ; i++)
+				parent[count + i] = list.parent[i] + count;
+			count += list.count;
+		}
+
+		/**
+		 * Connects the overlapping runs between two adjacent rows.
+		 * @param upper_begin the first run in the upper row.
+		 * @param upper_end   the run next to the last in the upper row.
+		 * @param lower_begin the first run in the lower row.
+		 * @param lower_end   the run next to the last in the lower row.
+		 */
+		protected void connect ( int upper_begin, int upper_end, int lower_begin, int lower_end ) {
+			int i = upper_begin;
+			int j = lower_begin;
+			while (i < upper_end  &&  j < lower_end) {
+				if (start[i] < end[j]  &&  start[j] < end[i])
+					union(i, j);
+
+				if (end[i] < end[j])
+					i++;
+				else
+					j++;
+			}
+		}
+
+		/**
+		 * Finds the root of the specified run.
+		 * @param i the run.
+		 * @return the root run.
+		 */
+		protected int find ( int i ) {
+			while (parent[i] != i) {
+				parent[i] = parent[parent[i]];
+				i = parent[i];
+			}
+			return i;
+		}
+
+		/**
+		 * Unites the components of the specified runs. The root is
+		 * always the earliest run in the raster scan.
+		 * @param i the run.
+		 * @param j the run.
+		 */
+		protected void union ( int i, int j ) {
+			int root_i = find(i);
+			int root_j = find(j);
+			if (root_i < root_j)
+				parent[root_j] = root_i;
+			else if (root_j < root_i)
+				parent[root_i] = root_j;
+		}
+	}
+
+	/**
+	 * The <code>IntStack</code> is a stack of primitive integers.
+	 */
+	protected static class IntStack {
+		/**
+		 * The elements.
+		 */
+		protected int[] elements = new int[256];
+
+		/**
+		 * The number of elements.
+		 */
+		protected int size = 0;
+
+		/**
+		 * Pushes the specified value.
+		 * @param value the value.
+		 */
+		protected void push ( int value ) {
+			if (size == elements.length)
+				elements = java.util.Arrays.copyOf(elements, size * 2);
+			elements[size++] = value;
+		}
+
+		/**
+		 * Pops the last value.
+		 * @return the last value.
+		 */
+		protected int pop ( ) {
+			return elements[--size];
+		}
+
+		/**
+		 * Clears the stack.
+		 */
+		protected void clear ( ) {
+			size = 0;
+		}
+	}
 }
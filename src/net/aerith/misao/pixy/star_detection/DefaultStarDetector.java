@@ -17,7 +17,7 @@ import net.aerith.misao.image.filter.*;
  * an image.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 25
+ * @version 2026 October 18
  */
 
 public class DefaultStarDetector extends Operation {
@@ -57,6 +57,12 @@ public class DefaultStarDetector extends Operation {
 	 */
 	protected boolean correct_blooming_position = false;
 
+	/**
+	 * True when to use the threshold at each pixel based on the RMS
+	 * noise of the sky.
+	 */
+	protected boolean local_threshold = false;
+
 	/**
 	 * The mode.
 	 */
@@ -141,6 +147,16 @@ public class DefaultStarDetector extends Operation {
 		correct_blooming_position = true;
 	}
 
+	/**
+	 * Sets the flag to use the threshold at each pixel based on the
+	 * RMS noise of the sky, instead of the constant threshold over
+	 * the image. It is effective when the noise is not uniform, for
+	 * example, on the image of a mosaic or with the vignetting.
+	 */
+	public void setLocalThreshold ( ) {
+		local_threshold = true;
+	}
+
 	/**
 	 * Sets the mode.
 	 * @param mode the mode number.
@@ -195,7 +211,10 @@ public class DefaultStarDetector extends Operation {
 			}
 
 			// Creates sky field.
-			sky_image = new BackgroundEstimationFilter().operate(image);
+			BackgroundEstimationFilter background_filter = new BackgroundEstimationFilter();
+			sky_image = background_filter.operate(image);
+			MonoImage rms_image = background_filter.getRmsImage();
+			background_filter = null;
 
 			Statistics stat = new Statistics(sky_image);
 			stat.calculate();
@@ -239,14 +258,25 @@ public class DefaultStarDetector extends Operation {
 			monitor_set.addMessage("Threshold: " + threshold);
 
 			// Detects stars as adjoining pixels.
-			// Note: Pixel values in stellar_image is changed.
 			AdjoiningPixelDetector ap_detector = new AdjoiningPixelDetector(stellar_image);
 			ap_detector.setThreshold(threshold);
+			if (local_threshold) {
+				// The threshold at each pixel is the RMS noise multiplied
+				// by the same coefficient as the constant threshold.
+				rms_image.setPixelValueConvertParameters(0.0, threshold_coefficient * 1.5);
+				ap_detector.setThresholdImage(rms_image);
+
+				stat = new Statistics(rms_image);
+				stat.calculate();
+				monitor_set.addMessage("Local threshold: " + stat.getOutputString());
+			}
 			ap_detector.setMinimumPeakValue(minimum_peak);
 			ap_detector.operate();
 			Vector ap_list = ap_detector.getAdjoiningPixelList();
 			monitor_set.addMessage("Adjoining pixels: " + ap_list.size() + " sets");
 
+			rms_image = null;
+
 			stellar_image = null;
 
 			// Calculates the equation which represents the relation between the 
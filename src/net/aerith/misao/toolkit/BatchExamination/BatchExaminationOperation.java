@@ -13,15 +13,29 @@ import net.aerith.misao.util.star.*;
 import net.aerith.misao.gui.*;
 import net.aerith.misao.xml.*;
 import net.aerith.misao.image.filter.FilterSet;
+import net.aerith.misao.catalog.io.CatalogReader;
+import net.aerith.misao.pixy.Resource;
 import net.aerith.misao.pixy.ExaminationOperator;
 import net.aerith.misao.pixy.matching.MatchingOperator;
+import net.aerith.misao.pixy.matching.PlateSolutionCache;
 
 /**
  * The <code>BatchExaminationOperation</code> represents a batch 
  * operation of image examination on the selected images.
+ * <p>
+ * The images are examined concurrently on worker threads, and the
+ * messages and the result reports are notified in the order of the
+ * images. Each worker thread reuses its own catalog readers and its
+ * own copy of the image processing filters.
+ * <p>
+ * When the plate solution cache is enabled, the matching of each
+ * image starts from the solution of the previous image of the same
+ * field in this run. The image is seeded only from the images earlier
+ * in the order of input, so the results do not depend on the timing
+ * of the worker threads.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 25
+ * @version 2026 October 18
  */
 
 public class BatchExaminationOperation extends MultiTaskOperation {
@@ -30,12 +44,34 @@ public class BatchExaminationOperation extends MultiTaskOperation {
 	 */
 	protected BatchExaminationSettingDialog dialog;
 
+	/**
+	 * The table of catalog readers of each worker thread.
+	 */
+	protected ThreadLocal catalog_readers = new ThreadLocal();
+
+	/**
+	 * The copy of the image processing filters of each worker thread.
+	 */
+	protected ThreadLocal filter_sets = new ThreadLocal();
+
+	/**
+	 * The cache of the results of examination in this run, or null.
+	 */
+	protected PlateSolutionCache plate_solution_cache = null;
+
+	/**
+	 * The number of images operated sequentially in this run.
+	 */
+	protected int operated_count = 0;
+
 	/**
 	 * Constructs a <code>BatchExaminationOperation</code>.
 	 * @param conductor the conductor of multi task operation.
 	 */
 	public BatchExaminationOperation ( MultiTaskConductor conductor ) {
 		this.conductor = conductor;
+
+		setThreadCount(Resource.getBatchExaminationThreadCount());
 	}
 
 	/**
@@ -48,6 +84,26 @@ public class BatchExaminationOperation extends MultiTaskOperation {
 		return dialog.show(conductor.getPane());
 	}
 
+	/**
+	 * Operates. The cache of the results of examination is created
+	 * for this run.
+	 * @exception Exception if an error occurs.
+	 */
+	protected void operate ( )
+		throws Exception
+	{
+		plate_solution_cache = null;
+		if (Resource.getPlateSolutionCacheSize() > 0)
+			plate_solution_cache = new PlateSolutionCache(Resource.getPlateSolutionCacheSize(), getThreadCount());
+		operated_count = 0;
+
+		try {
+			super.operate();
+		} finally {
+			plate_solution_cache = null;
+		}
+	}
+
 	/**
 	 * Operates on one item. This is invoked from the conductor of 
 	 * multi task operation.
@@ -56,16 +112,128 @@ public class BatchExaminationOperation extends MultiTaskOperation {
 	 */
 	public void operate ( Object object )
 		throws Exception
+	{
+		commit(object, prepare(object, operated_count++));
+	}
+
+	/**
+	 * Prepares the operation on one item. This is invoked from the 
+	 * conductor of multi task operation, possibly on a worker thread.
+	 * The image is examined without the cache of the results of
+	 * examination, since the order is unknown.
+	 * @param object the target object to operate.
+	 * @return the result of the examination.
+	 * @exception Exception if an error occurs.
+	 */
+	public Object prepare ( Object object )
+		throws Exception
+	{
+		return prepare(object, -1);
+	}
+
+	/**
+	 * Prepares the operation on the item of the specified index. This
+	 * is invoked from the conductor of multi task operation, possibly
+	 * on a worker thread. The image is examined here, and the messages
+	 * are kept until the item is committed.
+	 * @param object the target object to operate.
+	 * @param index  the index of the item, or -1 if unknown.
+	 * @return the result of the examination.
+	 * @exception Exception if an error occurs.
+	 */
+	public Object prepare ( Object object, int index )
+		throws Exception
 	{
 		XmlInstruction instruction = (XmlInstruction)object;
 
-		ExaminationOperator operator = createExaminationOperator(instruction);
-		operator.addMonitor(monitor_set);
+		ExaminationResult result = new ExaminationResult();
+
+		PlateSolutionCache cache = (index >= 0 ? plate_solution_cache : null);
+
+		try {
+			ExaminationOperator operator = createExaminationOperator(instruction);
+			operator.addMonitor(result.monitor);
+
+			if (cache != null)
+				operator.setPlateSolutionCache(cache, index);
+
+			CatalogReader reader = getCatalogReader(instruction);
+			if (reader != null)
+				operator.setCatalogReader(reader);
+
+			operator.operate();
+
+			result.report = operator.getXmlReportDocument();
+		} catch ( Exception exception ) {
+			result.exception = exception;
+		} finally {
+			if (cache != null)
+				cache.finish(index);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Commits the operation on one item. This is invoked from the 
+	 * conductor of multi task operation in the order of the items.
+	 * The messages are shown and the result report is notified here.
+	 * @param object the target object to operate.
+	 * @param prepared the result of the examination.
+	 * @exception Exception if an error occurs.
+	 */
+	public void commit ( Object object, Object prepared )
+		throws Exception
+	{
+		ExaminationResult result = (ExaminationResult)prepared;
+
+		result.monitor.flush(monitor_set);
 
-		operator.operate();
+		if (result.exception != null)
+			throw result.exception;
 
-		XmlReport report = operator.getXmlReportDocument();
-		notifySucceeded(report);
+		notifySucceeded(result.report);
+	}
+
+	/**
+	 * Gets the catalog reader of the catalog specified in the 
+	 * instruction, which is reused on the current thread.
+	 * @param instruction the XML instruction element.
+	 * @return the catalog reader, or null if no such catalog.
+	 */
+	protected CatalogReader getCatalogReader ( XmlInstruction instruction ) {
+		Hashtable hash = (Hashtable)catalog_readers.get();
+		if (hash == null) {
+			hash = new Hashtable();
+			catalog_readers.set(hash);
+		}
+
+		String path = instruction.getBaseCatalog().getPath();
+		String key = instruction.getBaseCatalog().getContent() + "\t" + (path == null ? "" : path);
+
+		CatalogReader reader = (CatalogReader)hash.get(key);
+		if (reader == null) {
+			reader = ExaminationOperator.createCatalogReader(instruction);
+			if (reader != null)
+				hash.put(key, reader);
+		}
+		return reader;
+	}
+
+	/**
+	 * Gets the copy of the image processing filters selected in the
+	 * dialog, which is reused on the current thread. Some filters keep
+	 * the state during the operation, so the filters are not shared by
+	 * the worker threads.
+	 * @return the filter set.
+	 */
+	protected FilterSet getFilterSet ( ) {
+		FilterSet filter_set = (FilterSet)filter_sets.get();
+		if (filter_set == null) {
+			filter_set = dialog.getFilterSet().duplicate();
+			filter_sets.set(filter_set);
+		}
+		return filter_set;
 	}
 
 	/**
@@ -76,7 +244,7 @@ public class BatchExaminationOperation extends MultiTaskOperation {
 	protected ExaminationOperator createExaminationOperator ( XmlInstruction instruction ) {
 		ExaminationOperator operator = new ExaminationOperator(instruction);
 
-		operator.setImageConverter(dialog.getFilterSet());
+		operator.setImageConverter(getFilterSet());
 		operator.setStarDetectionMode(dialog.getStarDetectionMode());
 		operator.setApertureSize(dialog.getInnerApertureSize(), dialog.getOuterApertureSize());
 		if (dialog.correctsBloomingPosition())
@@ -89,4 +257,25 @@ public class BatchExaminationOperation extends MultiTaskOperation {
 
 		return operator;
 	}
+
+	/**
+	 * The <code>ExaminationResult</code> represents a result of the
+	 * examination of one image, prepared on a worker thread.
+	 */
+	protected static class ExaminationResult {
+		/**
+		 * The monitor to keep the messages.
+		 */
+		protected BufferedMonitor monitor = new BufferedMonitor();
+
+		/**
+		 * The result XML report document.
+		 */
+		protected XmlReport report = null;
+
+		/**
+		 * The exception thrown in the examination.
+		 */
+		protected Exception exception = null;
+	}
 }
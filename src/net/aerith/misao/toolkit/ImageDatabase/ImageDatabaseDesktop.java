@@ -34,7 +34,7 @@ import net.aerith.misao.toolkit.RecordSearch.RecordSearchOperation;
  * browse the image database.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 May 4
+ * @version 2026 October 18
  */
 
 public class ImageDatabaseDesktop extends BaseDesktop {
@@ -82,6 +82,12 @@ public class ImageDatabaseDesktop extends BaseDesktop {
 		JMenuItem item = new JMenuItem("Register XML File");
 		item.addActionListener(new RegisterXmlFileListener());
 		menu.add(item);
+
+		menu.addSeparator();
+
+		item = new JMenuItem("Rebuild Index");
+		item.addActionListener(new RebuildIndexListener());
+		menu.add(item);
 	}
 
 	/**
@@ -157,6 +163,42 @@ public class ImageDatabaseDesktop extends BaseDesktop {
 		}
 	}
 
+	/**
+	 * The <code>RebuildIndexListener</code> is a listener class of
+	 * menu selection to create the secondary indexes of the image
+	 * database again, which speed up the search of images.
+	 */
+	protected class RebuildIndexListener implements ActionListener, Runnable {
+		/**
+		 * Invoked when one of the menus is selected.
+		 * @param e contains the selected menu item.
+		 */
+		public void actionPerformed ( ActionEvent e ) {
+			Thread thread = new Thread(this);
+			thread.setPriority(Resource.getThreadPriority());
+			thread.start();
+		}
+
+		/**
+		 * Runs this thread.
+		 */
+		public void run ( ) {
+			String message = "It takes a long time to read all the image information.\nAre you sure to rebuild the index?";
+			if (0 != JOptionPane.showConfirmDialog(pane, message, "Confirmation", JOptionPane.YES_NO_OPTION))
+				return;
+
+			try {
+				getDBManager().getInformationDBManager().rebuildIndex();
+
+				message = "Completed.";
+				JOptionPane.showMessageDialog(pane, message);
+			} catch ( Exception exception ) {
+				message = "Failed.";
+				JOptionPane.showMessageDialog(pane, message, "Error", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+	}
+
 	/**
 	 * The <code>RegisterXmlFileListener</code> is a listener class of 
 	 * menu selection to register an XML report document file into the 
@@ -42,7 +42,7 @@ import net.aerith.misao.toolkit.Photometry.PhotometryPane;
  * shown in this desktop.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2004 November 24
+ * @version 2026 October 18
  */
 
 public class PixyOperationDesktop extends PixyDesktop {
@@ -690,6 +690,8 @@ public class PixyOperationDesktop extends PixyDesktop {
 					detector.setApertureSize(dialog.getInnerApertureSize(), dialog.getOuterApertureSize());
 					if (dialog.correctsBloomingPosition())
 						detector.setCorrectBloomingPosition();
+					if (dialog.usesLocalThreshold())
+						detector.setLocalThreshold();
 					detector.addMonitor(getMonitorSet());
 					detector.operate();
 					StarImageList list = detector.getStarList();
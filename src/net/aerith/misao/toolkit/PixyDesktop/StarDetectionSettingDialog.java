@@ -16,6 +16,7 @@ import java.util.Vector;
 import net.aerith.misao.util.*;
 import net.aerith.misao.gui.*;
 import net.aerith.misao.gui.dialog.Dialog;
+import net.aerith.misao.pixy.Resource;
 import net.aerith.misao.pixy.star_detection.DefaultStarDetector;
 
 /**
@@ -23,7 +24,7 @@ import net.aerith.misao.pixy.star_detection.DefaultStarDetector;
  * configure the setting of star detection.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 September 25
+ * @version 2026 October 18
  */
 
 public class StarDetectionSettingDialog extends Dialog {
@@ -59,11 +60,17 @@ public class StarDetectionSettingDialog extends Dialog {
 	 */
 	protected JCheckBox checkbox_correct_blooming;
 
+	/**
+	 * The check box to detect stars with the threshold at each pixel
+	 * based on the RMS noise of the sky.
+	 */
+	protected JCheckBox checkbox_local_threshold;
+
 	/**
 	 * Constructs a <code>StarDetectionSettingDialog</code>.
 	 */
 	public StarDetectionSettingDialog ( ) {
-		components = new Object[2];
+		components = new Object[3];
 
 		ButtonGroup bg_mode = new ButtonGroup();
 		radio_amount = new JRadioButton("", true);
@@ -137,6 +144,9 @@ public class StarDetectionSettingDialog extends Dialog {
 		checkbox_correct_blooming = new JCheckBox("Correct positions of blooming stars.");
 		components[1] = checkbox_correct_blooming;
 
+		checkbox_local_threshold = new JCheckBox("Detect with threshold at each pixel based on sky noise.", Resource.isLocalThresholdEnabled());
+		components[2] = checkbox_local_threshold;
+
 		setDefaultValues();
 
 		updateComponents();
@@ -217,6 +227,15 @@ public class StarDetectionSettingDialog extends Dialog {
 		checkbox_correct_blooming.setSelected(f);
 	}
 
+	/**
+	 * Returns true when to detect stars with the threshold at each
+	 * pixel based on the RMS noise of the sky.
+	 * @return true when to use the threshold at each pixel.
+	 */
+	public boolean usesLocalThreshold ( ) {
+		return checkbox_local_threshold.isSelected();
+	}
+
 	/**
 	 * Updates the components.
 	 */
@@ -23,12 +23,34 @@ import net.aerith.misao.toolkit.ReportBatch.ReportBatchOperation;
  * The <code>MagnitudeDBConstructionOperation</code> represents an 
  * operation to construct a magnitude database of detected stars from 
  * the XML report documents.
+ * <p>
+ * In the fast rebuild mode, the XML report documents are identified
+ * with the catalog database in the <code>prepare</code> method, and
+ * the magnitude data of several documents are added into the
+ * database at once by <code>GlobalDBManager.addMagnitudes</code>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 6
+ * @version 2026 October 18
  */
 
 public class MagnitudeDBConstructionOperation extends ReportBatchOperation {
+	/**
+	 * The number of XML report documents to be added at once in the
+	 * fast rebuild mode.
+	 */
+	protected final static int batch_size = 50;
+
+	/**
+	 * True in the fast rebuild mode.
+	 */
+	protected boolean fast_rebuild = false;
+
+	/**
+	 * The list of XML report documents to be added in the fast
+	 * rebuild mode.
+	 */
+	protected Vector pending_list = new Vector();
+
 	/**
 	 * Constructs a <code>MagnitudeDBConstructionOperation</code>.
 	 * @param conductor the conductor of multi task operation.
@@ -46,6 +68,83 @@ public class MagnitudeDBConstructionOperation extends ReportBatchOperation {
 		return 0;
 	}
 
+	/**
+	 * Sets the flag whether to operate in the fast rebuild mode.
+	 * @param flag true when to operate in the fast rebuild mode.
+	 */
+	public void setFastRebuild ( boolean flag ) {
+		fast_rebuild = flag;
+	}
+
+	/**
+	 * Returns true in the fast rebuild mode.
+	 * @return true in the fast rebuild mode.
+	 */
+	public boolean isFastRebuild ( ) {
+		return fast_rebuild;
+	}
+
+	/**
+	 * Operates.
+	 * @exception Exception if an error occurs.
+	 */
+	protected void operate ( )
+		throws Exception
+	{
+		pending_list = new Vector();
+
+		try {
+			super.operate();
+		} finally {
+			// The XML report documents already identified are added
+			// even if the operation is stopped.
+			if (pending_list.size() > 0)
+				addPendingReports();
+		}
+	}
+
+	/**
+	 * Prepares the operation on one item. In the fast rebuild mode,
+	 * the XML report document is read and identified here.
+	 * @param object the target object to operate.
+	 * @return the identified XML report document in the fast rebuild
+	 * mode, or the target object.
+	 * @exception Exception if an error occurs.
+	 */
+	public Object prepare ( Object object )
+		throws Exception
+	{
+		if (fast_rebuild)
+			return identify((XmlInformation)object);
+
+		return object;
+	}
+
+	/**
+	 * Commits the operation on one item. In the fast rebuild mode,
+	 * the identified XML report document is added into the list, and
+	 * the magnitude data of the documents in the list are added into
+	 * the database when the list is full.
+	 * @param object   the target object to operate.
+	 * @param prepared the result of the <code>prepare</code> method.
+	 * @exception Exception if an error occurs.
+	 */
+	public void commit ( Object object, Object prepared )
+		throws Exception
+	{
+		if (fast_rebuild == false) {
+			operate(object);
+			return;
+		}
+
+		monitor_set.addMessage(((XmlInformation)object).getPath());
+		monitor_set.addMessage("...identified.");
+
+		pending_list.addElement(prepared);
+		if (pending_list.size() >= batch_size)
+			addPendingReports();
+	}
+
 	/**
 	 * Operates on one item. This is invoked from the conductor of 
 	 * multi task operation.
@@ -59,12 +158,7 @@ public class MagnitudeDBConstructionOperation extends ReportBatchOperation {
 
 		monitor_set.addMessage(info.getPath());
 
-		XmlReport report = file_manager.readReport(info);
-
-		// Identifies with the detected stars in the catalog database.
-		CatalogDBReader reader = new CatalogDBReader(getDBManager().getCatalogDBManager());
-		DefaultIdentifier identifier = new DefaultIdentifier(report, reader);
-		identifier.operate();
+		XmlReport report = identify(info);
 
 		monitor_set.addMessage("...identified.");
 
@@ -106,4 +200,44 @@ public class MagnitudeDBConstructionOperation extends ReportBatchOperation {
 
 		monitor_set.addMessage("...added to the magnitude database.");
 	}
+
+	/**
+	 * Reads the XML report document and identifies with the detected
+	 * stars in the catalog database.
+	 * @param info the XML information element.
+	 * @return the identified XML report document.
+	 * @exception Exception if an error occurs.
+	 */
+	protected XmlReport identify ( XmlInformation info )
+		throws Exception
+	{
+		XmlReport report = file_manager.readReport(info);
+
+		// Identifies with the detected stars in the catalog database.
+		CatalogDBReader reader = new CatalogDBReader(getDBManager().getCatalogDBManager());
+		DefaultIdentifier identifier = new DefaultIdentifier(report, reader);
+		identifier.operate();
+
+		return report;
+	}
+
+	/**
+	 * Adds the magnitude data of the detected stars in the XML report
+	 * documents in the list into the magnitude database at once.
+	 * @exception Exception if an error occurs.
+	 */
+	protected void addPendingReports ( )
+		throws Exception
+	{
+		XmlReport[] reports = new XmlReport[pending_list.size()];
+		for (int i = 0 ; i < reports.length ; i++)
+			reports[i] = (XmlReport)pending_list.elementAt(i);
+		pending_list = new Vector();
+
+		Vector catalog_list = new Vector();
+		catalog_list.addElement(new DetectedStar().getCatalogName());
+		getDBManager().addMagnitudes(reports, catalog_list);
+
+		monitor_set.addMessage("..." + reports.length + " documents added to the magnitude database.");
+	}
 }
@@ -25,7 +25,7 @@ import net.aerith.misao.pixy.Resource;
  * detected stars from the XML report documents.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 17
+ * @version 2026 October 18
  */
 
 public class RawDatabaseConstructionInternalFrame extends BaseInternalFrame {
@@ -34,6 +34,12 @@ public class RawDatabaseConstructionInternalFrame extends BaseInternalFrame {
 	 */
 	protected GlobalDBManager db_manager = null;
 
+	/**
+	 * The thread to discard the temporary database in the files when
+	 * the Java VM exits, or null.
+	 */
+	protected Thread discard_hook = null;
+
 	/**
 	 * The table.
 	 */
@@ -196,17 +202,65 @@ public class RawDatabaseConstructionInternalFrame extends BaseInternalFrame {
 	public void initializeDatabase ( ) {
 		// Temporary database of detected stars.
 		try {
-			db_manager = new GlobalDBManager(new MemoryFileSystem());
+			discardDatabase();
+
+			if (Resource.isMappedTemporaryDatabaseEnabled()) {
+				try {
+					File directory = File.createTempFile("pixy", ".db");
+					if (directory.delete()) {
+						db_manager = new GlobalDBManager(new DiskFileSystem(directory, true));
+
+						// The temporary files are deleted when the Java VM
+						// exits.
+						discard_hook = new Thread() {
+							public void run ( ) {
+								discardDatabase();
+							}
+						};
+						Runtime.getRuntime().addShutdownHook(discard_hook);
+					}
+				} catch ( IOException exception ) {
+					System.err.println(exception);
+				}
+			}
+			if (db_manager == null)
+				db_manager = new GlobalDBManager(new MemoryFileSystem());
 			db_manager.setRawDatabase(true);
 
 			info_operation.setDBManager(db_manager);
 			catalog_operation.setDBManager(db_manager);
 			mag_operation.setDBManager(db_manager);
+
+			mag_operation.setFastRebuild(Resource.isFastDatabaseRebuildEnabled());
 		} catch ( IOException exception ) {
 			// Never happens.
 		}
 	}
 
+	/**
+	 * Discards the temporary database. All files and directories of
+	 * the temporary database on the disk are removed.
+	 */
+	protected void discardDatabase ( ) {
+		if (db_manager != null) {
+			try {
+				db_manager.discard();
+			} catch ( IOException exception ) {
+				System.err.println(exception);
+			}
+		}
+		db_manager = null;
+
+		if (discard_hook != null  &&  discard_hook != Thread.currentThread()) {
+			try {
+				Runtime.getRuntime().removeShutdownHook(discard_hook);
+			} catch ( IllegalStateException exception ) {
+				// The Java VM is exiting.
+			}
+		}
+		discard_hook = null;
+	}
+
 	/**
 	 * Shows the dialog to set parameters.
 	 * @return 0 if <tt>OK</tt> button is pushed, or 2 if <tt>Cancel</tt>
@@ -35,7 +35,7 @@ import net.aerith.misao.toolkit.AdditionalIdentification.AdditionalIdentificatio
  * the catalog database and the magnitude database.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2007 May 4
+ * @version 2026 October 18
  */
 
 public class StarDatabaseDesktop extends BaseDesktop {
@@ -81,6 +81,16 @@ public class StarDatabaseDesktop extends BaseDesktop {
 		JMenuItem item = new JMenuItem("Register Catalog");
 		item.addActionListener(new RegisterCatalogListener());
 		menu.add(item);
+
+		menu.addSeparator();
+
+		item = new JMenuItem("Convert Magnitude Database to Segment Files");
+		item.addActionListener(new ConvertMagnitudeDatabaseListener(true));
+		menu.add(item);
+
+		item = new JMenuItem("Convert Magnitude Database to XML Files");
+		item.addActionListener(new ConvertMagnitudeDatabaseListener(false));
+		menu.add(item);
 	}
 
 	/**
@@ -396,6 +406,67 @@ public class StarDatabaseDesktop extends BaseDesktop {
 		}
 	}
 
+	/**
+	 * The <code>ConvertMagnitudeDatabaseListener</code> is a listener
+	 * class of menu selection to convert the magnitude database to
+	 * store the records in the binary segment files or in the XML
+	 * files.
+	 */
+	protected class ConvertMagnitudeDatabaseListener implements ActionListener, Runnable {
+		/**
+		 * True when to convert to the binary segment files.
+		 */
+		protected boolean to_segments;
+
+		/**
+		 * Constructs a <code>ConvertMagnitudeDatabaseListener</code>.
+		 * @param to_segments true when to convert to the binary
+		 * segment files.
+		 */
+		public ConvertMagnitudeDatabaseListener ( boolean to_segments ) {
+			this.to_segments = to_segments;
+		}
+
+		/**
+		 * Invoked when one of the menus is selected.
+		 * @param e contains the selected menu item.
+		 */
+		public void actionPerformed ( ActionEvent e ) {
+			Thread thread = new Thread(this);
+			thread.setPriority(Resource.getThreadPriority());
+			thread.start();
+		}
+
+		/**
+		 * Runs this thread.
+		 */
+		public void run ( ) {
+			try {
+				MagnitudeDBManager manager = getDBManager().getMagnitudeDBManager();
+				if (manager.isSegmentEnabled() == to_segments) {
+					String message = "Already converted.";
+					JOptionPane.showMessageDialog(pane, message);
+					return;
+				}
+
+				String message = "It takes a long time. Do not examine images during the conversion.\nAre you sure to convert the magnitude database?";
+				if (0 != JOptionPane.showConfirmDialog(pane, message, "Confirmation", JOptionPane.YES_NO_OPTION))
+					return;
+
+				if (to_segments)
+					manager.migrateToSegments();
+				else
+					manager.migrateToXml();
+
+				message = "Completed.";
+				JOptionPane.showMessageDialog(pane, message);
+			} catch ( Exception exception ) {
+				String message = "Failed.";
+				JOptionPane.showMessageDialog(pane, message, "Error", JOptionPane.ERROR_MESSAGE);
+			}
+		}
+	}
+
 	/**
 	 * The <code>StarSelectionListener</code> is a listener class of 
 	 * star selection in the tree.
@@ -12,7 +12,7 @@ package net.aerith.misao.util;
  * funciton to sort.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 January 28
+ * @version 2026 October 18
  */
 
 public class Array extends SortableArray implements Statisticable {
@@ -178,6 +178,57 @@ public class Array extends SortableArray implements Statisticable {
 		return COMPARE_EQUAL;
 	}
 
+	/**
+	 * Sorts data in ascendant order. It returns a table indicating 
+	 * the original location, as same as <code>SortableArray</code>,
+	 * but it is sorted directly on the primitive buffer.
+	 * @return the table indicating the original location.
+	 */
+	public ArrayIndex sortAscendant ( ) {
+		sort_index = new ArrayIndex(0);
+
+		if (size > 0) {
+			sort_index = new ArrayIndex(size);
+			sort_index.index = DoubleArrays.sortAscendant(array, 0, size);
+		}
+
+		return sort_index;
+	}
+
+	/**
+	 * Sorts data in descendant order. It returns a table indicating 
+	 * the original location, as same as <code>SortableArray</code>,
+	 * but it is sorted directly on the primitive buffer.
+	 * @return the table indicating the original location.
+	 */
+	public ArrayIndex sortDescendant ( ) {
+		sort_index = new ArrayIndex(0);
+
+		if (size > 0) {
+			sort_index = new ArrayIndex(size);
+			sort_index.index = DoubleArrays.sortDescendant(array, 0, size);
+		}
+
+		return sort_index;
+	}
+
+	/**
+	 * Selects the k-th smallest value without sorting the whole 
+	 * array. After the operation, the values before the k-th location
+	 * are not greater than it, and the values after it are not 
+	 * smaller than it. It is much faster than <tt>sortAscendant</tt>
+	 * to get the median.
+	 * @param k the location of the value to select.
+	 * @return the k-th smallest value.
+	 * @exception IndexOutOfBoundsException if specified location is
+	 * out of the data buffer.
+	 */
+	public double select ( int k )
+		throws IndexOutOfBoundsException
+	{
+		return DoubleArrays.select(array, 0, size, k);
+	}
+
 	/**
 	 * Sorts this array itself based on the sorted index. It is 
 	 * invoked in the sorting functions.
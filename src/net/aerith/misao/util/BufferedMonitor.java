@@ -0,0 +1,77 @@
+/*
+ * @(#)BufferedMonitor.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+import java.util.*;
+
+/**
+ * The <code>BufferedMonitor</code> is a <code>Monitor</code> to keep
+ * the messages given to this object, in order to show them to another
+ * monitor later. It is used when an operation runs on a worker
+ * thread, to show the messages of the operations in a deterministic
+ * order.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class BufferedMonitor implements Monitor {
+	/**
+	 * The list of messages. A message is recorded as a 
+	 * <code>String</code>, a set of messages as an array of 
+	 * <code>String</code>, and a separator as null.
+	 */
+	protected Vector messages = new Vector();
+
+	/**
+	 * Constructs a <code>BufferedMonitor</code>.
+	 */
+	public BufferedMonitor ( ) {
+	}
+
+	/**
+	 * Shows the specified message.
+	 * @param string a one line message to show.
+	 */
+	public synchronized void addMessage ( String string ) {
+		messages.addElement(string);
+	}
+
+	/**
+	 * Shows the specified messages.
+	 * @param strings a set of messages to show.
+	 */
+	public synchronized void addMessages ( String[] strings ) {
+		messages.addElement(strings);
+	}
+
+	/**
+	 * Shows a separator.
+	 */
+	public synchronized void addSeparator ( ) {
+		messages.addElement(null);
+	}
+
+	/**
+	 * Shows the kept messages to the specified monitor in the order
+	 * they were given, and clears them.
+	 * @param monitor the monitor to show the messages.
+	 */
+	public synchronized void flush ( Monitor monitor ) {
+		for (int i = 0 ; i < messages.size() ; i++) {
+			Object message = messages.elementAt(i);
+			if (message == null)
+				monitor.addSeparator();
+			else if (message instanceof String)
+				monitor.addMessage((String)message);
+			else
+				monitor.addMessages((String[])message);
+		}
+
+		messages = new Vector();
+	}
+}
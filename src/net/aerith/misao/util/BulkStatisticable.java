@@ -0,0 +1,45 @@
+/*
+ * @(#)BulkStatisticable.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+
+/**
+ * The <code>BulkStatisticable</code> is an interface of the
+ * <code>Statisticable</code> data which can calculate the statistics
+ * and the histogram of all data at once, much faster than accessing
+ * the data one by one. The <code>Statistics</code> and the
+ * <code>Histogram</code> use these methods when they are available.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public interface BulkStatisticable extends Statisticable {
+	/**
+	 * Calculates the statistics of data between the specified limits,
+	 * as same as <code>Statistics</code>. The returned array consists
+	 * of the number of data, the minimum value, the maximum value, the
+	 * average and the standard deviation.
+	 * @param minimum_limit the minimum limit of value, or null.
+	 * @param maximum_limit the maximum limit of value, or null.
+	 * @return the array of the statistics.
+	 */
+	public abstract double[] calculateStatistics ( Double minimum_limit, Double maximum_limit );
+
+	/**
+	 * Calculates the histogram of data, as same as
+	 * <code>Histogram</code>. The first element of the returned array
+	 * is the amount of data smaller than the minimum value, and the
+	 * last element is the amount of data greater than the maximum
+	 * value.
+	 * @param minimum_value  the minimum value of the histogram range.
+	 * @param maximum_value  the maximum value of the histogram range.
+	 * @param division_count the division_count;
+	 * @return the array of the histogram.
+	 */
+	public abstract int[] calculateHistogram ( double minimum_value, double maximum_value, int division_count );
+}
@@ -14,7 +14,7 @@ package net.aerith.misao.util;
  * circle.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 February 26
+ * @version 2026 October 18
  */
 
 public class CircumArea {
@@ -174,17 +174,59 @@ public class CircumArea {
 	 * area.
 	 */
 	public boolean inArea ( Coor coor ) {
-		double diff_RA = Math.abs(center_coor.getRA() - coor.getRA());
+		return inArea(coor.getRA(), coor.getDecl());
+	}
+
+	/**
+	 * Returns true if the specified R.A. and Decl. is in this area.
+	 * @param ra   the R.A. in degree.
+	 * @param decl the Decl. in degree.
+	 * @return true if the specified R.A. and Decl. is in this area.
+	 */
+	public boolean inArea ( double ra, double decl ) {
+		double diff_RA = Math.abs(center_coor.getRA() - ra);
 		if (diff_RA > 180.0)
 			diff_RA = 360.0 - diff_RA;
-		if (decl_most_north >= coor.getDecl()  &&  decl_most_south <= coor.getDecl()  &&
-			((decl_most_north >= 90.0  &&  corner_decl_near_pole <= coor.getDecl())  ||  (decl_most_south <= -90.0  &&  corner_decl_near_pole >= coor.getDecl())  ||  diff_RA < width_in_RA)) {
+		if (decl_most_north >= decl  &&  decl_most_south <= decl  &&
+			((decl_most_north >= 90.0  &&  corner_decl_near_pole <= decl)  ||  (decl_most_south <= -90.0  &&  corner_decl_near_pole >= decl)  ||  diff_RA < width_in_RA)) {
 			return true;
 		}
 
 		return false;
 	}
 
+	/**
+	 * Gets the maximum angular distance from the center to any point
+	 * in this area. Since the area is always within the range of 
+	 * R.A. and Decl. judged in <code>inArea</code> method, the most 
+	 * distant point is at one of the corners of the range.
+	 * @return the maximum angular distance in degree.
+	 */
+	public double getMaximumRadius ( ) {
+		double width = width_in_RA;
+		if (decl_most_north >= 90.0  ||  decl_most_south <= -90.0  ||  width > 180.0)
+			width = 180.0;
+
+		double north = Math.min(decl_most_north, 90.0);
+		double south = Math.max(decl_most_south, -90.0);
+
+		double sin_decl = Math.sin(center_coor.getDecl() * Astro.RAD);
+		double cos_decl = Math.cos(center_coor.getDecl() * Astro.RAD);
+		double cos_width = Math.cos(width * Astro.RAD);
+
+		double min_cos = 1.0;
+		double[] decls = new double[] { north, south };
+		for (int i = 0 ; i < 2 ; i++) {
+			double c = sin_decl * Math.sin(decls[i] * Astro.RAD) + cos_decl * Math.cos(decls[i] * Astro.RAD) * cos_width;
+			if (min_cos > c)
+				min_cos = c;
+		}
+
+		if (min_cos < -1.0)
+			min_cos = -1.0;
+		return Math.acos(min_cos) / Astro.RAD;
+	}
+
 	/**
 	 * Returns a raw string representation of the state of this object,
 	 * for debugging use.
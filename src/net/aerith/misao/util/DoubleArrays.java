@@ -0,0 +1,299 @@
+/*
+ * @(#)DoubleArrays.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+import java.util.Arrays;
+
+/**
+ * The <code>DoubleArrays</code> is a set of operations on the
+ * primitive <code>double</code> arrays, used in the hot loops instead
+ * of the <code>Array</code>.
+ * <p>
+ * The order statistics, like the median, are selected in place by the
+ * introselect algorithm in linear time, without sorting the whole
+ * array. The table of the original location is created only by the
+ * index sort, when it is required.
+ * <p>
+ * The scratch buffer is an array kept for each thread, which can be
+ * reused by the operations invoked many times, like the filters
+ * operated at every pixel.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class DoubleArrays {
+	/**
+	 * The length of the range to be sorted by the insertion sort.
+	 */
+	private final static int INSERTION_SORT_LENGTH = 16;
+
+	/**
+	 * The scratch buffer of each thread.
+	 */
+	private final static ThreadLocal scratch_buffer = new ThreadLocal();
+
+	/**
+	 * Gets the scratch buffer of the current thread, whose length is
+	 * equal to or larger than the specified length. The contents are
+	 * undefined. The same array is returned while the length is
+	 * enough, so the caller must not use it across the invocation of
+	 * another operation which uses the scratch buffer.
+	 * @param length the required length.
+	 * @return the scratch buffer.
+	 */
+	public static double[] getScratchBuffer ( int length ) {
+		double[] buffer = (double[])scratch_buffer.get();
+		if (buffer == null  ||  buffer.length < length) {
+			buffer = new double[Math.max(length, 64)];
+			scratch_buffer.set(buffer);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Selects the k-th smallest value in the specified range of the
+	 * array. After the operation, the values before the k-th location
+	 * in the range are not greater than it, and the values after it
+	 * are not smaller than it.
+	 * @param values the array.
+	 * @param from   the first location of the range.
+	 * @param to     the last location of the range plus 1.
+	 * @param k      the location of the value to select.
+	 * @return the k-th smallest value.
+	 * @exception IndexOutOfBoundsException if the k-th location is out
+	 * of the range.
+	 */
+	public static double select ( double[] values, int from, int to, int k )
+		throws IndexOutOfBoundsException
+	{
+		if (k < from  ||  k >= to)
+			throw new IndexOutOfBoundsException();
+
+		int left = from;
+		int right = to - 1;
+
+		// When the partitions are not well balanced, it falls back to
+		// sort the range, so the time never becomes quadratic.
+		int depth_limit = 2 * (32 - Integer.numberOfLeadingZeros(to - from));
+
+		while (right - left >= INSERTION_SORT_LENGTH) {
+			if (depth_limit-- == 0) {
+				Arrays.sort(values, left, right + 1);
+				return values[k];
+			}
+
+			// The pivot is the median of the first, middle and last.
+			int mid = (left + right) >>> 1;
+			if (values[mid] < values[left])
+				swap(values, mid, left);
+			if (values[right] < values[left])
+				swap(values, right, left);
+			if (values[right] < values[mid])
+				swap(values, right, mid);
+			double pivot = values[mid];
+
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (values[i] < pivot)
+					i++;
+				while (pivot < values[j])
+					j--;
+				if (i <= j) {
+					swap(values, i, j);
+					i++;
+					j--;
+				}
+			}
+
+			if (k <= j)
+				right = j;
+			else if (k >= i)
+				left = i;
+			else
+				return values[k];
+		}
+
+		insertionSort(values, left, right + 1);
+		return values[k];
+	}
+
+	/**
+	 * Gets the median of the specified range of the array. When the
+	 * number of values is even, the mean of the two middle values is
+	 * returned. The order of the values in the range is changed.
+	 * @param values the array.
+	 * @param from   the first location of the range.
+	 * @param to     the last location of the range plus 1.
+	 * @return the median, or 0 if the range is empty.
+	 */
+	public static double median ( double[] values, int from, int to ) {
+		int n = to - from;
+		if (n <= 0)
+			return 0.0;
+
+		double upper = select(values, from, to, from + n / 2);
+		if (n % 2 == 1)
+			return upper;
+
+		// The lower middle value is the maximum of the lower half.
+		double lower = values[from];
+		for (int i = from + 1 ; i < from + n / 2 ; i++) {
+			if (lower < values[i])
+				lower = values[i];
+		}
+		return (lower + upper) / 2.0;
+	}
+
+	/**
+	 * Sorts the specified range of the array in ascendant order, and
+	 * returns a table indicating the original location. The k-th
+	 * value in the sorted range was originally at the location of the
+	 * k-th element of the returned table.
+	 * <p>
+	 * The order of the equal values is the same as the result of
+	 * <code>SortableArray</code>.
+	 * @param values the array.
+	 * @param from   the first location of the range.
+	 * @param to     the last location of the range plus 1.
+	 * @return the table indicating the original location.
+	 */
+	public static int[] sortAscendant ( double[] values, int from, int to ) {
+		return sort(values, from, to, true);
+	}
+
+	/**
+	 * Sorts the specified range of the array in descendant order, and
+	 * returns a table indicating the original location. The k-th
+	 * value in the sorted range was originally at the location of the
+	 * k-th element of the returned table.
+	 * <p>
+	 * The order of the equal values is the same as the result of
+	 * <code>SortableArray</code>.
+	 * @param values the array.
+	 * @param from   the first location of the range.
+	 * @param to     the last location of the range plus 1.
+	 * @return the table indicating the original location.
+	 */
+	public static int[] sortDescendant ( double[] values, int from, int to ) {
+		return sort(values, from, to, false);
+	}
+
+	/**
+	 * Sorts the specified range of the array, and returns a table
+	 * indicating the original location.
+	 * @param values    the array.
+	 * @param from      the first location of the range.
+	 * @param to        the last location of the range plus 1.
+	 * @param ascendant true when to sort in ascendant order.
+	 * @return the table indicating the original location.
+	 */
+	private static int[] sort ( double[] values, int from, int to, boolean ascendant ) {
+		int[] index = new int[to - from];
+		for (int i = 0 ; i < index.length ; i++)
+			index[i] = from + i;
+
+		if (index.length > 0) {
+			// The keys are copied in order of the index, so that the
+			// partitioning compares the adjacent values in memory.
+			double[] keys = new double[index.length];
+			System.arraycopy(values, from, keys, 0, keys.length);
+			if (ascendant == false) {
+				for (int i = 0 ; i < keys.length ; i++)
+					keys[i] = - keys[i];
+			}
+
+			quickSort(keys, index, 0, index.length - 1);
+
+			if (ascendant) {
+				for (int i = 0 ; i < keys.length ; i++)
+					values[from + i] = keys[i];
+			} else {
+				for (int i = 0 ; i < keys.length ; i++)
+					values[from + i] = - keys[i];
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * Sorts the keys and the index together in ascendant order of the
+	 * keys. The partitioning is the same as <code>SortableArray</code>,
+	 * so the order of the equal values is also the same.
+	 * @param keys  the keys.
+	 * @param index the index.
+	 * @param first the first location of the part to sort.
+	 * @param last  the last location of the part to sort.
+	 */
+	private static void quickSort ( double[] keys, int[] index, int first, int last ) {
+		while (true) {
+			double pivot = keys[(first + last) / 2];
+			int i = first;
+			int j = last;
+
+			while (true) {
+				while (i < keys.length  &&  keys[i] < pivot)
+					i++;
+				while (j >= 0  &&  keys[j] > pivot)
+					j--;
+				if (i >= j)
+					break;
+
+				double key = keys[i];
+				keys[i] = keys[j];
+				keys[j] = key;
+				int k = index[i];
+				index[i] = index[j];
+				index[j] = k;
+
+				i++;
+				j--;
+			}
+
+			// The lower part is sorted at first, as same as
+			// SortableArray, and the upper part is sorted in the loop.
+			if (first < i - 1)
+				quickSort(keys, index, first, i - 1);
+			if (last > j + 1)
+				first = j + 1;
+			else
+				return;
+		}
+	}
+
+	/**
+	 * Sorts the specified range of the array by the insertion sort.
+	 * @param values the array.
+	 * @param from   the first location of the range.
+	 * @param to     the last location of the range plus 1.
+	 */
+	private static void insertionSort ( double[] values, int from, int to ) {
+		for (int i = from + 1 ; i < to ; i++) {
+			double value = values[i];
+			int j = i - 1;
+			while (j >= from  &&  value < values[j]) {
+				values[j + 1] = values[j];
+				j--;
+			}
+			values[j + 1] = value;
+		}
+	}
+
+	/**
+	 * Swaps the two values in the array.
+	 * @param values the array.
+	 * @param i      the location of a value.
+	 * @param j      the location of another value.
+	 */
+	private static void swap ( double[] values, int i, int j ) {
+		double value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+}
@@ -12,7 +12,7 @@ package net.aerith.misao.util;
  * the median value, which are not obtained in order O(n).
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2000 October 20
+ * @version 2026 October 18
  */
 
 public class HighOrderStatistics extends Statistics {
@@ -50,22 +50,19 @@ public class HighOrderStatistics extends Statistics {
 						descendant = true;
 				}
 
-				Statisticable current_target = target;
-
 				// If both flags are true, the target is not sorted.
-				// So here it is sorted.
+				// So here the median is selected from a copy.
 				if (ascendant  &&  descendant) {
-					Array array = new Array(data_count);
+					double[] values = new double[data_count];
 					for (int i = 0 ; i < data_count ; i++)
-						array.set(i, target.getValueAt(i));
-					array.sortAscendant();
-					current_target = array;
+						values[i] = target.getValueAt(i);
+					median = DoubleArrays.median(values, 0, data_count);
+				} else {
+					if (data_count % 2 == 1)
+						median = target.getValueAt(data_count / 2);
+					else
+						median = (target.getValueAt(data_count / 2 - 1) + target.getValueAt(data_count / 2)) / 2.0;
 				}
-
-				if (data_count % 2 == 1)
-					median = current_target.getValueAt(data_count / 2);
-				else
-					median = (current_target.getValueAt(data_count / 2 - 1) + current_target.getValueAt(data_count / 2)) / 2.0;
 			} catch ( IndexOutOfBoundsException exception ) {
 				System.err.println(exception);
 			}
@@ -12,7 +12,7 @@ package net.aerith.misao.util;
  * statisticable buffer.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2000 September 16
+ * @version 2026 October 18
  */
 
 public class Histogram implements Statisticable {
@@ -37,6 +37,11 @@ public class Histogram implements Statisticable {
 	 * @param division_count the division_count;
 	 */
 	public Histogram ( Statisticable target_buffer, double minimum_value, double maximum_value, int division_count ) {
+		if (target_buffer instanceof BulkStatisticable) {
+			buffer = ((BulkStatisticable)target_buffer).calculateHistogram(minimum_value, maximum_value, division_count);
+			return;
+		}
+
 		buffer = new int[division_count + 2];
 		for (int i = 0 ; i < buffer.length ; i++)
 			buffer[i] = 0;
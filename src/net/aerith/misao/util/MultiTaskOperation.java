@@ -13,9 +13,17 @@ import java.util.*;
 /**
  * The <code>MultiTaskOperation</code> represents a multi task 
  * operation on several objects.
+ * <p>
+ * The operation on one item can be split into two steps. The 
+ * <code>prepare</code> method may be invoked on worker threads
+ * concurrently when the number of threads is more than 1, and the 
+ * <code>commit</code> method is always invoked on the thread of the
+ * conductor in the order of the items. By default, all the work is
+ * done in the <code>commit</code> method by invoking 
+ * <code>operate</code>, so the operation runs sequentially.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 August 4
+ * @version 2026 October 18
  */
 
 public abstract class MultiTaskOperation extends Operation {
@@ -24,6 +32,11 @@ public abstract class MultiTaskOperation extends Operation {
 	 */
 	protected MultiTaskConductor conductor;
 
+	/**
+	 * The number of threads to prepare the items concurrently.
+	 */
+	protected int thread_count = 1;
+
 	/**
 	 * Shows the dialog to set parameters.
 	 * @return 0 if <tt>OK</tt> button is pushed, or 2 if <tt>Cancel</tt>
@@ -63,4 +76,67 @@ public abstract class MultiTaskOperation extends Operation {
 	 */
 	public abstract void operate ( Object object )
 		throws Exception;
+
+	/**
+	 * Prepares the operation on one item. This is invoked from the 
+	 * conductor of multi task operation, possibly on a worker thread
+	 * concurrently with the other items. The subclass which overrides
+	 * this method must not depend on the order of the items here.
+	 * @param object the target object to operate.
+	 * @return the prepared result, which is given to the 
+	 * <code>commit</code> method.
+	 * @exception Exception if an error occurs.
+	 */
+	public Object prepare ( Object object )
+		throws Exception
+	{
+		return object;
+	}
+
+	/**
+	 * Prepares the operation on the item of the specified index in
+	 * the order of the items. This is invoked from the conductor of
+	 * multi task operation instead of the <code>prepare</code> method
+	 * above, when the index is known. By default, the index is ignored.
+	 * @param object the target object to operate.
+	 * @param index  the index of the item.
+	 * @return the prepared result, which is given to the 
+	 * <code>commit</code> method.
+	 * @exception Exception if an error occurs.
+	 */
+	public Object prepare ( Object object, int index )
+		throws Exception
+	{
+		return prepare(object);
+	}
+
+	/**
+	 * Commits the operation on one item. This is invoked from the 
+	 * conductor of multi task operation in the order of the items,
+	 * after the item is prepared.
+	 * @param object the target object to operate.
+	 * @param prepared the result of the <code>prepare</code> method.
+	 * @exception Exception if an error occurs.
+	 */
+	public void commit ( Object object, Object prepared )
+		throws Exception
+	{
+		operate(object);
+	}
+
+	/**
+	 * Sets the number of threads to prepare the items concurrently.
+	 * @param count the number of threads.
+	 */
+	public void setThreadCount ( int count ) {
+		thread_count = (count < 1 ? 1 : count);
+	}
+
+	/**
+	 * Gets the number of threads to prepare the items concurrently.
+	 * @return the number of threads.
+	 */
+	public int getThreadCount ( ) {
+		return thread_count;
+	}
 }
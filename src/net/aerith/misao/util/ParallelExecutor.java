@@ -0,0 +1,145 @@
+/*
+ * @(#)ParallelExecutor.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The <code>ParallelExecutor</code> is a class to operate the parts of
+ * a <code>ParallelOperation</code> concurrently on the shared 
+ * fork-join pool, and to wait until all parts are completed.
+ * <p>
+ * It can be invoked from a part of another parallel operation. In 
+ * that case, the parts are operated in the same pool without 
+ * blocking the threads.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class ParallelExecutor {
+	/**
+	 * The number of threads.
+	 */
+	private static int thread_count = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The pool of threads.
+	 */
+	private static ForkJoinPool pool = null;
+
+	/**
+	 * Gets the number of threads.
+	 * @return the number of threads.
+	 */
+	public static int getThreadCount ( ) {
+		return thread_count;
+	}
+
+	/**
+	 * Sets the number of threads. When 1 is specified, all parts are
+	 * operated on the current thread in order.
+	 * @param count the number of threads.
+	 */
+	public static synchronized void setThreadCount ( int count ) {
+		if (count < 1)
+			count = 1;
+		if (count != thread_count) {
+			thread_count = count;
+			if (pool != null)
+				pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * Gets the pool of threads.
+	 * @return the pool of threads.
+	 */
+	public static synchronized ForkJoinPool getPool ( ) {
+		if (pool == null)
+			pool = new ForkJoinPool(thread_count);
+		return pool;
+	}
+
+	/**
+	 * Divides the specified length into the specified number of 
+	 * parts as equally as possible. The i-th part is between the 
+	 * i-th element and the (i+1)-th element of the returned array.
+	 * @param length the length to divide.
+	 * @param count  the number of parts.
+	 * @return the boundaries of the parts.
+	 */
+	public static int[] divide ( int length, int count ) {
+		if (count < 1)
+			count = 1;
+
+		int[] bounds = new int[count + 1];
+		for (int i = 0 ; i <= count ; i++)
+			bounds[i] = (int)((long)length * (long)i / (long)count);
+		return bounds;
+	}
+
+	/**
+	 * Gets the proper number of parts to divide the specified length,
+	 * so that each part is not shorter than the specified minimum
+	 * length.
+	 * @param length         the length to divide.
+	 * @param minimum_length the minimum length of a part.
+	 * @return the number of parts.
+	 */
+	public static int getPartCount ( int length, int minimum_length ) {
+		if (minimum_length < 1)
+			minimum_length = 1;
+
+		int count = length / minimum_length;
+		if (count > thread_count * 4)
+			count = thread_count * 4;
+		if (count < 1)
+			count = 1;
+		return count;
+	}
+
+	/**
+	 * Operates the specified number of parts concurrently, and waits
+	 * until all parts are completed. If a part throws an exception,
+	 * it is thrown again after all parts are completed.
+	 * @param count     the number of parts.
+	 * @param operation the operation.
+	 */
+	public static void execute ( int count, final ParallelOperation operation ) {
+		if (count <= 0)
+			return;
+
+		if (count == 1  ||  thread_count == 1) {
+			for (int i = 0 ; i < count ; i++)
+				operation.operate(i);
+			return;
+		}
+
+		final Vector tasks = new Vector();
+		for (int i = 0 ; i < count ; i++) {
+			final int index = i;
+			tasks.addElement(new RecursiveAction() {
+				protected void compute ( ) {
+					operation.operate(index);
+				}
+			});
+		}
+
+		if (ForkJoinTask.inForkJoinPool()) {
+			ForkJoinTask.invokeAll(tasks);
+		} else {
+			getPool().invoke(new RecursiveAction() {
+				protected void compute ( ) {
+					ForkJoinTask.invokeAll(tasks);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/*
+ * @(#)ParallelOperation.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+
+/**
+ * The <code>ParallelOperation</code> is an interface of an operation
+ * divided into several independent parts, which are operated 
+ * concurrently by the <code>ParallelExecutor</code>.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public interface ParallelOperation {
+	/**
+	 * Operates the specified part.
+	 * @param index the index of the part.
+	 */
+	public abstract void operate ( int index );
+}
@@ -0,0 +1,445 @@
+/*
+ * @(#)PositionGrid.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+
+/**
+ * The <code>PositionGrid</code> represents a uniform grid of (x,y)
+ * positions for fast search. Unlike the <code>PositionMap</code>, the
+ * positions are stored in arrays of primitive values, and the search
+ * methods store the indexes of the found positions in the list into
+ * the buffers given by the caller, so that no objects are created.
+ * <p>
+ * The grid is divided in the same way as the <code>PositionMap</code>
+ * created from the same list, and the positions are found in the same
+ * order as the <code>getPartialListWithinRadius</code> method of the
+ * <code>PositionMap</code> returns. The position out of the grid is
+ * shifted onto the nearest cell, as the <code>PositionMap</code> 
+ * which accepts out of bounds data. The <code>isOutOfBounds</code>
+ * method tells the position which the <code>PositionMap</code> not
+ * accepting out of bounds data rejects.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class PositionGrid {
+	/**
+	 * The x value of the left edge.
+	 */
+	protected double left;
+
+	/**
+	 * The y value of the top edge.
+	 */
+	protected double top;
+
+	/**
+	 * The width of a cell.
+	 */
+	protected double cell_width;
+
+	/**
+	 * The height of a cell.
+	 */
+	protected double cell_height;
+
+	/**
+	 * The number of rows.
+	 */
+	protected int rows;
+
+	/**
+	 * The number of columns.
+	 */
+	protected int columns;
+
+	/**
+	 * The x values of positions in order of the list.
+	 */
+	protected double[] xs;
+
+	/**
+	 * The y values of positions in order of the list.
+	 */
+	protected double[] ys;
+
+	/**
+	 * The start position of each cell in the array of indexes.
+	 */
+	protected int[] cell_starts;
+
+	/**
+	 * The indexes of positions sorted by the cell. The positions in
+	 * a cell are kept in order of the list.
+	 */
+	protected int[] cell_indexes;
+
+	/**
+	 * The flags to represent the positions are removed.
+	 */
+	protected boolean[] removed;
+
+	/**
+	 * The number of positions not removed.
+	 */
+	protected int remaining_count;
+
+	/**
+	 * Constructs a <code>PositionGrid</code> with the list of
+	 * positions. The grid is divided so that a cell contains about
+	 * one position on average.
+	 * @param list the list of (x,y) positions.
+	 */
+	public PositionGrid ( PositionList list ) {
+		double[] bounds = getBounds(list);
+		double width = bounds[2] - bounds[0];
+		double height = bounds[3] - bounds[1];
+
+		double unit = Math.sqrt(width * height / (double)Math.max(list.size(), 1));
+		int new_rows = 1;
+		int new_columns = 1;
+		if (unit > 0.0) {
+			new_rows = Math.max(1, Math.min((int)(height / unit), list.size()));
+			new_columns = Math.max(1, Math.min((int)(width / unit), list.size()));
+		}
+
+		build(list, bounds, new_rows, new_columns);
+	}
+
+	/**
+	 * Constructs a <code>PositionGrid</code> with the list of
+	 * positions, divided into the specified number of rows and
+	 * columns, in the same way as <code>PositionMap</code> created
+	 * from the list and divided.
+	 * @param list        the list of (x,y) positions.
+	 * @param new_rows    the number to divide vertically.
+	 * @param new_columns the number to divide horizontally.
+	 */
+	public PositionGrid ( PositionList list, int new_rows, int new_columns ) {
+		build(list, getBounds(list), new_rows, new_columns);
+	}
+
+	/**
+	 * Calculates the area of the grid in the same way as the
+	 * <code>PositionMap</code>.
+	 * @param list the list of (x,y) positions.
+	 * @return the left, top, right and bottom edges.
+	 */
+	private static double[] getBounds ( PositionList list ) {
+		double left = 0.0;
+		double top = 0.0;
+		double right = 0.0;
+		double bottom = 0.0;
+
+		for (int i = 0 ; i < list.size() ; i++) {
+			Position pos = (Position)list.elementAt(i);
+			if (i == 0  ||  left > pos.getX())
+				left = pos.getX();
+			if (i == 0  ||  top > pos.getY())
+				top = pos.getY();
+			if (i == 0  ||  right < pos.getX())
+				right = pos.getX();
+			if (i == 0  ||  bottom < pos.getY())
+				bottom = pos.getY();
+		}
+
+		// Just for safety.
+		right = (right - left) * 0.00001 + right;
+		bottom = (bottom - top) * 0.00001 + bottom;
+		if (right <= left)
+			right = left + 1.0;
+		if (bottom <= top)
+			bottom = top + 1.0;
+
+		return new double[] { left, top, right, bottom };
+	}
+
+	/**
+	 * Stores the positions into the cells.
+	 * @param list        the list of (x,y) positions.
+	 * @param bounds      the left, top, right and bottom edges.
+	 * @param new_rows    the number to divide vertically.
+	 * @param new_columns the number to divide horizontally.
+	 */
+	private void build ( PositionList list, double[] bounds, int new_rows, int new_columns ) {
+		left = bounds[0];
+		top = bounds[1];
+		rows = Math.max(new_rows, 1);
+		columns = Math.max(new_columns, 1);
+		cell_width = (bounds[2] - bounds[0]) / (double)columns;
+		cell_height = (bounds[3] - bounds[1]) / (double)rows;
+
+		int count = list.size();
+		xs = new double[count];
+		ys = new double[count];
+		removed = new boolean[count];
+		remaining_count = count;
+
+		int[] cells = new int[count];
+		cell_starts = new int[rows * columns + 1];
+		for (int i = 0 ; i < count ; i++) {
+			Position pos = (Position)list.elementAt(i);
+			xs[i] = pos.getX();
+			ys[i] = pos.getY();
+			cells[i] = getRow(ys[i]) * columns + getColumn(xs[i]);
+			cell_starts[cells[i] + 1]++;
+		}
+		for (int i = 0 ; i < rows * columns ; i++)
+			cell_starts[i + 1] += cell_starts[i];
+
+		cell_indexes = new int[count];
+		int[] filled = new int[rows * columns];
+		for (int i = 0 ; i < count ; i++) {
+			cell_indexes[cell_starts[cells[i]] + filled[cells[i]]] = i;
+			filled[cells[i]]++;
+		}
+	}
+
+	/**
+	 * Gets the number of positions, including the removed ones.
+	 * @return the number of positions.
+	 */
+	public int size ( ) {
+		return xs.length;
+	}
+
+	/**
+	 * Gets the number of positions not removed.
+	 * @return the number of positions not removed.
+	 */
+	public int getRemainingCount ( ) {
+		return remaining_count;
+	}
+
+	/**
+	 * Gets the x value of the position.
+	 * @param index the index of the position in the list.
+	 * @return the x value.
+	 */
+	public double getX ( int index ) {
+		return xs[index];
+	}
+
+	/**
+	 * Gets the y value of the position.
+	 * @param index the index of the position in the list.
+	 * @return the y value.
+	 */
+	public double getY ( int index ) {
+		return ys[index];
+	}
+
+	/**
+	 * Removes the position from the grid. The removed position is
+	 * never found after that.
+	 * @param index the index of the position in the list.
+	 */
+	public void remove ( int index ) {
+		if (removed[index] == false) {
+			removed[index] = true;
+			remaining_count--;
+		}
+	}
+
+	/**
+	 * Returns true if the position is removed.
+	 * @param index the index of the position in the list.
+	 * @return true if the position is removed.
+	 */
+	public boolean isRemoved ( int index ) {
+		return removed[index];
+	}
+
+	/**
+	 * Finds the positions within the specified radius from the
+	 * specified (x,y), and stores the indexes of them in the list into
+	 * the buffer. If the buffer is too small, only the indexes which
+	 * fit in the buffer are stored, but the returned number is the
+	 * total number of positions found.
+	 * @param x      the x value of the center.
+	 * @param y      the y value of the center.
+	 * @param radius the radius to search.
+	 * @param buffer the buffer to store the indexes.
+	 * @return the number of positions found.
+	 */
+	public int findWithinRadius ( double x, double y, double radius, int[] buffer ) {
+		int base_row = getRow(y);
+		int base_column = getColumn(x);
+		int row_steps = (int)(radius / cell_height) + 1;
+		int column_steps = (int)(radius / cell_width) + 1;
+
+		int row1 = Math.max(base_row - row_steps, 0);
+		int row2 = Math.min(base_row + row_steps, rows - 1);
+		int column1 = Math.max(base_column - column_steps, 0);
+		int column2 = Math.min(base_column + column_steps, columns - 1);
+
+		int found = 0;
+		for (int row = row1 ; row <= row2 ; row++) {
+			for (int p = cell_starts[row * columns + column1] ; p < cell_starts[row * columns + column2 + 1] ; p++) {
+				int index = cell_indexes[p];
+				if (removed[index] == false) {
+					double distance = Math.sqrt((x - xs[index]) * (x - xs[index]) + (y - ys[index]) * (y - ys[index]));
+					if (distance <= radius) {
+						if (found < buffer.length)
+							buffer[found] = index;
+						found++;
+					}
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Finds the nearest position within the specified radius from the
+	 * specified (x,y). When some positions are at the same distance,
+	 * the first one found by <code>findWithinRadius</code> is selected.
+	 * @param x      the x value of the center.
+	 * @param y      the y value of the center.
+	 * @param radius the radius to search.
+	 * @return the index of the nearest position in the list, or -1 if
+	 * no position is found.
+	 */
+	public int findNearest ( double x, double y, double radius ) {
+		int base_row = getRow(y);
+		int base_column = getColumn(x);
+		int row_steps = (int)(radius / cell_height) + 1;
+		int column_steps = (int)(radius / cell_width) + 1;
+
+		int row1 = Math.max(base_row - row_steps, 0);
+		int row2 = Math.min(base_row + row_steps, rows - 1);
+		int column1 = Math.max(base_column - column_steps, 0);
+		int column2 = Math.min(base_column + column_steps, columns - 1);
+
+		int nearest = -1;
+		double nearest_distance = 0.0;
+		for (int row = row1 ; row <= row2 ; row++) {
+			for (int p = cell_starts[row * columns + column1] ; p < cell_starts[row * columns + column2 + 1] ; p++) {
+				int index = cell_indexes[p];
+				if (removed[index] == false) {
+					double d = (xs[index] - x) * (xs[index] - x) + (ys[index] - y) * (ys[index] - y);
+					if (Math.sqrt(d) <= radius  &&  (nearest < 0  ||  nearest_distance > d)) {
+						nearest = index;
+						nearest_distance = d;
+					}
+				}
+			}
+		}
+
+		return nearest;
+	}
+
+	/**
+	 * Finds the k nearest positions from the specified (x,y), and
+	 * stores the indexes of them in the list and the distances into
+	 * the buffers in order of distance. The number of positions to
+	 * find is the length of the buffer of indexes.
+	 * @param x         the x value of the center.
+	 * @param y         the y value of the center.
+	 * @param indexes   the buffer to store the indexes.
+	 * @param distances the buffer to store the distances.
+	 * @return the number of positions found.
+	 */
+	public int findNearest ( double x, double y, int[] indexes, double[] distances ) {
+		int k = Math.min(indexes.length, distances.length);
+		if (k == 0)
+			return 0;
+
+		int base_row = getRow(y);
+		int base_column = getColumn(x);
+		double unit = Math.min(cell_width, cell_height);
+		int max_ring = Math.max(rows, columns);
+
+		int found = 0;
+		for (int ring = 0 ; ring <= max_ring ; ring++) {
+			for (int row = base_row - ring ; row <= base_row + ring ; row++) {
+				if (row < 0  ||  row >= rows)
+					continue;
+
+				// Only the cells on the edge of the ring.
+				int step = (row == base_row - ring  ||  row == base_row + ring) ? 1 : 2 * ring;
+				for (int column = base_column - ring ; column <= base_column + ring ; column += Math.max(step, 1)) {
+					if (column < 0  ||  column >= columns)
+						continue;
+
+					int cell = row * columns + column;
+					for (int p = cell_starts[cell] ; p < cell_starts[cell + 1] ; p++) {
+						int index = cell_indexes[p];
+						if (removed[index])
+							continue;
+
+						double d = Math.sqrt((x - xs[index]) * (x - xs[index]) + (y - ys[index]) * (y - ys[index]));
+						if (found == k  &&  distances[k - 1] <= d)
+							continue;
+
+						// Inserts in order of distance.
+						int q = (found < k) ? found++ : k - 1;
+						while (q > 0  &&  distances[q - 1] > d) {
+							indexes[q] = indexes[q - 1];
+							distances[q] = distances[q - 1];
+							q--;
+						}
+						indexes[q] = index;
+						distances[q] = d;
+					}
+				}
+			}
+
+			// All positions within this distance are already checked.
+			if (found == k  &&  distances[k - 1] <= unit * (double)ring)
+				break;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Returns true if the specified (x,y) is out of the grid. It is
+	 * judged in the same way as the <code>PositionMap</code> throws
+	 * the <code>OutOfBoundsException</code> in the search methods, so
+	 * the position slightly out of the edge may be regarded to be in
+	 * the grid.
+	 * @param x the x value.
+	 * @param y the y value.
+	 * @return true if the (x,y) is out of the grid.
+	 */
+	public boolean isOutOfBounds ( double x, double y ) {
+		int column = (int)((x - left) / cell_width);
+		int row = (int)((y - top) / cell_height);
+		return (row < 0  ||  row >= rows  ||  column < 0  ||  column >= columns);
+	}
+
+	/**
+	 * Gets the row of the cell where the specified y value locates.
+	 * @param y the y value.
+	 * @return the row.
+	 */
+	protected int getRow ( double y ) {
+		int row = (int)((y - top) / cell_height);
+		if (row < 0)
+			row = 0;
+		if (row >= rows)
+			row = rows - 1;
+		return row;
+	}
+
+	/**
+	 * Gets the column of the cell where the specified x value locates.
+	 * @param x the x value.
+	 * @return the column.
+	 */
+	protected int getColumn ( double x ) {
+		int column = (int)((x - left) / cell_width);
+		if (column < 0)
+			column = 0;
+		if (column >= columns)
+			column = columns - 1;
+		return column;
+	}
+}
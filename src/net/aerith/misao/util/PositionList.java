@@ -13,7 +13,7 @@ import java.util.Vector;
  * <code>Position</code>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2000 August 27
+ * @version 2026 October 18
  */
 
 public class PositionList extends Vector {
@@ -107,4 +107,62 @@ public class PositionList extends Vector {
 
 		return tree;
 	}
+
+	/**
+	 * Creates the minimum spanning tree from the list of
+	 * <code>Position</code>, by growing the tree from the first 
+	 * position. It is equivalent to <code>createMinimumGlobalTree</code>
+	 * unless some distances are equal, but requires only O(N^2) time
+	 * and O(N) memory.
+	 * @return the minimum spanning tree.
+	 */
+	public Graph createMinimumSpanningTree ( ) {
+		int count = size();
+		Graph tree = new Graph(count);
+		if (count == 0)
+			return tree;
+
+		double[] x = new double[count];
+		double[] y = new double[count];
+		for (int i = 0 ; i < count ; i++) {
+			Position p = (Position)elementAt(i);
+			x[i] = p.getX();
+			y[i] = p.getY();
+		}
+
+		// The squared distance from the tree, and the nearest node
+		// in the tree.
+		double[] distance = new double[count];
+		int[] nearest = new int[count];
+		boolean[] in_tree = new boolean[count];
+
+		in_tree[0] = true;
+		for (int i = 1 ; i < count ; i++) {
+			distance[i] = (x[i] - x[0]) * (x[i] - x[0]) + (y[i] - y[0]) * (y[i] - y[0]);
+			nearest[i] = 0;
+		}
+
+		for (int k = 1 ; k < count ; k++) {
+			int min_i = -1;
+			for (int i = 1 ; i < count ; i++) {
+				if (in_tree[i] == false  &&  (min_i < 0  ||  distance[i] < distance[min_i]))
+					min_i = i;
+			}
+
+			tree.connect(nearest[min_i], min_i);
+			in_tree[min_i] = true;
+
+			for (int i = 1 ; i < count ; i++) {
+				if (in_tree[i] == false) {
+					double d = (x[i] - x[min_i]) * (x[i] - x[min_i]) + (y[i] - y[min_i]) * (y[i] - y[min_i]);
+					if (d < distance[i]) {
+						distance[i] = d;
+						nearest[i] = min_i;
+					}
+				}
+			}
+		}
+
+		return tree;
+	}
 }
@@ -0,0 +1,380 @@
+/*
+ * @(#)SkyTileIndex.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.util;
+import java.util.*;
+
+/**
+ * The <code>SkyTileIndex</code> represents a hierarchical index of
+ * tiles on the celestial sphere. The sphere is projected on the six
+ * faces of a cube, and each face is divided into 2^level x 2^level
+ * tiles recursively. The projection is warped by the arc tangent so
+ * that the tiles have nearly equal areas.
+ * <p>
+ * The tiles are numbered in the nested order, so the number of the
+ * parent tile in the upper level is the number of the tile shifted
+ * by 2 bits to the right, and the tiles near on the sphere have near
+ * numbers in general.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class SkyTileIndex {
+	/**
+	 * The maximum level.
+	 */
+	public final static int MAXIMUM_LEVEL = 12;
+
+	/**
+	 * The normal vector and the two axis vectors of each face.
+	 */
+	private final static double[][] faces = {
+		{  1,  0,  0,    0,  1,  0,    0,  0,  1 },
+		{  0,  1,  0,   -1,  0,  0,    0,  0,  1 },
+		{  0,  0,  1,    0,  1,  0,   -1,  0,  0 },
+		{ -1,  0,  0,    0, -1,  0,    0,  0,  1 },
+		{  0, -1,  0,    1,  0,  0,    0,  0,  1 },
+		{  0,  0, -1,    0,  1,  0,    1,  0,  0 } };
+
+	/**
+	 * The level.
+	 */
+	protected int level;
+
+	/**
+	 * The number of tiles along an edge of a face.
+	 */
+	protected int division;
+
+	/**
+	 * Constructs a <code>SkyTileIndex</code> of the specified level.
+	 * @param level the level, from 0 to <code>MAXIMUM_LEVEL</code>.
+	 */
+	public SkyTileIndex ( int level ) {
+		if (level < 0)
+			level = 0;
+		if (level > MAXIMUM_LEVEL)
+			level = MAXIMUM_LEVEL;
+
+		this.level = level;
+		this.division = 1 << level;
+	}
+
+	/**
+	 * Gets the level.
+	 * @return the level.
+	 */
+	public int getLevel ( ) {
+		return level;
+	}
+
+	/**
+	 * Gets the number of tiles.
+	 * @return the number of tiles.
+	 */
+	public int getTileCount ( ) {
+		return 6 * division * division;
+	}
+
+	/**
+	 * Gets the number of the parent tile in the upper level.
+	 * @param tile the number of the tile.
+	 * @return the number of the parent tile.
+	 */
+	public static int getParentTile ( int tile ) {
+		return tile >> 2;
+	}
+
+	/**
+	 * Gets the number of the tile which contains the specified R.A.
+	 * and Decl.
+	 * @param ra   the R.A. in degree.
+	 * @param decl the Decl. in degree.
+	 * @return the number of the tile.
+	 */
+	public int getTile ( double ra, double decl ) {
+		double cos_decl = Math.cos(decl * Astro.RAD);
+		double x = cos_decl * Math.cos(ra * Astro.RAD);
+		double y = cos_decl * Math.sin(ra * Astro.RAD);
+		double z = Math.sin(decl * Astro.RAD);
+
+		return getTile(x, y, z);
+	}
+
+	/**
+	 * Gets the number of the tile which contains the specified unit
+	 * vector.
+	 * @param x the x element of the unit vector.
+	 * @param y the y element of the unit vector.
+	 * @param z the z element of the unit vector.
+	 * @return the number of the tile.
+	 */
+	public int getTile ( double x, double y, double z ) {
+		int face = 0;
+		double max = x;
+		if (y > max) {
+			face = 1;
+			max = y;
+		}
+		if (z > max) {
+			face = 2;
+			max = z;
+		}
+		if (-x > max) {
+			face = 3;
+			max = -x;
+		}
+		if (-y > max) {
+			face = 4;
+			max = -y;
+		}
+		if (-z > max) {
+			face = 5;
+			max = -z;
+		}
+
+		double[] f = faces[face];
+		double u = (x * f[3] + y * f[4] + z * f[5]) / max;
+		double v = (x * f[6] + y * f[7] + z * f[8]) / max;
+
+		int i = toCell(u);
+		int j = toCell(v);
+
+		return face * division * division + interleave(i, j);
+	}
+
+	/**
+	 * Gets the R.A. and Decl. of the center of the specified tile.
+	 * @param tile the number of the tile.
+	 * @return the R.A. and Decl. of the center.
+	 */
+	public Coor getTileCenter ( int tile ) {
+		int[] cell = getCell(tile);
+		double[] c = toVector(cell[0], fromCell(2 * cell[1] + 1, 2 * division), fromCell(2 * cell[2] + 1, 2 * division));
+
+		double ra = Math.atan2(c[1], c[0]) / Astro.RAD;
+		if (ra < 0.0)
+			ra += 360.0;
+		double decl = Math.asin(Math.max(-1.0, Math.min(1.0, c[2]))) / Astro.RAD;
+		return new Coor(ra, decl);
+	}
+
+	/**
+	 * Gets the radius of the circle around the center of the 
+	 * specified tile which contains the whole tile.
+	 * @param tile the number of the tile.
+	 * @return the radius in degree.
+	 */
+	public double getTileRadius ( int tile ) {
+		int[] cell = getCell(tile);
+		int face = cell[0];
+		int i = cell[1];
+		int j = cell[2];
+
+		double[] c = toVector(face, fromCell(2 * i + 1, 2 * division), fromCell(2 * j + 1, 2 * division));
+		double radius = 0.0;
+		for (int k = 0 ; k < 4 ; k++) {
+			double[] corner = toVector(face, fromCell(i + (k & 1), division), fromCell(j + (k >> 1), division));
+			radius = Math.max(radius, getAngle(c, corner));
+		}
+		return radius / Astro.RAD;
+	}
+
+	/**
+	 * Gets the numbers of tiles which overlap the specified circle
+	 * on the sphere, in ascending order. Some tiles near the edge of
+	 * the circle may not overlap actually.
+	 * @param coor   the R.A. and Decl. of the center.
+	 * @param radius the radius of the circle in degree.
+	 * @return the array of the numbers of tiles.
+	 */
+	public int[] getTiles ( Coor coor, double radius ) {
+		double cos_decl = Math.cos(coor.getDecl() * Astro.RAD);
+		double[] center = new double[3];
+		center[0] = cos_decl * Math.cos(coor.getRA() * Astro.RAD);
+		center[1] = cos_decl * Math.sin(coor.getRA() * Astro.RAD);
+		center[2] = Math.sin(coor.getDecl() * Astro.RAD);
+
+		IntList list = new IntList();
+
+		if (radius >= 180.0) {
+			for (int tile = 0 ; tile < getTileCount() ; tile++)
+				list.add(tile);
+		} else {
+			for (int face = 0 ; face < 6 ; face++)
+				collectTiles(face, 0, 0, 0, center, radius * Astro.RAD, list);
+		}
+
+		int[] tiles = list.toArray();
+		Arrays.sort(tiles);
+		return tiles;
+	}
+
+	/**
+	 * Collects the tiles in the specified cell and its descendants
+	 * which overlap the specified circle.
+	 * @param face   the face.
+	 * @param depth  the level of the cell.
+	 * @param i      the x index of the cell in the level.
+	 * @param j      the y index of the cell in the level.
+	 * @param center the unit vector of the center of the circle.
+	 * @param radius the radius of the circle in radian.
+	 * @param list   the list to add the tiles.
+	 */
+	private void collectTiles ( int face, int depth, int i, int j, double[] center, double radius, IntList list ) {
+		int n = 1 << depth;
+
+		// The center and corners of the cell.
+		double[] c = toVector(face, fromCell(2 * i + 1, 2 * n), fromCell(2 * j + 1, 2 * n));
+		double cell_radius = 0.0;
+		for (int k = 0 ; k < 4 ; k++) {
+			double[] corner = toVector(face, fromCell(i + (k & 1), n), fromCell(j + (k >> 1), n));
+			cell_radius = Math.max(cell_radius, getAngle(c, corner));
+		}
+
+		if (getAngle(c, center) > radius + cell_radius + 1.0e-9)
+			return;
+
+		if (depth == level) {
+			list.add(face * division * division + interleave(i, j));
+			return;
+		}
+
+		for (int k = 0 ; k < 4 ; k++)
+			collectTiles(face, depth + 1, 2 * i + (k & 1), 2 * j + (k >> 1), center, radius, list);
+	}
+
+	/**
+	 * Converts the position on a face into the index of the cell.
+	 * @param u the position on a face, from -1 to 1.
+	 * @return the index of the cell.
+	 */
+	private int toCell ( double u ) {
+		double s = Math.atan(u) * 4.0 / Math.PI;
+		int i = (int)((s + 1.0) * 0.5 * (double)division);
+		if (i < 0)
+			i = 0;
+		if (i >= division)
+			i = division - 1;
+		return i;
+	}
+
+	/**
+	 * Converts the edge of the cell into the position on a face.
+	 * @param index the index of the edge of the cell.
+	 * @param count the number of cells along an edge of a face.
+	 * @return the position on a face, from -1 to 1.
+	 */
+	private static double fromCell ( int index, int count ) {
+		double s = (double)index / (double)count * 2.0 - 1.0;
+		return Math.tan(s * Math.PI / 4.0);
+	}
+
+	/**
+	 * Converts the position on a face into the unit vector.
+	 * @param face the face.
+	 * @param u    the x position on the face.
+	 * @param v    the y position on the face.
+	 * @return the unit vector.
+	 */
+	private static double[] toVector ( int face, double u, double v ) {
+		double[] f = faces[face];
+		double[] p = new double[3];
+		for (int k = 0 ; k < 3 ; k++)
+			p[k] = f[k] + u * f[3 + k] + v * f[6 + k];
+
+		double r = Math.sqrt(p[0] * p[0] + p[1] * p[1] + p[2] * p[2]);
+		p[0] /= r;
+		p[1] /= r;
+		p[2] /= r;
+		return p;
+	}
+
+	/**
+	 * Gets the angle between the two unit vectors.
+	 * @param p1 the first unit vector.
+	 * @param p2 the second unit vector.
+	 * @return the angle in radian.
+	 */
+	private static double getAngle ( double[] p1, double[] p2 ) {
+		double dx = p1[0] - p2[0];
+		double dy = p1[1] - p2[1];
+		double dz = p1[2] - p2[2];
+		double chord = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		return 2.0 * Math.asin(Math.min(chord * 0.5, 1.0));
+	}
+
+	/**
+	 * Gets the face and the indexes of the specified tile.
+	 * @param tile the number of the tile.
+	 * @return the array of the face, the x index and the y index.
+	 */
+	private int[] getCell ( int tile ) {
+		int n = tile % (division * division);
+		int i = 0;
+		int j = 0;
+		for (int b = 0 ; b < MAXIMUM_LEVEL ; b++) {
+			i |= ((n >> (2 * b)) & 1) << b;
+			j |= ((n >> (2 * b + 1)) & 1) << b;
+		}
+		return new int[] { tile / (division * division), i, j };
+	}
+
+	/**
+	 * Interleaves the bits of the two indexes.
+	 * @param i the x index.
+	 * @param j the y index.
+	 * @return the interleaved number.
+	 */
+	private static int interleave ( int i, int j ) {
+		int n = 0;
+		for (int b = 0 ; b < MAXIMUM_LEVEL ; b++) {
+			n |= ((i >> b) & 1) << (2 * b);
+			n |= ((j >> b) & 1) << (2 * b + 1);
+		}
+		return n;
+	}
+
+	/**
+	 * The <code>IntList</code> is a growing array of int values.
+	 */
+	private static class IntList {
+		/**
+		 * The array of values.
+		 */
+		private int[] values = new int[64];
+
+		/**
+		 * The number of values.
+		 */
+		private int count = 0;
+
+		/**
+		 * Adds a value.
+		 * @param value the value.
+		 */
+		private void add ( int value ) {
+			if (count == values.length) {
+				int[] v = new int[count * 2];
+				System.arraycopy(values, 0, v, 0, count);
+				values = v;
+			}
+			values[count++] = value;
+		}
+
+		/**
+		 * Returns the array of values.
+		 * @return the array of values.
+		 */
+		private int[] toArray ( ) {
+			int[] v = new int[count];
+			System.arraycopy(values, 0, v, 0, count);
+			return v;
+		}
+	}
+}
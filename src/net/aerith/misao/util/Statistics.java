@@ -13,7 +13,7 @@ package net.aerith.misao.util;
  * in order O(n).
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2000 November 28
+ * @version 2026 October 18
  */
 
 public class Statistics {
@@ -92,6 +92,16 @@ public class Statistics {
 		average = 0.0;
 		deviation = 0.0;
 		
+		if (target instanceof BulkStatisticable) {
+			double[] statistics = ((BulkStatisticable)target).calculateStatistics(minimum_limit, maximum_limit);
+			data_count = (int)statistics[0];
+			minimum = statistics[1];
+			maximum = statistics[2];
+			average = statistics[3];
+			deviation = statistics[4];
+			return;
+		}
+
 		if (target != null) {
 			try {
 				data_count = 0;
@@ -12,12 +12,34 @@ import java.util.*;
  * The <code>TriangleMatchingSolver</code> is a class to solve
  * matching between two lists of (x,y) positions, based on the
  * triangles pattern matching.
+ * <p>
+ * In the indexed mode, the triangles of the second list are indexed 
+ * in a hash table by the quantized ratios of edges, the candidates of
+ * map function are scored concurrently, and a candidate is rejected
+ * as soon as it turns out that it cannot exceed the best score.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2001 May 18
+ * @version 2026 October 18
  */
 
 public class TriangleMatchingSolver {
+	/**
+	 * The mode number which represents the exhaustive search on the
+	 * map of triangles.
+	 */
+	public final static int MODE_EXHAUSTIVE = 0;
+
+	/**
+	 * The mode number which represents the search on the hash table
+	 * of triangles, with concurrent scoring and early rejection.
+	 */
+	public final static int MODE_INDEXED = 1;
+
+	/**
+	 * The mode.
+	 */
+	protected int mode = MODE_EXHAUSTIVE;
+
 	/**
 	 * The first list of (x,y) positions.
 	 */
@@ -129,6 +151,22 @@ public class TriangleMatchingSolver {
 		monitor_set.addMonitor(monitor);
 	}
 
+	/**
+	 * Sets the mode.
+	 * @param mode the mode.
+	 */
+	public void setMode ( int mode ) {
+		this.mode = mode;
+	}
+
+	/**
+	 * Gets the mode.
+	 * @return the mode.
+	 */
+	public int getMode ( ) {
+		return mode;
+	}
+
 	/**
 	 * Sets the first list of (x,y) positions to check if the map 
 	 * function is proper.
@@ -232,22 +270,17 @@ public class TriangleMatchingSolver {
 	public MapFunction solve ( )
 		throws MatchingFailedException
 	{
+		if (mode == MODE_INDEXED)
+			return solveIndexed();
+
 		Graph tree1 = list1.createMinimumGlobalTree();
 		Graph tree2 = list2.createMinimumGlobalTree();
 
 		TriIndex[] tri_indexes1 = new TriGraph(tree1).createTriangles(trigraph_search_step1);
 		TriIndex[] tri_indexes2 = new TriGraph(tree2).createTriangles(trigraph_search_step2);
 
-		Triangle[] triangles1 = new Triangle[tri_indexes1.length];
-		for (int i = 0 ; i < tri_indexes1.length ; i++)
-			triangles1[i] = new Triangle((Position)list1.elementAt(tri_indexes1[i].element(0)),
-										 (Position)list1.elementAt(tri_indexes1[i].element(1)),
-										 (Position)list1.elementAt(tri_indexes1[i].element(2)));
-		Triangle[] triangles2 = new Triangle[tri_indexes2.length];
-		for (int i = 0 ; i < tri_indexes2.length ; i++)
-			triangles2[i] = new Triangle((Position)list2.elementAt(tri_indexes2[i].element(0)),
-										 (Position)list2.elementAt(tri_indexes2[i].element(1)),
-										 (Position)list2.elementAt(tri_indexes2[i].element(2)));
+		Triangle[] triangles1 = createTriangles(list1, tri_indexes1);
+		Triangle[] triangles2 = createTriangles(list2, tri_indexes2);
 
 		monitor_set.addMessage("Triangles of list 1: " + triangles1.length);
 		monitor_set.addMessage("Triangles of list 2: " + triangles2.length);
@@ -325,6 +358,156 @@ public class TriangleMatchingSolver {
 		return map_function;
 	}
 
+	/**
+	 * Solves matching in the indexed mode. The triangles are created
+	 * from the minimum spanning trees, and the similar triangles are
+	 * searched on the hash table. The candidates of map function for
+	 * a triangle in the first list are scored concurrently, and the
+	 * best one is selected in the same order as the exhaustive mode.
+	 * @return the map function to convert (x,y) position.
+	 * @exception MatchingFailedException if the best score after
+	 * all searches is less than the specified score to fail.
+	 */
+	protected MapFunction solveIndexed ( )
+		throws MatchingFailedException
+	{
+		Graph tree1 = list1.createMinimumSpanningTree();
+		Graph tree2 = list2.createMinimumSpanningTree();
+
+		TriIndex[] tri_indexes1 = new TriGraph(tree1).createTriangles(trigraph_search_step1);
+		TriIndex[] tri_indexes2 = new TriGraph(tree2).createTriangles(trigraph_search_step2);
+
+		Triangle[] triangles1 = createTriangles(list1, tri_indexes1);
+		final Triangle[] triangles2 = createTriangles(list2, tri_indexes2);
+
+		monitor_set.addMessage("Triangles of list 1: " + triangles1.length);
+		monitor_set.addMessage("Triangles of list 2: " + triangles2.length);
+
+		TriangleHashTable table2 = new TriangleHashTable(triangles2, triangle_map_division_count, triangle_map_unit_ratio);
+
+		// The grid of check list for list2, divided in the same way 
+		// as the exhaustive mode.
+		final PositionGrid checklist2_grid = new PositionGrid(checklist2, 100, 100);
+
+		final double[] check_x = new double[checklist1.size()];
+		final double[] check_y = new double[checklist1.size()];
+		for (int i = 0 ; i < checklist1.size() ; i++) {
+			Position position1 = (Position)checklist1.elementAt(i);
+			check_x[i] = position1.getX();
+			check_y[i] = position1.getY();
+		}
+
+		// Calculates candidates of map function repeatedly
+		// while searching similar triangles.
+		monitor_set.addMessage("Matching progress:");
+
+		MapFunction map_function = new MapFunction();
+		best_score = 0.0;
+
+		for (int j = 0 ; j < triangles1.length ; j++) {
+			final Triangle tri1 = triangles1[j];
+			final int[] candidates = table2.getCandidates(tri1);
+
+			monitor_set.addMessage("  " + j + " / " + triangles1.length + " : " + candidates.length);
+
+			// Scores the candidates concurrently. A candidate which
+			// cannot exceed the current best score is rejected.
+			final MapFunction[] functions = new MapFunction[candidates.length];
+			final double[] scores = new double[candidates.length];
+			final double limit = best_score;
+
+			final int[] bounds = ParallelExecutor.divide(candidates.length, ParallelExecutor.getPartCount(candidates.length, 4));
+			ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+				public void operate ( int index ) {
+					for (int k = bounds[index] ; k < bounds[index + 1] ; k++) {
+						try {
+							MapFunction mf = new MapFunction(tri1, triangles2[candidates[k]]);
+
+							if (1.0 / acceptable_ratio < mf.getRatio()  &&  mf.getRatio() < acceptable_ratio) {
+								functions[k] = mf;
+								scores[k] = getScore(mf, checklist2_grid, check_x, check_y, limit);
+							}
+						} catch ( ArithmeticException exception ) {
+							// The two triangles tri1 and tri2 are not similar.
+						}
+					}
+				}
+			});
+
+			for (int k = 0 ; k < candidates.length ; k++) {
+				if (functions[k] != null  &&  scores[k] > best_score) {
+					best_score = scores[k];
+					map_function = functions[k];
+
+					monitor_set.addMessage(map_function.getOutputString());
+					monitor_set.addMessage("Score: " + Format.formatDouble(best_score, 4, 1));
+
+					if (best_score >= score_to_pass)
+						return map_function;
+				}
+			}
+		}
+
+		if (best_score < score_to_fail)
+			throw new MatchingFailedException(map_function, best_score);
+
+		return map_function;
+	}
+
+	/**
+	 * Calculates the score of the map function, which is the 
+	 * ratio of the mapped positions coincide with the positions
+	 * in the grid within the check accuracy. The mapped positions out
+	 * of the grid are never regarded to coincide, as the exhaustive 
+	 * mode. When it turns out that the score cannot exceed the 
+	 * specified limit, it returns -1 immediately.
+	 * @param mf    the map function.
+	 * @param grid  the grid of positions to check.
+	 * @param x     the x values of positions to be mapped.
+	 * @param y     the y values of positions to be mapped.
+	 * @param limit the score to exceed.
+	 * @return the score, or -1 if it cannot exceed the limit.
+	 */
+	protected double getScore ( MapFunction mf, PositionGrid grid, double[] x, double[] y, double limit ) {
+		if (x.length == 0)
+			return 0.0;
+
+		double st = Math.sin(mf.angle * Astro.RAD);
+		double ct = Math.cos(mf.angle * Astro.RAD);
+		double x0 = mf.base_position.getX();
+		double y0 = mf.base_position.getY();
+
+		int matched_count = 0;
+		for (int i = 0 ; i < x.length ; i++) {
+			double mx = mf.ratio * (x[i] * ct - y[i] * st) + x0;
+			double my = mf.ratio * (x[i] * st + y[i] * ct) + y0;
+
+			if (grid.isOutOfBounds(mx, my) == false  &&  grid.findNearest(mx, my, check_accuracy) >= 0) {
+				matched_count++;
+			} else {
+				if ((double)(matched_count + x.length - i - 1) / (double)x.length <= limit)
+					return -1.0;
+			}
+		}
+
+		return (double)matched_count / (double)x.length;
+	}
+
+	/**
+	 * Creates the triangles of the specified indexes in the list.
+	 * @param list    the list of (x,y) positions.
+	 * @param indexes the list of three indexes of triangles.
+	 * @return the list of triangles.
+	 */
+	protected Triangle[] createTriangles ( PositionList list, TriIndex[] indexes ) {
+		Triangle[] triangles = new Triangle[indexes.length];
+		for (int i = 0 ; i < indexes.length ; i++)
+			triangles[i] = new Triangle((Position)list.elementAt(indexes[i].element(0)),
+										(Position)list.elementAt(indexes[i].element(1)),
+										(Position)list.elementAt(indexes[i].element(2)));
+		return triangles;
+	}
+
 	/**
 	 * The <code>TriIndex</code> represents a set of three indexes in 
 	 * the original list which expresses a triangle.
@@ -530,4 +713,169 @@ public class TriangleMatchingSolver {
 			return new Position(x, y);
 		}
 	}
+
+	/**
+	 * The <code>TriangleHashTable</code> represents a hash table of 
+	 * triangles, whose key is the ratios of edges quantized in the 
+	 * same way as the <code>TriangleMap</code>.
+	 */
+	protected class TriangleHashTable {
+		/**
+		 * The logarithm of the unit of ratio.
+		 */
+		protected double log_unit;
+
+		/**
+		 * The number of divisions of the quantized ratios. The larger
+		 * ratios are in the last division.
+		 */
+		protected int division_count;
+
+		/**
+		 * The keys of the slots. The empty slot is -1.
+		 */
+		protected long[] keys;
+
+		/**
+		 * The start position in the index list of each slot.
+		 */
+		protected int[] starts;
+
+		/**
+		 * The number of triangles of each slot.
+		 */
+		protected int[] counts;
+
+		/**
+		 * The list of indexes of triangles, sorted by the slot.
+		 */
+		protected int[] indexes;
+
+		/**
+		 * Constructs a <code>TriangleHashTable</code> with a list of
+		 * <code>Triangle</code>s, the number of divisions and the unit
+		 * of ratio.
+		 * @param triangles      the list of triangles.
+		 * @param division_count the number of divisions.
+		 * @param unit_ratio     the unit of ratio to quantize.
+		 */
+		public TriangleHashTable ( Triangle[] triangles, int division_count, double unit_ratio ) {
+			this.division_count = division_count;
+			log_unit = Math.log(unit_ratio);
+
+			int size = 16;
+			while (size < triangles.length * 2)
+				size *= 2;
+
+			keys = new long[size];
+			starts = new int[size];
+			counts = new int[size];
+			for (int i = 0 ; i < size ; i++)
+				keys[i] = -1;
+
+			long[] triangle_keys = new long[triangles.length];
+			int[] slots = new int[triangles.length];
+			for (int i = 0 ; i < triangles.length ; i++) {
+				triangle_keys[i] = getKey(triangles[i]);
+				int slot = findSlot(triangle_keys[i]);
+				keys[slot] = triangle_keys[i];
+				counts[slot]++;
+				slots[i] = slot;
+			}
+
+			int position = 0;
+			for (int i = 0 ; i < size ; i++) {
+				starts[i] = position;
+				position += counts[i];
+			}
+
+			// The triangles in a slot are kept in the original order.
+			indexes = new int[position];
+			int[] filled = new int[size];
+			for (int i = 0 ; i < triangles.length ; i++) {
+				indexes[starts[slots[i]] + filled[slots[i]]] = i;
+				filled[slots[i]]++;
+			}
+		}
+
+		/**
+		 * Gets the indexes of triangles whose key is the same as or 
+		 * adjacent to that of the specified triangle, in the same 
+		 * order as the <code>TriangleMap</code> returns.
+		 * @param triangle the triangle.
+		 * @return the list of indexes of triangles.
+		 */
+		public int[] getCandidates ( Triangle triangle ) {
+			long key = getKey(triangle);
+
+			int qx = (int)(key >> 32);
+			int qy = (int)(key & 0xffffffffL);
+
+			int total = 0;
+			int[] found_slots = new int[9];
+			int found_count = 0;
+			for (int y = qy - 1 ; y <= qy + 1 ; y++) {
+				for (int x = qx - 1 ; x <= qx + 1 ; x++) {
+					if (x >= 0  &&  x < division_count  &&  y >= 0  &&  y < division_count) {
+						long k = ((long)x << 32) | (long)y;
+						int slot = findSlot(k);
+						if (keys[slot] == k) {
+							found_slots[found_count++] = slot;
+							total += counts[slot];
+						}
+					}
+				}
+			}
+
+			int[] candidates = new int[total];
+			int position = 0;
+			for (int i = 0 ; i < found_count ; i++) {
+				System.arraycopy(indexes, starts[found_slots[i]], candidates, position, counts[found_slots[i]]);
+				position += counts[found_slots[i]];
+			}
+			return candidates;
+		}
+
+		/**
+		 * Gets the key of the specified triangle, which consists of
+		 * the quantized ratios of edges. The ratios out of the range
+		 * are clamped into the first or the last division, in the 
+		 * same way as the <code>TriangleMap</code> accepting out of
+		 * bounds.
+		 * @param triangle the triangle.
+		 * @return the key.
+		 */
+		protected long getKey ( Triangle triangle ) {
+			TrianglePosition position = new TrianglePosition(triangle);
+			double x = Math.log(position.getX()) / log_unit;
+			double y = Math.log(position.getY()) / log_unit;
+
+			int qx = (int)x;
+			int qy = (int)y;
+			if (qx < 0)
+				qx = 0;
+			if (qx >= division_count)
+				qx = division_count - 1;
+			if (qy < 0)
+				qy = 0;
+			if (qy >= division_count)
+				qy = division_count - 1;
+
+			return ((long)qx << 32) | (long)qy;
+		}
+
+		/**
+		 * Finds the slot of the specified key. If the key is not in
+		 * the table, it returns the empty slot to store the key.
+		 * @param key the key.
+		 * @return the slot.
+		 */
+		protected int findSlot ( long key ) {
+			int mask = keys.length - 1;
+			int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+			while (keys[slot] != -1  &&  keys[slot] != key)
+				slot = (slot + 1) & mask;
+			return slot;
+		}
+	}
 }
@@ -15,7 +15,7 @@ import java.util.Vector;
  * such as to check existence of files in any directory in this set.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2001 June 3
+ * @version 2026 October 18
  */
 
 public class URLSet {
@@ -42,13 +42,30 @@ public class URLSet {
 	}
 
 	/**
-	 * Adds an URL.
+	 * Adds an URL. The URL already in this set is not added again.
 	 * @param new_url the new URL to add.
 	 */
 	public void addURL ( URL new_url ) {
+		String form = new_url.toExternalForm();
+		for (int i = 0 ; i < list.size() ; i++) {
+			if (((URL)list.elementAt(i)).toExternalForm().equals(form))
+				return;
+		}
+
 		list.addElement(new_url);
 	}
 
+	/**
+	 * Gets the URLs.
+	 * @return the array of URLs.
+	 */
+	public URL[] getURLs ( ) {
+		URL[] urls = new URL[list.size()];
+		for (int i = 0 ; i < list.size() ; i++)
+			urls[i] = (URL)list.elementAt(i);
+		return urls;
+	}
+
 	/**
 	 * True if no URL is set.
 	 * @return true if no URL is set.
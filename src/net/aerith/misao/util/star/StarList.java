@@ -7,13 +7,14 @@
 
 package net.aerith.misao.util.star;
 import java.util.Vector;
+import java.util.Hashtable;
 import net.aerith.misao.util.*;
 
 /**
  * The <code>StarList</code> represents a list of <code>Star</code>.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2003 January 28
+ * @version 2026 October 18
  */
 
 public class StarList extends StarPositionList {
@@ -123,48 +124,54 @@ public class StarList extends StarPositionList {
 	 * merge in degree.
 	 * @return the new list.
 	 */
-	private StarList merge ( double search_radius, int mode ) {
+	private StarList merge ( double search_radius, final int mode ) {
 		StarList new_list = new StarList();
 
 		if (size() == 0)
 			return new_list;
 
-		Star star1 = (Star)elementAt(0);
+		final Star[] stars = new Star[size()];
+		copyInto(stars);
+
+		Star star1 = stars[0];
 		Star star2 = null;
-		for (int i = 1 ; i < size()  &&  star2 == null ; i++) {
-			Star star = (Star)elementAt(i);
-			if (star.getX() != star1.getX()  ||  star.getY() != star1.getY())
-				star2 = star;
+		for (int i = 1 ; i < stars.length  &&  star2 == null ; i++) {
+			if (stars[i].getX() != star1.getX()  ||  stars[i].getY() != star1.getY())
+				star2 = stars[i];
 		}
 
 		// In the case all the elements have the same (x,y).
 		if (star2 == null) {
 			if (mode == MERGE_UNIFY) {
-				StarList copy_list = new StarList(this);
-				for (int i = 0 ; i < copy_list.size() ; i++) {
-					Star star = (Star)copy_list.elementAt(i);
-					Vector merged_list = new Vector();
-					for (int j = i + 1 ; j < copy_list.size() ; j++) {
-						Star s = (Star)copy_list.elementAt(j);
-						if (star.getName().equals(s.getName()))
-							merged_list.addElement(copy_list.elementAt(j));
+				// The stars are grouped by the name, in order of the 
+				// first appearance of the name.
+				Vector name_list = new Vector();
+				Hashtable hash_group = new Hashtable();
+				for (int i = 0 ; i < stars.length ; i++) {
+					Vector group = (Vector)hash_group.get(stars[i].getName());
+					if (group == null) {
+						group = new Vector();
+						hash_group.put(stars[i].getName(), group);
+						name_list.addElement(stars[i].getName());
 					}
+					group.addElement(stars[i]);
+				}
 
-					if (merged_list.size() == 0) {
-						new_list.addElement(star);
+				for (int i = 0 ; i < name_list.size() ; i++) {
+					Vector group = (Vector)hash_group.get(name_list.elementAt(i));
+					if (group.size() == 1) {
+						new_list.addElement(group.elementAt(0));
 					} else {
-						UnifiedStar unified_star = new UnifiedStar(star);
-						for (int j = 0 ; j < merged_list.size() ; j++) {
-							unified_star.append((Star)merged_list.elementAt(j));
-							copy_list.removeElement(merged_list.elementAt(j));
-						}
+						UnifiedStar unified_star = new UnifiedStar((Star)group.elementAt(0));
+						for (int j = 1 ; j < group.size() ; j++)
+							unified_star.append((Star)group.elementAt(j));
 						new_list.addElement(unified_star);
 					}
 				}
 			} else if (mode == MERGE_BLEND) {
-				BlendingStar blending_star = new BlendingStar((Star)elementAt(0));
-				for (int i = 1 ; i < size() ; i++)
-					blending_star.append((Star)elementAt(i));
+				BlendingStar blending_star = new BlendingStar(stars[0]);
+				for (int i = 1 ; i < stars.length ; i++)
+					blending_star.append(stars[i]);
 				new_list.addElement(blending_star);
 			}
 			return new_list;
@@ -173,54 +180,74 @@ public class StarList extends StarPositionList {
 		double xy_distance = Math.sqrt((star1.getX() - star2.getX()) * (star1.getX() - star2.getX()) + 
 									   (star1.getY() - star2.getY()) * (star1.getY() - star2.getY()));
 		double angular_distance = star1.getCoor().getAngularDistanceTo(star2);
-		double search_xy_radius = xy_distance / angular_distance * search_radius;
-
-		PositionMap map = new PositionMap(this);
-		map.divide(100, 100);
-		map.acceptOutOfBounds();
+		final double search_xy_radius = xy_distance / angular_distance * search_radius;
 
-		StarList copy_list = new StarList(this);
+		final PositionGrid grid = new PositionGrid(this, 100, 100);
 
-		for (int i = 0 ; i < copy_list.size() ; i++) {
-			Star star = (Star)copy_list.elementAt(i);
+		// Finds the counterparts of all stars concurrently. The
+		// counterparts are in the order of the grid.
+		final int[][] counterparts = new int[stars.length][];
+		final int[] bounds = ParallelExecutor.divide(stars.length, ParallelExecutor.getPartCount(stars.length, 1000));
+		ParallelExecutor.execute(bounds.length - 1, new ParallelOperation() {
+			public void operate ( int index ) {
+				int[] buffer = new int[64];
+				for (int i = bounds[index] ; i < bounds[index + 1] ; i++) {
+					Star star = stars[i];
 
-			Vector merged_list = new Vector();
+					int count = grid.findWithinRadius(star.getX(), star.getY(), search_xy_radius, buffer);
+					if (count > buffer.length) {
+						buffer = new int[count * 2];
+						grid.findWithinRadius(star.getX(), star.getY(), search_xy_radius, buffer);
+					}
 
-			try {
-				Vector l = map.getPartialListWithinRadius(star, search_xy_radius);
-				for (int j = 0 ; j < l.size() ; j++) {
-					Star s = (Star)l.elementAt(j);
-					if (mode == MERGE_UNIFY) {
-						if (star != s  &&  star.getName().equals(s.getName())) {
-							// To be unified.
-							merged_list.addElement(s);
-						}
-					} else if (mode == MERGE_BLEND) {
-						if (star != s) {
-							// To be blended.
-							merged_list.addElement(s);
+					int merged_count = 0;
+					for (int j = 0 ; j < count ; j++) {
+						Star s = stars[buffer[j]];
+						if (mode == MERGE_UNIFY) {
+							if (star != s  &&  star.getName().equals(s.getName())) {
+								// To be unified.
+								buffer[merged_count++] = buffer[j];
+							}
+						} else if (mode == MERGE_BLEND) {
+							if (star != s) {
+								// To be blended.
+								buffer[merged_count++] = buffer[j];
+							}
 						}
 					}
+
+					if (merged_count > 0) {
+						counterparts[i] = new int[merged_count];
+						System.arraycopy(buffer, 0, counterparts[i], 0, merged_count);
+					}
 				}
-			} catch ( OutOfBoundsException exception ) {
-				// Never happens.
 			}
+		});
+
+		// From the first star, a star is merged with its counterparts,
+		// unless it is already merged into another star.
+		boolean[] merged = new boolean[stars.length];
+		for (int i = 0 ; i < stars.length ; i++) {
+			if (merged[i])
+				continue;
+
+			Star star = stars[i];
 
-			if (merged_list.size() == 0) {
+			if (counterparts[i] == null) {
 				new_list.addElement(star);
 			} else {
 				if (mode == MERGE_UNIFY) {
 					UnifiedStar unified_star = new UnifiedStar(star);
-					for (int j = 0 ; j < merged_list.size() ; j++) {
-						unified_star.append((Star)merged_list.elementAt(j));
-						copy_list.removeElement(merged_list.elementAt(j));
+					for (int j = 0 ; j < counterparts[i].length ; j++) {
+						unified_star.append(stars[counterparts[i][j]]);
+						merged[counterparts[i][j]] = true;
 					}
 					new_list.addElement(unified_star);
 				} else if (mode == MERGE_BLEND) {
 					BlendingStar blending_star = new BlendingStar(star);
-					for (int j = 0 ; j < merged_list.size() ; j++) {
-						blending_star.append((Star)merged_list.elementAt(j));
-						copy_list.removeElement(merged_list.elementAt(j));
+					for (int j = 0 ; j < counterparts[i].length ; j++) {
+						blending_star.append(stars[counterparts[i][j]]);
+						merged[counterparts[i][j]] = true;
 					}
 					new_list.addElement(blending_star);
 				}
@@ -12,7 +12,7 @@ package net.aerith.misao.xml;
  * of the class that the relaxer generated automatically.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2004 November 24
+ * @version 2026 October 18
  */
 
 public class DefaultPixyFactory extends net.aerith.misao.xml.relaxer.DefaultPixyFactory {
@@ -487,6 +487,16 @@ public class DefaultPixyFactory extends net.aerith.misao.xml.relaxer.DefaultPixy
         return (new XmlImageConfig());
     }
 
+    /**
+     * Creates a default <code>XmlPerformanceConfig</code>.
+     * This method is a hook method of the AbstractPixyFactory.
+     *
+     * @return XmlPerformanceConfig
+     */
+    public net.aerith.misao.xml.relaxer.XmlPerformanceConfig createXmlPerformanceConfig() {
+        return (new XmlPerformanceConfig());
+    }
+
     /**
      * Creates a default <code>RContext</code>.
      * This method is a hook method of the AbstractPixyFactory.
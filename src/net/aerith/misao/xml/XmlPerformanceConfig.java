@@ -0,0 +1,20 @@
+/*
+ * @(#)XmlPerformanceConfig.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.xml;
+
+/**
+ * The <code>XmlPerformanceConfig</code> is an application side 
+ * implementation of the class that the relaxer generated 
+ * automatically.
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class XmlPerformanceConfig extends net.aerith.misao.xml.relaxer.XmlPerformanceConfig {
+}
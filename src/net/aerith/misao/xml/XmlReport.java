@@ -27,14 +27,15 @@ import net.aerith.misao.io.Decoder;
  * <tt>composeXml</tt> method.
  *
  * @author  Seiichi Yoshida (comet@aerith.net)
- * @version 2005 January 2
+ * @version 2026 October 18
  */
 
 public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 	/**
 	 * Reads this XML document from the specified reader.
 	 * <p>
-	 * This method does not use the standard DOM parser, but runs 
+	 * This method does not use the standard DOM parser, but reads the
+	 * document in a single pass by the streaming parser. It runs 
 	 * faster and does not consume too much memory.
 	 * @param in the reader.
 	 * @exception IOException if I/O error occurs.
@@ -81,101 +82,9 @@ public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 		}
 		*/
 
-		BufferedReader buffered_in = null;
-		if (in instanceof BufferedReader)
-			buffered_in = (BufferedReader)in;
-		else
-			buffered_in = new BufferedReader(in);
+		new XmlReportReader().read(in, this);
 
-		try {
-			String xml_version = buffered_in.readLine();
-			buffered_in.readLine();
-
-			buffered_in.readLine();	// <report>
-			buffered_in.readLine();	// <system>
-
-			XmlSystem system = new XmlSystem();
-			system.setVersion(getContent(buffered_in.readLine()));
-			system.setExaminedDate(getContent(buffered_in.readLine()));
-			system.setModifiedDate(getContent(buffered_in.readLine()));
-			setSystem(system);
-
-			buffered_in.readLine();	// </system>
-
-			String information_string = xml_version + "\n";
-			while (true) {
-				String s = buffered_in.readLine();
-				information_string += s;
-
-				if (s.indexOf("</information>") >= 0)
-					break;
-			}
-			XmlInformation info = new XmlInformation();
-			Reader string_in = new StringReader(information_string);
-			info.read(string_in);
-			string_in.close();
-			setInformation(info);
-
-			buffered_in.readLine();	// <data>
-
-			XmlData data = new XmlData();
-
-			XmlStar xml_star = null;
-			XmlRecord xml_record = null;
-			XmlCoor coor = new XmlCoor();
-			XmlPosition position = new XmlPosition();
-
-			while (true) {
-				String s = buffered_in.readLine();
-				if (s.indexOf("</data>") >= 0)
-					break;
-
-				if (s.indexOf("<star ") >= 0) {
-					xml_star = new XmlStar();
-					xml_star.setName(getAttribute(s));
-				} else if (s.indexOf("</star>") >= 0) {
-					data.addStar(xml_star);
-				} else if (s.indexOf("<record ") >= 0) {
-					xml_record = new XmlRecord();
-					xml_record.setClassValue(getAttribute(s));
-				} else if (s.indexOf("</record>") >= 0) {
-					Star star = xml_record.createStar();
-					xml_star.addStar(star);
-				} else if (s.indexOf("<name>") >= 0) {
-					xml_record.setName(getContent(s));
-				} else if (s.indexOf("<coor>") >= 0) {
-					coor.setRa(getContent(buffered_in.readLine()));
-					coor.setDecl(getContent(buffered_in.readLine()));
-					xml_record.setCoor(coor);
-				} else if (s.indexOf("<position>") >= 0) {
-					position.setX(Float.parseFloat(getContent(buffered_in.readLine())));
-					position.setY(Float.parseFloat(getContent(buffered_in.readLine())));
-					xml_record.setPosition(position);
-				} else if (s.indexOf("<item ") >= 0) {
-					XmlItem item = new XmlItem();
-					item.setKey(getAttribute(s));
-					item.setContent(getContent(s));
-					xml_record.addItem(item);
-				}
-			}
-
-			setData(data);
-
-			buffered_in.close();
-
-			Size size = new Size(info.getSize().getWidth(), info.getSize().getHeight());
-			data.createStarMap(size);
-
-			return;
-		} catch ( ClassNotFoundException exception ) {
-			System.err.println(exception);
-		} catch ( IllegalAccessException exception ) {
-			System.err.println(exception);
-		} catch ( InstantiationException exception ) {
-			System.err.println(exception);
-		}
-
-		throw new IOException();
+		in.close();
 	}
 
 	/**
@@ -193,32 +102,6 @@ public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 		getInformation().setPath(file.getPath());
 	}
 
-	/**
-	 * Gets the content string in one line of the XML document. This 
-	 * is for the fast reader, but not perfect.
-	 * @param s the one line string.
-	 * @return the content.
-	 */
-	private static String getContent ( String s ) {
-		int p = s.indexOf(">");
-		int q = s.lastIndexOf("<");
-		s = s.substring(p+1, q);
-
-		return translateFrom(s);
-	}
-
-	/**
-	 * Gets the attribute string in one line of the XML document. This 
-	 * is for the fast reader, but not perfect.
-	 * @param s the one line string.
-	 * @return the attiribute.
-	 */
-	private static String getAttribute ( String s ) {
-		int p = s.indexOf("\"");
-		int q = s.indexOf("\"", p+1);
-		return translateFrom(s.substring(p+1, q));
-	}
-
 	/**
 	 * Reads only the information element in the XML document from the
 	 * specified file. When the filename ends with ".gz" suffix, it
@@ -255,34 +138,7 @@ public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 	public static XmlInformation readInformation ( Reader in )
 		throws IOException
 	{
-		char[] buffer = new char[1024];
-
-		String info_string = "";
-
-		boolean loop = true;
-		while (loop) {
-			int bytes = in.read(buffer);
-
-			if (bytes >= 0) {
-				info_string += String.valueOf(buffer, 0, bytes);
-				if (info_string.indexOf("</information>") >= 0)
-					loop = false;
-			} else {
-				throw new IOException();
-			}
-		}
-
-		int ptr_start = info_string.indexOf("<information>");
-		int ptr_end = info_string.indexOf("</information>");
-
-		info_string = info_string.substring(ptr_start, ptr_end + 14);
-
-		StringReader reader = new StringReader(info_string);
-		XmlInformation info = new XmlInformation();
-		info.read(reader);
-		reader.close();
-
-		return info;
+		return new XmlReportReader().readInformation(in);
 	}
 
 	/**
@@ -297,66 +153,11 @@ public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 	public static XmlReport read ( BufferedReader in, Coor coor, double radius )
 		throws IOException
 	{
-		String report_string = "";
-		String star_string = "";
-		boolean data_flag = false;
-		boolean coor_flag = false;
-		boolean accept_flag = false;
-		String coor_string = "";
-
-		String s = in.readLine();
-		while (s != null) {
-			if (s.indexOf("<data>") >= 0) {
-				data_flag = true;
+		XmlReportReader reader = new XmlReportReader();
+		reader.setCone(coor, radius);
 
-				report_string += s + "\n";
-			} else if (s.indexOf("</data>") >= 0) {
-				data_flag = false;
-			}
-
-			if (data_flag == false) {
-				report_string += s + "\n";
-			} else {
-				if (s.indexOf("<star ") >= 0) {
-					star_string = "";
-					coor_flag = false;
-					accept_flag = true;
-				} else if (coor_flag == false) {
-					if (s.indexOf("<ra>") >= 0) {
-						int p_start = s.indexOf("<ra>") + 4;
-						int p_end = s.indexOf("</ra>");
-
-						coor_string = s.substring(p_start, p_end);
-					} else if (s.indexOf("<decl>") >= 0) {
-						int p_start = s.indexOf("<decl>") + 6;
-						int p_end = s.indexOf("</decl>");
-
-						coor_flag = true;
-
-						coor_string += " " + s.substring(p_start, p_end);
-						Coor cr = Coor.create(coor_string);
-
-						if (cr.getAngularDistanceTo(coor) > 10.0 / 3600.0)
-							accept_flag = false;
-					}
-				}
-
-				if (accept_flag) {
-					star_string += s + "\n";
-
-					if (s.indexOf("</star>") >= 0)
-						report_string += star_string;
-				}
-			}
-
-			s = in.readLine();
-		}
-
-		StringReader reader = new StringReader(report_string);
 		XmlReport report = new XmlReport();
-		report.read(reader);
-		reader.close();
-
+		reader.read(in, report);
 		return report;
 	}
 
@@ -371,43 +172,9 @@ public class XmlReport extends net.aerith.misao.xml.relaxer.XmlReport {
 	public static XmlStar readStar ( BufferedReader in, String name )
 		throws IOException
 	{
-		String string = "";
-		boolean accept_flag = false;
-
-		String s = in.readLine();
-		while (s != null) {
-			if (s.indexOf("<star name=") >= 0) {
-				string = "";
-				accept_flag = false;
-
-				int p_start = s.indexOf("<star name=") + 12;
-				int p_end = s.indexOf("\">");
-
-				String name2 = s.substring(p_start, p_end);
-				if (name2.equals(name))
-					accept_flag = true;
-			}
-
-			if (accept_flag) {
-				string += s + "\n";
-
-				if (s.indexOf("</star>") >= 0) {
-					StringReader reader = new StringReader(string);
-					XmlStar star = new XmlStar();
-					star.read(reader);
-					reader.close();
-
-					star.masticateXml();
-					star.deleteXml();
-
-					return star;
-				}
-			}
-
-			s = in.readLine();
-		}
-
-		return null;
+		XmlReportReader reader = new XmlReportReader();
+		reader.setStarName(name);
+		return reader.readStar(in);
 	}
 
 	/**
@@ -0,0 +1,470 @@
+/*
+ * @(#)XmlReportReader.java
+ *
+ * Copyright (C) 2026 agent
+ * All rights reserved.
+ */
+
+package net.aerith.misao.xml;
+import java.io.*;
+import javax.xml.parsers.*;
+import javax.xml.stream.*;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import net.aerith.misao.util.*;
+import net.aerith.misao.util.star.*;
+
+/**
+ * The <code>XmlReportReader</code> is a class to read the XML report
+ * document in a single pass by the streaming parser. The star data
+ * are converted into the <code>XmlStar</code> objects one by one and
+ * stored into the <code>XmlData</code> directly, so the memory
+ * consumption does not depend on the layout of lines nor on the
+ * number of stars rejected.
+ * <p>
+ * The filters to select the star data can be set. They are applied
+ * while reading, and the elements of the rejected stars are skipped
+ * without creating any objects. The following filters are available.
+ * <ul>
+ *   <li>cone: the R.A. and Decl. of the first record is within the
+ *       specified radius around the specified position.
+ *   <li>name: the name of the star is the specified one.
+ *   <li>magnitude range: the magnitude of the detected star image is
+ *       within the specified range.
+ * </ul>
+ *
+ * @author  agent (agent@local)
+ * @version 2026 October 18
+ */
+
+public class XmlReportReader {
+	/**
+	 * The center of the cone to select stars, or null.
+	 */
+	protected Coor cone_center = null;
+
+	/**
+	 * The radius of the cone to select stars in degree.
+	 */
+	protected double cone_radius = 0.0;
+
+	/**
+	 * The name of the star to select, or null.
+	 */
+	protected String star_name = null;
+
+	/**
+	 * True when the magnitude range to select stars is set.
+	 */
+	protected boolean mag_range_enabled = false;
+
+	/**
+	 * The brightest magnitude to select stars.
+	 */
+	protected double brightest_mag = 0.0;
+
+	/**
+	 * The faintest magnitude to select stars.
+	 */
+	protected double faintest_mag = 0.0;
+
+	/**
+	 * The factory of the streaming parser.
+	 */
+	private static XMLInputFactory factory = null;
+
+	/**
+	 * Constructs a <code>XmlReportReader</code> with no filters.
+	 */
+	public XmlReportReader ( ) {
+	}
+
+	/**
+	 * Sets the filter to select only stars within the specified
+	 * radius around the specified R.A. and Decl.
+	 * @param coor   the R.A. and Decl.
+	 * @param radius the radius in degree.
+	 */
+	public void setCone ( Coor coor, double radius ) {
+		cone_center = coor;
+		cone_radius = radius;
+	}
+
+	/**
+	 * Sets the filter to select only the star with the specified
+	 * name.
+	 * @param name the name.
+	 */
+	public void setStarName ( String name ) {
+		star_name = name;
+	}
+
+	/**
+	 * Sets the filter to select only stars whose detected image has
+	 * the magnitude within the specified range. The stars which are
+	 * not detected are rejected.
+	 * @param brightest_mag the brightest magnitude.
+	 * @param faintest_mag  the faintest magnitude.
+	 */
+	public void setMagnitudeRange ( double brightest_mag, double faintest_mag ) {
+		mag_range_enabled = true;
+		this.brightest_mag = brightest_mag;
+		this.faintest_mag = faintest_mag;
+	}
+
+	/**
+	 * Reads the XML report document from the specified reader into
+	 * the specified report object. Only the stars selected by the
+	 * filters are stored.
+	 * @param in     the reader.
+	 * @param report the XML report document to store the data.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public void read ( Reader in, XmlReport report )
+		throws IOException
+	{
+		XMLStreamReader stream = createStreamReader(in);
+
+		try {
+			XmlSystem system = null;
+			XmlInformation info = null;
+			XmlData data = null;
+
+			// Moves to the <report> element.
+			while (stream.next() != XMLStreamConstants.START_ELEMENT)
+				;
+
+			while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+				String tag = stream.getLocalName();
+
+				if (tag.equals("system")) {
+					system = new XmlSystem();
+					system.setup(readElement(stream));
+				} else if (tag.equals("information")) {
+					info = new XmlInformation();
+					info.setup(readElement(stream));
+				} else if (tag.equals("data")) {
+					data = new XmlData();
+					while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+						XmlStar xml_star = readStar(stream);
+						if (xml_star != null)
+							data.addStar(xml_star);
+					}
+				} else {
+					skipElement(stream);
+				}
+			}
+
+			stream.close();
+
+			if (system == null  ||  info == null  ||  data == null)
+				throw new IOException();
+
+			report.setSystem(system);
+			report.setInformation(info);
+			report.setData(data);
+
+			Size size = new Size(info.getSize().getWidth(), info.getSize().getHeight());
+			data.createStarMap(size);
+		} catch ( XMLStreamException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} catch ( ClassNotFoundException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} catch ( IllegalAccessException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		} catch ( InstantiationException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Reads only the information element in the XML report document
+	 * from the specified reader. It stops reading just after the
+	 * information element.
+	 * @param in the reader.
+	 * @return the information element.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlInformation readInformation ( Reader in )
+		throws IOException
+	{
+		XMLStreamReader stream = createStreamReader(in);
+
+		try {
+			while (stream.hasNext()) {
+				if (stream.next() == XMLStreamConstants.START_ELEMENT  &&
+					stream.getLocalName().equals("information")) {
+					XmlInformation info = new XmlInformation();
+					info.setup(readElement(stream));
+
+					stream.close();
+					return info;
+				}
+			}
+		} catch ( XMLStreamException exception ) {
+			System.err.println(exception);
+		}
+
+		throw new IOException();
+	}
+
+	/**
+	 * Reads the first star element selected by the filters in the XML
+	 * report document from the specified reader. It stops reading
+	 * just after the star element.
+	 * @param in the reader.
+	 * @return the star element, or null if not found.
+	 * @exception IOException if I/O error occurs.
+	 */
+	public XmlStar readStar ( Reader in )
+		throws IOException
+	{
+		XMLStreamReader stream = createStreamReader(in);
+
+		try {
+			while (stream.hasNext()) {
+				if (stream.next() == XMLStreamConstants.START_ELEMENT) {
+					String tag = stream.getLocalName();
+
+					if (tag.equals("star")) {
+						XmlStar xml_star = readStar(stream);
+						if (xml_star != null) {
+							stream.close();
+							return xml_star;
+						}
+					} else if (tag.equals("system")  ||  tag.equals("information")) {
+						skipElement(stream);
+					}
+				}
+			}
+
+			stream.close();
+			return null;
+		} catch ( XMLStreamException exception ) {
+			System.err.println(exception);
+		} catch ( ClassNotFoundException exception ) {
+			System.err.println(exception);
+		} catch ( IllegalAccessException exception ) {
+			System.err.println(exception);
+		} catch ( InstantiationException exception ) {
+			System.err.println(exception);
+		}
+
+		throw new IOException();
+	}
+
+	/**
+	 * Reads the star element at the current position of the stream,
+	 * and returns the star if it is selected by the filters. The
+	 * stream must be at the start of the star element, and it is at
+	 * the end of the star element after this method.
+	 * @param stream the stream.
+	 * @return the star, or null if it is rejected.
+	 * @exception XMLStreamException if a parse error occurs.
+	 * @exception ClassNotFoundException if the star class recorded in
+	 * the XML document is not found.
+	 * @exception IllegalAccessException if the class or initializer
+	 * is not accessible.
+	 * @exception InstantiationException if the instantiation of the
+	 * star class fails.
+	 */
+	private XmlStar readStar ( XMLStreamReader stream )
+		throws XMLStreamException, ClassNotFoundException, IllegalAccessException, InstantiationException
+	{
+		String name = stream.getAttributeValue(null, "name");
+		if (star_name != null  &&  star_name.equals(name) == false) {
+			skipElement(stream);
+			return null;
+		}
+
+		XmlStar xml_star = new XmlStar();
+		xml_star.setName(name);
+
+		boolean first_record = true;
+		while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			if (stream.getLocalName().equals("record") == false) {
+				skipElement(stream);
+				continue;
+			}
+
+			XmlRecord xml_record = readRecord(stream);
+
+			if (first_record  &&  cone_center != null) {
+				XmlCoor coor = (XmlCoor)xml_record.getCoor();
+				Coor cr = Coor.create(coor.getRa() + " " + coor.getDecl());
+				if (cr.getAngularDistanceTo(cone_center) > cone_radius) {
+					// Skips the rest of the star element.
+					while (stream.nextTag() == XMLStreamConstants.START_ELEMENT)
+						skipElement(stream);
+					return null;
+				}
+			}
+			first_record = false;
+
+			xml_star.addStar(xml_record.createStar());
+		}
+
+		if (mag_range_enabled) {
+			StarImage star_image = xml_star.getStarImage();
+			if (star_image == null  ||
+				star_image.getMag() < brightest_mag  ||  star_image.getMag() > faintest_mag)
+				return null;
+		}
+
+		return xml_star;
+	}
+
+	/**
+	 * Reads the record element at the current position of the stream.
+	 * The stream must be at the start of the record element, and it
+	 * is at the end of the record element after this method.
+	 * @param stream the stream.
+	 * @return the record.
+	 * @exception XMLStreamException if a parse error occurs.
+	 */
+	private XmlRecord readRecord ( XMLStreamReader stream )
+		throws XMLStreamException
+	{
+		XmlRecord xml_record = new XmlRecord();
+		xml_record.setClassValue(stream.getAttributeValue(null, "class"));
+
+		while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+			String tag = stream.getLocalName();
+
+			if (tag.equals("name")) {
+				xml_record.setName(stream.getElementText());
+			} else if (tag.equals("coor")) {
+				XmlCoor coor = new XmlCoor();
+				while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (stream.getLocalName().equals("ra"))
+						coor.setRa(stream.getElementText());
+					else if (stream.getLocalName().equals("decl"))
+						coor.setDecl(stream.getElementText());
+					else
+						skipElement(stream);
+				}
+				xml_record.setCoor(coor);
+			} else if (tag.equals("position")) {
+				XmlPosition position = new XmlPosition();
+				while (stream.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					if (stream.getLocalName().equals("x"))
+						position.setX(Float.parseFloat(stream.getElementText().trim()));
+					else if (stream.getLocalName().equals("y"))
+						position.setY(Float.parseFloat(stream.getElementText().trim()));
+					else
+						skipElement(stream);
+				}
+				xml_record.setPosition(position);
+			} else if (tag.equals("item")) {
+				XmlItem item = new XmlItem();
+				item.setKey(stream.getAttributeValue(null, "key"));
+				item.setContent(stream.getElementText());
+				xml_record.addItem(item);
+			} else {
+				skipElement(stream);
+			}
+		}
+
+		return xml_record;
+	}
+
+	/**
+	 * Reads the element at the current position of the stream into a
+	 * DOM element. The stream must be at the start of the element,
+	 * and it is at the end of the element after this method.
+	 * @param stream the stream.
+	 * @return the DOM element.
+	 * @exception XMLStreamException if a parse error occurs.
+	 */
+	private static Element readElement ( XMLStreamReader stream )
+		throws XMLStreamException
+	{
+		Document document = null;
+		try {
+			document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+		} catch ( ParserConfigurationException exception ) {
+			throw new XMLStreamException(exception);
+		}
+
+		Element root = document.createElement(stream.getLocalName());
+		document.appendChild(root);
+
+		Node node = root;
+		while (node != null) {
+			switch (stream.next()) {
+				case XMLStreamConstants.START_ELEMENT:
+					Element element = document.createElement(stream.getLocalName());
+					for (int i = 0 ; i < stream.getAttributeCount() ; i++)
+						element.setAttribute(stream.getAttributeLocalName(i), stream.getAttributeValue(i));
+					node.appendChild(element);
+					node = element;
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					node = (node == root ? null : node.getParentNode());
+					break;
+				case XMLStreamConstants.CHARACTERS:
+				case XMLStreamConstants.CDATA:
+				case XMLStreamConstants.SPACE:
+					node.appendChild(document.createTextNode(stream.getText()));
+					break;
+			}
+		}
+
+		return root;
+	}
+
+	/**
+	 * Skips the element at the current position of the stream. The
+	 * stream must be at the start of the element, and it is at the
+	 * end of the element after this method.
+	 * @param stream the stream.
+	 * @exception XMLStreamException if a parse error occurs.
+	 */
+	private static void skipElement ( XMLStreamReader stream )
+		throws XMLStreamException
+	{
+		int depth = 1;
+		while (depth > 0) {
+			int event = stream.next();
+			if (event == XMLStreamConstants.START_ELEMENT)
+				depth++;
+			else if (event == XMLStreamConstants.END_ELEMENT)
+				depth--;
+		}
+	}
+
+	/**
+	 * Creates the streaming parser to read from the specified reader.
+	 * @param in the reader.
+	 * @return the streaming parser.
+	 * @exception IOException if the parser cannot be created.
+	 */
+	private static XMLStreamReader createStreamReader ( Reader in )
+		throws IOException
+	{
+		try {
+			return getFactory().createXMLStreamReader(in);
+		} catch ( XMLStreamException exception ) {
+			System.err.println(exception);
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Gets the factory of the streaming parser.
+	 * @return the factory of the streaming parser.
+	 */
+	private synchronized static XMLInputFactory getFactory ( ) {
+		if (factory == null) {
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		}
+		return factory;
+	}
+}
@@ -527,6 +527,17 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> with Context.
+     *
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfigWithContext() {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig();
+        xmlPerformanceConfig.setRContext(createRContext());
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Document <code>doc</code>.
      * This method is a template method for concrete classes.
@@ -1138,6 +1149,19 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     * This method is a template method for concrete classes.
+     *
+     * @param doc
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfig(Document doc) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig();
+        xmlPerformanceConfig.setup(doc);
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Document <code>doc</code>.
      * This method is a template method for concrete classes.
@@ -1749,6 +1773,19 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     * This method is a template method for concrete classes.
+     *
+     * @param doc
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfigWithContext(Document doc) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig(doc);
+        xmlPerformanceConfig.setRContext(createRContext());
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Element <code>element</code>.
      * This method is a template method for concrete classes.
@@ -2360,6 +2397,19 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     * This method is a template method for concrete classes.
+     *
+     * @param element
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfig(Element element) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig();
+        xmlPerformanceConfig.setup(element);
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Element <code>element</code>.
      * This method is a template method for concrete classes.
@@ -2971,6 +3021,19 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     * This method is a template method for concrete classes.
+     *
+     * @param element
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfigWithContext(Element element) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig(element);
+        xmlPerformanceConfig.setRContext(createRContext());
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Stack <code>stack</code>.
      * This mehtod is supposed to be used internally
@@ -3676,6 +3739,21 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         return (xmlImageConfig);
     }
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     * This method is a template method for concrete classes.
+     *
+     * @param stack
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfig(RStack stack) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig();
+        xmlPerformanceConfig.setup(stack);
+        return (xmlPerformanceConfig);
+    }
+
     /**
      * Creates a <code>XmlPixy</code> by the Stack <code>stack</code>.
      * This mehtod is supposed to be used internally
@@ -4380,4 +4458,19 @@ public abstract class AbstractPixyFactory implements IPixyFactory {
         xmlImageConfig.setRContext(createRContext());
         return (xmlImageConfig);
     }
+
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     * This method is a template method for concrete classes.
+     *
+     * @param stack
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfigWithContext(RStack stack) {
+        XmlPerformanceConfig xmlPerformanceConfig = createXmlPerformanceConfig(stack);
+        xmlPerformanceConfig.setRContext(createRContext());
+        return (xmlPerformanceConfig);
+    }
 }
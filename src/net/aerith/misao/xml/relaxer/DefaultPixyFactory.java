@@ -480,6 +480,16 @@ public class DefaultPixyFactory extends AbstractPixyFactory {
         return (new XmlImageConfig());
     }
 
+    /**
+     * Creates a default <code>XmlPerformanceConfig</code>.
+     * This method is a hook method of the AbstractPixyFactory.
+     *
+     * @return XmlPerformanceConfig
+     */
+    public XmlPerformanceConfig createXmlPerformanceConfig() {
+        return (new XmlPerformanceConfig());
+    }
+
     /**
      * Creates a default <code>RContext</code>.
      * This method is a hook method of the AbstractPixyFactory.
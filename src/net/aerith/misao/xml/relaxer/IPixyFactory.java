@@ -338,6 +338,13 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfig();
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code>.
+     *
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfig();
+
     /**
      * Creates a <code>XmlPixy</code>.
      *
@@ -667,6 +674,13 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfigWithContext();
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code>.
+     *
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfigWithContext();
+
     /**
      * Creates a <code>XmlPixy</code> by the Document <code>doc</code>.
      *
@@ -1043,6 +1057,14 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfig(Document doc);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     *
+     * @param doc
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfig(Document doc);
+
     /**
      * Creates a <code>XmlPixy</code> by the Document <code>doc</code>.
      *
@@ -1419,6 +1441,14 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfigWithContext(Document doc);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     *
+     * @param doc
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfigWithContext(Document doc);
+
     /**
      * Creates a <code>XmlPixy</code> by the Element <code>element</code>.
      *
@@ -1795,6 +1825,14 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfig(Element element);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     *
+     * @param element
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfig(Element element);
+
     /**
      * Creates a <code>XmlPixy</code> by the Element <code>element</code>.
      *
@@ -2171,6 +2209,14 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfigWithContext(Element element);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     *
+     * @param element
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfigWithContext(Element element);
+
     /**
      * Creates a <code>XmlPixy</code> by the Stack <code>stack</code>.
      * This mehtod is supposed to be used internally
@@ -2641,6 +2687,16 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfig(RStack stack);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfig(RStack stack);
+
     /**
      * Creates a <code>XmlPixy</code> by the Stack <code>stack</code>.
      * This mehtod is supposed to be used internally
@@ -3111,6 +3167,16 @@ public interface IPixyFactory {
      */
     XmlImageConfig createXmlImageConfigWithContext(RStack stack);
 
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     * @return XmlPerformanceConfig
+     */
+    XmlPerformanceConfig createXmlPerformanceConfigWithContext(RStack stack);
+
     /**
      * Creates a <code>RContext</code>.
      *
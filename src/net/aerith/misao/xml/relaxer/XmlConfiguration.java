@@ -11,6 +11,7 @@ import org.w3c.dom.*;
  *   <sequence>
  *     <ref label="catalog-path" occurs="*"/>
  *     <ref label="image-config" occurs="?"/>
+ *     <ref label="performance-config" occurs="?"/>
  *   </sequence>
  * </elementRule>
  * 
@@ -21,6 +22,7 @@ import org.w3c.dom.*;
  *   &lt;sequence&gt;
  *     &lt;ref label="catalog-path" occurs="*"/&gt;
  *     &lt;ref label="image-config" occurs="?"/&gt;
+ *     &lt;ref label="performance-config" occurs="?"/&gt;
  *   &lt;/sequence&gt;
  * &lt;/elementRule&gt;
  * &lt;tag name="configuration"/&gt;
@@ -33,6 +35,7 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
     // List<XmlCatalogPath>
     private java.util.List catalogPath = new java.util.ArrayList();
     private XmlImageConfig imageConfig;
+    private XmlPerformanceConfig performanceConfig;
     private IRNode parentRNode;
     private RContext rContext;
 
@@ -120,6 +123,9 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
         if (XmlImageConfig.isMatch(stack)) {
             setImageConfig(factory.createXmlImageConfig(stack));
         }
+        if (XmlPerformanceConfig.isMatch(stack)) {
+            setPerformanceConfig(factory.createXmlPerformanceConfig(stack));
+        }
     }
 
     /**
@@ -145,6 +151,9 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
         if (imageConfig != null) {
             imageConfig.makeElement(element);
         }
+        if (performanceConfig != null) {
+            performanceConfig.makeElement(element);
+        }
         parent.appendChild(element);
     }
 
@@ -201,6 +210,25 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
         imageConfig.setParentRNode(this);
     }
 
+    /**
+     * Gets the XmlPerformanceConfig property <b>performanceConfig</b>.
+     *
+     * @return XmlPerformanceConfig
+     */
+    public final XmlPerformanceConfig getPerformanceConfig() {
+        return (performanceConfig);
+    }
+
+    /**
+     * Sets the XmlPerformanceConfig property <b>performanceConfig</b>.
+     *
+     * @param performanceConfig
+     */
+    public final void setPerformanceConfig(XmlPerformanceConfig performanceConfig) {
+        this.performanceConfig = performanceConfig;
+        performanceConfig.setParentRNode(this);
+    }
+
     /**
      * Gets the IRNode property <b>parentRNode</b>.
      *
@@ -230,6 +258,9 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
         if (imageConfig != null) {
             classNodes.add(imageConfig);
         }
+        if (performanceConfig != null) {
+            classNodes.add(performanceConfig);
+        }
         IRNode[] nodes = new IRNode[classNodes.size()];
         return ((IRNode[])classNodes.toArray(nodes));
     }
@@ -292,6 +323,8 @@ public class XmlConfiguration extends net.aerith.misao.xml.IONode implements jav
         }
         if (XmlImageConfig.isMatchHungry(target)) {
         }
+        if (XmlPerformanceConfig.isMatchHungry(target)) {
+        }
         if (!target.isEmptyElement()) {
             return (false);
         }
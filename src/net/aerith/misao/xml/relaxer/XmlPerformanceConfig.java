@@ -0,0 +1,405 @@
+package net.aerith.misao.xml.relaxer;
+
+import org.w3c.dom.*;
+
+/**
+ * <b>XmlPerformanceConfig</b> is generated by Relaxer based on pixy.rlx.
+ * This class is derived from:
+ * 
+ * <!-- for programmer
+ * <elementRule role="performance-config">
+ *   <sequence>
+ *     <element name="catalog-cache-size" occurs="?" type="long"/>
+ *     <element name="plate-solution-cache-size" occurs="?" type="int"/>
+ *     <element name="fast-database-rebuild" occurs="?" type="boolean"/>
+ *     <element name="mapped-temporary-database" occurs="?" type="boolean"/>
+ *     <element name="local-threshold" occurs="?" type="boolean"/>
+ *   </sequence>
+ * </elementRule>
+ * 
+ * <tag name="performance-config"/>
+ * -->
+ * <!-- for javadoc -->
+ * <pre> &lt;elementRule role="performance-config"&gt;
+ *   &lt;sequence&gt;
+ *     &lt;element name="catalog-cache-size" occurs="?" type="long"/&gt;
+ *     &lt;element name="plate-solution-cache-size" occurs="?" type="int"/&gt;
+ *     &lt;element name="fast-database-rebuild" occurs="?" type="boolean"/&gt;
+ *     &lt;element name="mapped-temporary-database" occurs="?" type="boolean"/&gt;
+ *     &lt;element name="local-threshold" occurs="?" type="boolean"/&gt;
+ *   &lt;/sequence&gt;
+ * &lt;/elementRule&gt;
+ * &lt;tag name="performance-config"/&gt;
+ * </pre>
+ *
+ * @version pixy.rlx (Sun Oct 18 10:00:00 JST 2026)
+ * @author  Relaxer 0.10.1 (by ASAMI@Yokohama)
+ */
+public class XmlPerformanceConfig extends net.aerith.misao.xml.IONode implements java.io.Serializable, IRNode {
+    private Long catalogCacheSize;
+    private Integer plateSolutionCacheSize;
+    private Boolean fastDatabaseRebuild;
+    private Boolean mappedTemporaryDatabase;
+    private Boolean localThreshold;
+    private IRNode parentRNode;
+    private RContext rContext;
+
+    /**
+     * Creates a <code>XmlPerformanceConfig</code>.
+     *
+     */
+    public XmlPerformanceConfig() {
+    }
+
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>
+     * that contains Elements.
+     * This constructor is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     */
+    public XmlPerformanceConfig(RStack stack) {
+        setup(stack);
+    }
+
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     *
+     * @param doc
+     */
+    public XmlPerformanceConfig(Document doc) {
+        setup(doc.getDocumentElement());
+    }
+
+    /**
+     * Creates a <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     *
+     * @param element
+     */
+    public XmlPerformanceConfig(Element element) {
+        setup(element);
+    }
+
+    /**
+     * Initializes the <code>XmlPerformanceConfig</code> by the Document <code>doc</code>.
+     *
+     * @param doc
+     */
+    public void setup(Document doc) {
+        setup(doc.getDocumentElement());
+    }
+
+    /**
+     * Initializes the <code>XmlPerformanceConfig</code> by the Element <code>element</code>.
+     *
+     * @param element
+     */
+    public void setup(Element element) {
+        init(element);
+    }
+
+    /**
+     * Initializes the <code>XmlPerformanceConfig</code> by the Stack <code>stack</code>
+     * that contains Elements.
+     * This constructor is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     */
+    public void setup(RStack stack) {
+        setup(stack.popElement());
+    }
+
+    /**
+     * @param element
+     */
+    private void init(Element element) {
+        IPixyFactory factory = PixyFactory.getFactory();
+        RStack stack = new RStack(element);
+        catalogCacheSize = URelaxer.getElementPropertyAsLongByStack(stack, "catalog-cache-size");
+        plateSolutionCacheSize = URelaxer.getElementPropertyAsIntByStack(stack, "plate-solution-cache-size");
+        fastDatabaseRebuild = URelaxer.getElementPropertyAsBooleanByStack(stack, "fast-database-rebuild");
+        mappedTemporaryDatabase = URelaxer.getElementPropertyAsBooleanByStack(stack, "mapped-temporary-database");
+        localThreshold = URelaxer.getElementPropertyAsBooleanByStack(stack, "local-threshold");
+    }
+
+    /**
+     * Creates a DOM representation of the object.
+     * Result is appended to the Node <code>parent</code>.
+     *
+     * @param parent
+     */
+    public void makeElement(Node parent) {
+        Document doc;
+        if (parent instanceof Document) {
+            doc = (Document)parent;
+        } else {
+            doc = parent.getOwnerDocument();
+        }
+        Element element = doc.createElement("performance-config");
+        int size;
+        if (catalogCacheSize != null) {
+            URelaxer.setElementPropertyByLong(element, "catalog-cache-size", catalogCacheSize);
+        }
+        if (plateSolutionCacheSize != null) {
+            URelaxer.setElementPropertyByInt(element, "plate-solution-cache-size", plateSolutionCacheSize);
+        }
+        if (fastDatabaseRebuild != null) {
+            URelaxer.setElementPropertyByBoolean(element, "fast-database-rebuild", fastDatabaseRebuild);
+        }
+        if (mappedTemporaryDatabase != null) {
+            URelaxer.setElementPropertyByBoolean(element, "mapped-temporary-database", mappedTemporaryDatabase);
+        }
+        if (localThreshold != null) {
+            URelaxer.setElementPropertyByBoolean(element, "local-threshold", localThreshold);
+        }
+        parent.appendChild(element);
+    }
+
+    /**
+     * Gets the Long property <b>catalogCacheSize</b>.
+     *
+     * @return Long
+     */
+    public final Long getCatalogCacheSize() {
+        return (catalogCacheSize);
+    }
+
+    /**
+     * Sets the Long property <b>catalogCacheSize</b>.
+     *
+     * @param catalogCacheSize
+     */
+    public final void setCatalogCacheSize(Long catalogCacheSize) {
+        this.catalogCacheSize = catalogCacheSize;
+    }
+
+    /**
+     * Gets the Integer property <b>plateSolutionCacheSize</b>.
+     *
+     * @return Integer
+     */
+    public final Integer getPlateSolutionCacheSize() {
+        return (plateSolutionCacheSize);
+    }
+
+    /**
+     * Sets the Integer property <b>plateSolutionCacheSize</b>.
+     *
+     * @param plateSolutionCacheSize
+     */
+    public final void setPlateSolutionCacheSize(Integer plateSolutionCacheSize) {
+        this.plateSolutionCacheSize = plateSolutionCacheSize;
+    }
+
+    /**
+     * Gets the Boolean property <b>fastDatabaseRebuild</b>.
+     *
+     * @return Boolean
+     */
+    public final Boolean getFastDatabaseRebuild() {
+        return (fastDatabaseRebuild);
+    }
+
+    /**
+     * Sets the Boolean property <b>fastDatabaseRebuild</b>.
+     *
+     * @param fastDatabaseRebuild
+     */
+    public final void setFastDatabaseRebuild(Boolean fastDatabaseRebuild) {
+        this.fastDatabaseRebuild = fastDatabaseRebuild;
+    }
+
+    /**
+     * Gets the Boolean property <b>mappedTemporaryDatabase</b>.
+     *
+     * @return Boolean
+     */
+    public final Boolean getMappedTemporaryDatabase() {
+        return (mappedTemporaryDatabase);
+    }
+
+    /**
+     * Sets the Boolean property <b>mappedTemporaryDatabase</b>.
+     *
+     * @param mappedTemporaryDatabase
+     */
+    public final void setMappedTemporaryDatabase(Boolean mappedTemporaryDatabase) {
+        this.mappedTemporaryDatabase = mappedTemporaryDatabase;
+    }
+
+    /**
+     * Gets the Boolean property <b>localThreshold</b>.
+     *
+     * @return Boolean
+     */
+    public final Boolean getLocalThreshold() {
+        return (localThreshold);
+    }
+
+    /**
+     * Sets the Boolean property <b>localThreshold</b>.
+     *
+     * @param localThreshold
+     */
+    public final void setLocalThreshold(Boolean localThreshold) {
+        this.localThreshold = localThreshold;
+    }
+
+    /**
+     * Gets the IRNode property <b>parentRNode</b>.
+     *
+     * @return IRNode
+     */
+    public final IRNode getParentRNode() {
+        return (parentRNode);
+    }
+
+    /**
+     * Sets the IRNode property <b>parentRNode</b>.
+     *
+     * @param parentRNode
+     */
+    public final void setParentRNode(IRNode parentRNode) {
+        this.parentRNode = parentRNode;
+    }
+
+    /**
+     * Gets child RNodes.
+     *
+     * @return IRNode[]
+     */
+    public IRNode[] getRNodes() {
+        java.util.List classNodes = new java.util.ArrayList();
+        IRNode[] nodes = new IRNode[classNodes.size()];
+        return ((IRNode[])classNodes.toArray(nodes));
+    }
+
+    /**
+     * Gets the RContext property <b>rContext</b>.
+     *
+     * @return RContext
+     */
+    public final RContext getRContext() {
+        return (rContext);
+    }
+
+    /**
+     * Sets the RContext property <b>rContext</b>.
+     *
+     * @param rContext
+     */
+    public final void setRContext(RContext rContext) {
+        this.rContext = rContext;
+        IRNode[] contextRNodes = getRNodes();
+        for (int i = 0;i < contextRNodes.length;i++) {
+            contextRNodes[i].setRContext(rContext);
+        }
+    }
+
+    /**
+     * Gets the property "rContext" which is resolved recursively.
+     *
+     * @return RContext
+     */
+    public RContext getRContextResolved() {
+        if (rContext != null) {
+            return (rContext);
+        }
+        if (parentRNode == null) {
+            return (null);
+        }
+        return (parentRNode.getRContextResolved());
+    }
+
+    /**
+     * Tests if a Element <code>element</code> is valid
+     * for the <code>XmlPerformanceConfig</code>.
+     *
+     * @param element
+     * @return boolean
+     */
+    public static boolean isMatch(Element element) {
+        String tagName = element.getTagName();
+        if (!"performance-config".equals(tagName)) {
+            return (false);
+        }
+        RStack target = new RStack(element);
+        Element child;
+        child = target.peekElement();
+        if (child != null) {
+            if ("catalog-cache-size".equals(child.getTagName())) {
+                target.popElement();
+            }
+        }
+        child = target.peekElement();
+        if (child != null) {
+            if ("plate-solution-cache-size".equals(child.getTagName())) {
+                target.popElement();
+            }
+        }
+        child = target.peekElement();
+        if (child != null) {
+            if ("fast-database-rebuild".equals(child.getTagName())) {
+                target.popElement();
+            }
+        }
+        child = target.peekElement();
+        if (child != null) {
+            if ("mapped-temporary-database".equals(child.getTagName())) {
+                target.popElement();
+            }
+        }
+        child = target.peekElement();
+        if (child != null) {
+            if ("local-threshold".equals(child.getTagName())) {
+                target.popElement();
+            }
+        }
+        if (!target.isEmptyElement()) {
+            return (false);
+        }
+        return (true);
+    }
+
+    /**
+     * Tests if elements contained in a Stack <code>stack</code>
+     * is valid for the <code>XmlPerformanceConfig</code>.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     * @return boolean
+     */
+    public static boolean isMatch(RStack stack) {
+        Element element = stack.peekElement();
+        if (element == null) {
+            return (false);
+        }
+        return (isMatch(element));
+    }
+
+    /**
+     * Tests if elements contained in a Stack <code>stack</code>
+     * is valid for the <code>XmlPerformanceConfig</code>.
+     * This method consumes the stack contents during matching operation.
+     * This mehtod is supposed to be used internally
+     * by the Relaxer system.
+     *
+     * @param stack
+     * @return boolean
+     */
+    public static boolean isMatchHungry(RStack stack) {
+        Element element = stack.peekElement();
+        if (element == null) {
+            return (false);
+        }
+        if (isMatch(element)) {
+            stack.popElement();
+            return (true);
+        } else {
+            return (false);
+        }
+    }
+}